@@ -19,6 +19,9 @@
 package simplenlg.aggregation;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 
 import simplenlg.features.DiscourseFunction;
@@ -96,26 +99,12 @@ public abstract class PhraseChecker {
 
 				if (!sentences[i - 1].hasFeature(Feature.CUE_PHRASE)
 						&& !sentences[i].hasFeature(Feature.CUE_PHRASE)) {
-					equal = sentences[i - 1]
-							.getFeatureAsElementList(
-									InternalFeature.FRONT_MODIFIERS)
-							.equals(
-									sentences[i]
-											.getFeatureAsElementList(InternalFeature.FRONT_MODIFIERS));
+					equal = sameElements(sentences[i - 1], sentences[i], InternalFeature.FRONT_MODIFIERS);
 
 				} else if (sentences[i - 1].hasFeature(Feature.CUE_PHRASE)
 						&& sentences[i].hasFeature(Feature.CUE_PHRASE)) {
-					equal = sentences[i - 1]
-							.getFeatureAsElementList(
-									InternalFeature.FRONT_MODIFIERS)
-							.equals(
-									sentences[i]
-											.getFeatureAsElementList(InternalFeature.FRONT_MODIFIERS))
-							&& sentences[i]
-									.getFeatureAsElementList(Feature.CUE_PHRASE)
-									.equals(
-											sentences[i - 1]
-													.getFeatureAsElementList(Feature.CUE_PHRASE));
+					equal = sameElements(sentences[i - 1], sentences[i], InternalFeature.FRONT_MODIFIERS)
+							&& sameElements(sentences[i], sentences[i - 1], Feature.CUE_PHRASE);
 
 				} else {
 					equal = false;
@@ -139,11 +128,7 @@ public abstract class PhraseChecker {
 		if (sentences.length >= 2) {
 
 			for (int i = 1; i < sentences.length && equal; i++) {
-				equal = sentences[i - 1]
-						.getFeatureAsElementList(InternalFeature.POSTMODIFIERS)
-						.equals(
-								sentences[i]
-										.getFeatureAsElementList(InternalFeature.POSTMODIFIERS));
+				equal = sameElements(sentences[i - 1], sentences[i], InternalFeature.POSTMODIFIERS);
 			}
 		}
 
@@ -163,10 +148,7 @@ public abstract class PhraseChecker {
 		boolean equal = sentences.length >= 2;
 
 		for (int i = 1; i < sentences.length && equal; i++) {
-			equal = sentences[i - 1].getFeatureAsElementList(
-					InternalFeature.SUBJECTS).equals(
-					sentences[i]
-							.getFeatureAsElementList(InternalFeature.SUBJECTS));
+			equal = sameElements(sentences[i - 1], sentences[i], InternalFeature.SUBJECTS);
 		}
 
 		return equal;
@@ -360,11 +342,7 @@ public abstract class PhraseChecker {
 			NLGElement vp2 = sentences[i]
 					.getFeatureAsElement(InternalFeature.VERB_PHRASE);
 
-			equal = vp1
-					.getFeatureAsElementList(InternalFeature.COMPLEMENTS)
-					.equals(
-							vp2
-									.getFeatureAsElementList(InternalFeature.COMPLEMENTS));
+			equal = sameElements(vp1, vp2, InternalFeature.COMPLEMENTS);
 		}
 
 		return equal;
@@ -388,17 +366,8 @@ public abstract class PhraseChecker {
 			NLGElement vp2 = sentences[i]
 					.getFeatureAsElement(InternalFeature.VERB_PHRASE);
 
-			equal = vp1
-					.getFeatureAsElementList(InternalFeature.POSTMODIFIERS)
-					.equals(
-							vp2
-									.getFeatureAsElementList(InternalFeature.POSTMODIFIERS))
-					&& vp1
-							.getFeatureAsElementList(
-									InternalFeature.PREMODIFIERS)
-							.equals(
-									vp2
-											.getFeatureAsElementList(InternalFeature.PREMODIFIERS));
+			equal = sameElements(vp1, vp2, InternalFeature.POSTMODIFIERS)
+					&& sameElements(vp1, vp2, InternalFeature.PREMODIFIERS);
 		}
 
 		return equal;
@@ -504,4 +473,64 @@ public abstract class PhraseChecker {
 
 		return nopass;
 	}
+
+	/**
+	 * Check that two phrases have the same elements as the value of a
+	 * feature, as given by <code>getFeatureAsElementList()</code>, without
+	 * copying them. Elements which differ are mostly told apart by their hash
+	 * codes, which they keep (see <code>NLGElement.hashCode()</code>).
+	 * 
+	 * @param phrase1
+	 * @param phrase2
+	 * @param featureName
+	 * @return <code>true</code> if the elements are equal, in the same order
+	 */
+	private static boolean sameElements(NLGElement phrase1, NLGElement phrase2, String featureName) {
+		Object value1 = phrase1.getFeature(featureName);
+		Object value2 = phrase2.getFeature(featureName);
+		if (value1 == value2) {
+			return true;
+		}
+
+		Iterator<?> items1 = items(value1);
+		Iterator<?> items2 = items(value2);
+		NLGElement element1 = nextElement(items1);
+		NLGElement element2 = nextElement(items2);
+		while (element1 != null && element2 != null) {
+			if (!element1.equals(element2)) {
+				return false;
+			}
+			element1 = nextElement(items1);
+			element2 = nextElement(items2);
+		}
+		return element1 == null && element2 == null;
+	}
+
+	/**
+	 * @param value
+	 *            the value of a feature
+	 * @return the element, or the items of the collection, given as value
+	 */
+	private static Iterator<?> items(Object value) {
+		if (value instanceof NLGElement) {
+			return Collections.singleton(value).iterator();
+		} else if (value instanceof Collection<?>) {
+			return ((Collection<?>) value).iterator();
+		}
+		return Collections.emptyIterator();
+	}
+
+	/**
+	 * @param items
+	 * @return the next element of the items, or null if there is none
+	 */
+	private static NLGElement nextElement(Iterator<?> items) {
+		while (items.hasNext()) {
+			Object item = items.next();
+			if (item instanceof NLGElement) {
+				return (NLGElement) item;
+			}
+		}
+		return null;
+	}
 }
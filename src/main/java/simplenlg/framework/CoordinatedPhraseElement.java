@@ -20,9 +20,9 @@
 package simplenlg.framework;
 
 import java.util.ArrayList;
-import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import simplenlg.features.Feature;
 import simplenlg.features.Gender;
@@ -59,7 +59,8 @@ import simplenlg.framework.LexicalCategory;
 public class CoordinatedPhraseElement extends NLGElement {
 
 	// added by vaudrypl
-	private static Map<Language, AbstractCoordinatedPhraseHelper> coordinatedPhraseHelpers = null; 
+	private static final Map<Language, AbstractCoordinatedPhraseHelper> coordinatedPhraseHelpers =
+		new ConcurrentHashMap<Language, AbstractCoordinatedPhraseHelper>();
 	
 	// not used anymore, commented out by vaudrypl
 //	/** Coordinators which make the coordinate plural (eg, "and" but not "or")*/
@@ -170,10 +171,6 @@ public class CoordinatedPhraseElement extends NLGElement {
 	 */
 	public static AbstractCoordinatedPhraseHelper getCoordinatedPhraseHelper(Language language)
 	{
-		if (coordinatedPhraseHelpers == null) {
-			coordinatedPhraseHelpers =
-				new EnumMap<Language,AbstractCoordinatedPhraseHelper>(Language.class); 
-		}
 		AbstractCoordinatedPhraseHelper coordinatedPhraseHelper =
 			coordinatedPhraseHelpers.get(language);
 		if (coordinatedPhraseHelper == null) {
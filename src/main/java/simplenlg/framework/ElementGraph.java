@@ -0,0 +1,239 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is "Simplenlg".
+ *
+ * The Initial Developer of the Original Code is Ehud Reiter, Albert Gatt and Dave Westwater.
+ * Portions created by Ehud Reiter, Albert Gatt and Dave Westwater are Copyright (C) 2010-11 The University of Aberdeen. All Rights Reserved.
+ *
+ * Contributor(s): Ehud Reiter, Albert Gatt, Dave Wewstwater, Roman Kutlak, Margaret Mitchell, Pierre-Luc Vaudry.
+ */
+package simplenlg.framework;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import simplenlg.features.InternalFeature;
+
+/**
+ * The elements of a tree, the root first, with the features which refer to
+ * other elements of the tree and the parent of each element, so that copies
+ * of the elements can be linked as the elements are without looking for
+ * them again. It is used by <code>PhraseTemplate</code> to layer the phrase
+ * of a template, and by <code>RealisationCache</code> to copy realised
+ * trees.
+ */
+class ElementGraph {
+
+	/**
+	 * Which elements of a tree are collected.
+	 */
+	enum Follow {
+		/** the elements referred to by the features, except from words */
+		FEATURES,
+		/** the same, but the slots of a template aren't followed either */
+		FEATURES_TO_SLOTS,
+		/** the components of the list elements only (a realised tree) */
+		COMPONENTS
+	}
+
+	final NLGElement[] elements;
+
+	private final Follow follow;
+
+	// position of the parent of each element, -1 if not in the tree
+	private final int[] parents;
+
+	// names of the features of each element which refer to elements,
+	// and their values, as the Integer position of an element or a
+	// ListLink for a collection
+	private final String[][] linkNames;
+	private final Object[][] linkValues;
+
+	/**
+	 * Collects an element and the elements it refers to, except the base
+	 * words (which stay those of the lexicon).
+	 *
+	 * @param root
+	 * @param follow
+	 *            which elements are collected.
+	 */
+	ElementGraph(NLGElement root, Follow follow) {
+		this.follow = follow;
+		Map<NLGElement, Integer> positions = new IdentityHashMap<NLGElement, Integer>();
+		List<NLGElement> collected = new ArrayList<NLGElement>();
+		collected.add(root);
+		positions.put(root, 0);
+		for (int i = 0; i < collected.size(); i++) {
+			NLGElement element = collected.get(i);
+			if (follow == Follow.COMPONENTS) {
+				if (element instanceof ListElement) {
+					addAll(element.features.get(InternalFeature.COMPONENTS), collected, positions);
+				}
+			} else if (!isLeaf(element)) {
+				for (Object value : element.features.values()) {
+					addAll(value, collected, positions);
+				}
+			}
+		}
+
+		elements = collected.toArray(new NLGElement[collected.size()]);
+		parents = new int[elements.length];
+		linkNames = new String[elements.length][];
+		linkValues = new Object[elements.length][];
+		List<String> names = new ArrayList<String>();
+		List<Object> links = new ArrayList<Object>();
+		for (int i = 0; i < elements.length; i++) {
+			Integer parent = positions.get(elements[i].getParent());
+			parents[i] = parent == null ? -1 : parent;
+			names.clear();
+			links.clear();
+			if (!isLeaf(elements[i])) {
+				for (Map.Entry<String, Object> feature : elements[i].features.entrySet()) {
+					Object link = link(feature, positions);
+					if (link != null) {
+						names.add(feature.getKey());
+						links.add(link);
+					}
+				}
+			}
+			linkNames[i] = names.toArray(new String[names.size()]);
+			linkValues[i] = links.toArray();
+		}
+	}
+
+	/**
+	 * @param element
+	 * @return <code>true</code> if the features of the element aren't
+	 *         followed.
+	 */
+	boolean isLeaf(NLGElement element) {
+		switch (follow) {
+		case COMPONENTS:
+			return !(element instanceof ListElement);
+		case FEATURES_TO_SLOTS:
+			return element instanceof WordElement || element instanceof PhraseTemplate.Slot;
+		default:
+			return element instanceof WordElement;
+		}
+	}
+
+	/**
+	 * collect an element, or the elements of a collection, if they aren't
+	 * yet
+	 */
+	private static void addAll(Object value, List<NLGElement> collected,
+			Map<NLGElement, Integer> positions) {
+		if (value instanceof NLGElement) {
+			add((NLGElement) value, collected, positions);
+		} else if (value instanceof Collection<?>) {
+			for (Object item : (Collection<?>) value) {
+				if (item instanceof NLGElement) add((NLGElement) item, collected, positions);
+			}
+		}
+	}
+
+	private static void add(NLGElement element, List<NLGElement> collected,
+			Map<NLGElement, Integer> positions) {
+		if (!positions.containsKey(element)) {
+			positions.put(element, collected.size());
+			collected.add(element);
+		}
+	}
+
+	/**
+	 * @param feature
+	 * @param positions
+	 *            the position of each element.
+	 * @return the value of the feature as kept in linkValues, or null if
+	 *         it doesn't refer to elements of the tree.
+	 */
+	private static Object link(Map.Entry<String, Object> feature, Map<NLGElement, Integer> positions) {
+		// the base words stay those of the lexicon
+		if (InternalFeature.BASE_WORD.equals(feature.getKey())) return null;
+		Object value = feature.getValue();
+		if (value instanceof NLGElement) return positions.get(value);
+		if (!(value instanceof Collection<?>)) return null;
+
+		Object[] items = ((Collection<?>) value).toArray();
+		int[] itemPositions = new int[items.length];
+		boolean hasElements = false;
+		for (int i = 0; i < items.length; i++) {
+			Integer position = items[i] instanceof NLGElement ? positions.get(items[i]) : null;
+			itemPositions[i] = position == null ? -1 : position;
+			hasElements |= position != null;
+		}
+		return hasElements ? new ListLink(items, itemPositions) : null;
+	}
+
+	/**
+	 * Layers the elements of the tree (see <code>NLGElement.layer()</code>),
+	 * and links the layers as the elements are.
+	 *
+	 * @return the layer of the root.
+	 */
+	NLGElement layer() {
+		NLGElement[] layers = new NLGElement[elements.length];
+		for (int i = 0; i < elements.length; i++) {
+			layers[i] = elements[i].layer();
+		}
+		return link(layers);
+	}
+
+	/**
+	 * Links copies of the elements of the tree as the elements are: the
+	 * features which refer to elements of the tree are set to the copies,
+	 * and so are the parents. The root has no parent.
+	 *
+	 * @param copies
+	 *            the copies, in the same order as the elements.
+	 * @return the copy of the root.
+	 */
+	NLGElement link(NLGElement[] copies) {
+		for (int i = 0; i < elements.length; i++) {
+			copies[i].setParent(parents[i] >= 0 ? copies[parents[i]] : null);
+			String[] names = linkNames[i];
+			for (int link = 0; link < names.length; link++) {
+				Object value = linkValues[i][link];
+				if (value instanceof Integer) {
+					copies[i].features.put(names[link], copies[(Integer) value]);
+				} else {
+					ListLink listLink = (ListLink) value;
+					List<Object> list = new ArrayList<Object>(listLink.items.length);
+					for (int item = 0; item < listLink.items.length; item++) {
+						int position = listLink.positions[item];
+						list.add(position >= 0 ? copies[position] : listLink.items[item]);
+					}
+					copies[i].features.put(names[link], list);
+				}
+			}
+		}
+		return copies[0];
+	}
+
+	/**
+	 * The items of a collection of elements, and the position of those in
+	 * the tree (-1 for the other items).
+	 */
+	private static class ListLink {
+
+		final Object[] items;
+		final int[] positions;
+
+		ListLink(Object[] items, int[] positions) {
+			this.items = items;
+			this.positions = positions;
+		}
+	}
+}
@@ -0,0 +1,661 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is "Simplenlg".
+ *
+ * The Initial Developer of the Original Code is Ehud Reiter, Albert Gatt and Dave Westwater.
+ * Portions created by Ehud Reiter, Albert Gatt and Dave Westwater are Copyright (C) 2010-11 The University of Aberdeen. All Rights Reserved.
+ *
+ * Contributor(s): Ehud Reiter, Albert Gatt, Dave Wewstwater, Roman Kutlak, Margaret Mitchell, Pierre-Luc Vaudry.
+ */
+package simplenlg.framework;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import simplenlg.features.Feature;
+import simplenlg.features.InternalFeature;
+import simplenlg.features.LexicalFeature;
+import simplenlg.features.dutch.DutchFeature;
+import simplenlg.features.dutch.DutchInternalFeature;
+import simplenlg.features.dutch.DutchLexicalFeature;
+import simplenlg.features.french.FrenchFeature;
+import simplenlg.features.french.FrenchInternalFeature;
+import simplenlg.features.french.FrenchLexicalFeature;
+
+/**
+ * <p>
+ * The features of an <code>NLGElement</code>, as a map of feature names to
+ * values.
+ * </p>
+ *
+ * <p>
+ * The feature names defined as constants by the feature classes
+ * (<code>Feature</code>, <code>InternalFeature</code>,
+ * <code>LexicalFeature</code> and their Dutch and French counterparts) are
+ * registered with a slot number. Each map has an array indexed by slot
+ * giving the position of the registered features set in an array of their
+ * values, so that looking them up takes two array reads once the slot is
+ * known, and setting them allocates no map entry. Other feature names,
+ * defined by users for example, are kept in a <code>HashMap</code> created
+ * when the first one is set.
+ * </p>
+ *
+ * <p>
+ * The map behaves as a <code>HashMap</code> (it accepts <code>null</code>
+ * keys and values, and is equal to any map with the same features), except
+ * that the registered features are iterated first, in the order in which
+ * they were set. It is not synchronized. The features of the elements of a
+ * <code>PhraseTemplate</code> are frozen, so that they can't be changed.
+ * </p>
+ */
+public class FeatureMap extends AbstractMap<String, Object> {
+
+	/** The classes whose constants are registered, most used first. */
+	private static final Class<?>[] FEATURE_CLASSES = { Feature.class,
+			InternalFeature.class, LexicalFeature.class, DutchFeature.class,
+			DutchInternalFeature.class, DutchLexicalFeature.class,
+			FrenchFeature.class, FrenchInternalFeature.class,
+			FrenchLexicalFeature.class };
+
+	/** The registered feature names, by slot. */
+	private static final String[] SLOT_NAMES;
+
+	// open addressing table from registered names to slots
+	private static final String[] TABLE_NAMES;
+	private static final int[] TABLE_SLOTS;
+
+	/** Returned by lookup() for features which aren't set. */
+	static final Object ABSENT = new Object();
+
+	// registered feature names at most (the others are kept in the HashMap)
+	private static final int MAX_SLOTS = 255;
+
+	// length of the arrays when the first registered feature is set
+	private static final int INITIAL_CAPACITY = 4;
+
+	static {
+		List<String> names = new ArrayList<String>();
+		for (Class<?> featureClass : FEATURE_CLASSES) {
+			for (Field field : featureClass.getDeclaredFields()) {
+				int modifiers = field.getModifiers();
+				if (Modifier.isStatic(modifiers) && Modifier.isFinal(modifiers)
+						&& Modifier.isPublic(modifiers)
+						&& field.getType() == String.class) {
+					try {
+						String name = (String) field.get(null);
+						// the same name may be defined by several classes
+						if (name != null && !names.contains(name)) names.add(name);
+					} catch (IllegalAccessException e) {
+						// public, so it can't happen
+					}
+				}
+			}
+		}
+		// the positions of the features of a map are kept in bytes
+		if (names.size() > MAX_SLOTS) names = names.subList(0, MAX_SLOTS);
+		SLOT_NAMES = names.toArray(new String[names.size()]);
+
+		int tableSize = Integer.highestOneBit(SLOT_NAMES.length * 4 - 1);
+		TABLE_NAMES = new String[tableSize];
+		TABLE_SLOTS = new int[tableSize];
+		for (int slot = 0; slot < SLOT_NAMES.length; slot++) {
+			int index = SLOT_NAMES[slot].hashCode() & (tableSize - 1);
+			while (TABLE_NAMES[index] != null) index = (index + 1) & (tableSize - 1);
+			TABLE_NAMES[index] = SLOT_NAMES[slot];
+			TABLE_SLOTS[index] = slot;
+		}
+	}
+
+	/** The slots of the registered features set, or null. */
+	private short[] keys;
+
+	/** The values of the registered features set, in the same order. */
+	private Object[] values;
+
+	/** The number of registered features set. */
+	private int count;
+
+	// position + 1 of each registered feature in keys and values (0 if it
+	// isn't set), indexed by slot
+	private byte[] positions;
+
+	/** The other features, or null. */
+	private Map<String, Object> others;
+
+	/** <code>true</code> once frozen: the map can't be changed anymore. */
+	private boolean frozen;
+
+	// the elements whose kept hash codes were taken from this map, or null
+	private NLGElement[] hashedBy;
+
+	/**
+	 * Creates an empty map of features.
+	 */
+	public FeatureMap() {
+	}
+
+	/**
+	 * Creates a map with the same features as the given map.
+	 *
+	 * @param features
+	 *            the features to copy.
+	 */
+	public FeatureMap(Map<String, ?> features) {
+		putAll(features);
+	}
+
+	/**
+	 * @param featureName
+	 *            the name of a feature.
+	 * @return the slot of the feature if it is registered, -1 otherwise.
+	 */
+	static int getSlot(Object featureName) {
+		if (!(featureName instanceof String)) return -1;
+		// the names are mostly the constants themselves, which String.equals()
+		// compares by identity first
+		int mask = TABLE_NAMES.length - 1;
+		int index = featureName.hashCode() & mask;
+		String name;
+		while ((name = TABLE_NAMES[index]) != null) {
+			if (name.equals(featureName)) return TABLE_SLOTS[index];
+			index = (index + 1) & mask;
+		}
+		return -1;
+	}
+
+	/**
+	 * Stops the map from being changed: the methods which would change it
+	 * throw an <code>UnsupportedOperationException</code> from then on.
+	 */
+	void freeze() {
+		frozen = true;
+	}
+
+	/**
+	 * @return <code>true</code> if the map can't be changed anymore.
+	 */
+	public boolean isFrozen() {
+		return frozen;
+	}
+
+	/**
+	 * throw an exception if the map is frozen, and make the elements whose
+	 * hash codes were taken from the map take them again
+	 */
+	final void beforeChange() {
+		if (frozen) throw new UnsupportedOperationException("the features are frozen");
+		if (hashedBy != null) {
+			NLGElement[] hashers = hashedBy;
+			hashedBy = null;
+			NLGElement.hashChanged(hashers);
+		}
+	}
+
+	/**
+	 * Keeps an element as having taken its hash code from this map (see
+	 * <code>NLGElement.hashCode()</code>), so that the next change of the map
+	 * makes it take its hash code again. Frozen maps don't change, so they
+	 * don't keep the element.
+	 * 
+	 * @param hasher
+	 *            the element, or null.
+	 */
+	void addHashedBy(NLGElement hasher) {
+		if (!frozen) hashedBy = NLGElement.addHashedBy(hashedBy, hasher);
+	}
+
+	/**
+	 * @return the number of registered feature names.
+	 */
+	public static int getSlotCount() {
+		return SLOT_NAMES.length;
+	}
+
+	/**
+	 * @param slot
+	 * @return the position of a registered feature in keys and values, or -1
+	 *         if it isn't set.
+	 */
+	private int indexOf(int slot) {
+		byte[] slotPositions = positions;
+		return slotPositions == null ? -1 : (slotPositions[slot] & 0xff) - 1;
+	}
+
+	@Override
+	public Object get(Object key) {
+		int slot = getSlot(key);
+		if (slot >= 0) {
+			int index = indexOf(slot);
+			return index < 0 ? null : values[index];
+		}
+		return others == null ? null : others.get(key);
+	}
+
+	/**
+	 * @param key
+	 * @return the value of a feature, or ABSENT if it isn't set (so that
+	 *         a feature set to null can be told from a missing one in a
+	 *         single lookup).
+	 */
+	Object lookup(Object key) {
+		int slot = getSlot(key);
+		if (slot >= 0) {
+			int index = indexOf(slot);
+			return index < 0 ? ABSENT : values[index];
+		}
+		if (others == null) return ABSENT;
+		Object value = others.get(key);
+		return value != null || others.containsKey(key) ? value : ABSENT;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		int slot = getSlot(key);
+		if (slot >= 0) return indexOf(slot) >= 0;
+		return others != null && others.containsKey(key);
+	}
+
+	@Override
+	public Object put(String key, Object value) {
+		beforeChange();
+		int slot = getSlot(key);
+		if (slot < 0) {
+			if (others == null) others = new HashMap<String, Object>();
+			return others.put(key, value);
+		}
+
+		int index = indexOf(slot);
+		if (index >= 0) {
+			Object old = values[index];
+			values[index] = value;
+			return old;
+		}
+		if (keys == null) {
+			keys = new short[INITIAL_CAPACITY];
+			values = new Object[INITIAL_CAPACITY];
+			positions = new byte[SLOT_NAMES.length];
+		} else if (count == keys.length) {
+			keys = Arrays.copyOf(keys, count * 2);
+			values = Arrays.copyOf(values, count * 2);
+		}
+		keys[count] = (short) slot;
+		values[count] = value;
+		count++;
+		positions[slot] = (byte) count;
+		return null;
+	}
+
+	@Override
+	public Object remove(Object key) {
+		beforeChange();
+		int slot = getSlot(key);
+		if (slot < 0) return others == null ? null : others.remove(key);
+
+		int index = indexOf(slot);
+		if (index < 0) return null;
+		Object old = values[index];
+		removeAt(index);
+		return old;
+	}
+
+	/**
+	 * remove a registered feature, keeping the order of the others
+	 *
+	 * @param index
+	 *            position of the feature in the arrays.
+	 */
+	private void removeAt(int index) {
+		positions[keys[index]] = 0;
+		int moved = count - index - 1;
+		System.arraycopy(keys, index + 1, keys, index, moved);
+		System.arraycopy(values, index + 1, values, index, moved);
+		count--;
+		values[count] = null;
+		for (int i = index; i < count; i++) positions[keys[i]] = (byte) (i + 1);
+	}
+
+	@Override
+	public void clear() {
+		beforeChange();
+		keys = null;
+		values = null;
+		count = 0;
+		positions = null;
+		others = null;
+	}
+
+	@Override
+	public int size() {
+		return count + (others == null ? 0 : others.size());
+	}
+
+	/*
+	 * the same as AbstractMap.hashCode(), without creating entries
+	 */
+	@Override
+	public int hashCode() {
+		return hashCodeFor(null);
+	}
+
+	/**
+	 * @param hasher
+	 *            the element whose hash code is taken from this map, or null.
+	 * @return the hash code of the map, which is taken again by the hasher
+	 *         once the map or the elements of its features change.
+	 */
+	int hashCodeFor(NLGElement hasher) {
+		addHashedBy(hasher);
+		int hash = 0;
+		for (int i = 0; i < count; i++) {
+			hash += SLOT_NAMES[keys[i]].hashCode() ^ hashOf(values[i], hasher);
+		}
+		if (others != null) {
+			for (Map.Entry<String, Object> feature : others.entrySet()) {
+				String key = feature.getKey();
+				hash += (key == null ? 0 : key.hashCode()) ^ hashOf(feature.getValue(), hasher);
+			}
+		}
+		return hash;
+	}
+
+	/**
+	 * @param value
+	 *            the value of a feature.
+	 * @param hasher
+	 *            the element whose hash code is taken from the value, or null.
+	 * @return the hash code of the value, the same as
+	 *         <code>value.hashCode()</code>, the elements of the value (in a
+	 *         list or set) keeping the hasher.
+	 */
+	static int hashOf(Object value, NLGElement hasher) {
+		if (value instanceof NLGElement) {
+			return ((NLGElement) value).hashCodeFor(hasher);
+		} else if (value instanceof List) {
+			int hash = 1;
+			for (Object item : (List<?>) value) {
+				hash = 31 * hash + hashOf(item, hasher);
+			}
+			return hash;
+		} else if (value instanceof Set) {
+			int hash = 0;
+			for (Object item : (Set<?>) value) {
+				hash += hashOf(item, hasher);
+			}
+			return hash;
+		}
+		return value == null ? 0 : value.hashCode();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	@Override
+	public Set<Map.Entry<String, Object>> entrySet() {
+		return new AbstractSet<Map.Entry<String, Object>>() {
+			@Override
+			public Iterator<Map.Entry<String, Object>> iterator() {
+				return new FeatureIterator<Map.Entry<String, Object>>() {
+					@Override
+					Map.Entry<String, Object> registered(int index) {
+						return new SlotEntry(keys[index]);
+					}
+
+					@Override
+					Map.Entry<String, Object> other(Map.Entry<String, Object> entry) {
+						return entry;
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return FeatureMap.this.size();
+			}
+
+			@Override
+			public void clear() {
+				FeatureMap.this.clear();
+			}
+		};
+	}
+
+	/*
+	 * the names and values of the features are iterated without creating
+	 * entries, as elements copy their features by name
+	 */
+	@Override
+	public Set<String> keySet() {
+		return new AbstractSet<String>() {
+			@Override
+			public Iterator<String> iterator() {
+				return new FeatureIterator<String>() {
+					@Override
+					String registered(int index) {
+						return SLOT_NAMES[keys[index]];
+					}
+
+					@Override
+					String other(Map.Entry<String, Object> entry) {
+						return entry.getKey();
+					}
+				};
+			}
+
+			@Override
+			public boolean contains(Object o) {
+				return containsKey(o);
+			}
+
+			@Override
+			public boolean remove(Object o) {
+				if (!containsKey(o)) return false;
+				FeatureMap.this.remove(o);
+				return true;
+			}
+
+			@Override
+			public int size() {
+				return FeatureMap.this.size();
+			}
+
+			@Override
+			public void clear() {
+				FeatureMap.this.clear();
+			}
+		};
+	}
+
+	@Override
+	public Collection<Object> values() {
+		return new AbstractCollection<Object>() {
+			@Override
+			public Iterator<Object> iterator() {
+				return new FeatureIterator<Object>() {
+					@Override
+					Object registered(int index) {
+						return values[index];
+					}
+
+					@Override
+					Object other(Map.Entry<String, Object> entry) {
+						return entry.getValue();
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return FeatureMap.this.size();
+			}
+
+			@Override
+			public void clear() {
+				FeatureMap.this.clear();
+			}
+		};
+	}
+
+	/**
+	 * Gives the features set on this map to a visitor, the registered
+	 * features first, without creating entries. A layered map gives only the
+	 * features set on it, not those it reads from its base.
+	 *
+	 * @param visitor
+	 * @return <code>false</code> if the visitor stopped before the end.
+	 */
+	final boolean visitOwn(Visitor visitor) {
+		for (int i = 0; i < count; i++) {
+			if (!visitor.visit(SLOT_NAMES[keys[i]], values[i])) return false;
+		}
+		if (others != null) {
+			for (Map.Entry<String, Object> entry : others.entrySet()) {
+				if (!visitor.visit(entry.getKey(), entry.getValue())) return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Receives the features of a map from <code>visitOwn()</code>.
+	 */
+	interface Visitor {
+
+		/**
+		 * @param name
+		 * @param value
+		 * @return <code>false</code> to stop.
+		 */
+		boolean visit(String name, Object value);
+	}
+
+	/**
+	 * Iterates the registered features, then the other features.
+	 */
+	private abstract class FeatureIterator<T> implements Iterator<T> {
+
+		// position of the next registered feature
+		private int next;
+
+		private Iterator<Map.Entry<String, Object>> othersIterator;
+
+		// whether the last feature returned is still there to be removed,
+		// and whether it is one of the other features
+		private boolean canRemove;
+		private boolean lastFromOthers;
+
+		/**
+		 * @param index
+		 *            position of a registered feature in keys and values.
+		 * @return what is returned for it.
+		 */
+		abstract T registered(int index);
+
+		/**
+		 * @param entry
+		 *            entry of one of the other features.
+		 * @return what is returned for it.
+		 */
+		abstract T other(Map.Entry<String, Object> entry);
+
+		@Override
+		public boolean hasNext() {
+			if (next < count) return true;
+			if (othersIterator == null) {
+				if (others == null) return false;
+				othersIterator = others.entrySet().iterator();
+			}
+			return othersIterator.hasNext();
+		}
+
+		@Override
+		public T next() {
+			if (!hasNext()) throw new NoSuchElementException();
+			canRemove = true;
+			lastFromOthers = next >= count;
+			if (!lastFromOthers) return registered(next++);
+			return other(othersIterator.next());
+		}
+
+		@Override
+		public void remove() {
+			if (!canRemove) throw new IllegalStateException();
+			beforeChange();
+			canRemove = false;
+			if (lastFromOthers) {
+				othersIterator.remove();
+			} else {
+				removeAt(--next);
+			}
+		}
+	}
+
+	/**
+	 * The entry of a registered feature, which reads and writes the map.
+	 */
+	private class SlotEntry implements Map.Entry<String, Object> {
+
+		private final String key;
+
+		SlotEntry(int slot) {
+			this.key = SLOT_NAMES[slot];
+		}
+
+		@Override
+		public String getKey() {
+			return key;
+		}
+
+		@Override
+		public Object getValue() {
+			return get(key);
+		}
+
+		@Override
+		public Object setValue(Object value) {
+			return put(key, value);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Map.Entry)) return false;
+			Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+			Object value = getValue();
+			return key.equals(entry.getKey())
+					&& (value == null ? entry.getValue() == null : value.equals(entry.getValue()));
+		}
+
+		@Override
+		public int hashCode() {
+			Object value = getValue();
+			return key.hashCode() ^ (value == null ? 0 : value.hashCode());
+		}
+
+		@Override
+		public String toString() {
+			return key + "=" + getValue();
+		}
+	}
+}
@@ -19,9 +19,9 @@
 
 package simplenlg.framework;
 
-import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import simplenlg.features.Feature;
 import simplenlg.features.InternalFeature;
@@ -46,7 +46,8 @@ public class InflectedWordElement extends NLGElement {
 	
 	// Morphology rule sets used by realiseMorphology() to inflect the word
 	// instantiated by getMorphologyRuleSet(Language language)
-	private static Map<Language, MorphologyRulesInterface> morphologyRuleSets = null; 
+	private static final Map<Language, MorphologyRulesInterface> morphologyRuleSets =
+		new ConcurrentHashMap<Language, MorphologyRulesInterface>();
 
 	/**
 	 * Constructs a new inflected word using the giving word as the base form.
@@ -75,10 +76,12 @@ public class InflectedWordElement extends NLGElement {
 		// vaudrypl added null test
 		if (word != null) {
 			//the inflected word inherits all features from the base word
-			// (moved from WordElement.realiseSyntax())
-			for(String feature : word.getAllFeatureNames()) {
-				setFeature(feature, word.getFeature(feature));
-			}
+			// (moved from WordElement.realiseSyntax()), read through rather
+			// than copied: only the features set on the inflected word are
+			// kept by it. The word may be shared across threads by its
+			// lexicon, so it doesn't keep the inflected words whose hash
+			// codes are taken from its features.
+			features = new LayeredFeatureMap(word.getAllFeatures(), false);
 			
 			setFeature(InternalFeature.BASE_WORD, word);
 			// AG: changed to use the default spelling variant
@@ -134,10 +137,6 @@ public class InflectedWordElement extends NLGElement {
 	 */
 	public static MorphologyRulesInterface getMorphologyRuleSet(Language language)
 	{
-		if (morphologyRuleSets == null) {
-			morphologyRuleSets =
-				new EnumMap<Language,MorphologyRulesInterface>(Language.class); 
-		}
 		MorphologyRulesInterface ruleSet = morphologyRuleSets.get(language);
 		if (ruleSet == null) {
 			switch (language) {
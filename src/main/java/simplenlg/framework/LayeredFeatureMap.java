@@ -0,0 +1,413 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is "Simplenlg".
+ *
+ * The Initial Developer of the Original Code is Ehud Reiter, Albert Gatt and Dave Westwater.
+ * Portions created by Ehud Reiter, Albert Gatt and Dave Westwater are Copyright (C) 2010-11 The University of Aberdeen. All Rights Reserved.
+ *
+ * Contributor(s): Ehud Reiter, Albert Gatt, Dave Wewstwater, Roman Kutlak, Margaret Mitchell, Pierre-Luc Vaudry.
+ */
+package simplenlg.framework;
+
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * <p>
+ * The features of an element layered over the features of another element,
+ * for example those of an <code>InflectedWordElement</code> over those of
+ * its base word. The features of the base are read through, and are not
+ * copied: only the features set or removed on this map are kept by it, so
+ * the base is never changed.
+ * </p>
+ *
+ * <p>
+ * The changes made to the features of the base are seen by this map, unless
+ * this map has set or removed the same feature. The map is not synchronized,
+ * but several layers can share the same base as long as it isn't changed.
+ * </p>
+ *
+ * <p>
+ * The hash codes taken from this map are kept until the base changes too,
+ * except for the inflected words: the features of a word of a lexicon are
+ * shared by all its inflected words, possibly across threads, so they don't
+ * keep track of them, and are not expected to change.
+ * </p>
+ */
+public class LayeredFeatureMap extends FeatureMap {
+
+	/** The features read through. */
+	private final Map<String, Object> base;
+
+	/** The features of the base removed from this map, or null. */
+	private Set<Object> hidden;
+
+	/** <code>true</code> once cleared: the base isn't read anymore. */
+	private boolean detached;
+
+	/** <code>true</code> if the changes of the base change the hash codes. */
+	private final boolean hashesBase;
+
+	/**
+	 * Creates a map with the features of the base, without copying them.
+	 *
+	 * @param base
+	 *            the features read through.
+	 */
+	public LayeredFeatureMap(Map<String, Object> base) {
+		this(base, true);
+	}
+
+	/**
+	 * Creates a map with the features of the base, without copying them.
+	 *
+	 * @param base
+	 *            the features read through.
+	 * @param hashesBase
+	 *            <code>false</code> if the base is not expected to change, so
+	 *            that the elements whose hash codes are taken from this map
+	 *            are not kept by the base.
+	 */
+	LayeredFeatureMap(Map<String, Object> base, boolean hashesBase) {
+		this.base = base;
+		this.hashesBase = hashesBase;
+	}
+
+	/**
+	 * @param key
+	 * @return <code>true</code> if the base feature is read through.
+	 */
+	private boolean readsBase(Object key) {
+		return !detached && (hidden == null || !hidden.contains(key));
+	}
+
+	/**
+	 * @return the number of features set or removed on this map rather than
+	 *         read from the base.
+	 */
+	public int getOverriddenCount() {
+		return super.size() + (hidden == null ? 0 : hidden.size());
+	}
+
+	/**
+	 * @return the features read through, or null if some of them aren't
+	 *         (because they were removed from this map, or it was cleared).
+	 */
+	Map<String, Object> getReadBase() {
+		return detached || (hidden != null && !hidden.isEmpty()) ? null : base;
+	}
+
+	@Override
+	public Object get(Object key) {
+		Object value = super.lookup(key);
+		if (value != ABSENT) return value;
+		return readsBase(key) ? base.get(key) : null;
+	}
+
+	@Override
+	Object lookup(Object key) {
+		Object value = super.lookup(key);
+		if (value != ABSENT || !readsBase(key)) return value;
+		value = base.get(key);
+		return value != null || base.containsKey(key) ? value : ABSENT;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return super.containsKey(key) || (readsBase(key) && base.containsKey(key));
+	}
+
+	@Override
+	public Object put(String key, Object value) {
+		Object old = get(key);
+		super.put(key, value);
+		if (hidden != null) hidden.remove(key);
+		return old;
+	}
+
+	@Override
+	public Object remove(Object key) {
+		Object old = get(key);
+		super.remove(key);
+		hide(key);
+		return old;
+	}
+
+	/**
+	 * stop reading a feature from the base
+	 *
+	 * @param key
+	 */
+	private void hide(Object key) {
+		beforeChange();
+		if (!detached && base.containsKey(key)) {
+			if (hidden == null) hidden = new HashSet<Object>();
+			hidden.add(key);
+		}
+	}
+
+	@Override
+	public void clear() {
+		super.clear();
+		hidden = null;
+		detached = true;
+	}
+
+	@Override
+	public int size() {
+		int size = super.size();
+		if (!detached) {
+			for (String key : base.keySet()) {
+				if (readsBase(key) && !super.containsKey(key)) size++;
+			}
+		}
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	@Override
+	int hashCodeFor(NLGElement hasher) {
+		addHashedBy(hasher);
+		int hash = 0;
+		for (Iterator<String> keys = new KeyIterator(); keys.hasNext();) {
+			String key = keys.next();
+			hash += (key == null ? 0 : key.hashCode()) ^ hashOf(get(key), hasher);
+		}
+		return hash;
+	}
+
+	/*
+	 * the changes of the base change the hash codes taken from this map too,
+	 * unless it isn't expected to change
+	 */
+	@Override
+	void addHashedBy(NLGElement hasher) {
+		super.addHashedBy(hasher);
+		if (hashesBase && !detached && base instanceof FeatureMap)
+			((FeatureMap) base).addHashedBy(hasher);
+	}
+
+	@Override
+	public Set<Map.Entry<String, Object>> entrySet() {
+		return new AbstractSet<Map.Entry<String, Object>>() {
+			@Override
+			public Iterator<Map.Entry<String, Object>> iterator() {
+				final Iterator<String> keys = new KeyIterator();
+				return new Iterator<Map.Entry<String, Object>>() {
+					@Override
+					public boolean hasNext() {
+						return keys.hasNext();
+					}
+
+					@Override
+					public Map.Entry<String, Object> next() {
+						return new LayeredEntry(keys.next());
+					}
+
+					@Override
+					public void remove() {
+						keys.remove();
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return LayeredFeatureMap.this.size();
+			}
+
+			@Override
+			public void clear() {
+				LayeredFeatureMap.this.clear();
+			}
+		};
+	}
+
+	@Override
+	public Set<String> keySet() {
+		return new AbstractSet<String>() {
+			@Override
+			public Iterator<String> iterator() {
+				return new KeyIterator();
+			}
+
+			@Override
+			public boolean contains(Object o) {
+				return containsKey(o);
+			}
+
+			@Override
+			public boolean remove(Object o) {
+				if (!containsKey(o)) return false;
+				LayeredFeatureMap.this.remove(o);
+				return true;
+			}
+
+			@Override
+			public int size() {
+				return LayeredFeatureMap.this.size();
+			}
+
+			@Override
+			public void clear() {
+				LayeredFeatureMap.this.clear();
+			}
+		};
+	}
+
+	@Override
+	public Collection<Object> values() {
+		return new AbstractCollection<Object>() {
+			@Override
+			public Iterator<Object> iterator() {
+				final Iterator<String> keys = new KeyIterator();
+				return new Iterator<Object>() {
+					@Override
+					public boolean hasNext() {
+						return keys.hasNext();
+					}
+
+					@Override
+					public Object next() {
+						return get(keys.next());
+					}
+
+					@Override
+					public void remove() {
+						keys.remove();
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return LayeredFeatureMap.this.size();
+			}
+
+			@Override
+			public void clear() {
+				LayeredFeatureMap.this.clear();
+			}
+		};
+	}
+
+	/**
+	 * Iterates the names of the features set on this map, then those read
+	 * from the base.
+	 */
+	private class KeyIterator implements Iterator<String> {
+
+		private final Iterator<String> own = LayeredFeatureMap.super.keySet().iterator();
+		private Iterator<String> fromBase;
+
+		// next feature of the base read through, and last feature returned
+		private String nextFromBase;
+		private boolean hasNextFromBase;
+		private String last;
+		private boolean lastFromBase;
+		private boolean canRemove;
+
+		@Override
+		public boolean hasNext() {
+			if (own.hasNext()) return true;
+			if (detached) return false;
+			if (fromBase == null) fromBase = base.keySet().iterator();
+			while (!hasNextFromBase && fromBase.hasNext()) {
+				String key = fromBase.next();
+				if (readsBase(key) && !LayeredFeatureMap.super.containsKey(key)) {
+					nextFromBase = key;
+					hasNextFromBase = true;
+				}
+			}
+			return hasNextFromBase;
+		}
+
+		@Override
+		public String next() {
+			if (!hasNext()) throw new NoSuchElementException();
+			canRemove = true;
+			lastFromBase = fromBase != null;
+			if (lastFromBase) {
+				hasNextFromBase = false;
+				last = nextFromBase;
+			} else {
+				last = own.next();
+			}
+			return last;
+		}
+
+		@Override
+		public void remove() {
+			if (!canRemove) throw new IllegalStateException();
+			canRemove = false;
+			if (!lastFromBase) own.remove();
+			hide(last);
+		}
+	}
+
+	/**
+	 * An entry of the map, which reads and writes the map.
+	 */
+	private class LayeredEntry implements Map.Entry<String, Object> {
+
+		private final String key;
+
+		LayeredEntry(String key) {
+			this.key = key;
+		}
+
+		@Override
+		public String getKey() {
+			return key;
+		}
+
+		@Override
+		public Object getValue() {
+			return get(key);
+		}
+
+		@Override
+		public Object setValue(Object value) {
+			return put(key, value);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Map.Entry)) return false;
+			Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+			Object value = getValue();
+			return (key == null ? entry.getKey() == null : key.equals(entry.getKey()))
+					&& (value == null ? entry.getValue() == null : value.equals(entry.getValue()));
+		}
+
+		@Override
+		public int hashCode() {
+			Object value = getValue();
+			return (key == null ? 0 : key.hashCode()) ^ (value == null ? 0 : value.hashCode());
+		}
+
+		@Override
+		public String toString() {
+			return key + "=" + getValue();
+		}
+	}
+}
@@ -245,6 +245,22 @@ public class ListElement extends NLGElement {
 	 * @author vaudrypl
 	 */
 	public NLGElement realiseMorphology()
+	{
+		NLGFactory factory = getFactory();
+		RealisationCache cache = factory == null ? null : factory.getRealisationCache();
+		if (cache != null) {
+			return cache.realiseMorphology(this);
+		}
+		return realiseListMorphology();
+	}
+
+	/**
+	 * Realisation method for the morphology stage, without the realisation
+	 * cache of the factory.
+	 * 
+	 * @return morphologically realised form
+	 */
+	NLGElement realiseListMorphology()
 	{
 		ListElement realisedElement = new ListElement(this);
 		realisedElement.setComponents(realiseMorphology(getChildren()));
@@ -19,13 +19,13 @@
 package simplenlg.framework;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.EnumMap;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import simplenlg.features.DiscourseFunction;
 import simplenlg.features.Feature;
@@ -55,20 +55,27 @@ import simplenlg.orthography.OrthographyHelperInterface;
  * 
  * <p>
  * The features are stored in a <code>Map</code> of <code>String</code> (the
- * feature name) and <code>Object</code> (the value of the feature).
+ * feature name) and <code>Object</code> (the value of the feature), by
+ * default a {@link FeatureMap}, which keeps the features defined by the
+ * feature classes in an array indexed by slot.
  * </p>
  * 
  * 
  * @author D. Westwater, University of Aberdeen.
  * @version 4.0
  */
-public abstract class NLGElement {
+public abstract class NLGElement implements Cloneable {
 
 	/** The category of this element. */
 	private ElementCategory category;
 
-	/** The features of this element. */
-	protected HashMap<String, Object> features = new HashMap<String, Object>();
+	/**
+	 * The features of this element. The field used to be declared as a
+	 * <code>HashMap</code>, which a {@link FeatureMap} isn't: subclasses
+	 * compiled against that declaration have to be compiled again, and can
+	 * only use the methods of <code>Map</code> on it.
+	 */
+	protected Map<String, Object> features = new FeatureMap();
 
 	/** The parent of this element. */
 	private NLGElement parent;
@@ -79,6 +86,19 @@ public abstract class NLGElement {
 	/** The NLGFactory which created this element */
 	private NLGFactory factory;
 
+	/**
+	 * The most elements kept as having taken their hash codes from an element
+	 * or a feature map (see <code>addHashedBy()</code>).
+	 */
+	private static final int MAX_HASHED_BY = 8;
+
+	// the hash code of this element, kept while hashed is true
+	private int hash;
+	private volatile boolean hashed;
+
+	// the elements whose kept hash codes were taken from this one, or null
+	private NLGElement[] hashedBy;
+
 	/**
 	 * Sets the category of this element.
 	 * 
@@ -86,6 +106,9 @@ public abstract class NLGElement {
 	 *            the new <code>ElementCategory</code> for this element.
 	 */
 	public void setCategory(ElementCategory newCategory) {
+		if (newCategory != this.category) {
+			hashChanged();
+		}
 		this.category = newCategory;
 	}
 
@@ -129,7 +152,7 @@ public abstract class NLGElement {
 	 */
 	public void setFeature(String featureName, boolean featureValue) {
 		if (featureName != null) {
-			this.features.put(featureName, new Boolean(featureValue));
+			this.features.put(featureName, Boolean.valueOf(featureValue));
 		}
 	}
 
@@ -143,7 +166,7 @@ public abstract class NLGElement {
 	 */
 	public void setFeature(String featureName, int featureValue) {
 		if (featureName != null) {
-			this.features.put(featureName, new Integer(featureValue));
+			this.features.put(featureName, Integer.valueOf(featureValue));
 		}
 	}
 
@@ -157,7 +180,7 @@ public abstract class NLGElement {
 	 */
 	public void setFeature(String featureName, long featureValue) {
 		if (featureName != null) {
-			this.features.put(featureName, new Long(featureValue));
+			this.features.put(featureName, Long.valueOf(featureValue));
 		}
 	}
 
@@ -171,7 +194,7 @@ public abstract class NLGElement {
 	 */
 	public void setFeature(String featureName, float featureValue) {
 		if (featureName != null) {
-			this.features.put(featureName, new Float(featureValue));
+			this.features.put(featureName, Float.valueOf(featureValue));
 		}
 	}
 
@@ -186,7 +209,7 @@ public abstract class NLGElement {
 	 */
 	public void setFeature(String featureName, double featureValue) {
 		if (featureName != null) {
-			this.features.put(featureName, new Double(featureValue));
+			this.features.put(featureName, Double.valueOf(featureValue));
 		}
 	}
 
@@ -788,21 +811,167 @@ public abstract class NLGElement {
 
 	/**
 	 * An NLG element is equal to some object if the object is an NLGElement,
-	 * they have the same category and the same features.
+	 * they have the same category and the same features. Elements whose hash
+	 * codes differ are told apart without comparing their features.
 	 */
 	@Override
 	public boolean equals(Object o) {
 		boolean eq = false;
 
-		if (o instanceof NLGElement) {
+		if (o == this) {
+			eq = true;
+		} else if (o instanceof NLGElement) {
 			NLGElement element = (NLGElement) o;
+			// words have hash codes of their own
 			eq = this.category == element.category
+					&& (element instanceof WordElement || hashCode() == element.hashCode())
 					&& this.features.equals(element.features);
 		}
 
 		return eq;
 	}
 
+	/**
+	 * The hash code of an element is taken from its category and its
+	 * features, and so from the elements of its features, so that equal trees
+	 * of elements have the same hash code. It is kept by the element until
+	 * its category or its features change, or one of the elements it was
+	 * taken from takes its own again, so that comparing elements which
+	 * differ, or looking up the same elements again in a <code>HashMap</code>,
+	 * takes constant time. The changes made to the collections of elements
+	 * held by features, rather than by setting the features, aren't seen.
+	 */
+	@Override
+	public int hashCode() {
+		if (!hashed) {
+			int featuresHash;
+			if (features instanceof FeatureMap) {
+				featuresHash = ((FeatureMap) features).hashCodeFor(this);
+			} else {
+				featuresHash = features.hashCode();
+			}
+			hash = 31 * (category == null ? 0 : category.hashCode()) + featuresHash;
+			// the changes of other maps aren't seen
+			hashed = features instanceof FeatureMap;
+		}
+		return hash;
+	}
+
+	/**
+	 * @param hasher
+	 *            the element whose hash code is taken from this one, or null.
+	 * @return the hash code of this element, which is taken again by the
+	 *         hasher once this one changes.
+	 */
+	int hashCodeFor(NLGElement hasher) {
+		int elementHash = hashCode();
+		if (hashed) {
+			hashedBy = addHashedBy(hashedBy, hasher);
+		}
+		return elementHash;
+	}
+
+	/**
+	 * Makes this element take its hash code again, and so the elements whose
+	 * hash codes were taken from it.
+	 */
+	void hashChanged() {
+		if (hashed) {
+			hashed = false;
+			NLGElement[] hashers = hashedBy;
+			hashedBy = null;
+			hashChanged(hashers);
+		}
+	}
+
+	/**
+	 * Makes the given elements take their hash codes again.
+	 * 
+	 * @param hashers
+	 *            the elements, or null.
+	 */
+	static void hashChanged(NLGElement[] hashers) {
+		if (hashers != null) {
+			for (NLGElement hasher : hashers) {
+				hasher.hashChanged();
+			}
+		}
+	}
+
+	/**
+	 * Adds an element to those whose hash codes were taken from an element or
+	 * a feature map, unless it is already there. Rather than keeping more
+	 * than <code>MAX_HASHED_BY</code> of them (for the many layers of the
+	 * elements of a template, say), they take their hash codes again.
+	 * 
+	 * @param hashers
+	 *            the elements, or null.
+	 * @param hasher
+	 *            the element to add, or null.
+	 * @return the elements, in a new array if needed.
+	 */
+	static NLGElement[] addHashedBy(NLGElement[] hashers, NLGElement hasher) {
+		if (hasher == null) {
+			return hashers;
+		} else if (hashers == null) {
+			return new NLGElement[] { hasher };
+		}
+		for (NLGElement kept : hashers) {
+			if (kept == hasher) return hashers;
+		}
+		if (hashers.length == MAX_HASHED_BY) {
+			hashChanged(hashers);
+			return new NLGElement[] { hasher };
+		}
+		NLGElement[] added = Arrays.copyOf(hashers, hashers.length + 1);
+		added[hashers.length] = hasher;
+		return added;
+	}
+
+	/**
+	 * Creates an element of the same class, with the same category, parent,
+	 * realisation and factory, whose features are read through from those of
+	 * this element (see {@link LayeredFeatureMap}), so that the features set
+	 * on the new element don't change this one. The features whose values are
+	 * elements still give the elements of this one. Used by
+	 * {@link PhraseTemplate} and {@link RealisationCache}.
+	 * 
+	 * @return the new element.
+	 */
+	NLGElement layer() {
+		return copyWith(new LayeredFeatureMap(this.features));
+	}
+
+	/**
+	 * Creates an element of the same class, with the same category, parent,
+	 * realisation and factory, and a copy of the features of this element,
+	 * which doesn't see the later changes of this element. Used by
+	 * {@link RealisationCache}.
+	 * 
+	 * @return the new element.
+	 */
+	NLGElement detachedCopy() {
+		return copyWith(new FeatureMap(this.features));
+	}
+
+	/**
+	 * @param copyFeatures
+	 * @return a clone of this element with the given features.
+	 */
+	private NLGElement copyWith(Map<String, Object> copyFeatures) {
+		NLGElement copy;
+		try {
+			copy = (NLGElement) clone();
+		} catch (CloneNotSupportedException e) {
+			// NLGElement is Cloneable
+			throw new AssertionError(e);
+		}
+		copy.features = copyFeatures;
+		copy.hashed = false;
+		copy.hashedBy = null;
+		return copy;
+	}
+
 	/**
 	 * Realisation method for the syntax stage.
 	 * To be overridden by subclasses.
@@ -1038,7 +1207,8 @@ public abstract class NLGElement {
 
 	// Morphology rule sets used by realiseMorphology() to inflect the word
 	// instantiated by getMorphologyRuleSet(Language language)
-	private static Map<Language, OrthographyHelperInterface> orthographyHelpers = null; 
+	private static final Map<Language, OrthographyHelperInterface> orthographyHelpers =
+		new ConcurrentHashMap<Language, OrthographyHelperInterface>();
 
 	/**
 	 * @return the orthography helper to be used for this element
@@ -1059,10 +1229,6 @@ public abstract class NLGElement {
 	 */
 	public static OrthographyHelperInterface getOrthographyHelper(Language language)
 	{
-		if (orthographyHelpers == null) {
-			orthographyHelpers =
-				new EnumMap<Language,OrthographyHelperInterface>(Language.class); 
-		}
 		OrthographyHelperInterface orthographyHelper = orthographyHelpers.get(language);
 		if (orthographyHelper == null) {
 			switch (language) {
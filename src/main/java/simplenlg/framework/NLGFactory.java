@@ -71,6 +71,9 @@ public class NLGFactory {
 	/** The lexicon to be used with this factory. */
 	private Lexicon lexicon;
 
+	/** The realisations kept for the elements of this factory, or null. */
+	private volatile RealisationCache realisationCache;
+
 	/** The list of English pronouns. */
 	@SuppressWarnings("nls")
 	private static final List<String> PRONOUNS = Arrays.asList("I", "you",
@@ -181,6 +184,27 @@ public class NLGFactory {
 		return this.lexicon;
 	}
 
+	/**
+	 * Sets the cache keeping the realisations of the phrases of the elements
+	 * created by this factory. Passing <code>null</code> stops caching.
+	 * 
+	 * @param cache
+	 *            the new <code>RealisationCache</code>, or null.
+	 */
+	public void setRealisationCache(RealisationCache cache) {
+		this.realisationCache = cache;
+	}
+
+	/**
+	 * Gets the cache keeping the realisations of the phrases of the elements
+	 * created by this factory.
+	 * 
+	 * @return the <code>RealisationCache</code>, or null if there is none.
+	 */
+	public RealisationCache getRealisationCache() {
+		return realisationCache;
+	}
+
 	/**
 	 * Gets the language used by this factory.
 	 * 
@@ -19,9 +19,9 @@
 package simplenlg.framework;
 
 import java.util.ArrayList;
-import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import simplenlg.features.ClauseStatus;
 import simplenlg.features.DiscourseFunction;
@@ -49,10 +49,14 @@ import simplenlg.syntax.*;
 public class PhraseElement extends NLGElement {
 
 	// added by vaudrypl
-	private static Map<Language, AbstractClauseHelper> clauseHelpers = null; 
-	private static Map<Language, AbstractNounPhraseHelper> nounPhraseHelpers = null; 
-	private static Map<Language, GenericPhraseHelper> phraseHelpers = null; 
-	private static Map<Language, AbstractVerbPhraseHelper> verbPhraseHelpers = null; 
+	private static final Map<Language, AbstractClauseHelper> clauseHelpers =
+		new ConcurrentHashMap<Language, AbstractClauseHelper>();
+	private static final Map<Language, AbstractNounPhraseHelper> nounPhraseHelpers =
+		new ConcurrentHashMap<Language, AbstractNounPhraseHelper>();
+	private static final Map<Language, GenericPhraseHelper> phraseHelpers =
+		new ConcurrentHashMap<Language, GenericPhraseHelper>();
+	private static final Map<Language, AbstractVerbPhraseHelper> verbPhraseHelpers =
+		new ConcurrentHashMap<Language, AbstractVerbPhraseHelper>();
 
 	/**
 	 * Creates a new phrase of the given type.
@@ -86,10 +90,6 @@ public class PhraseElement extends NLGElement {
 	 */
 	public static AbstractClauseHelper getClauseHelper(Language language)
 	{
-		if (clauseHelpers == null) {
-			clauseHelpers =
-				new EnumMap<Language,AbstractClauseHelper>(Language.class); 
-		}
 		AbstractClauseHelper clauseHelper = clauseHelpers.get(language);
 		if (clauseHelper == null) {
 			switch (language) {
@@ -127,10 +127,6 @@ public class PhraseElement extends NLGElement {
 	 */
 	public static AbstractNounPhraseHelper getNounPhraseHelper(Language language)
 	{
-		if (nounPhraseHelpers == null) {
-			nounPhraseHelpers =
-				new EnumMap<Language,AbstractNounPhraseHelper>(Language.class); 
-		}
 		AbstractNounPhraseHelper nounPhraseHelper =
 			nounPhraseHelpers.get(language);
 		if (nounPhraseHelper == null) {
@@ -172,10 +168,6 @@ public class PhraseElement extends NLGElement {
 	 */
 	public static GenericPhraseHelper getPhraseHelper(Language language)
 	{
-		if (phraseHelpers == null) {
-			phraseHelpers =
-				new EnumMap<Language,GenericPhraseHelper>(Language.class); 
-		}
 		GenericPhraseHelper phraseHelper =
 			phraseHelpers.get(language);
 		if (phraseHelper == null) {
@@ -217,10 +209,6 @@ public class PhraseElement extends NLGElement {
 	 */
 	public static AbstractVerbPhraseHelper getVerbPhraseHelper(Language language)
 	{
-		if (verbPhraseHelpers == null) {
-			verbPhraseHelpers =
-				new EnumMap<Language,AbstractVerbPhraseHelper>(Language.class); 
-		}
 		AbstractVerbPhraseHelper verbPhraseHelper =
 			verbPhraseHelpers.get(language);
 		if (verbPhraseHelper == null) {
@@ -375,6 +363,24 @@ public class PhraseElement extends NLGElement {
 		return getFeatureAsElement(InternalFeature.HEAD);
 	}
 
+	/**
+	 * Called by {@link PhraseTemplate#bind(Map)} on the phrase given for
+	 * this one when a feature of this phrase (its head, say) was a slot and
+	 * is now the value of the slot, so that the phrase gets the features the
+	 * setter of the feature takes from its value when the phrase is built
+	 * with the value directly. Does nothing by default.
+	 * 
+	 * @param featureName
+	 *            the name of the feature, <code>InternalFeature.HEAD</code>
+	 *            or <code>InternalFeature.SPECIFIER</code>.
+	 * @param slot
+	 *            the slot, as set when the phrase was built.
+	 * @param value
+	 *            the value of the slot, now the value of the feature.
+	 */
+	protected void slotBound(String featureName, NLGElement slot, NLGElement value) {
+	}
+
 	/**
 	 * <p>
 	 * Adds a new complement to the phrase element. Complements will be realised
@@ -739,7 +745,23 @@ public class PhraseElement extends NLGElement {
 		if (getFeatureAsBoolean(Feature.ELIDED).booleanValue()) {
 			return null;
 		}
-		
+
+		NLGFactory factory = getFactory();
+		RealisationCache cache = factory == null ? null : factory.getRealisationCache();
+		if (cache != null) {
+			return cache.realiseSyntax(this);
+		}
+		return realisePhraseSyntax();
+	}
+
+	/**
+	 * Realisation method for the syntax stage, without the realisation cache
+	 * of the factory.
+	 * 
+	 * @return syntactically realised form
+	 */
+	NLGElement realisePhraseSyntax()
+	{
 		NLGElement realisedElement = null;
 
 		ElementCategory category = getCategory();
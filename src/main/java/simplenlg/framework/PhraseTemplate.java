@@ -0,0 +1,271 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is "Simplenlg".
+ *
+ * The Initial Developer of the Original Code is Ehud Reiter, Albert Gatt and Dave Westwater.
+ * Portions created by Ehud Reiter, Albert Gatt and Dave Westwater are Copyright (C) 2010-11 The University of Aberdeen. All Rights Reserved.
+ *
+ * Contributor(s): Ehud Reiter, Albert Gatt, Dave Wewstwater, Roman Kutlak, Margaret Mitchell, Pierre-Luc Vaudry.
+ */
+package simplenlg.framework;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import simplenlg.features.Feature;
+import simplenlg.features.InternalFeature;
+
+/**
+ * <p>
+ * A phrase built once with named slots, and realised many times with
+ * different values in the slots. For example:
+ * </p>
+ *
+ * <pre>
+ * NPPhraseSpec object = factory.createNounPhrase(PhraseTemplate.createSlot(&quot;object&quot;, LexicalCategory.NOUN));
+ * object.setSpecifier(PhraseTemplate.createSlot(&quot;amount&quot;, LexicalCategory.NUMERAL));
+ * object.setPlural(true);
+ * SPhraseSpec clause = factory.createClause(PhraseTemplate.createSlot(&quot;subject&quot;, PhraseCategory.NOUN_PHRASE),
+ * 		&quot;kopen&quot;, object);
+ * clause.setFeature(Feature.PERFECT, true);
+ * PhraseTemplate template = new PhraseTemplate(clause);
+ *
+ * Map&lt;String, Object&gt; values = new HashMap&lt;String, Object&gt;();
+ * values.put(&quot;subject&quot;, &quot;de vrouw&quot;);
+ * values.put(&quot;amount&quot;, &quot;drie&quot;);
+ * values.put(&quot;object&quot;, &quot;appel&quot;);
+ * realiser.realiseSentence(template.bind(values)); // De vrouw heeft drie appels gekocht.
+ * </pre>
+ *
+ * <p>
+ * The features of the elements of the phrase are frozen when the template is
+ * created, so the phrase can't be changed anymore. Each call to
+ * <code>bind()</code> gives a new tree, whose elements read the features of
+ * those of the phrase through (see {@link LayeredFeatureMap}) instead of
+ * copying them, and with the values in place of the slots. The realisation
+ * of that tree sets its own features, so the phrase of the template is
+ * never changed, and the phrase isn't built again for each realisation
+ * (words aren't looked up in the lexicon again, for example). A phrase whose
+ * head or specifier is a slot still gets the features its setter takes from
+ * the value (the gender and number of the head noun of a noun phrase, for
+ * example), unless they were changed on the phrase after it was set.
+ * </p>
+ *
+ * <p>
+ * The words of the lexicon in the phrase aren't frozen, as they belong to
+ * the lexicon, but they are replaced by new elements which read their
+ * features through in the trees given by <code>bind()</code>, as the other
+ * elements.
+ * </p>
+ */
+public class PhraseTemplate {
+
+	/**
+	 * The features whose setters give features to the phrase from their
+	 * value (see {@link PhraseElement#slotBound(String, NLGElement, NLGElement)}).
+	 */
+	private static final String[] SLOT_SETTER_FEATURES = { InternalFeature.HEAD,
+			InternalFeature.SPECIFIER };
+
+	/** The phrase. */
+	private final NLGElement phrase;
+
+	/** The elements of the phrase and how they are linked. */
+	private final ElementGraph graph;
+
+	/** The names of the slots, in the order they are found in the phrase. */
+	private final Set<String> slotNames;
+
+	/**
+	 * Creates a slot, to be put in the phrase of a template as any element.
+	 * The values of a slot are given as elements or strings to
+	 * <code>bind()</code>. A string is made an element of the category of the
+	 * slot as the factory would for the same category: a word of the lexicon
+	 * (or a <code>StringElement</code> if it isn't a word) for a lexical
+	 * category, a noun, adjective, adverb, verb or preposition phrase for
+	 * those phrase categories, and a <code>StringElement</code> otherwise.
+	 *
+	 * @param name
+	 *            the name of the slot.
+	 * @param category
+	 *            the category of the values of the slot.
+	 * @return the slot.
+	 */
+	public static NLGElement createSlot(String name, ElementCategory category) {
+		if (name == null) {
+			throw new IllegalArgumentException("a slot needs a name");
+		}
+		return new Slot(name, category);
+	}
+
+	/**
+	 * Creates a template from a phrase (or any element) with slots, and
+	 * freezes the features of its elements.
+	 *
+	 * @param phrase
+	 *            the phrase.
+	 */
+	public PhraseTemplate(NLGElement phrase) {
+		if (phrase == null) {
+			throw new IllegalArgumentException("a template needs a phrase");
+		}
+		this.phrase = phrase;
+		this.graph = new ElementGraph(phrase, ElementGraph.Follow.FEATURES_TO_SLOTS);
+
+		Set<String> names = new LinkedHashSet<String>();
+		for (NLGElement element : graph.elements) {
+			if (element instanceof Slot) names.add(((Slot) element).name);
+			// the words belong to the lexicon
+			if (!(element instanceof WordElement) && element.features instanceof FeatureMap) {
+				((FeatureMap) element.features).freeze();
+			}
+		}
+		slotNames = Collections.unmodifiableSet(names);
+	}
+
+	/**
+	 * @return the phrase of the template, which can't be changed.
+	 */
+	public NLGElement getPhrase() {
+		return phrase;
+	}
+
+	/**
+	 * @return the names of the slots of the phrase.
+	 */
+	public Set<String> getSlotNames() {
+		return slotNames;
+	}
+
+	/**
+	 * Gives a new tree with the values in place of the slots, ready to be
+	 * realised. Neither the phrase of the template nor the values given as
+	 * elements are changed by the realisation of the tree, so both can be
+	 * given again.
+	 *
+	 * @param values
+	 *            the values of the slots, by name, as elements or strings.
+	 * @return the phrase with the values in place of the slots.
+	 * @throws IllegalArgumentException
+	 *             if a slot has no value.
+	 */
+	public NLGElement bind(Map<String, ?> values) {
+		NLGFactory factory = phrase.getFactory();
+		NLGElement[] layers = new NLGElement[graph.elements.length];
+		for (int i = 0; i < layers.length; i++) {
+			NLGElement element = graph.elements[i];
+			if (element instanceof Slot) {
+				layers[i] = ((Slot) element).bind(values, factory);
+			} else {
+				layers[i] = element.layer();
+			}
+		}
+		NLGElement bound = graph.link(layers);
+		// the features the setters of the phrases take from their head or
+		// specifier weren't taken from the values of the slots
+		for (int i = 0; i < layers.length; i++) {
+			if (layers[i] instanceof PhraseElement) {
+				for (String featureName : SLOT_SETTER_FEATURES) {
+					Object slot = graph.elements[i].getFeature(featureName);
+					if (slot instanceof Slot) {
+						((PhraseElement) layers[i]).slotBound(featureName, (Slot) slot,
+								layers[i].getFeatureAsElement(featureName));
+					}
+				}
+			}
+		}
+		return bound;
+	}
+
+	/**
+	 * A slot of a phrase, replaced by its values.
+	 */
+	static class Slot extends PhraseElement {
+
+		final String name;
+
+		Slot(String name, ElementCategory category) {
+			super(PhraseCategory.CANNED_TEXT);
+			// so that only the features set while building the phrase are
+			// given to the values
+			removeFeature(Feature.ELIDED);
+			setCategory(category);
+			this.name = name;
+		}
+
+		/**
+		 * @param values
+		 *            the values of the slots, by name.
+		 * @param factory
+		 *            the factory of the phrase, or null.
+		 * @return the element in place of this slot.
+		 */
+		NLGElement bind(Map<String, ?> values, NLGFactory factory) {
+			Object value = values.get(name);
+			if (value == null) {
+				throw new IllegalArgumentException("no value for the slot " + name);
+			}
+
+			NLGElement element;
+			if (value instanceof NLGElement) {
+				// read the features of the value through, as those of the
+				// phrase (a value given to several slots is layered for each)
+				element = new ElementGraph((NLGElement) value, ElementGraph.Follow.FEATURES).layer();
+			} else {
+				element = createElement(value.toString(), factory);
+				if (element instanceof WordElement) element = element.layer();
+			}
+			// the features set on the slot while building the phrase
+			// (its discourse function for example)
+			element.features.putAll(features);
+			return element;
+		}
+
+		/**
+		 * @param value
+		 * @param factory
+		 *            the factory of the phrase, or null.
+		 * @return the value as an element of the category of the slot.
+		 */
+		NLGElement createElement(String value, NLGFactory factory) {
+			ElementCategory category = getCategory();
+			if (factory == null) {
+				return new StringElement(value);
+			} else if (category instanceof LexicalCategory) {
+				return factory.createNLGElement(value, (LexicalCategory) category);
+			} else if (category instanceof PhraseCategory) {
+				switch ((PhraseCategory) category) {
+				case NOUN_PHRASE:
+					return factory.createNounPhrase(value);
+				case ADJECTIVE_PHRASE:
+					return factory.createAdjectivePhrase(value);
+				case ADVERB_PHRASE:
+					return factory.createAdverbPhrase(value);
+				case VERB_PHRASE:
+					return factory.createVerbPhrase(value);
+				case PREPOSITIONAL_PHRASE:
+					return factory.createPrepositionPhrase(value);
+				default:
+					break;
+				}
+			}
+			return new StringElement(value);
+		}
+
+		@Override
+		public String toString() {
+			return "<" + name + ">";
+		}
+	}
+}
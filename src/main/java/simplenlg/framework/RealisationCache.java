@@ -0,0 +1,583 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is "Simplenlg".
+ *
+ * The Initial Developer of the Original Code is Ehud Reiter, Albert Gatt and Dave Westwater.
+ * Portions created by Ehud Reiter, Albert Gatt and Dave Westwater are Copyright (C) 2010-11 The University of Aberdeen. All Rights Reserved.
+ *
+ * Contributor(s): Ehud Reiter, Albert Gatt, Dave Wewstwater, Roman Kutlak, Margaret Mitchell, Pierre-Luc Vaudry.
+ */
+package simplenlg.framework;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import simplenlg.features.Feature;
+import simplenlg.features.InternalFeature;
+import simplenlg.features.LexicalFeature;
+import simplenlg.features.dutch.DutchFeature;
+
+/**
+ * <p>
+ * This class keeps the realisations of the noun, preposition, adjective and
+ * adverb phrases of the trees realised with the elements of a factory, so
+ * that the same phrase met again, in another sentence for example, isn't
+ * realised again. It is given to the factory:
+ * </p>
+ *
+ * <pre>
+ * factory.setRealisationCache(new RealisationCache(10000));
+ * </pre>
+ *
+ * <p>
+ * The result of the syntax stage of a phrase, and the result of the
+ * morphology stage of the list of words it gives, are kept. They are found
+ * again by a key made of the structure of the phrase (or of the list): the
+ * class, category and features of each of its elements, compared by value,
+ * the words of the lexicon being compared by identity. The key also has the
+ * features of the parent which these stages read: whether the parent is
+ * passive or negated for the syntax, and its gender, number, person,
+ * specifier, discourse function and preverb for the morphology, so that a
+ * phrase is only found again where it agrees in the same way. The
+ * orthography isn't kept, as it is cheap and depends on the place of the
+ * phrase in the sentence.
+ * </p>
+ *
+ * <p>
+ * The elements given by the cache are new copies, whose features are read
+ * through (see {@link LayeredFeatureMap}) from frozen copies of the first
+ * realisation, so they can be changed by the next stages. Phrases containing
+ * clauses, verb phrases or pronouns (whose realisation reads the elements
+ * above the phrase), and phrases whose features are changed by their own
+ * syntax stage, aren't kept. The words of the lexicon are expected not to be
+ * changed while their phrases are kept: call <code>clear()</code> after
+ * changing them.
+ * </p>
+ *
+ * <p>
+ * At most a given number of realisations are kept: when the cache is full,
+ * the least recently used is evicted. The statistics
+ * (<code>getHits()</code>, <code>getMisses()</code>,
+ * <code>getUncacheable()</code>, <code>getEvictions()</code> and
+ * <code>getHitRate()</code>) can be used to choose this number. The cache
+ * can be switched off with <code>setEnabled(false)</code>, to compare the
+ * realisations with and without it for example. It can be used by several
+ * threads at the same time.
+ * </p>
+ */
+public class RealisationCache {
+
+	/** number of realisations kept by default */
+	public static final int DEFAULT_CAPACITY = 10000;
+
+	// the elements of a phrase, at most, for it to be kept
+	private static final int MAX_ELEMENTS = 100;
+
+	// tokens marking the structure of a key
+	private static final Object SYNTAX = new Marker("syntax");
+	private static final Object MORPHOLOGY = new Marker("morphology");
+	private static final Object END = new Marker("end");
+	private static final Object BACK_REFERENCE = new Marker("back reference");
+	private static final Object COLLECTION = new Marker("collection");
+	private static final Object LAYERED = new Marker("layered");
+	private static final Object NO_PARENT = new Marker("no parent");
+
+	// features of the parent read by the morphology of words
+	private static final String[] MORPHOLOGY_CONTEXT = { LexicalFeature.GENDER,
+			Feature.NUMBER, Feature.PERSON, InternalFeature.SPECIFIER,
+			InternalFeature.DISCOURSE_FUNCTION, DutchFeature.PREVERB };
+
+	// realisations, from least to most recently used
+	private final LinkedHashMap<Key, ElementGraph> cache;
+
+	private final int capacity;
+
+	private volatile boolean enabled = true;
+
+	// statistics
+	private long hits;
+	private long misses;
+	private long uncacheable;
+	private long evictions;
+
+	/**********************************************************************/
+	// constructors
+	/**********************************************************************/
+
+	/**
+	 * keep at most DEFAULT_CAPACITY realisations
+	 */
+	public RealisationCache() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param capacity
+	 *            maximum number of realisations kept
+	 */
+	public RealisationCache(int capacity) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("capacity must be positive: "
+					+ capacity);
+		this.capacity = capacity;
+		cache = new LinkedHashMap<Key, ElementGraph>(16, 0.75f, true);
+	}
+
+	/**
+	 * @return maximum number of realisations kept
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return <code>true</code> if the cache is used
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * switch the cache on or off; while it is off, every phrase is realised
+	 * and nothing is counted (the realisations kept are kept)
+	 *
+	 * @param enabled
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * @return number of realisations currently kept
+	 */
+	public synchronized int size() {
+		return cache.size();
+	}
+
+	/**
+	 * @return number of realisations taken from the cache
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * @return number of realisations looked for and not found
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * @return number of phrases which couldn't be kept (see the class
+	 *         comment)
+	 */
+	public synchronized long getUncacheable() {
+		return uncacheable;
+	}
+
+	/**
+	 * @return number of realisations evicted from the cache
+	 */
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * @return the hits divided by the realisations looked for, 0 if none
+	 *         were
+	 */
+	public synchronized double getHitRate() {
+		long lookups = hits + misses;
+		return lookups == 0 ? 0.0 : (double) hits / lookups;
+	}
+
+	/**
+	 * remove all the realisations kept (the statistics are kept)
+	 */
+	public synchronized void clear() {
+		cache.clear();
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "RealisationCache[size=" + cache.size() + ", capacity="
+				+ capacity + ", enabled=" + enabled + ", hits=" + hits
+				+ ", misses=" + misses + ", uncacheable=" + uncacheable
+				+ ", evictions=" + evictions + "]";
+	}
+
+	/**********************************************************************/
+	// realisation
+	/**********************************************************************/
+
+	/**
+	 * The syntax stage of a phrase, from the cache if it was realised before.
+	 *
+	 * @param phrase
+	 *            the phrase, not elided.
+	 * @return the syntactically realised phrase.
+	 */
+	NLGElement realiseSyntax(PhraseElement phrase) {
+		if (!enabled || !isKeptCategory(phrase.getCategory())) {
+			return phrase.realisePhraseSyntax();
+		}
+		Key key = syntaxKey(phrase);
+		if (key == null) {
+			countUncacheable();
+			return phrase.realisePhraseSyntax();
+		}
+		NLGElement cached = getCached(key);
+		if (cached != null) return cached;
+
+		NLGElement realised = phrase.realisePhraseSyntax();
+		// only kept if the realisation didn't change the phrase
+		if (realised != null && key.equals(syntaxKey(phrase))) {
+			putCached(key, realised);
+		} else {
+			countUncacheable();
+		}
+		return realised;
+	}
+
+	/**
+	 * The morphology stage of a list of words, from the cache if it was
+	 * realised before.
+	 *
+	 * @param list
+	 *            the syntactically realised phrase.
+	 * @return the morphologically realised list.
+	 */
+	NLGElement realiseMorphology(ListElement list) {
+		if (!enabled || !isKeptCategory(list.getCategory())) {
+			return list.realiseListMorphology();
+		}
+		Key key = morphologyKey(list);
+		if (key == null) {
+			countUncacheable();
+			return list.realiseListMorphology();
+		}
+		NLGElement cached = getCached(key);
+		if (cached != null) return cached;
+
+		// the morphology only changes the words it inflects (setting the
+		// pattern of an adjective for example), which aren't read after it
+		NLGElement realised = list.realiseListMorphology();
+		putCached(key, realised);
+		return realised;
+	}
+
+	/**
+	 * @param category
+	 * @return <code>true</code> if the phrases of this category are kept
+	 */
+	private static boolean isKeptCategory(ElementCategory category) {
+		return category == PhraseCategory.NOUN_PHRASE
+				|| category == PhraseCategory.PREPOSITIONAL_PHRASE
+				|| category == PhraseCategory.ADJECTIVE_PHRASE
+				|| category == PhraseCategory.ADVERB_PHRASE;
+	}
+
+	/**
+	 * @param phrase
+	 * @return the key of the syntax stage of the phrase, or null if it can't
+	 *         be kept
+	 */
+	private static Key syntaxKey(PhraseElement phrase) {
+		KeyBuilder builder = new KeyBuilder(SYNTAX);
+		if (!builder.addElement(phrase, false)) return null;
+
+		// read by the noun phrase helpers (checkNegatedObject())
+		NLGElement parent = phrase.getParent();
+		if (parent == null) {
+			builder.tokens.add(NO_PARENT);
+		} else {
+			builder.tokens.add(parent.getCategory());
+			builder.tokens.add(parent.getFeatureAsBoolean(Feature.PASSIVE));
+			builder.tokens.add(parent.getFeatureAsBoolean(Feature.NEGATED));
+			builder.tokens.add(parent.checkIfNeOnlyNegation());
+		}
+		return builder.toKey();
+	}
+
+	/**
+	 * @param list
+	 * @return the key of the morphology stage of the list, or null if it
+	 *         can't be kept
+	 */
+	private static Key morphologyKey(ListElement list) {
+		KeyBuilder builder = new KeyBuilder(MORPHOLOGY);
+		if (!builder.addElement(list, true)) return null;
+
+		// the words read the features of their parent, or of the parent of
+		// their parent if it has no gender: the parent of the list at most
+		NLGElement parent = list.getParent();
+		if (parent == null) {
+			builder.tokens.add(NO_PARENT);
+		} else {
+			builder.tokens.add(parent.getCategory());
+			builder.tokens.add(parent.isPlural());
+			for (String feature : MORPHOLOGY_CONTEXT) {
+				if (!builder.addValue(parent.getFeature(feature), false)) return null;
+			}
+		}
+		return builder.toKey();
+	}
+
+	/**
+	 * @param key
+	 * @return a copy of the realisation kept, or null if there is none
+	 */
+	private NLGElement getCached(Key key) {
+		ElementGraph kept;
+		synchronized (this) {
+			kept = cache.get(key);
+			if (kept != null) {
+				hits++;
+			} else {
+				misses++;
+			}
+		}
+		return kept == null ? null : kept.layer();
+	}
+
+	/**
+	 * keep a frozen copy of a realisation, evicting the least recently used
+	 * realisation if the cache is full
+	 *
+	 * @param key
+	 * @param realised
+	 */
+	private void putCached(Key key, NLGElement realised) {
+		ElementGraph graph = new ElementGraph(realised, ElementGraph.Follow.COMPONENTS);
+		NLGElement[] copies = new NLGElement[graph.elements.length];
+		for (int i = 0; i < copies.length; i++) {
+			copies[i] = graph.elements[i].detachedCopy();
+		}
+		graph.link(copies);
+		for (NLGElement copy : copies) {
+			((FeatureMap) copy.features).freeze();
+		}
+		ElementGraph kept = new ElementGraph(copies[0], ElementGraph.Follow.COMPONENTS);
+
+		synchronized (this) {
+			cache.put(key, kept);
+			Iterator<ElementGraph> eldest = cache.values().iterator();
+			while (cache.size() > capacity) {
+				eldest.next();
+				eldest.remove();
+				evictions++;
+			}
+		}
+	}
+
+	private synchronized void countUncacheable() {
+		uncacheable++;
+	}
+
+	/**
+	 * Builds the key of a phrase: the tokens of each element, that is its
+	 * class, category, realisation and features, and an end token, the
+	 * elements referred to by the features being given in place, or by their
+	 * position if they were given before.
+	 */
+	private static final class KeyBuilder implements FeatureMap.Visitor {
+
+		final List<Object> tokens = new ArrayList<Object>();
+
+		// the elements given, by position
+		private final List<NLGElement> elements = new ArrayList<NLGElement>();
+
+		// whether the features of the element visited are those of a list
+		// whose components are followed
+		private boolean components;
+
+		KeyBuilder(Object stage) {
+			tokens.add(stage);
+		}
+
+		/**
+		 * @param element
+		 * @param componentsOnly
+		 *            <code>true</code> if only the components of lists are
+		 *            walked as parts of the realised tree, the other
+		 *            elements being the phrase elements they came from.
+		 * @return <code>false</code> if the phrase can't be kept
+		 */
+		boolean addElement(NLGElement element, boolean componentsOnly) {
+			// a list is short: found by identity without hashing
+			for (int i = 0; i < elements.size(); i++) {
+				if (elements.get(i) == element) {
+					tokens.add(BACK_REFERENCE);
+					tokens.add(i);
+					return true;
+				}
+			}
+			if (elements.size() == MAX_ELEMENTS) return false;
+			elements.add(element);
+
+			ElementCategory category = element.getCategory();
+			if (category == PhraseCategory.CLAUSE
+					|| category == PhraseCategory.VERB_PHRASE
+					|| category == LexicalCategory.PRONOUN) {
+				return false;
+			}
+			// the words of the lexicon, but not their layers (see
+			// NLGElement.layer()), which are new for each tree
+			if (element instanceof WordElement && !(element.features instanceof LayeredFeatureMap)) {
+				tokens.add(new Identity(element));
+				return true;
+			}
+			tokens.add(element.getClass());
+			tokens.add(category);
+			tokens.add(element.getRealisation());
+			if (element instanceof WordElement) tokens.add(((WordElement) element).getBaseForm());
+
+			Map<String, Object> features = element.features;
+			boolean previous = components;
+			components = componentsOnly && element instanceof ListElement;
+			boolean added;
+			if (features instanceof LayeredFeatureMap
+					&& ((LayeredFeatureMap) features).getReadBase() != null) {
+				// the features read through are given by the identity of
+				// their map, which is that of a word of the lexicon or of a
+				// frozen element
+				tokens.add(LAYERED);
+				tokens.add(new Identity(((LayeredFeatureMap) features).getReadBase()));
+				added = ((FeatureMap) features).visitOwn(this);
+			} else if (features instanceof FeatureMap && !(features instanceof LayeredFeatureMap)) {
+				added = ((FeatureMap) features).visitOwn(this);
+			} else {
+				added = true;
+				for (Map.Entry<String, Object> feature : features.entrySet()) {
+					if (!visit(feature.getKey(), feature.getValue())) {
+						added = false;
+						break;
+					}
+				}
+			}
+			components = previous;
+			tokens.add(END);
+			return added;
+		}
+
+		@Override
+		public boolean visit(String name, Object value) {
+			tokens.add(name);
+			if (InternalFeature.BASE_WORD.equals(name) && value instanceof WordElement) {
+				tokens.add(new Identity(value));
+				return true;
+			}
+			return addValue(value, components && InternalFeature.COMPONENTS.equals(name));
+		}
+
+		/**
+		 * @param value
+		 *            the value of a feature.
+		 * @param componentsOnly
+		 *            see <code>addElement()</code>.
+		 * @return <code>false</code> if the phrase can't be kept
+		 */
+		boolean addValue(Object value, boolean componentsOnly) {
+			if (value == null || value instanceof String || value instanceof Number
+					|| value instanceof Boolean || value instanceof Character
+					|| value instanceof Enum<?>) {
+				tokens.add(value);
+				return true;
+			} else if (value instanceof NLGElement) {
+				return addElement((NLGElement) value, componentsOnly);
+			} else if (value instanceof Collection<?>) {
+				tokens.add(COLLECTION);
+				tokens.add(((Collection<?>) value).size());
+				for (Object item : (Collection<?>) value) {
+					if (!addValue(item, componentsOnly)) return false;
+				}
+				return true;
+			}
+			// compared by equals() as any other key, it might not be equal
+			// to itself in another phrase
+			return false;
+		}
+
+		Key toKey() {
+			return new Key(tokens.toArray());
+		}
+	}
+
+	/**
+	 * The key of a realisation: tokens compared with <code>equals()</code>.
+	 */
+	private static final class Key {
+		private final Object[] tokens;
+		private final int hash;
+
+		Key(Object[] tokens) {
+			this.tokens = tokens;
+			this.hash = Arrays.hashCode(tokens);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (!(o instanceof Key)) return false;
+			Key other = (Key) o;
+			return hash == other.hash && Arrays.equals(tokens, other.tokens);
+		}
+	}
+
+	/**
+	 * A token for an object compared by identity.
+	 */
+	private static final class Identity {
+		private final Object object;
+
+		Identity(Object object) {
+			this.object = object;
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(object);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof Identity && ((Identity) o).object == object;
+		}
+	}
+
+	/**
+	 * A token marking the structure of a key.
+	 */
+	private static final class Marker {
+		private final String name;
+
+		Marker(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+}
@@ -19,9 +19,9 @@
 package simplenlg.framework;
 
 import java.util.ArrayList;
-import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import simplenlg.features.Feature;
 import simplenlg.features.InternalFeature;
@@ -44,7 +44,8 @@ public class StringElement extends NLGElement {
 
 	// Morphology rule sets used by realiseMorphophonology() to inflect the word
 	// instantiated by getMorphophonologyRuleSet(Language language)
-	private static Map<Language, MorphophonologyRulesInterface> morphophonologyRuleSets = null; 
+	private static final Map<Language, MorphophonologyRulesInterface> morphophonologyRuleSets =
+		new ConcurrentHashMap<Language, MorphophonologyRulesInterface>();
 
 	/**
 	 * Constructs a new string element representing some canned text.
@@ -177,10 +178,6 @@ public class StringElement extends NLGElement {
 	 */
 	public static MorphophonologyRulesInterface getMorphophonologyRuleSet(Language language)
 	{
-		if (morphophonologyRuleSets == null) {
-			morphophonologyRuleSets =
-				new EnumMap<Language,MorphophonologyRulesInterface>(Language.class); 
-		}
 		MorphophonologyRulesInterface ruleSet = morphophonologyRuleSets.get(language);
 		if (ruleSet == null) {
 			switch (language) {
@@ -20,6 +20,7 @@ package simplenlg.framework;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
@@ -130,6 +131,28 @@ public class WordElement extends NLGElement {
 		this.lexicon = lexicon;
 	}
 
+	/**
+	 * create a WordElement with the specified baseForm, category, ID, whose
+	 * features are held by the map provided instead of a map of its own (for
+	 * lexicons which keep the features of their words in another form, see
+	 * {@link simplenlg.lexicon.ColumnarLexicon})
+	 * 
+	 * @param baseForm
+	 *            - base form of WordElement
+	 * @param category
+	 *            - category of WordElement
+	 * @param id
+	 *            - ID of word in lexicon
+	 * @param lexicon	lexicon from witch this WordElement comes from
+	 * @param features
+	 *            - map holding the features of the WordElement
+	 */
+	public WordElement(String baseForm, LexicalCategory category, String id,
+			Lexicon lexicon, Map<String, Object> features) {
+		this(baseForm, category, id, lexicon);
+		this.features = features;
+	}
+
 	/**********************************************************/
 	// getters and setters
 	/**********************************************************/
@@ -343,6 +366,7 @@ public class WordElement extends NLGElement {
 	 */
 	@Override
 	public boolean equals(Object o) {
+		if (o == this) return true;
 		if (o instanceof WordElement) {
 			WordElement we = (WordElement) o;
 
@@ -354,6 +378,16 @@ public class WordElement extends NLGElement {
 
 		return false;
 	}
+
+	/**
+	 * The hash code of a word is taken from its base form and id only, so
+	 * that it doesn't change with the features of the word (the words of a
+	 * lexicon are kept in sets, and their features are read lazily).
+	 */
+	@Override
+	public int hashCode() {
+		return 31 * (baseForm == null ? 0 : baseForm.hashCode()) + (id == null ? 0 : id.hashCode());
+	}
 	
 	/**
 	 * Realisation method for the syntax stage.
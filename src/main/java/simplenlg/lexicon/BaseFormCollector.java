@@ -0,0 +1,116 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is "Simplenlg".
+ *
+ * The Initial Developer of the Original Code is Ehud Reiter, Albert Gatt and Dave Westwater.
+ * Portions created by Ehud Reiter, Albert Gatt and Dave Westwater are Copyright (C) 2010-11 The University of Aberdeen. All Rights Reserved.
+ *
+ * Contributor(s): Ehud Reiter, Albert Gatt, Dave Wewstwater, Roman Kutlak, Margaret Mitchell, Pierre-Luc Vaudry.
+ */
+package simplenlg.lexicon;
+
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import simplenlg.features.Feature;
+import simplenlg.framework.ElementCategory;
+import simplenlg.framework.InflectedWordElement;
+import simplenlg.framework.LexicalCategory;
+import simplenlg.framework.NLGElement;
+import simplenlg.framework.WordElement;
+
+/**
+ * This class walks NLGElements and collects the base forms which will be
+ * looked up in a lexicon when they are realised, by category: the base forms
+ * of the words and inflected words, and the conjunctions and complementisers
+ * given as strings. It is used to prefetch these base forms (see
+ * {@link CachingLexicon#prefetch(Collection)}).
+ */
+class BaseFormCollector {
+
+	// base forms found, by category
+	private final Map<LexicalCategory, Set<String>> baseForms = new LinkedHashMap<LexicalCategory, Set<String>>();
+
+	// elements already walked
+	private final Map<NLGElement, Boolean> visited = new IdentityHashMap<NLGElement, Boolean>();
+
+	/**
+	 * @return base forms found so far, by category
+	 */
+	Map<LexicalCategory, Set<String>> getBaseForms() {
+		return baseForms;
+	}
+
+	/**
+	 * walk an element, its features and its children
+	 * 
+	 * @param element
+	 */
+	void collect(NLGElement element) {
+		if (element == null || visited.put(element, Boolean.TRUE) != null)
+			return;
+
+		if (element instanceof WordElement) {
+			add(element.getCategory(), ((WordElement) element).getBaseForm());
+		} else if (element instanceof InflectedWordElement) {
+			WordElement baseWord = ((InflectedWordElement) element).getBaseWord();
+			if (baseWord != null)
+				collect(baseWord);
+			else
+				add(element.getCategory(), ((InflectedWordElement) element).getBaseForm());
+		}
+
+		add(LexicalCategory.CONJUNCTION, element.getFeature(Feature.CONJUNCTION));
+		add(LexicalCategory.COMPLEMENTISER, element.getFeature(Feature.COMPLEMENTISER));
+
+		for (Object value : element.getAllFeatures().values())
+			collectValue(value);
+		Collection<NLGElement> children = element.getChildren();
+		if (children != null)
+			for (NLGElement child : children)
+				collect(child);
+	}
+
+	/**
+	 * walk the value of a feature, if it is an element or a collection of
+	 * elements
+	 */
+	private void collectValue(Object value) {
+		if (value instanceof NLGElement) {
+			collect((NLGElement) value);
+		} else if (value instanceof Collection<?>) {
+			for (Object item : (Collection<?>) value)
+				if (item instanceof NLGElement)
+					collect((NLGElement) item);
+		}
+	}
+
+	/**
+	 * add a base form, if it is a string
+	 */
+	private void add(ElementCategory category, Object baseForm) {
+		if (!(baseForm instanceof String))
+			return;
+		LexicalCategory lexicalCategory = category instanceof LexicalCategory ? (LexicalCategory) category
+				: LexicalCategory.ANY;
+		Set<String> forms = baseForms.get(lexicalCategory);
+		if (forms == null) {
+			forms = new LinkedHashSet<String>();
+			baseForms.put(lexicalCategory, forms);
+		}
+		forms.add((String) baseForm);
+	}
+}
@@ -0,0 +1,886 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is "Simplenlg".
+ *
+ * The Initial Developer of the Original Code is Ehud Reiter, Albert Gatt and Dave Westwater.
+ * Portions created by Ehud Reiter, Albert Gatt and Dave Westwater are Copyright (C) 2010-11 The University of Aberdeen. All Rights Reserved.
+ *
+ * Contributor(s): Ehud Reiter, Albert Gatt, Dave Wewstwater, Roman Kutlak, Margaret Mitchell, Pierre-Luc Vaudry.
+ */
+package simplenlg.lexicon;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import simplenlg.framework.Language;
+import simplenlg.framework.LexicalCategory;
+import simplenlg.framework.WordElement;
+
+/**
+ * This class gets words from a precompiled binary snapshot of a lexicon. A
+ * snapshot is written from a loaded {@link XMLLexicon} with
+ * {@link #write(XMLLexicon, File)}, or from the command line with
+ *
+ * <pre>
+ * java simplenlg.lexicon.BinaryLexicon &lt;language code&gt; [lexicon.xml] snapshot.bin
+ * </pre>
+ *
+ * The snapshot contains the words with all their features, and the indexes
+ * by base form, variant, ID and category of the XML lexicon it was written
+ * from, including variants computed by the morphology of the language. The
+ * file is memory-mapped when this lexicon is created, so there is no XML
+ * parsing or morphology at startup: lookups search the hash tables of the
+ * file directly, and a word is only turned into a <code>WordElement</code>
+ * the first time it is returned. Later lookups return the same instance.
+ *
+ * <P>
+ * Unlike <code>XMLLexicon</code>, words created for lookups which don't match
+ * anything are not added to this lexicon.
+ */
+public class BinaryLexicon extends Lexicon {
+
+	// identifies snapshot files, and their format version
+	private static final int MAGIC = 0x534E4C58; // "SNLX"
+	private static final int VERSION = 1;
+
+	// header: magic, version, language, then offsets of the sections
+	private static final int HEADER_LANGUAGE = 8;
+	private static final int HEADER_STRINGS = 12;
+	private static final int HEADER_WORDS = 16;
+	private static final int HEADER_BASE_INDEX = 20;
+	private static final int HEADER_VARIANT_INDEX = 24;
+	private static final int HEADER_ID_INDEX = 28;
+	private static final int HEADER_CATEGORY_INDEX = 32;
+	private static final int HEADER_SIZE = 36;
+
+	// types of feature values
+	private static final byte TYPE_STRING = 0;
+	private static final byte TYPE_BOOLEAN = 1;
+	private static final byte TYPE_ENUM = 2;
+	private static final byte TYPE_STRING_LIST = 3;
+	private static final byte TYPE_INTEGER = 4;
+
+	// marks an empty hash table slot and a missing string
+	private static final int NONE = -1;
+
+	// the memory-mapped snapshot
+	private final ByteBuffer buffer;
+
+	// offsets of the sections in the snapshot
+	private final int stringsOffset;
+	private final int wordsOffset;
+	private final int baseIndexOffset;
+	private final int variantIndexOffset;
+	private final int idIndexOffset;
+
+	// number of words in the snapshot
+	private final int wordCount;
+
+	// words already turned into WordElements, by position in the snapshot
+	private final AtomicReferenceArray<WordElement> wordElements;
+
+	// string index of each category name, and word positions by category
+	private final Map<LexicalCategory, Integer> categoryNames;
+	private final Map<LexicalCategory, int[]> wordsByCategory;
+
+	// indexes of the features of the words of each category (and ANY),
+	// created at the first lookup by features
+	private final Map<LexicalCategory, FeatureIndex> indexByFeature = new ConcurrentHashMap<LexicalCategory, FeatureIndex>();
+
+	// enum types used by feature values, resolved once
+	private final Map<String, Class<?>> enumTypes = new HashMap<String, Class<?>>();
+
+	/**********************************************************************/
+	// constructors
+	/**********************************************************************/
+
+	/**
+	 * Open a binary lexicon snapshot from a named file
+	 *
+	 * @param filename
+	 * @throws IOException
+	 *             if the file can't be read or isn't a lexicon snapshot
+	 */
+	public BinaryLexicon(String filename) throws IOException {
+		this(new File(filename));
+	}
+
+	/**
+	 * Open a binary lexicon snapshot from a file
+	 *
+	 * @param file
+	 * @throws IOException
+	 *             if the file can't be read or isn't a lexicon snapshot
+	 */
+	public BinaryLexicon(File file) throws IOException {
+		this(mapFile(file));
+	}
+
+	/**
+	 * Open a binary lexicon snapshot from a buffer holding the whole snapshot
+	 *
+	 * @param snapshot
+	 * @throws IOException
+	 *             if the buffer doesn't hold a lexicon snapshot
+	 */
+	private BinaryLexicon(ByteBuffer snapshot) throws IOException {
+		super(readLanguage(snapshot));
+		this.buffer = snapshot;
+		this.stringsOffset = buffer.getInt(HEADER_STRINGS);
+		this.wordsOffset = buffer.getInt(HEADER_WORDS);
+		this.baseIndexOffset = buffer.getInt(HEADER_BASE_INDEX);
+		this.variantIndexOffset = buffer.getInt(HEADER_VARIANT_INDEX);
+		this.idIndexOffset = buffer.getInt(HEADER_ID_INDEX);
+		this.wordCount = buffer.getInt(wordsOffset);
+		this.wordElements = new AtomicReferenceArray<WordElement>(wordCount);
+
+		// the category index is small, read it once
+		categoryNames = new EnumMap<LexicalCategory, Integer>(LexicalCategory.class);
+		wordsByCategory = new EnumMap<LexicalCategory, int[]>(LexicalCategory.class);
+		int position = buffer.getInt(HEADER_CATEGORY_INDEX);
+		int categoryCount = buffer.getInt(position);
+		position += 4;
+		for (int i = 0; i < categoryCount; i++) {
+			int name = buffer.getInt(position);
+			int size = buffer.getInt(position + 4);
+			position += 8;
+			int[] positions = new int[size];
+			for (int j = 0; j < size; j++) {
+				positions[j] = buffer.getInt(position);
+				position += 4;
+			}
+			LexicalCategory category = LexicalCategory.valueOf(readString(name));
+			categoryNames.put(category, name);
+			wordsByCategory.put(category, positions);
+		}
+	}
+
+	/**
+	 * memory-map a snapshot file
+	 *
+	 * @param file
+	 * @return buffer mapped on the whole file
+	 * @throws IOException
+	 */
+	private static ByteBuffer mapFile(File file) throws IOException {
+		FileInputStream input = new FileInputStream(file);
+		try {
+			FileChannel channel = input.getChannel();
+			// the mapping stays valid after the channel is closed
+			MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY,
+					0, channel.size());
+			return mapped;
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * check the snapshot header and get its language
+	 *
+	 * @param snapshot
+	 * @return language of the lexicon
+	 * @throws IOException
+	 *             if this is not a lexicon snapshot of a known version
+	 */
+	private static Language readLanguage(ByteBuffer snapshot) throws IOException {
+		if (snapshot.limit() < HEADER_SIZE || snapshot.getInt(0) != MAGIC)
+			throw new IOException("Not a binary lexicon snapshot");
+		if (snapshot.getInt(4) != VERSION)
+			throw new IOException("Unsupported binary lexicon version "
+					+ snapshot.getInt(4));
+		// the language code is stored as a string of the string table
+		int strings = snapshot.getInt(HEADER_STRINGS);
+		int position = snapshot.getInt(strings + 4 + 4 * snapshot.getInt(HEADER_LANGUAGE));
+		int length = snapshot.getInt(position);
+		char[] chars = new char[length];
+		for (int i = 0; i < length; i++)
+			chars[i] = snapshot.getChar(position + 4 + 2 * i);
+		return Language.convertCodeToLanguage(new String(chars));
+	}
+
+	/******************************************************************************************/
+	// main methods to get data from lexicon
+	/******************************************************************************************/
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see simplenlg.lexicon.Lexicon#getWords(java.lang.String,
+	 * simplenlg.features.LexicalCategory)
+	 */
+	@Override
+	public List<WordElement> getWords(String baseForm, LexicalCategory category) {
+		return getWordsFromIndex(baseForm, category, baseIndexOffset);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see simplenlg.lexicon.Lexicon#getWordsByID(java.lang.String)
+	 */
+	@Override
+	public List<WordElement> getWordsByID(String id) {
+		return getWordsFromIndex(id, LexicalCategory.ANY, idIndexOffset);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see simplenlg.lexicon.Lexicon#getWordsFromVariant(java.lang.String,
+	 * simplenlg.features.LexicalCategory)
+	 */
+	@Override
+	public List<WordElement> getWordsFromVariant(String variant,
+			LexicalCategory category) {
+		return getWordsFromIndex(variant, category, variantIndexOffset);
+	}
+
+	/**
+	 * Looks for all words in the lexicon matching the category and features
+	 * provided, with the same rules as
+	 * {@link XMLLexicon#getWords(LexicalCategory, Map)}.
+	 *
+	 * @param category	category of the returned WordElement
+	 * @param features	features and their corrsponding values that
+	 *					the WordElement returned must have (it can have others)
+	 * @return			list of all WordElements found that matches the argument
+	 */
+	@Override
+	public List<WordElement> getWords(LexicalCategory category,
+			Map<String, Object> features) {
+		if (features != null && (category == LexicalCategory.ANY
+				|| wordsByCategory.containsKey(category)))
+			return getFeatureIndex(category).getWords(features);
+
+		List<WordElement> result = new ArrayList<WordElement>();
+		if (category == LexicalCategory.ANY) {
+			for (int position = 0; position < wordCount; position++)
+				result.add(getWordAt(position));
+		} else if (wordsByCategory.containsKey(category)) {
+			for (int position : wordsByCategory.get(category))
+				result.add(getWordAt(position));
+		}
+		return result;
+	}
+
+	/**
+	 * get the index of the features of the words of a category, created at
+	 * the first lookup by features
+	 *
+	 * @param category
+	 *            category of the words (ANY for all the words)
+	 * @return the feature index of the words
+	 */
+	private FeatureIndex getFeatureIndex(LexicalCategory category) {
+		FeatureIndex index = indexByFeature.get(category);
+		if (index != null) return index;
+		synchronized (indexByFeature) {
+			index = indexByFeature.get(category);
+			if (index == null) {
+				index = new FeatureIndex();
+				if (category == LexicalCategory.ANY) {
+					for (int position = 0; position < wordCount; position++)
+						index.add(getWordAt(position));
+				} else {
+					for (int position : wordsByCategory.get(category))
+						index.add(getWordAt(position));
+				}
+				indexByFeature.put(category, index);
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * @return number of words in this lexicon
+	 */
+	public int size() {
+		return wordCount;
+	}
+
+	/**
+	 * get matching words from one of the hash indexes of the snapshot
+	 *
+	 * @param key
+	 * @param category
+	 * @param indexOffset
+	 * @return
+	 */
+	private List<WordElement> getWordsFromIndex(String key,
+			LexicalCategory category, int indexOffset) {
+		List<WordElement> result = new ArrayList<WordElement>();
+		if (key == null)
+			return result;
+
+		int entry = findEntry(indexOffset, key);
+		if (entry != NONE) {
+			int size = buffer.getInt(entry + 4);
+			Integer categoryName = categoryNames.get(category);
+			for (int i = 0; i < size; i++) {
+				int position = buffer.getInt(entry + 8 + 4 * i);
+				// the category is checked in the snapshot, so that words of
+				// other categories are not turned into WordElements
+				if (category == LexicalCategory.ANY
+						|| (categoryName != null && categoryName == buffer
+								.getInt(getRecordOffset(position) + 4)))
+					result.add(getWordAt(position));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * find the entry for a key in a hash index (open addressing with linear
+	 * probing, using String.hashCode())
+	 *
+	 * @param indexOffset
+	 * @param key
+	 * @return offset of the entry, or NONE if the key is not in the index
+	 */
+	private int findEntry(int indexOffset, String key) {
+		int tableSize = buffer.getInt(indexOffset);
+		int mask = tableSize - 1;
+		int hash = key.hashCode();
+		int slot = spread(hash) & mask;
+		while (true) {
+			int slotOffset = indexOffset + 4 + 8 * slot;
+			int entry = buffer.getInt(slotOffset + 4);
+			if (entry == NONE)
+				return NONE;
+			if (buffer.getInt(slotOffset) == hash
+					&& stringEquals(buffer.getInt(entry), key))
+				return entry;
+			slot = (slot + 1) & mask;
+		}
+	}
+
+	/**
+	 * get the word at a position of the snapshot, creating its WordElement
+	 * the first time
+	 *
+	 * @param position
+	 * @return
+	 */
+	private WordElement getWordAt(int position) {
+		WordElement word = wordElements.get(position);
+		if (word == null) {
+			word = readWord(position);
+			// if another thread got there first, use its word
+			if (!wordElements.compareAndSet(position, null, word))
+				word = wordElements.get(position);
+		}
+		return word;
+	}
+
+	/**
+	 * @param position
+	 * @return offset of the record of the word at this position
+	 */
+	private int getRecordOffset(int position) {
+		return buffer.getInt(wordsOffset + 4 + 4 * position);
+	}
+
+	/**
+	 * create a WordElement from its record in the snapshot
+	 *
+	 * @param position
+	 * @return
+	 */
+	private WordElement readWord(int position) {
+		int offset = getRecordOffset(position);
+		String base = readString(buffer.getInt(offset));
+		LexicalCategory category = LexicalCategory.valueOf(readString(buffer
+				.getInt(offset + 4)));
+		String id = readString(buffer.getInt(offset + 8));
+		int featureCount = buffer.getInt(offset + 12);
+		offset += 16;
+
+		WordElement word = new WordElement(base, category, id, this);
+		for (int i = 0; i < featureCount; i++) {
+			String feature = readString(buffer.getInt(offset));
+			byte type = buffer.get(offset + 4);
+			offset += 5;
+			switch (type) {
+			case TYPE_STRING:
+				word.setFeature(feature, readString(buffer.getInt(offset)));
+				offset += 4;
+				break;
+			case TYPE_BOOLEAN:
+				word.setFeature(feature, buffer.get(offset) != 0);
+				offset += 1;
+				break;
+			case TYPE_INTEGER:
+				word.setFeature(feature, buffer.getInt(offset));
+				offset += 4;
+				break;
+			case TYPE_ENUM:
+				word.setFeature(feature, readEnum(buffer.getInt(offset), buffer
+						.getInt(offset + 4)));
+				offset += 8;
+				break;
+			case TYPE_STRING_LIST:
+				int size = buffer.getInt(offset);
+				offset += 4;
+				List<String> values = new ArrayList<String>(size);
+				for (int j = 0; j < size; j++) {
+					values.add(readString(buffer.getInt(offset)));
+					offset += 4;
+				}
+				word.setFeature(feature, values);
+				break;
+			default:
+				throw new IllegalStateException("Corrupt binary lexicon: value type "
+						+ type);
+			}
+		}
+		return word;
+	}
+
+	/**
+	 * @param typeName
+	 *            string index of the enum class name
+	 * @param constantName
+	 *            string index of the enum constant name
+	 * @return the enum constant
+	 */
+	@SuppressWarnings( { "unchecked", "rawtypes" })
+	private Object readEnum(int typeName, int constantName) {
+		String className = readString(typeName);
+		Class<?> type;
+		synchronized (enumTypes) {
+			type = enumTypes.get(className);
+			if (type == null) {
+				try {
+					type = Class.forName(className);
+				} catch (ClassNotFoundException ex) {
+					throw new IllegalStateException("Binary lexicon uses unknown type "
+							+ className, ex);
+				}
+				enumTypes.put(className, type);
+			}
+		}
+		return Enum.valueOf((Class<? extends Enum>) type, readString(constantName));
+	}
+
+	/**
+	 * @param index
+	 *            index in the string table
+	 * @return offset of this string in the snapshot
+	 */
+	private int getStringOffset(int index) {
+		return buffer.getInt(stringsOffset + 4 + 4 * index);
+	}
+
+	/**
+	 * @param index
+	 *            index in the string table, or NONE
+	 * @return the string, or null for NONE
+	 */
+	private String readString(int index) {
+		if (index == NONE)
+			return null;
+		int offset = getStringOffset(index);
+		int length = buffer.getInt(offset);
+		char[] chars = new char[length];
+		for (int i = 0; i < length; i++)
+			chars[i] = buffer.getChar(offset + 4 + 2 * i);
+		return new String(chars);
+	}
+
+	/**
+	 * compare a string of the string table with a key without creating a
+	 * String object
+	 *
+	 * @param index
+	 * @param key
+	 * @return <code>true</code> if they are equal
+	 */
+	private boolean stringEquals(int index, String key) {
+		int offset = getStringOffset(index);
+		int length = buffer.getInt(offset);
+		if (length != key.length())
+			return false;
+		for (int i = 0; i < length; i++)
+			if (buffer.getChar(offset + 4 + 2 * i) != key.charAt(i))
+				return false;
+		return true;
+	}
+
+	/**
+	 * spread the bits of a hash code, as java.util.HashMap does
+	 *
+	 * @param hash
+	 * @return
+	 */
+	private static int spread(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+
+	/******************************************************************************************/
+	// writing snapshots
+	/******************************************************************************************/
+
+	/**
+	 * Write a binary snapshot of an XML lexicon to a file
+	 *
+	 * @param lexicon
+	 *            the lexicon, already loaded
+	 * @param file
+	 *            the snapshot file to write
+	 * @throws IOException
+	 */
+	public static void write(XMLLexicon lexicon, File file) throws IOException {
+		OutputStream output = new FileOutputStream(file);
+		try {
+			write(lexicon, output);
+		} finally {
+			output.close();
+		}
+	}
+
+	/**
+	 * Write a binary snapshot of an XML lexicon to a stream
+	 *
+	 * @param lexicon
+	 *            the lexicon, already loaded
+	 * @param output
+	 *            the stream to write to (not closed by this method)
+	 * @throws IOException
+	 */
+	public static void write(XMLLexicon lexicon, OutputStream output)
+			throws IOException {
+		new SnapshotWriter(lexicon).write(output);
+	}
+
+	/**
+	 * Writes the sections of a snapshot. All the strings are collected in a
+	 * string table first, records and indexes then refer to strings by their
+	 * index in this table.
+	 */
+	private static class SnapshotWriter {
+
+		private final XMLLexicon lexicon;
+
+		// string table
+		private final Map<String, Integer> strings = new LinkedHashMap<String, Integer>();
+
+		// position of each word in the snapshot
+		private final Map<WordElement, Integer> positions = new IdentityHashMap<WordElement, Integer>();
+		private final List<WordElement> words = new ArrayList<WordElement>();
+
+		private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		private final DataOutputStream data = new DataOutputStream(bytes);
+
+		SnapshotWriter(XMLLexicon lexicon) {
+			this.lexicon = lexicon;
+			for (WordElement word : lexicon.getAllWords()) {
+				positions.put(word, words.size());
+				words.add(word);
+			}
+			// words only referenced by indexes (should not happen)
+			addIndexedWords(lexicon.getBaseIndex().values());
+			addIndexedWords(lexicon.getVariantIndex().values());
+			addIndexedWords(lexicon.getCategoryIndex().values());
+		}
+
+		private void addIndexedWords(Collection<List<WordElement>> lists) {
+			for (List<WordElement> indexed : lists)
+				for (WordElement word : indexed)
+					if (!positions.containsKey(word)) {
+						positions.put(word, words.size());
+						words.add(word);
+					}
+		}
+
+		void write(OutputStream output) throws IOException {
+			// collect strings
+			intern(lexicon.getLanguage().code);
+			for (WordElement word : words)
+				internWord(word);
+			for (String key : lexicon.getBaseIndex().keySet())
+				intern(key);
+			for (String key : lexicon.getVariantIndex().keySet())
+				intern(key);
+			for (String key : lexicon.getIDIndex().keySet())
+				intern(key);
+			for (LexicalCategory category : LexicalCategory.values())
+				intern(category.name());
+
+			// header, offsets filled in at the end
+			data.writeInt(MAGIC);
+			data.writeInt(VERSION);
+			data.writeInt(strings.get(lexicon.getLanguage().code));
+			for (int i = HEADER_STRINGS; i < HEADER_SIZE; i += 4)
+				data.writeInt(0);
+
+			int[] sections = new int[6];
+			sections[0] = data.size();
+			writeStrings();
+			sections[1] = data.size();
+			writeWords();
+			sections[2] = data.size();
+			writeHashIndex(lexicon.getBaseIndex());
+			sections[3] = data.size();
+			writeHashIndex(lexicon.getVariantIndex());
+			sections[4] = data.size();
+			Map<String, List<WordElement>> idIndex = new LinkedHashMap<String, List<WordElement>>();
+			for (Map.Entry<String, WordElement> entry : lexicon.getIDIndex().entrySet()) {
+				List<WordElement> word = new ArrayList<WordElement>(1);
+				word.add(entry.getValue());
+				idIndex.put(entry.getKey(), word);
+			}
+			writeHashIndex(idIndex);
+			sections[5] = data.size();
+			writeCategoryIndex();
+			data.flush();
+
+			ByteBuffer snapshot = ByteBuffer.wrap(bytes.toByteArray());
+			for (int i = 0; i < sections.length; i++)
+				snapshot.putInt(HEADER_STRINGS + 4 * i, sections[i]);
+			output.write(snapshot.array());
+			output.flush();
+		}
+
+		private int intern(String string) {
+			Integer index = strings.get(string);
+			if (index == null) {
+				index = strings.size();
+				strings.put(string, index);
+			}
+			return index;
+		}
+
+		private int stringIndex(String string) {
+			return string == null ? NONE : strings.get(string);
+		}
+
+		private void internWord(WordElement word) {
+			intern(word.getBaseForm());
+			if (word.getId() != null)
+				intern(word.getId());
+			for (Map.Entry<String, Object> feature : word.getAllFeatures().entrySet()) {
+				intern(feature.getKey());
+				Object value = feature.getValue();
+				if (value instanceof Enum<?>) {
+					intern(((Enum<?>) value).getDeclaringClass().getName());
+					intern(((Enum<?>) value).name());
+				} else if (isStringList(value)) {
+					for (Object item : (List<?>) value)
+						intern((String) item);
+				} else if (!(value instanceof Boolean || value instanceof Integer)) {
+					intern(value.toString());
+				}
+			}
+		}
+
+		private static boolean isStringList(Object value) {
+			if (!(value instanceof List<?>))
+				return false;
+			for (Object item : (List<?>) value)
+				if (!(item instanceof String))
+					return false;
+			return true;
+		}
+
+		private void writeStrings() throws IOException {
+			int start = data.size();
+			data.writeInt(strings.size());
+			// string offsets, then the strings as UTF-16 chars, so that keys
+			// can be compared in place
+			int offset = start + 4 + 4 * strings.size();
+			for (String string : strings.keySet()) {
+				data.writeInt(offset);
+				offset += 4 + 2 * string.length();
+			}
+			for (String string : strings.keySet()) {
+				data.writeInt(string.length());
+				data.writeChars(string);
+			}
+		}
+
+		private void writeWords() throws IOException {
+			int start = data.size();
+			data.writeInt(words.size());
+			// records are written into their own buffer to know their offsets
+			ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+			DataOutputStream records = new DataOutputStream(recordBytes);
+			int recordsStart = start + 4 + 4 * words.size();
+			for (WordElement word : words) {
+				data.writeInt(recordsStart + records.size());
+				writeWord(word, records);
+			}
+			records.flush();
+			recordBytes.writeTo(data);
+		}
+
+		private void writeWord(WordElement word, DataOutputStream records)
+				throws IOException {
+			LexicalCategory category = word.getCategory() instanceof LexicalCategory ? (LexicalCategory) word
+					.getCategory()
+					: LexicalCategory.ANY;
+			Map<String, Object> features = word.getAllFeatures();
+			records.writeInt(stringIndex(word.getBaseForm()));
+			records.writeInt(stringIndex(category.name()));
+			records.writeInt(stringIndex(word.getId()));
+			records.writeInt(features.size());
+			for (Map.Entry<String, Object> feature : features.entrySet()) {
+				records.writeInt(stringIndex(feature.getKey()));
+				Object value = feature.getValue();
+				if (value instanceof Boolean) {
+					records.writeByte(TYPE_BOOLEAN);
+					records.writeBoolean((Boolean) value);
+				} else if (value instanceof Integer) {
+					records.writeByte(TYPE_INTEGER);
+					records.writeInt((Integer) value);
+				} else if (value instanceof Enum<?>) {
+					records.writeByte(TYPE_ENUM);
+					records.writeInt(stringIndex(((Enum<?>) value).getDeclaringClass().getName()));
+					records.writeInt(stringIndex(((Enum<?>) value).name()));
+				} else if (isStringList(value)) {
+					List<?> values = (List<?>) value;
+					records.writeByte(TYPE_STRING_LIST);
+					records.writeInt(values.size());
+					for (Object item : values)
+						records.writeInt(stringIndex((String) item));
+				} else {
+					// other values are kept as strings, as in WordElement.toXML()
+					records.writeByte(TYPE_STRING);
+					records.writeInt(stringIndex(value.toString()));
+				}
+			}
+		}
+
+		private void writeHashIndex(Map<String, List<WordElement>> index)
+				throws IOException {
+			int start = data.size();
+			int tableSize = 2;
+			while (tableSize < 2 * index.size())
+				tableSize *= 2;
+			int mask = tableSize - 1;
+
+			// place keys in the table, and compute their entry offsets
+			int[] hashes = new int[tableSize];
+			int[] entries = new int[tableSize];
+			Arrays.fill(entries, NONE);
+			int entryOffset = start + 4 + 8 * tableSize;
+			List<String> keys = new ArrayList<String>(index.keySet());
+			for (String key : keys) {
+				int hash = key.hashCode();
+				int slot = spread(hash) & mask;
+				while (entries[slot] != NONE)
+					slot = (slot + 1) & mask;
+				hashes[slot] = hash;
+				entries[slot] = entryOffset;
+				entryOffset += 8 + 4 * index.get(key).size();
+			}
+
+			data.writeInt(tableSize);
+			for (int slot = 0; slot < tableSize; slot++) {
+				data.writeInt(hashes[slot]);
+				data.writeInt(entries[slot]);
+			}
+			// entries, in the same order as their offsets were computed
+			for (String key : keys) {
+				List<WordElement> indexed = index.get(key);
+				data.writeInt(stringIndex(key));
+				data.writeInt(indexed.size());
+				for (WordElement word : indexed)
+					data.writeInt(positions.get(word));
+			}
+		}
+
+		private void writeCategoryIndex() throws IOException {
+			// the order of the XML lexicon's index is kept, as getWords()
+			// returns words in this order
+			Map<LexicalCategory, List<WordElement>> byCategory = lexicon.getCategoryIndex();
+			data.writeInt(byCategory.size());
+			for (Map.Entry<LexicalCategory, List<WordElement>> entry : byCategory.entrySet()) {
+				data.writeInt(stringIndex(entry.getKey().name()));
+				data.writeInt(entry.getValue().size());
+				for (WordElement word : entry.getValue())
+					data.writeInt(positions.get(word));
+			}
+		}
+	}
+
+	/******************************************************************************************/
+	// command line
+	/******************************************************************************************/
+
+	/**
+	 * Write a binary snapshot of an XML lexicon. Arguments are the ISO 639-1
+	 * code of the language of the lexicon, the XML lexicon file (optional,
+	 * the default lexicon of the language is used if missing) and the
+	 * snapshot file to write.
+	 *
+	 * @param args
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2 || args.length > 3) {
+			System.out.println("Usage: java simplenlg.lexicon.BinaryLexicon <language code> [lexicon.xml] <snapshot file>");
+			return;
+		}
+		Language language = Language.convertCodeToLanguage(args[0]);
+		if (language == null) {
+			System.out.println("Unknown language code: " + args[0]);
+			return;
+		}
+		File xmlFile = args.length == 3 ? new File(args[1]) : null;
+
+		long start = System.nanoTime();
+		XMLLexicon lexicon;
+		switch (language) {
+		case DUTCH:
+			lexicon = xmlFile == null ? new simplenlg.lexicon.dutch.XMLLexicon()
+					: new simplenlg.lexicon.dutch.XMLLexicon(xmlFile);
+			break;
+		case FRENCH:
+			lexicon = xmlFile == null ? new simplenlg.lexicon.french.XMLLexicon()
+					: new simplenlg.lexicon.french.XMLLexicon(xmlFile);
+			break;
+		default:
+			lexicon = xmlFile == null ? new simplenlg.lexicon.english.XMLLexicon()
+					: new simplenlg.lexicon.english.XMLLexicon(xmlFile);
+		}
+		long loaded = System.nanoTime();
+
+		File snapshotFile = new File(args[args.length - 1]);
+		write(lexicon, snapshotFile);
+		long written = System.nanoTime();
+
+		System.out.println("Loaded " + lexicon.getAllWords().size()
+				+ " words in " + (loaded - start) / 1000000 + " ms, wrote "
+				+ snapshotFile + " (" + snapshotFile.length() + " bytes) in "
+				+ (written - loaded) / 1000000 + " ms");
+	}
+}
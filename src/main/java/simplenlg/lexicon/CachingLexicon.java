@@ -0,0 +1,418 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is "Simplenlg".
+ *
+ * The Initial Developer of the Original Code is Ehud Reiter, Albert Gatt and Dave Westwater.
+ * Portions created by Ehud Reiter, Albert Gatt and Dave Westwater are Copyright (C) 2010-11 The University of Aberdeen. All Rights Reserved.
+ *
+ * Contributor(s): Ehud Reiter, Albert Gatt, Dave Wewstwater, Roman Kutlak, Margaret Mitchell, Pierre-Luc Vaudry.
+ */
+package simplenlg.lexicon;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import simplenlg.framework.LexicalCategory;
+import simplenlg.framework.NLGElement;
+import simplenlg.framework.WordElement;
+
+/**
+ * This class keeps the results of the lookups of another lexicon, so that
+ * the same lookup doesn't query the other lexicon again. It is meant for
+ * lexicons whose lookups are slow, such as {@link NIHDBLexicon}, which runs a
+ * database query and builds new <code>WordElement</code>s for every lookup:
+ * 
+ * <pre>
+ * Lexicon lexicon = new CachingLexicon(new NIHDBLexicon(&quot;lexAccess2011&quot;), 50000);
+ * </pre>
+ * 
+ * Lookups by base form, by ID and by variant are kept, including lookups
+ * which found nothing. At most a given number of lookups are kept: when the
+ * cache is full, the least recently used lookup is evicted. The statistics
+ * (see <code>getHits()</code>, <code>getMisses()</code> and
+ * <code>getEvictions()</code>) can be used to choose this number.
+ * 
+ * The words created by the other lexicon when a word isn't found are kept
+ * as the result of the lookup of their base form, so that the next lookups
+ * give the same word rather than creating another one (which a lexicon that
+ * indexes the words it creates, such as {@link XMLLexicon}, would add to its
+ * words each time).
+ * 
+ * Lookups whose result is null (which NIHDBLexicon returns on a database
+ * error) are not kept. Lookups by features are not cached. This class can be
+ * used by several threads at the same time, if the other lexicon can.
+ */
+public class CachingLexicon extends Lexicon {
+
+	/** number of lookups kept by default */
+	public static final int DEFAULT_CAPACITY = 10000;
+
+	// kinds of lookups
+	private static final int BY_BASE = 0;
+	private static final int BY_ID = 1;
+	private static final int BY_VARIANT = 2;
+
+	// lexicon whose lookups are cached
+	private final Lexicon lexicon;
+
+	// results of the lookups, from least to most recently used
+	private final LinkedHashMap<Lookup, List<WordElement>> cache;
+
+	private final int capacity;
+
+	// statistics
+	private long hits;
+	private long negativeHits;
+	private long misses;
+	private long evictions;
+
+	/**********************************************************************/
+	// constructors
+	/**********************************************************************/
+
+	/**
+	 * cache the lookups of a lexicon, keeping at most DEFAULT_CAPACITY
+	 * lookups
+	 * 
+	 * @param lexicon
+	 */
+	public CachingLexicon(Lexicon lexicon) {
+		this(lexicon, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * cache the lookups of a lexicon
+	 * 
+	 * @param lexicon
+	 * @param capacity
+	 *            maximum number of lookups kept
+	 */
+	public CachingLexicon(Lexicon lexicon, int capacity) {
+		super(lexicon.getLanguage());
+		if (capacity < 1)
+			throw new IllegalArgumentException("capacity must be positive: "
+					+ capacity);
+		this.lexicon = lexicon;
+		this.capacity = capacity;
+		cache = new LinkedHashMap<Lookup, List<WordElement>>(16, 0.75f, true);
+	}
+
+	/**
+	 * @return the lexicon whose lookups are cached
+	 */
+	public Lexicon getCachedLexicon() {
+		return lexicon;
+	}
+
+	/**
+	 * @return maximum number of lookups kept
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return number of lookups currently kept
+	 */
+	public synchronized int size() {
+		return cache.size();
+	}
+
+	/**
+	 * @return number of lookups answered from the cache (including lookups
+	 *         which found nothing)
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * @return number of lookups answered from the cache which found nothing
+	 */
+	public synchronized long getNegativeHits() {
+		return negativeHits;
+	}
+
+	/**
+	 * @return number of lookups passed on to the other lexicon
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * @return number of lookups evicted from the cache
+	 */
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * remove all the lookups kept (the statistics are kept)
+	 */
+	public synchronized void clear() {
+		cache.clear();
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "CachingLexicon[size=" + cache.size() + ", capacity="
+				+ capacity + ", hits=" + hits + ", negativeHits="
+				+ negativeHits + ", misses=" + misses + ", evictions="
+				+ evictions + "]";
+	}
+
+	/**********************************************************************/
+	// main methods
+	/**********************************************************************/
+
+	/* (non-Javadoc)
+	 * @see simplenlg.lexicon.Lexicon#getWords(java.lang.String, simplenlg.features.LexicalCategory)
+	 */
+	@Override
+	public List<WordElement> getWords(String baseForm, LexicalCategory category) {
+		Lookup lookup = new Lookup(BY_BASE, baseForm, category);
+		List<WordElement> result = getCached(lookup);
+		if (result == null) {
+			result = putCached(lookup, lexicon.getWords(baseForm, category));
+		}
+		return result;
+	}
+
+	/**
+	 * returns the Words of several base forms at once; the base forms which
+	 * aren't cached are looked up together in the other lexicon
+	 *
+	 * @see simplenlg.lexicon.Lexicon#getWordsForBaseForms(java.util.Collection,
+	 *      simplenlg.framework.LexicalCategory)
+	 */
+	@Override
+	public Map<String, List<WordElement>> getWordsForBaseForms(
+			Collection<String> baseForms, LexicalCategory category) {
+		Map<String, List<WordElement>> result = new LinkedHashMap<String, List<WordElement>>();
+		List<String> missing = new ArrayList<String>();
+		for (String baseForm : baseForms) {
+			if (result.containsKey(baseForm)) continue;
+			List<WordElement> words = getCached(new Lookup(BY_BASE, baseForm, category));
+			result.put(baseForm, words);
+			if (words == null) missing.add(baseForm);
+		}
+		if (!missing.isEmpty()) {
+			Map<String, List<WordElement>> found = lexicon.getWordsForBaseForms(missing, category);
+			for (String baseForm : missing)
+				result.put(baseForm, putCached(new Lookup(BY_BASE, baseForm, category),
+						found.get(baseForm)));
+		}
+		return result;
+	}
+
+	/**
+	 * looks up (and keeps) the base forms which will be looked up when some
+	 * elements are realised: the base forms of their words, and the
+	 * conjunctions and complementisers given as strings. The base forms of
+	 * each category are looked up together (see
+	 * <code>getWordsForBaseForms</code>), so that realising the elements
+	 * doesn't need to look up words one by one in the other lexicon.
+	 *
+	 * @param elements
+	 *            - elements which will be realised
+	 */
+	public void prefetch(Collection<? extends NLGElement> elements) {
+		BaseFormCollector collector = new BaseFormCollector();
+		for (NLGElement element : elements)
+			collector.collect(element);
+		for (Map.Entry<LexicalCategory, Set<String>> entry : collector.getBaseForms().entrySet())
+			getWordsForBaseForms(entry.getValue(), entry.getKey());
+	}
+
+	/* (non-Javadoc)
+	 * @see simplenlg.lexicon.Lexicon#getWordsByID(java.lang.String)
+	 */
+	@Override
+	public List<WordElement> getWordsByID(String id) {
+		Lookup lookup = new Lookup(BY_ID, id, LexicalCategory.ANY);
+		List<WordElement> result = getCached(lookup);
+		if (result == null) {
+			result = putCached(lookup, lexicon.getWordsByID(id));
+		}
+		return result;
+	}
+
+	/* (non-Javadoc)
+	 * @see simplenlg.lexicon.Lexicon#getWordsFromVariant(java.lang.String, simplenlg.features.LexicalCategory)
+	 */
+	@Override
+	public List<WordElement> getWordsFromVariant(String variant, LexicalCategory category) {
+		Lookup lookup = new Lookup(BY_VARIANT, variant, category);
+		List<WordElement> result = getCached(lookup);
+		if (result == null) {
+			result = putCached(lookup, lexicon.getWordsFromVariant(variant, category));
+		}
+		return result;
+	}
+
+	/* (non-Javadoc)
+	 * @see simplenlg.lexicon.Lexicon#getWordsFromNormalisedForm(java.lang.String, simplenlg.framework.LexicalCategory)
+	 */
+	@Override
+	protected List<WordElement> getWordsFromNormalisedForm(String form,
+			LexicalCategory category) {
+		return lexicon.getWordsFromNormalisedForm(form, category);
+	}
+
+	/* (non-Javadoc)
+	 * @see simplenlg.lexicon.Lexicon#getWords(simplenlg.framework.LexicalCategory, java.util.Map)
+	 */
+	@Override
+	public List<WordElement> getWords(LexicalCategory category,
+			Map<String, Object> features) {
+		return lexicon.getWords(category, features);
+	}
+
+	/**
+	 * Creates a default WordElement with the other lexicon.
+	 * 
+	 * @param baseForm
+	 *            - base form of word
+	 * @param category
+	 *            - category of word
+	 * @return WordElement entry for specified info
+	 */
+	@Override
+	protected WordElement createWord(String baseForm, LexicalCategory category) {
+		return keepCreated(lexicon.createWord(baseForm, category), baseForm, category);
+	}
+
+	/**
+	 * Creates a default WordElement with the other lexicon.
+	 * 
+	 * @param baseForm
+	 *            - base form of word
+	 * @return WordElement entry for specified info
+	 */
+	@Override
+	protected WordElement createWord(String baseForm) {
+		return keepCreated(lexicon.createWord(baseForm), baseForm, LexicalCategory.ANY);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see simplenlg.lexicon.Lexicon#close()
+	 */
+	@Override
+	public void close() {
+		lexicon.close();
+	}
+
+	/**********************************************************************/
+	// other methods
+	/**********************************************************************/
+
+	/**
+	 * @param lookup
+	 * @return the words found by the lookup, or null if it isn't cached
+	 */
+	private synchronized List<WordElement> getCached(Lookup lookup) {
+		List<WordElement> result = cache.get(lookup);
+		if (result != null) {
+			hits++;
+			if (result.isEmpty()) negativeHits++;
+		} else {
+			misses++;
+		}
+		return result;
+	}
+
+	/**
+	 * keep the words found by a lookup, evicting the least recently used
+	 * lookup if the cache is full
+	 * 
+	 * @param lookup
+	 * @param words
+	 *            words found by the other lexicon (not kept if null)
+	 * @return the words kept, which can't be modified
+	 */
+	private synchronized List<WordElement> putCached(Lookup lookup,
+			List<WordElement> words) {
+		if (words == null) return null;
+		List<WordElement> result = words.isEmpty() ? Collections.<WordElement> emptyList()
+				: Collections.unmodifiableList(new ArrayList<WordElement>(words));
+		cache.put(lookup, result);
+		Iterator<List<WordElement>> eldest = cache.values().iterator();
+		while (cache.size() > capacity) {
+			eldest.next();
+			eldest.remove();
+			evictions++;
+		}
+		return result;
+	}
+
+	/**
+	 * keep a word created by the other lexicon as the words found by the
+	 * lookup of its base form, and forget that the base form wasn't found in
+	 * any category (the other lexicon may have indexed the word)
+	 * 
+	 * @param word
+	 * @param baseForm
+	 * @param category
+	 * @return the word
+	 */
+	private synchronized WordElement keepCreated(WordElement word, String baseForm,
+			LexicalCategory category) {
+		if (word == null) return null;
+		putCached(new Lookup(BY_BASE, baseForm, category), Collections.singletonList(word));
+		if (category != LexicalCategory.ANY) {
+			Lookup anyCategory = new Lookup(BY_BASE, baseForm, LexicalCategory.ANY);
+			List<WordElement> words = cache.get(anyCategory);
+			if (words != null && words.isEmpty()) cache.remove(anyCategory);
+		}
+		return word;
+	}
+
+	/**
+	 * a lookup: its kind, the string looked up, and the category
+	 */
+	private static final class Lookup {
+		private final int kind;
+		private final String key;
+		private final LexicalCategory category;
+		private final int hash;
+
+		Lookup(int kind, String key, LexicalCategory category) {
+			this.kind = kind;
+			this.key = key;
+			this.category = category;
+			this.hash = 31 * (31 * kind + (key == null ? 0 : key.hashCode()))
+					+ (category == null ? 0 : category.hashCode());
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Lookup)) return false;
+			Lookup other = (Lookup) o;
+			return kind == other.kind && category == other.category
+					&& (key == null ? other.key == null : key.equals(other.key));
+		}
+	}
+}
@@ -0,0 +1,561 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is "Simplenlg".
+ *
+ * The Initial Developer of the Original Code is Ehud Reiter, Albert Gatt and Dave Westwater.
+ * Portions created by Ehud Reiter, Albert Gatt and Dave Westwater are Copyright (C) 2010-11 The University of Aberdeen. All Rights Reserved.
+ *
+ * Contributor(s): Ehud Reiter, Albert Gatt, Dave Wewstwater, Roman Kutlak, Margaret Mitchell, Pierre-Luc Vaudry.
+ */
+package simplenlg.lexicon;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import simplenlg.framework.FeatureMap;
+import simplenlg.framework.LexicalCategory;
+import simplenlg.framework.WordElement;
+
+/**
+ * This class keeps the words of a loaded {@link XMLLexicon} in column arrays
+ * instead of one <code>WordElement</code> with its own feature map per word,
+ * to take less memory:
+ * <UL>
+ * <LI>strings (base forms, IDs, index keys) and feature values are stored
+ * once, in dictionaries, and words refer to them by number. Equal feature
+ * values, such as "reg", enum constants, booleans or lists of inflections,
+ * are shared by all the words having them;
+ * <LI>each word is a row: its base form and ID numbers, its category
+ * ordinal, and its features as pairs of feature name and value numbers;
+ * <LI>the indexes by base form, variant and ID are hash tables of arrays of
+ * row numbers.
+ * </UL>
+ * 
+ * A word is only turned into a <code>WordElement</code> the first time it is
+ * returned, as a view of its row: its feature map reads the columns (it is
+ * copied if the features are changed). Later lookups return the same
+ * instance.
+ * 
+ * The lexicon can't be modified once created, so it can be shared by any
+ * number of threads. As with {@link BinaryLexicon}, words created for
+ * lookups which don't match anything are not added to it (see
+ * {@link OverlayLexicon} to keep them).
+ */
+public class ColumnarLexicon extends Lexicon {
+
+	private static final int NONE = -1;
+
+	private static final LexicalCategory[] CATEGORIES = LexicalCategory.values();
+
+	// dictionaries: strings, feature names and feature values
+	private final String[] strings;
+	private final String[] featureNames;
+	private final Map<String, Integer> featureCodes;
+	private final Object[] values;
+
+	// columns, by row: base form and ID (string numbers, NONE if no ID),
+	// category ordinal, and features (start of the features of each row,
+	// with feature name and value numbers)
+	private final int[] baseForms;
+	private final int[] ids;
+	private final byte[] categories;
+	private final int[] featureStarts;
+	private final short[] featureNameColumn;
+	private final int[] featureValueColumn;
+
+	// indexes by base form, variant and ID
+	private final RowIndex baseIndex;
+	private final RowIndex variantIndex;
+	private final RowIndex idIndex;
+
+	// rows of each category, in the order of the XML lexicon's index
+	private final Map<LexicalCategory, int[]> rowsByCategory = new EnumMap<LexicalCategory, int[]>(LexicalCategory.class);
+
+	// words already turned into WordElements, by row
+	private final AtomicReferenceArray<WordElement> wordElements;
+
+	// indexes of the features of the words of each category (and ANY),
+	// created at the first lookup by features
+	private final Map<LexicalCategory, FeatureIndex> indexByFeature = new ConcurrentHashMap<LexicalCategory, FeatureIndex>();
+
+	/**********************************************************************/
+	// constructors
+	/**********************************************************************/
+
+	/**
+	 * Create a columnar lexicon with the words and indexes of an XML lexicon
+	 * (which can be dropped afterwards)
+	 * 
+	 * @param lexicon
+	 */
+	public ColumnarLexicon(XMLLexicon lexicon) {
+		super(lexicon.getLanguage());
+		Collection<WordElement> words = lexicon.getAllWords();
+		int size = words.size();
+
+		Dictionary<String> stringDictionary = new Dictionary<String>();
+		Dictionary<String> nameDictionary = new Dictionary<String>();
+		Dictionary<Object> valueDictionary = new Dictionary<Object>();
+		Map<WordElement, Integer> rows = new IdentityHashMap<WordElement, Integer>(size);
+
+		baseForms = new int[size];
+		ids = new int[size];
+		categories = new byte[size];
+		featureStarts = new int[size + 1];
+		int featureCount = 0;
+		for (WordElement word : words) {
+			featureCount += word.getAllFeatures().size();
+		}
+		featureNameColumn = new short[featureCount];
+		featureValueColumn = new int[featureCount];
+
+		int row = 0;
+		int feature = 0;
+		for (WordElement word : words) {
+			rows.put(word, row);
+			baseForms[row] = stringDictionary.code(word.getBaseForm());
+			ids[row] = word.getId() == null ? NONE : stringDictionary.code(word.getId());
+			categories[row] = (byte) ((LexicalCategory) word.getCategory()).ordinal();
+			featureStarts[row] = feature;
+			for (Map.Entry<String, Object> entry : word.getAllFeatures().entrySet()) {
+				int name = nameDictionary.code(entry.getKey());
+				if (name > Short.MAX_VALUE)
+					throw new IllegalArgumentException("Too many feature names");
+				featureNameColumn[feature] = (short) name;
+				featureValueColumn[feature] = valueDictionary.code(entry.getValue());
+				feature++;
+			}
+			row++;
+		}
+		featureStarts[size] = feature;
+
+		baseIndex = new RowIndex(lexicon.getBaseIndex(), rows, stringDictionary);
+		variantIndex = new RowIndex(lexicon.getVariantIndex(), rows, stringDictionary);
+		Map<String, List<WordElement>> byID = new HashMap<String, List<WordElement>>();
+		for (Map.Entry<String, WordElement> entry : lexicon.getIDIndex().entrySet()) {
+			byID.put(entry.getKey(), Arrays.asList(entry.getValue()));
+		}
+		idIndex = new RowIndex(byID, rows, stringDictionary);
+		for (Map.Entry<LexicalCategory, List<WordElement>> entry : lexicon.getCategoryIndex().entrySet()) {
+			rowsByCategory.put(entry.getKey(), RowIndex.toRows(entry.getValue(), rows));
+		}
+
+		strings = stringDictionary.toArray(new String[0]);
+		featureNames = nameDictionary.toArray(new String[0]);
+		featureCodes = new HashMap<String, Integer>();
+		for (int name = 0; name < featureNames.length; name++) {
+			featureCodes.put(featureNames[name], name);
+		}
+		values = valueDictionary.toArray(new Object[0]);
+		wordElements = new AtomicReferenceArray<WordElement>(size);
+	}
+
+	/******************************************************************************************/
+	// main methods to get data from lexicon
+	/******************************************************************************************/
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see simplenlg.lexicon.Lexicon#getWords(java.lang.String,
+	 * simplenlg.features.LexicalCategory)
+	 */
+	@Override
+	public List<WordElement> getWords(String baseForm, LexicalCategory category) {
+		return getWordsFromIndex(baseForm, category, baseIndex);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see simplenlg.lexicon.Lexicon#getWordsByID(java.lang.String)
+	 */
+	@Override
+	public List<WordElement> getWordsByID(String id) {
+		return getWordsFromIndex(id, LexicalCategory.ANY, idIndex);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see simplenlg.lexicon.Lexicon#getWordsFromVariant(java.lang.String,
+	 * simplenlg.features.LexicalCategory)
+	 */
+	@Override
+	public List<WordElement> getWordsFromVariant(String variant,
+			LexicalCategory category) {
+		return getWordsFromIndex(variant, category, variantIndex);
+	}
+
+	/**
+	 * Looks for all words in the lexicon matching the category and features
+	 * provided, with the same rules as
+	 * {@link XMLLexicon#getWords(LexicalCategory, Map)}.
+	 * 
+	 * @param category	category of the returned WordElement
+	 * @param features	features and their corrsponding values that
+	 *					the WordElement returned must have (it can have others)
+	 * @return			list of all WordElements found that matches the argument
+	 */
+	@Override
+	public List<WordElement> getWords(LexicalCategory category,
+			Map<String, Object> features) {
+		if (features != null && (category == LexicalCategory.ANY
+				|| rowsByCategory.containsKey(category)))
+			return getFeatureIndex(category).getWords(features);
+
+		List<WordElement> result = new ArrayList<WordElement>();
+		if (category == LexicalCategory.ANY) {
+			for (int row = 0; row < baseForms.length; row++)
+				result.add(getWordAt(row));
+		} else if (rowsByCategory.containsKey(category)) {
+			for (int row : rowsByCategory.get(category))
+				result.add(getWordAt(row));
+		}
+		return result;
+	}
+
+	/**
+	 * @return number of words in this lexicon
+	 */
+	public int size() {
+		return baseForms.length;
+	}
+
+	/**
+	 * get the index of the features of the words of a category, created at
+	 * the first lookup by features
+	 * 
+	 * @param category
+	 *            category of the words (ANY for all the words)
+	 * @return the feature index of the words
+	 */
+	private FeatureIndex getFeatureIndex(LexicalCategory category) {
+		FeatureIndex index = indexByFeature.get(category);
+		if (index != null) return index;
+		synchronized (indexByFeature) {
+			index = indexByFeature.get(category);
+			if (index == null) {
+				index = new FeatureIndex();
+				if (category == LexicalCategory.ANY) {
+					for (int row = 0; row < baseForms.length; row++)
+						index.add(getWordAt(row));
+				} else {
+					for (int row : rowsByCategory.get(category))
+						index.add(getWordAt(row));
+				}
+				indexByFeature.put(category, index);
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * get matching words from one of the indexes
+	 * 
+	 * @param key
+	 * @param category
+	 * @param index
+	 * @return
+	 */
+	private List<WordElement> getWordsFromIndex(String key,
+			LexicalCategory category, RowIndex index) {
+		List<WordElement> result = new ArrayList<WordElement>();
+		if (key == null)
+			return result;
+
+		int entry = index.find(key, strings);
+		if (entry != NONE) {
+			for (int i = index.starts[entry]; i < index.starts[entry + 1]; i++) {
+				int row = index.rows[i];
+				// the category is checked in the column, so that words of
+				// other categories are not turned into WordElements
+				if (category == LexicalCategory.ANY
+						|| categories[row] == category.ordinal())
+					result.add(getWordAt(row));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * get the WordElement of a row, creating it if needed
+	 * 
+	 * @param row
+	 * @return the word
+	 */
+	private WordElement getWordAt(int row) {
+		WordElement word = wordElements.get(row);
+		if (word == null) {
+			String id = ids[row] == NONE ? null : strings[ids[row]];
+			word = new WordElement(strings[baseForms[row]],
+					CATEGORIES[categories[row]], id, this, new RowFeatures(row));
+			// another thread may have created it meanwhile: keep the first
+			if (!wordElements.compareAndSet(row, null, word))
+				word = wordElements.get(row);
+		}
+		return word;
+	}
+
+	/**
+	 * The features of a row, as a map. The map is copied when it is first
+	 * modified, so the columns are never changed.
+	 * 
+	 * The word may be shared by several threads: the copy is only made once,
+	 * and the threads reading the map see either the columns or the whole
+	 * copy. As for any word, changing its features while other threads use
+	 * it isn't safe, as the copy itself is not synchronized.
+	 */
+	private class RowFeatures extends AbstractMap<String, Object> {
+
+		private final int row;
+
+		// the features once modified, or null
+		private volatile Map<String, Object> copy;
+
+		RowFeatures(int row) {
+			this.row = row;
+		}
+
+		/**
+		 * @param key
+		 * @return position of the feature in the feature columns, or NONE
+		 */
+		private int find(Object key) {
+			Integer name = featureCodes.get(key);
+			if (name != null) {
+				for (int feature = featureStarts[row]; feature < featureStarts[row + 1]; feature++) {
+					if (featureNameColumn[feature] == name) return feature;
+				}
+			}
+			return NONE;
+		}
+
+		@Override
+		public Object get(Object key) {
+			Map<String, Object> copy = this.copy;
+			if (copy != null) return copy.get(key);
+			int feature = find(key);
+			return feature == NONE ? null : values[featureValueColumn[feature]];
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			Map<String, Object> copy = this.copy;
+			if (copy != null) return copy.containsKey(key);
+			return find(key) != NONE;
+		}
+
+		@Override
+		public int size() {
+			Map<String, Object> copy = this.copy;
+			if (copy != null) return copy.size();
+			return featureStarts[row + 1] - featureStarts[row];
+		}
+
+		@Override
+		public Object put(String key, Object value) {
+			return modifiable().put(key, value);
+		}
+
+		@Override
+		public Object remove(Object key) {
+			if (copy == null && !containsKey(key)) return null;
+			return modifiable().remove(key);
+		}
+
+		@Override
+		public void clear() {
+			modifiable().clear();
+		}
+
+		/**
+		 * @return the copy of the features, made at the first modification
+		 */
+		private Map<String, Object> modifiable() {
+			Map<String, Object> copy = this.copy;
+			if (copy == null) {
+				synchronized (this) {
+					copy = this.copy;
+					if (copy == null) {
+						copy = new FeatureMap(this);
+						this.copy = copy;
+					}
+				}
+			}
+			return copy;
+		}
+
+		@Override
+		public Set<Map.Entry<String, Object>> entrySet() {
+			Map<String, Object> copy = this.copy;
+			if (copy != null) return copy.entrySet();
+			return new AbstractSet<Map.Entry<String, Object>>() {
+				@Override
+				public Iterator<Map.Entry<String, Object>> iterator() {
+					return new Iterator<Map.Entry<String, Object>>() {
+						private int feature = featureStarts[row];
+
+						@Override
+						public boolean hasNext() {
+							return feature < featureStarts[row + 1];
+						}
+
+						@Override
+						public Map.Entry<String, Object> next() {
+							if (!hasNext()) throw new NoSuchElementException();
+							Map.Entry<String, Object> entry = new SimpleImmutableEntry<String, Object>(
+									featureNames[featureNameColumn[feature]],
+									values[featureValueColumn[feature]]);
+							feature++;
+							return entry;
+						}
+
+						@Override
+						public void remove() {
+							throw new UnsupportedOperationException();
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					return RowFeatures.this.size();
+				}
+			};
+		}
+	}
+
+	/**
+	 * Numbers distinct objects in the order in which they are first seen.
+	 */
+	private static class Dictionary<T> {
+
+		private final List<T> objects = new ArrayList<T>();
+		private final Map<T, Integer> codes = new HashMap<T, Integer>();
+
+		/**
+		 * @param object
+		 * @return the number of the object (or of an equal object seen before)
+		 */
+		int code(T object) {
+			Integer code = codes.get(object);
+			if (code == null) {
+				code = objects.size();
+				codes.put(object, code);
+				objects.add(object);
+			}
+			return code;
+		}
+
+		/**
+		 * @param array
+		 *            empty array of the type of the result
+		 * @return the objects, by number
+		 */
+		T[] toArray(T[] array) {
+			return objects.toArray(array);
+		}
+	}
+
+	/**
+	 * Hash table from keys (string numbers) to arrays of row numbers, with
+	 * open addressing and linear probing on String.hashCode().
+	 */
+	private static class RowIndex {
+
+		// entry of each slot of the table, or NONE; key of each entry, and
+		// start of its rows (the rows of all the entries, one after the other)
+		final int[] table;
+		final int[] keys;
+		final int[] starts;
+		final int[] rows;
+
+		RowIndex(Map<String, List<WordElement>> index,
+				Map<WordElement, Integer> rowNumbers,
+				Dictionary<String> stringDictionary) {
+			int tableSize = 2;
+			while (tableSize < 2 * index.size())
+				tableSize *= 2;
+			table = new int[tableSize];
+			Arrays.fill(table, NONE);
+			keys = new int[index.size()];
+			starts = new int[index.size() + 1];
+			int rowCount = 0;
+			for (List<WordElement> words : index.values()) {
+				rowCount += words.size();
+			}
+			rows = new int[rowCount];
+
+			int entry = 0;
+			int row = 0;
+			for (Map.Entry<String, List<WordElement>> indexed : index.entrySet()) {
+				int slot = spread(indexed.getKey().hashCode()) & (tableSize - 1);
+				while (table[slot] != NONE)
+					slot = (slot + 1) & (tableSize - 1);
+				table[slot] = entry;
+				keys[entry] = stringDictionary.code(indexed.getKey());
+				starts[entry] = row;
+				for (WordElement word : indexed.getValue()) {
+					rows[row++] = rowNumbers.get(word);
+				}
+				entry++;
+			}
+			starts[entry] = row;
+		}
+
+		/**
+		 * @param key
+		 * @param strings
+		 *            the string dictionary
+		 * @return the entry of the key, or NONE if the key is not in the index
+		 */
+		int find(String key, String[] strings) {
+			int mask = table.length - 1;
+			for (int slot = spread(key.hashCode()) & mask; table[slot] != NONE; slot = (slot + 1) & mask) {
+				if (strings[keys[table[slot]]].equals(key)) return table[slot];
+			}
+			return NONE;
+		}
+
+		/**
+		 * @param words
+		 * @param rowNumbers
+		 * @return the row numbers of the words, in order
+		 */
+		static int[] toRows(List<WordElement> words,
+				Map<WordElement, Integer> rowNumbers) {
+			int[] result = new int[words.size()];
+			for (int i = 0; i < result.length; i++) {
+				result[i] = rowNumbers.get(words.get(i));
+			}
+			return result;
+		}
+
+		private static int spread(int hash) {
+			return hash ^ (hash >>> 16);
+		}
+	}
+}
@@ -0,0 +1,348 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is "Simplenlg".
+ *
+ * The Initial Developer of the Original Code is Ehud Reiter, Albert Gatt and Dave Westwater.
+ * Portions created by Ehud Reiter, Albert Gatt and Dave Westwater are Copyright (C) 2010-11 The University of Aberdeen. All Rights Reserved.
+ *
+ * Contributor(s): Ehud Reiter, Albert Gatt, Dave Wewstwater, Roman Kutlak, Margaret Mitchell, Pierre-Luc Vaudry.
+ */
+package simplenlg.lexicon;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import simplenlg.framework.LexicalCategory;
+import simplenlg.framework.WordElement;
+
+/**
+ * This class is a read-only copy of a {@link MultipleLexicon}, whose
+ * lexicons are merged into a single index by base form, by variant and by ID
+ * when it is created. A lookup then finds the same words as the
+ * <code>MultipleLexicon</code> (with the same order of the lexicons and the
+ * same <code>alwaysSearchAll</code> flag) with one search of the index,
+ * whatever the number of lexicons:
+ * 
+ * <pre>
+ * MultipleLexicon layers = new MultipleLexicon(domainLexicon, defaultLexicon);
+ * Lexicon lexicon = layers.compile();
+ * </pre>
+ * 
+ * The lexicons must be {@link XMLLexicon}s. The index has its own copy of
+ * the words of each key, so words added to or removed from them after the
+ * index is compiled (by a delta file, say) don't change it. The words created on lookups which
+ * found nothing are created by the first lexicon, and kept by this lexicon,
+ * so that the next lookups of the same base form give the same word rather
+ * than adding another word to the first lexicon. Lookups by features are
+ * passed on to the <code>MultipleLexicon</code>.
+ */
+public class CompiledLexicon extends Lexicon {
+
+	// the lexicons which were compiled
+	private final MultipleLexicon lexicon;
+
+	// for each key, the words found by the MultipleLexicon with category ANY
+	private final Map<String, IndexedWords> indexByBase;
+	private final Map<String, IndexedWords> indexByVariant;
+	private final Map<String, List<WordElement>> indexByID;
+
+	// for the few keys whose words of some category come from a later
+	// lexicon than the words found with ANY (if alwaysSearchAll is false),
+	// the words of these categories
+	private final Map<String, IndexedWords> otherCategoriesByBase = new HashMap<String, IndexedWords>();
+	private final Map<String, IndexedWords> otherCategoriesByVariant = new HashMap<String, IndexedWords>();
+
+	// the words created through this lexicon, by base form (synchronized on)
+	private final Map<String, IndexedWords> createdByBase = new HashMap<String, IndexedWords>();
+
+	/**********************************************************************/
+	// constructor
+	/**********************************************************************/
+
+	/**
+	 * compile the lexicons of a MultipleLexicon
+	 * 
+	 * @param lexicon
+	 *            - the MultipleLexicon, whose lexicons must be XMLLexicons
+	 */
+	public CompiledLexicon(MultipleLexicon lexicon) {
+		super(lexicon.getLanguage());
+		this.lexicon = lexicon;
+
+		List<Lexicon> layers = lexicon.getLexicons();
+		List<Map<String, List<WordElement>>> baseIndexes = new ArrayList<Map<String, List<WordElement>>>();
+		List<Map<String, List<WordElement>>> variantIndexes = new ArrayList<Map<String, List<WordElement>>>();
+		List<Map<String, WordElement>> idIndexes = new ArrayList<Map<String, WordElement>>();
+		for (Lexicon layer : layers) {
+			if (!(layer instanceof XMLLexicon))
+				throw new IllegalArgumentException(
+						"only XMLLexicons can be compiled: " + layer);
+			baseIndexes.add(((XMLLexicon) layer).getBaseIndex());
+			variantIndexes.add(((XMLLexicon) layer).getVariantIndex());
+			idIndexes.add(((XMLLexicon) layer).getIDIndex());
+		}
+
+		boolean searchAll = lexicon.isAlwaysSearchAll();
+		indexByBase = compileIndex(baseIndexes, otherCategoriesByBase, searchAll);
+		indexByVariant = compileIndex(variantIndexes, otherCategoriesByVariant, searchAll);
+		indexByID = compileIDIndex(idIndexes, searchAll);
+	}
+
+	/**
+	 * merge the indexes of the lexicons
+	 * 
+	 * @param indexes
+	 *            - index of each lexicon, in order
+	 * @param otherCategories
+	 *            - where the words of categories found in a later lexicon
+	 *            than the others are put
+	 * @param searchAll
+	 *            - alwaysSearchAll flag
+	 * @return merged index
+	 */
+	private static Map<String, IndexedWords> compileIndex(
+			List<Map<String, List<WordElement>>> indexes,
+			Map<String, IndexedWords> otherCategories, boolean searchAll) {
+		Set<String> keys = new HashSet<String>();
+		for (Map<String, List<WordElement>> index : indexes)
+			keys.addAll(index.keySet());
+
+		Map<String, IndexedWords> compiled = new HashMap<String, IndexedWords>(
+				keys.size() * 4 / 3 + 1);
+		for (String key : keys) {
+			// copied, as the lexicons keep modifying their own words
+			IndexedWords words = null;
+			IndexedWords others = null;
+			for (Map<String, List<WordElement>> index : indexes) {
+				IndexedWords found = (IndexedWords) index.get(key);
+				if (found == null || found.isEmpty())
+					continue;
+				if (words == null) {
+					words = copy(found);
+				} else if (searchAll) {
+					for (WordElement word : found)
+						words.addWord(word);
+				} else {
+					// categories not found in the previous lexicons
+					Set<LexicalCategory> newCategories = new HashSet<LexicalCategory>();
+					for (WordElement word : found) {
+						LexicalCategory category = (LexicalCategory) word.getCategory();
+						if (words.get(category).isEmpty()
+								&& (others == null || others.get(category).isEmpty()))
+							newCategories.add(category);
+					}
+					for (WordElement word : found) {
+						if (newCategories.contains(word.getCategory())) {
+							if (others == null)
+								others = new IndexedWords();
+							others.addWord(word);
+						}
+					}
+				}
+			}
+			if (words != null)
+				compiled.put(key, words);
+			if (others != null)
+				otherCategories.put(key, others);
+		}
+		return compiled;
+	}
+
+	/**
+	 * merge the ID indexes of the lexicons
+	 */
+	private static Map<String, List<WordElement>> compileIDIndex(
+			List<Map<String, WordElement>> indexes, boolean searchAll) {
+		Set<String> keys = new HashSet<String>();
+		for (Map<String, WordElement> index : indexes)
+			keys.addAll(index.keySet());
+
+		Map<String, List<WordElement>> compiled = new HashMap<String, List<WordElement>>(
+				keys.size() * 4 / 3 + 1);
+		for (String key : keys) {
+			IndexedWords words = new IndexedWords();
+			for (Map<String, WordElement> index : indexes) {
+				WordElement word = index.get(key);
+				if (word != null) {
+					words.addWord(word);
+					if (!searchAll)
+						break;
+				}
+			}
+			compiled.put(key, words.size() == 1 ? Collections.singletonList(words.get(0))
+					: words);
+		}
+		return compiled;
+	}
+
+	/**
+	 * @return a copy of some words, which can be modified
+	 */
+	private static IndexedWords copy(IndexedWords words) {
+		IndexedWords copy = new IndexedWords();
+		for (WordElement word : words)
+			copy.addWord(word);
+		return copy;
+	}
+
+	/**
+	 * @return the MultipleLexicon which was compiled
+	 */
+	public MultipleLexicon getMultipleLexicon() {
+		return lexicon;
+	}
+
+	/**********************************************************************/
+	// main methods
+	/**********************************************************************/
+
+	/* (non-Javadoc)
+	 * @see simplenlg.lexicon.Lexicon#getWords(java.lang.String, simplenlg.features.LexicalCategory)
+	 */
+	@Override
+	public List<WordElement> getWords(String baseForm, LexicalCategory category) {
+		return getWordsFromIndex(baseForm, category, indexByBase,
+				otherCategoriesByBase);
+	}
+
+	/* (non-Javadoc)
+	 * @see simplenlg.lexicon.Lexicon#getWordsByID(java.lang.String)
+	 */
+	@Override
+	public List<WordElement> getWordsByID(String id) {
+		List<WordElement> words = indexByID.get(id);
+		return words == null ? Collections.<WordElement> emptyList() : words;
+	}
+
+	/* (non-Javadoc)
+	 * @see simplenlg.lexicon.Lexicon#getWordsFromVariant(java.lang.String, simplenlg.features.LexicalCategory)
+	 */
+	@Override
+	public List<WordElement> getWordsFromVariant(String variant, LexicalCategory category) {
+		return getWordsFromIndex(variant, category, indexByVariant,
+				otherCategoriesByVariant);
+	}
+
+	/**
+	 * get the words with a key and category from a compiled index
+	 * 
+	 * @return the words, as kept by the index (can't be modified)
+	 */
+	private static List<WordElement> getWordsFromIndex(String key,
+			LexicalCategory category, Map<String, IndexedWords> index,
+			Map<String, IndexedWords> otherCategories) {
+		IndexedWords words = index.get(key);
+		if (words == null)
+			return Collections.emptyList();
+		List<WordElement> result = words.get(category);
+		if (result.isEmpty() && !otherCategories.isEmpty()) {
+			IndexedWords others = otherCategories.get(key);
+			if (others != null)
+				result = others.get(category);
+		}
+		return result;
+	}
+
+	/* (non-Javadoc)
+	 * @see simplenlg.lexicon.Lexicon#getWordsFromNormalisedForm(java.lang.String, simplenlg.framework.LexicalCategory)
+	 */
+	@Override
+	protected List<WordElement> getWordsFromNormalisedForm(String form,
+			LexicalCategory category) {
+		return lexicon.getWordsFromNormalisedForm(form, category);
+	}
+
+	/* (non-Javadoc)
+	 * @see simplenlg.lexicon.Lexicon#getWords(simplenlg.framework.LexicalCategory, java.util.Map)
+	 */
+	@Override
+	public List<WordElement> getWords(LexicalCategory category,
+			Map<String, Object> features) {
+		return lexicon.getWords(category, features);
+	}
+
+	/**
+	 * Creates a default WordElement with the MultipleLexicon (that is, with
+	 * its first lexicon), unless a word with this base form and category was
+	 * already created through this lexicon.
+	 */
+	@Override
+	protected WordElement createWord(String baseForm, LexicalCategory category) {
+		synchronized (createdByBase) {
+			WordElement word = getCreatedWord(baseForm, category);
+			if (word == null) {
+				word = keepCreatedWord(baseForm, lexicon.createWord(baseForm, category));
+			}
+			return word;
+		}
+	}
+
+	/**
+	 * Creates a default WordElement with the MultipleLexicon (that is, with
+	 * its first lexicon), unless a word with this base form was already
+	 * created through this lexicon.
+	 */
+	@Override
+	protected WordElement createWord(String baseForm) {
+		synchronized (createdByBase) {
+			WordElement word = getCreatedWord(baseForm, LexicalCategory.ANY);
+			if (word == null) {
+				word = keepCreatedWord(baseForm, lexicon.createWord(baseForm));
+			}
+			return word;
+		}
+	}
+
+	/**
+	 * @param baseForm
+	 * @param category
+	 * @return the first word with this base form and category created
+	 *         through this lexicon, or null
+	 */
+	private WordElement getCreatedWord(String baseForm, LexicalCategory category) {
+		IndexedWords words = createdByBase.get(baseForm);
+		if (words == null) return null;
+		List<WordElement> withCategory = words.get(category);
+		return withCategory.isEmpty() ? null : withCategory.get(0);
+	}
+
+	/**
+	 * @param baseForm
+	 * @param word
+	 *            - word created by the MultipleLexicon
+	 * @return the word
+	 */
+	private WordElement keepCreatedWord(String baseForm, WordElement word) {
+		if (word != null) {
+			IndexedWords words = createdByBase.get(baseForm);
+			if (words == null) {
+				words = new IndexedWords();
+				createdByBase.put(baseForm, words);
+			}
+			words.addWord(word);
+		}
+		return word;
+	}
+
+	/* (non-Javadoc)
+	 * @see simplenlg.lexicon.Lexicon#close()
+	 */
+	@Override
+	public void close() {
+		lexicon.close();
+	}
+}
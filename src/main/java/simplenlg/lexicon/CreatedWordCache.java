@@ -0,0 +1,328 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is "Simplenlg".
+ *
+ * The Initial Developer of the Original Code is Ehud Reiter, Albert Gatt and Dave Westwater.
+ * Portions created by Ehud Reiter, Albert Gatt and Dave Westwater are Copyright (C) 2010-11 The University of Aberdeen. All Rights Reserved.
+ *
+ * Contributor(s): Ehud Reiter, Albert Gatt, Dave Wewstwater, Roman Kutlak, Margaret Mitchell, Pierre-Luc Vaudry.
+ */
+package simplenlg.lexicon;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import simplenlg.framework.LexicalCategory;
+import simplenlg.framework.WordElement;
+
+/**
+ * This class keeps the words created by a lexicon when a word isn't found
+ * (proper names, numbers, codes...), separately from the words of the
+ * lexicon itself. It holds at most a given number of words: when it is full,
+ * the least recently used word is evicted, so it is found again only after
+ * being created anew.
+ * 
+ * The counters (see <code>getInsertions()</code>, <code>getEvictions()</code>
+ * and <code>getHits()</code>) can be used to choose its capacity.
+ * 
+ * All methods are synchronized, so that a cache can be used by lexicons
+ * shared by several threads.
+ */
+public class CreatedWordCache {
+
+	// words created, from least to most recently used, by category and base
+	// form (see getKey()), with their variants
+	private final LinkedHashMap<String, CachedWord> words;
+
+	// the same words, indexed by base form and by variant
+	private final Map<String, List<WordElement>> indexByBase = new HashMap<String, List<WordElement>>();
+	private final Map<String, List<WordElement>> indexByVariant = new HashMap<String, List<WordElement>>();
+
+	private final int capacity;
+
+	// counters
+	private long insertions;
+	private long evictions;
+	private long hits;
+
+	/**
+	 * create an empty cache
+	 * 
+	 * @param capacity
+	 *            maximum number of words kept (<code>Integer.MAX_VALUE</code>
+	 *            for no limit)
+	 */
+	public CreatedWordCache(int capacity) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("capacity must be positive: "
+					+ capacity);
+		this.capacity = capacity;
+		words = new LinkedHashMap<String, CachedWord>(16, 0.75f, true);
+	}
+
+	/**
+	 * @return maximum number of words kept
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return number of words currently kept
+	 */
+	public synchronized int size() {
+		return words.size();
+	}
+
+	/**
+	 * @return number of words added since the cache was created
+	 */
+	public synchronized long getInsertions() {
+		return insertions;
+	}
+
+	/**
+	 * @return number of words evicted since the cache was created
+	 */
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * @return number of lookups which found at least one word
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * remove all the words (the counters are kept)
+	 */
+	public synchronized void clear() {
+		words.clear();
+		indexByBase.clear();
+		indexByVariant.clear();
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "CreatedWordCache[size=" + words.size() + ", capacity="
+				+ capacity + ", insertions=" + insertions + ", evictions="
+				+ evictions + ", hits=" + hits + "]";
+	}
+
+	/**
+	 * add a created word, found by its base form, evicting the least recently
+	 * used word if the cache is full (words without a base form are not kept)
+	 * 
+	 * @param word
+	 */
+	public synchronized void add(WordElement word) {
+		String base = word.getBaseForm();
+		if (base == null) return;
+		String key = getKey(base, (LexicalCategory) word.getCategory());
+		CachedWord replaced = words.remove(key);
+		if (replaced != null) unindex(replaced);
+
+		words.put(key, new CachedWord(word));
+		updateIndex(word, base, indexByBase);
+		insertions++;
+
+		Iterator<CachedWord> eldest = words.values().iterator();
+		while (words.size() > capacity) {
+			CachedWord evicted = eldest.next();
+			eldest.remove();
+			unindex(evicted);
+			evictions++;
+		}
+	}
+
+	/**
+	 * add the variants of a word added before, so that it is also found by
+	 * them (nothing is done if the word has been evicted since)
+	 * 
+	 * @param word
+	 * @param variants
+	 */
+	public synchronized void addVariants(WordElement word,
+			Collection<String> variants) {
+		CachedWord cached = words.get(getKey(word.getBaseForm(),
+				(LexicalCategory) word.getCategory()));
+		if (cached == null || cached.word != word) return;
+		for (String variant : variants) {
+			if (!cached.variants.contains(variant)) {
+				cached.variants.add(variant);
+				updateIndex(word, variant, indexByVariant);
+			}
+		}
+	}
+
+	/**
+	 * @param baseForm
+	 * @param category
+	 * @return the words kept with this base form and category (or any
+	 *         category if <code>LexicalCategory.ANY</code>)
+	 */
+	public synchronized List<WordElement> getWords(String baseForm,
+			LexicalCategory category) {
+		return getWordsFromIndex(baseForm, category, indexByBase);
+	}
+
+	/**
+	 * @param variant
+	 * @param category
+	 * @return the words kept with this variant and category (or any category
+	 *         if <code>LexicalCategory.ANY</code>)
+	 */
+	public synchronized List<WordElement> getWordsFromVariant(String variant,
+			LexicalCategory category) {
+		return getWordsFromIndex(variant, category, indexByVariant);
+	}
+
+	/**
+	 * @param category
+	 * @param features
+	 *            see <code>Lexicon.getWords(LexicalCategory, Map)</code>
+	 * @return the words kept with this category and features
+	 */
+	public synchronized List<WordElement> getWords(LexicalCategory category,
+			Map<String, Object> features) {
+		List<WordElement> result = new ArrayList<WordElement>();
+		for (CachedWord cached : words.values()) {
+			WordElement word = cached.word;
+			if ((category == LexicalCategory.ANY || word.getCategory() == category)
+					&& (features == null || Lexicon.hasFeatures(word, features))) {
+				result.add(word);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @param shared
+	 *            words found in a lexicon
+	 * @param created
+	 *            words found in the cache of created words
+	 * @return the words of the lexicon followed by the created words
+	 */
+	static List<WordElement> merge(List<WordElement> shared,
+			List<WordElement> created) {
+		if (created.isEmpty()) return shared;
+		if (shared == null || shared.isEmpty()) return created;
+		List<WordElement> result = new ArrayList<WordElement>(shared.size()
+				+ created.size());
+		result.addAll(shared);
+		result.addAll(created);
+		return result;
+	}
+
+	/**
+	 * get the words of an index with the specified key and category, marking
+	 * them as used
+	 * 
+	 * @param indexKey
+	 * @param category
+	 * @param indexMap
+	 * @return matching words (empty list if none)
+	 */
+	private List<WordElement> getWordsFromIndex(String indexKey,
+			LexicalCategory category, Map<String, List<WordElement>> indexMap) {
+		List<WordElement> result = new ArrayList<WordElement>();
+		List<WordElement> indexed = indexMap.get(indexKey);
+		if (indexed != null) {
+			for (WordElement word : indexed) {
+				if (category == LexicalCategory.ANY || word.getCategory() == category) {
+					result.add(word);
+					words.get(getKey(word.getBaseForm(),
+							(LexicalCategory) word.getCategory()));
+				}
+			}
+		}
+		if (!result.isEmpty()) hits++;
+		return result;
+	}
+
+	/**
+	 * remove a word from the indexes
+	 * 
+	 * @param cached
+	 */
+	private void unindex(CachedWord cached) {
+		removeFromIndex(cached.word, cached.word.getBaseForm(), indexByBase);
+		for (String variant : cached.variants) {
+			removeFromIndex(cached.word, variant, indexByVariant);
+		}
+	}
+
+	/**
+	 * convenience method to update an index
+	 * 
+	 * @param word
+	 * @param key
+	 * @param index
+	 */
+	private static void updateIndex(WordElement word, String key,
+			Map<String, List<WordElement>> index) {
+		List<WordElement> indexed = index.get(key);
+		if (indexed == null) {
+			indexed = new ArrayList<WordElement>(1);
+			index.put(key, indexed);
+		}
+		indexed.add(word);
+	}
+
+	/**
+	 * remove a word from an index (the same instance, not an equal word)
+	 * 
+	 * @param word
+	 * @param key
+	 * @param index
+	 */
+	private static void removeFromIndex(WordElement word, String key,
+			Map<String, List<WordElement>> index) {
+		List<WordElement> indexed = index.get(key);
+		if (indexed == null) return;
+		for (Iterator<WordElement> iterator = indexed.iterator(); iterator.hasNext();) {
+			if (iterator.next() == word) {
+				iterator.remove();
+				break;
+			}
+		}
+		if (indexed.isEmpty()) index.remove(key);
+	}
+
+	/**
+	 * @param baseForm
+	 * @param category
+	 * @return the key of the words with this base form and category
+	 */
+	private static String getKey(String baseForm, LexicalCategory category) {
+		return category + "\u0000" + baseForm;
+	}
+
+	/**
+	 * a word kept in the cache, with its variants
+	 */
+	private static class CachedWord {
+		final WordElement word;
+		final List<String> variants = new ArrayList<String>(1);
+
+		CachedWord(WordElement word) {
+			this.word = word;
+		}
+	}
+}
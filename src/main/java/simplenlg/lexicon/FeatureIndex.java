@@ -0,0 +1,161 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is "Simplenlg".
+ *
+ * The Initial Developer of the Original Code is Ehud Reiter, Albert Gatt and Dave Westwater.
+ * Portions created by Ehud Reiter, Albert Gatt and Dave Westwater are Copyright (C) 2010-11 The University of Aberdeen. All Rights Reserved.
+ *
+ * Contributor(s): Ehud Reiter, Albert Gatt, Dave Wewstwater, Roman Kutlak, Margaret Mitchell, Pierre-Luc Vaudry.
+ */
+package simplenlg.lexicon;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import simplenlg.framework.WordElement;
+
+/**
+ * Inverted index of the features of a list of words, used to find the words
+ * matching features (see <code>Lexicon.getWords(LexicalCategory, Map)</code>)
+ * without checking every word. For each feature and value, the index holds
+ * the set of the positions of the words having this value, as a bitset.
+ * 
+ * Words are added at the end, and the features of a word are those it has
+ * when it is added. A word is removed by clearing its position in the
+ * bitsets of its features, so the index follows the changes of the lexicon
+ * (see <code>XMLLexicon.applyDelta()</code>) without being created again.
+ * Once all the words are added, the index can be read by any number of
+ * threads at the same time.
+ */
+final class FeatureIndex {
+
+	// words indexed, in order, with null where words were removed
+	private final List<WordElement> words = new ArrayList<WordElement>();
+
+	// position of each word, and positions of the words not removed
+	private final Map<WordElement, Integer> positions = new IdentityHashMap<WordElement, Integer>();
+	private final BitSet indexed = new BitSet();
+
+	// positions of the words by feature and value, and by feature
+	private final Map<String, Map<Object, BitSet>> byValue = new HashMap<String, Map<Object, BitSet>>();
+	private final Map<String, BitSet> byFeature = new HashMap<String, BitSet>();
+
+	/**
+	 * @return number of words indexed
+	 */
+	int size() {
+		return positions.size();
+	}
+
+	/**
+	 * @param word
+	 * @return <code>true</code> if the word (the same instance) is indexed
+	 */
+	boolean contains(WordElement word) {
+		return positions.containsKey(word);
+	}
+
+	/**
+	 * add a word at the end of the index
+	 * 
+	 * @param word
+	 */
+	void add(WordElement word) {
+		if (positions.containsKey(word)) return;
+		int position = words.size();
+		words.add(word);
+		positions.put(word, position);
+		indexed.set(position);
+		for (Map.Entry<String, Object> feature : word.getAllFeatures().entrySet()) {
+			BitSet withFeature = byFeature.get(feature.getKey());
+			Map<Object, BitSet> values = byValue.get(feature.getKey());
+			if (withFeature == null) {
+				withFeature = new BitSet();
+				byFeature.put(feature.getKey(), withFeature);
+				values = new HashMap<Object, BitSet>();
+				byValue.put(feature.getKey(), values);
+			}
+			withFeature.set(position);
+			BitSet withValue = values.get(feature.getValue());
+			if (withValue == null) {
+				withValue = new BitSet();
+				values.put(feature.getValue(), withValue);
+			}
+			withValue.set(position);
+		}
+	}
+
+	/**
+	 * remove a word (the same instance) from the index
+	 * 
+	 * @param word
+	 */
+	void remove(WordElement word) {
+		Integer position = positions.remove(word);
+		if (position == null) return;
+		words.set(position, null);
+		indexed.clear(position);
+		for (Map.Entry<String, Object> feature : word.getAllFeatures().entrySet()) {
+			BitSet withFeature = byFeature.get(feature.getKey());
+			if (withFeature != null) withFeature.clear(position);
+			Map<Object, BitSet> values = byValue.get(feature.getKey());
+			BitSet withValue = values == null ? null : values.get(feature.getValue());
+			if (withValue != null) withValue.clear(position);
+		}
+	}
+
+	/**
+	 * Get the words having each feature with the same value, unless the value
+	 * provided is null or Boolean.FALSE, in which case the words not having
+	 * this feature at all also match (as <code>Lexicon.hasFeatures()</code>).
+	 * 
+	 * @param features
+	 *            features and their corresponding values
+	 * @return matching words, in the order in which they were added
+	 */
+	List<WordElement> getWords(Map<String, Object> features) {
+		int size = words.size();
+		BitSet matching = (BitSet) indexed.clone();
+		for (Map.Entry<String, Object> feature : features.entrySet()) {
+			Object value = feature.getValue();
+			BitSet withValue = null;
+			Map<Object, BitSet> values = byValue.get(feature.getKey());
+			if (values != null) withValue = values.get(value);
+
+			if (value == null || value == Boolean.FALSE) {
+				// words without the feature match too
+				BitSet withoutFeature = new BitSet(size);
+				withoutFeature.set(0, size);
+				BitSet withFeature = byFeature.get(feature.getKey());
+				if (withFeature != null) withoutFeature.andNot(withFeature);
+				if (withValue != null) withoutFeature.or(withValue);
+				matching.and(withoutFeature);
+			} else if (withValue != null) {
+				matching.and(withValue);
+			} else {
+				matching.clear();
+			}
+			if (matching.isEmpty()) break;
+		}
+
+		List<WordElement> result = new ArrayList<WordElement>(matching.cardinality());
+		for (int position = matching.nextSetBit(0); position >= 0;
+				position = matching.nextSetBit(position + 1)) {
+			result.add(words.get(position));
+		}
+		return result;
+	}
+}
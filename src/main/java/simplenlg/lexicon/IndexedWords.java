@@ -0,0 +1,183 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is "Simplenlg".
+ *
+ * The Initial Developer of the Original Code is Ehud Reiter, Albert Gatt and Dave Westwater.
+ * Portions created by Ehud Reiter, Albert Gatt and Dave Westwater are Copyright (C) 2010-11 The University of Aberdeen. All Rights Reserved.
+ *
+ * Contributor(s): Ehud Reiter, Albert Gatt, Dave Wewstwater, Roman Kutlak, Margaret Mitchell, Pierre-Luc Vaudry.
+ */
+package simplenlg.lexicon;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+import simplenlg.framework.LexicalCategory;
+import simplenlg.framework.WordElement;
+
+/**
+ * The words of an index of {@link XMLLexicon} with the same key (base form or
+ * variant), in order. The words of each category are kept as well, so that
+ * the words with a key and a category are found with a single lookup and
+ * without creating a list.
+ * 
+ * The list can't be modified through the <code>List</code> methods, so it
+ * can be returned as is by the lexicon. Words are added by the lexicon with
+ * <code>addWord()</code> and removed with <code>removeWord()</code>, which
+ * only moves the words of the same key.
+ */
+final class IndexedWords extends AbstractList<WordElement> implements
+		RandomAccess {
+
+	private static final WordElement[] NO_WORDS = new WordElement[0];
+
+	// the first word, and the others (most keys have a single word, which
+	// then takes no array)
+	private WordElement first;
+	private WordElement[] others = NO_WORDS;
+	private int size;
+
+	// the words of each category, only when the words don't all have the
+	// same category
+	private IndexedWords[] byCategory;
+
+	@Override
+	public WordElement get(int index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: "
+					+ size);
+		return index == 0 ? first : others[index - 1];
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @param category
+	 * @return the words with this category (all the words if
+	 *         <code>LexicalCategory.ANY</code>), in order
+	 */
+	List<WordElement> get(LexicalCategory category) {
+		if (category == LexicalCategory.ANY) return this;
+		if (byCategory != null) {
+			for (IndexedWords withCategory : byCategory) {
+				if (withCategory.first.getCategory() == category)
+					return withCategory;
+			}
+		} else if (size > 0 && first.getCategory() == category) {
+			return this;
+		}
+		return Collections.emptyList();
+	}
+
+	/**
+	 * add a word at the end of the list
+	 * 
+	 * @param word
+	 */
+	void addWord(WordElement word) {
+		if (size == 0) {
+			first = word;
+		} else {
+			if (size > others.length) {
+				others = Arrays.copyOf(others, Math.max(1, others.length * 2));
+			}
+			others[size - 1] = word;
+		}
+		size++;
+		modCount++;
+
+		if (byCategory == null && first.getCategory() != word.getCategory()) {
+			// first word with another category
+			byCategory = new IndexedWords[0];
+			for (int i = 0; i < size - 1; i++) {
+				addWithCategory(get(i));
+			}
+		}
+		if (byCategory != null) addWithCategory(word);
+	}
+
+	/**
+	 * remove a word (the same instance, not an equal word), keeping the
+	 * others in order
+	 * 
+	 * @param word
+	 * @return <code>true</code> if the word was in the list
+	 */
+	boolean removeWord(WordElement word) {
+		int position = -1;
+		for (int i = 0; i < size && position < 0; i++) {
+			if (get(i) == word) position = i;
+		}
+		if (position < 0) return false;
+
+		// move the next words up
+		if (position == 0) {
+			first = size > 1 ? others[0] : null;
+			position = 1;
+		}
+		if (position < size - 1) {
+			System.arraycopy(others, position, others, position - 1, size - 1 - position);
+		}
+		if (size > 1) others[size - 2] = null;
+		size--;
+		modCount++;
+
+		if (byCategory != null) removeWithCategory(word);
+		return true;
+	}
+
+	/**
+	 * remove a word from the words of its category, and forget the words of
+	 * each category once they all have the same category again
+	 * 
+	 * @param word
+	 */
+	private void removeWithCategory(WordElement word) {
+		for (int i = 0; i < byCategory.length; i++) {
+			IndexedWords withCategory = byCategory[i];
+			if (withCategory.removeWord(word)) {
+				if (withCategory.isEmpty()) {
+					IndexedWords[] remaining = new IndexedWords[byCategory.length - 1];
+					System.arraycopy(byCategory, 0, remaining, 0, i);
+					System.arraycopy(byCategory, i + 1, remaining, i, remaining.length - i);
+					byCategory = remaining;
+				}
+				break;
+			}
+		}
+		if (byCategory.length < 2) byCategory = null;
+	}
+
+	/**
+	 * add a word to the words of its category
+	 * 
+	 * @param word
+	 */
+	private void addWithCategory(WordElement word) {
+		for (IndexedWords withCategory : byCategory) {
+			if (withCategory.first.getCategory() == word.getCategory()) {
+				withCategory.addWord(word);
+				return;
+			}
+		}
+		IndexedWords withCategory = new IndexedWords();
+		withCategory.addWord(word);
+		byCategory = Arrays.copyOf(byCategory, byCategory.length + 1);
+		byCategory[byCategory.length - 1] = withCategory;
+	}
+}
@@ -18,8 +18,12 @@
  */
 package simplenlg.lexicon;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import simplenlg.framework.Language;
 import simplenlg.framework.LexicalCategory;
@@ -172,26 +176,51 @@ public abstract class Lexicon {
 	// 1) word with matching base
 	// 2) word with matching variant
 	// 3) word with matching ID
-	// 4) create a new word
+	// 4) word with matching normalised form (if the lexicon has such an index)
+	// 5) create a new word
 	/***************************************************************************/
 
 	/**
-	 * General word lookup method, tries base form, variant, ID (in this order)
+	 * General word lookup method, tries base form, variant, ID, normalised
+	 * form (in this order)
 	 * Creates new word if can't find existing word
 	 * 
+	 * Each index is only looked up once (rather than checking with hasWord()
+	 * before getting the word).
+	 * 
 	 * @param baseForm
 	 * @param category
 	 * @return word
 	 */
 	public WordElement lookupWord(String baseForm, LexicalCategory category) {
-		if (hasWord(baseForm, category))
-			return getWord(baseForm, category);
-		else if (hasWordFromVariant(baseForm, category))
-			return getWordFromVariant(baseForm, category);
-		else if (hasWordByID(baseForm))
-			return getWordByID(baseForm);
-		else
+		List<WordElement> wordElements = getWords(baseForm, category);
+		if (wordElements.isEmpty())
+			wordElements = getWordsFromVariant(baseForm, category);
+		if (wordElements.isEmpty())
+			wordElements = getWordsByID(baseForm);
+		if (wordElements.isEmpty())
+			wordElements = getWordsFromNormalisedForm(baseForm, category);
+		if (wordElements.isEmpty())
 			return createWord(baseForm, category);
+		else
+			return wordElements.get(0); // first match
+	}
+
+	/**
+	 * returns the Words whose base form or variant has the same normalised
+	 * form as a word which wasn't found as such (see {@link NormalisedIndex}),
+	 * so that lookupWord() doesn't need to create a new word. Lexicons don't
+	 * have a normalised index by default.
+	 * 
+	 * @param form
+	 *            - base form or variant, eg "Huis" for "huis"
+	 * @param category
+	 *            - syntactic category of word (ANY for unknown)
+	 * @return collection of all matching Words (may be empty)
+	 */
+	protected List<WordElement> getWordsFromNormalisedForm(String form,
+			LexicalCategory category) {
+		return Collections.emptyList();
 	}
 
 	/**
@@ -318,6 +347,30 @@ public abstract class Lexicon {
 		return !getWords(baseForm).isEmpty();
 	}
 
+	/**
+	 * returns the Words of several base forms at once. This gives the same
+	 * result as calling <code>getWords(baseForm, category)</code> for each base
+	 * form, which is what this version does; lexicons for which a lookup is
+	 * slow (eg, a database query) should override it to look up all the base
+	 * forms together.
+	 *
+	 * @param baseForms
+	 *            - base forms of words, eg "be" and "dog"
+	 * @param category
+	 *            - syntactic category of words (ANY for unknown)
+	 * @return map from each base form to the collection of its matching Words
+	 *         (may be empty, or null if the lookup failed), in the order of
+	 *         the base forms
+	 */
+	public Map<String, List<WordElement>> getWordsForBaseForms(
+			Collection<String> baseForms, LexicalCategory category) {
+		Map<String, List<WordElement>> result = new LinkedHashMap<String, List<WordElement>>();
+		for (String baseForm : baseForms)
+			if (!result.containsKey(baseForm))
+				result.put(baseForm, getWords(baseForm, category));
+		return result;
+	}
+
 	/****************************************************************************/
 	// get words by ID
 	// fundamental version is getWordsByID(String id),
@@ -623,6 +676,37 @@ public abstract class Lexicon {
 		throw new UnsupportedOperationException("Method not implemented.");
 	}
 	
+	/**
+	 * Checks if a word matches the features provided, as required by
+	 * getWords(LexicalCategory, Map). The word must have each feature with
+	 * the same value, unless the value provided is null or Boolean.FALSE, in
+	 * which case the word may also not have this feature at all.
+	 * 
+	 * @param word		the word to check
+	 * @param features	features and their corresponding values
+	 * @return <code>true</code> if the word matches all the features
+	 */
+	protected static boolean hasFeatures(WordElement word,
+			Map<String, Object> features) {
+		Map<String, Object> currentFeaturesMap = word.getAllFeatures();
+		// must convert map to set to use contains()
+		Set<Map.Entry<String, Object>> currentFeaturesSet = currentFeaturesMap.entrySet();
+
+/*		Doesn't add a word to the list if the following is not true for
+		at least one feature received as argument :
+		The word has this feature and its corresponding value OR
+		The value of this feature is null or Boolean.FALSE and the word
+		doesn't have this feature at all.
+*/		for (Map.Entry<String, Object> entry : features.entrySet()) {
+			if ( !( currentFeaturesSet.contains( entry ) || 
+				((entry.getValue() == null || entry.getValue() == Boolean.FALSE)
+						&& !currentFeaturesMap.containsKey(entry.getKey())) ) ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	/**
 	 * Looks for a word in the lexicon matching the category and features
 	 * provided. Make sure to override getWordsByCategoryAndFeatures()
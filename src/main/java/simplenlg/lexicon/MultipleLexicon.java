@@ -19,7 +19,16 @@
 package simplenlg.lexicon;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
 
 import simplenlg.framework.Language;
 import simplenlg.framework.LexicalCategory;
@@ -28,6 +37,14 @@ import simplenlg.framework.WordElement;
 /** This class contains a set of lexicons, which are searched in
  * order for the specified word
  * 
+ * If an executor is set (see <code>setExecutor</code>), the lexicons are
+ * searched at the same time: the first lexicon in the calling thread, the
+ * others on the executor. The words found are still merged in the order of
+ * the lexicons, and if alwaysSearchAll is false, the words of the first
+ * lexicon which has some are returned without waiting for the later lexicons.
+ * This is meant for lists with slow lexicons, such as NIHDBLexicon. The time
+ * taken by each lexicon can be recorded (see <code>setRecordStatistics</code>).
+ * 
  * @author ereiter
  *
  */
@@ -42,6 +59,21 @@ public class MultipleLexicon extends Lexicon {
 	/* list of lexicons, in order in which they are searched */
 	private List<Lexicon> lexiconList = null;
 
+	/* statistics of each lexicon, in the same order */
+	private List<LayerStatistics> statisticsList = new ArrayList<LayerStatistics>();
+
+	/* executor on which the lexicons are searched at the same time
+	 * (null if they are searched one after the other) */
+	private Executor executor = null;
+
+	/* if this flag is true, the time taken by each lexicon is recorded */
+	private boolean recordStatistics = false;
+
+	// kinds of lookups
+	private static final int BY_BASE = 0;
+	private static final int BY_ID = 1;
+	private static final int BY_VARIANT = 2;
+
 	/**********************************************************************/
 	// constructors
 	/**********************************************************************/
@@ -61,7 +93,7 @@ public class MultipleLexicon extends Lexicon {
 	public MultipleLexicon(Lexicon... lexicons) {
 		this();
 		for (Lexicon lex: lexicons)
-			lexiconList.add(lex);
+			addFinalLexicon(lex);
 	}
 	
 	/**
@@ -85,7 +117,7 @@ public class MultipleLexicon extends Lexicon {
 	public MultipleLexicon(Language language, Lexicon... lexicons) {
 		this(language);
 		for (Lexicon lex: lexicons)
-			lexiconList.add(lex);
+			addFinalLexicon(lex);
 	}
 	
 	/**
@@ -109,7 +141,7 @@ public class MultipleLexicon extends Lexicon {
 	public MultipleLexicon(String languageCode, Lexicon... lexicons) {
 		this(languageCode);
 		for (Lexicon lex: lexicons)
-			lexiconList.add(lex);
+			addFinalLexicon(lex);
 	}
 	
 	/**********************************************************************/
@@ -121,6 +153,7 @@ public class MultipleLexicon extends Lexicon {
 	 */
 	public void addInitialLexicon(Lexicon lex) {
 		lexiconList.add(0, lex);
+		statisticsList.add(0, new LayerStatistics(lex));
 	}
 
 	/** add lexicon at end of list (is searched last)
@@ -130,6 +163,24 @@ public class MultipleLexicon extends Lexicon {
 		// corrected by vaudrypl
 		// lexiconList.add(0, lex);
 		lexiconList.add(lex);
+		statisticsList.add(new LayerStatistics(lex));
+	}
+
+	/**
+	 * @return the lexicons, in the order in which they are searched (the
+	 *         list can't be modified)
+	 */
+	public List<Lexicon> getLexicons() {
+		return Collections.unmodifiableList(lexiconList);
+	}
+
+	/**
+	 * compile the lexicons into a single index (see {@link CompiledLexicon})
+	 * 
+	 * @return a read-only lexicon which finds the same words as this one
+	 */
+	public CompiledLexicon compile() {
+		return new CompiledLexicon(this);
 	}
 
 	/**
@@ -146,6 +197,58 @@ public class MultipleLexicon extends Lexicon {
 		this.alwaysSearchAll = alwaysSearchAll;
 	}
 
+	/**
+	 * @return the executor on which the lexicons are searched at the same
+	 *         time (null if they are searched one after the other)
+	 */
+	public Executor getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * search the lexicons at the same time on an executor (the executor
+	 * isn't shut down by this lexicon)
+	 * 
+	 * Every lookup then submits a task to the executor for each lexicon but
+	 * the first, even if alwaysSearchAll is false and the first lexicon has
+	 * the word, in which case these tasks are cancelled. This only pays off
+	 * when the later lexicons are slow; for lists of in-memory lexicons, the
+	 * lexicons are best searched one after the other. A lexicon whose task
+	 * hasn't started when its result is needed is searched in the calling
+	 * thread, so lookups from tasks of the same executor can't deadlock.
+	 * 
+	 * @param executor
+	 *            - the executor, or null to search the lexicons one after
+	 *            the other
+	 */
+	public void setExecutor(Executor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * @return true if the time taken by each lexicon is recorded
+	 */
+	public boolean isRecordStatistics() {
+		return recordStatistics;
+	}
+
+	/**
+	 * @param recordStatistics
+	 *            - true to record the time taken by each lexicon (false by
+	 *            default)
+	 */
+	public void setRecordStatistics(boolean recordStatistics) {
+		this.recordStatistics = recordStatistics;
+	}
+
+	/**
+	 * @return the statistics of each lexicon, in the order in which they are
+	 *         searched (the list can't be modified)
+	 */
+	public List<LayerStatistics> getLayerStatistics() {
+		return Collections.unmodifiableList(statisticsList);
+	}
+
 	/**********************************************************************/
 	// main methods
 	/**********************************************************************/
@@ -155,33 +258,101 @@ public class MultipleLexicon extends Lexicon {
 	 */
 	@Override
 	public List<WordElement> getWords(String baseForm, LexicalCategory category) {
-		List<WordElement> result = new ArrayList<WordElement>();
+		return search(BY_BASE, baseForm, category);
+	}
+
+	/**
+	 * returns the Words of several base forms at once; each lexicon looks up
+	 * together the base forms which still have to be searched (if an
+	 * executor is set and alwaysSearchAll is true, the lexicons look up all
+	 * the base forms at the same time)
+	 *
+	 * @see simplenlg.lexicon.Lexicon#getWordsForBaseForms(java.util.Collection, simplenlg.framework.LexicalCategory)
+	 */
+	@Override
+	public Map<String, List<WordElement>> getWordsForBaseForms(
+			Collection<String> baseForms, LexicalCategory category) {
+		Map<String, List<WordElement>> result = new LinkedHashMap<String, List<WordElement>>();
+		for (String baseForm : baseForms)
+			result.put(baseForm, new ArrayList<WordElement>());
+		List<String> remaining = new ArrayList<String>(result.keySet());
+		if (executor != null && alwaysSearchAll && lexiconList.size() > 1) {
+			for (Map<String, List<WordElement>> lexResults : searchAllForBaseForms(remaining, category))
+				for (String baseForm : remaining) {
+					List<WordElement> lexResult = lexResults.get(baseForm);
+					if (lexResult != null)
+						result.get(baseForm).addAll(lexResult);
+				}
+			return result;
+		}
 		for (Lexicon lex: lexiconList) {
-			List<WordElement> lexResult = lex.getWords(baseForm, category);
-			if (lexResult != null && !lexResult.isEmpty()) {
-				result.addAll(lexResult);
-				if (!alwaysSearchAll)
-					return result;
+			if (remaining.isEmpty())
+				break;
+			Map<String, List<WordElement>> lexResults = lex.getWordsForBaseForms(remaining, category);
+			List<String> notFound = new ArrayList<String>();
+			for (String baseForm : remaining) {
+				List<WordElement> lexResult = lexResults.get(baseForm);
+				if (lexResult != null && !lexResult.isEmpty()) {
+					result.get(baseForm).addAll(lexResult);
+					if (alwaysSearchAll)
+						notFound.add(baseForm);
+				} else {
+					notFound.add(baseForm);
+				}
 			}
+			remaining = notFound;
 		}
 		return result;
 	}
 
+	/**
+	 * look up some base forms in all the lexicons at the same time
+	 * 
+	 * @return the words found by each lexicon, in the order of the lexicons
+	 */
+	private List<Map<String, List<WordElement>>> searchAllForBaseForms(
+			final List<String> baseForms, final LexicalCategory category) {
+		List<FutureTask<Map<String, List<WordElement>>>> tasks = new ArrayList<FutureTask<Map<String, List<WordElement>>>>();
+		for (final Lexicon lex : lexiconList.subList(1, lexiconList.size())) {
+			FutureTask<Map<String, List<WordElement>>> task = new FutureTask<Map<String, List<WordElement>>>(
+					new Callable<Map<String, List<WordElement>>>() {
+						public Map<String, List<WordElement>> call() {
+							return lex.getWordsForBaseForms(baseForms, category);
+						}
+					});
+			tasks.add(task);
+			executor.execute(task);
+		}
+		List<Map<String, List<WordElement>>> results = new ArrayList<Map<String, List<WordElement>>>();
+		results.add(lexiconList.get(0).getWordsForBaseForms(baseForms, category));
+		for (int i = 0; i < tasks.size(); i++) {
+			try {
+				// searched in this thread if no thread of the executor has
+				// started the task (it may be waiting for this one)
+				tasks.get(i).run();
+				results.add(tasks.get(i).get());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				tasks.get(i).cancel(false);
+				results.add(lexiconList.get(i + 1).getWordsForBaseForms(baseForms, category));
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof RuntimeException)
+					throw (RuntimeException) cause;
+				if (cause instanceof Error)
+					throw (Error) cause;
+				throw new RuntimeException(cause);
+			}
+		}
+		return results;
+	}
+
 	/* (non-Javadoc)
 	 * @see simplenlg.lexicon.Lexicon#getWordsByID(java.lang.String)
 	 */
 	@Override
 	public List<WordElement> getWordsByID(String id) {
-		List<WordElement> result = new ArrayList<WordElement>();
-		for (Lexicon lex: lexiconList) {
-			List<WordElement> lexResult = lex.getWordsByID(id);
-			if (lexResult != null && !lexResult.isEmpty()) {
-				result.addAll(lexResult);
-				if (!alwaysSearchAll)
-					return result;
-			}
-		}
-		return result;
+		return search(BY_ID, id, LexicalCategory.ANY);
 	}
 
 	/* (non-Javadoc)
@@ -189,10 +360,22 @@ public class MultipleLexicon extends Lexicon {
 	 */
 	@Override
 	public List<WordElement> getWordsFromVariant(String variant, LexicalCategory category) {
+		return search(BY_VARIANT, variant, category);
+	}
+
+
+	/**
+	 * searches the lexicons one after the other, as lookupWord() only
+	 * consults the normalised indexes when nothing else was found
+	 * 
+	 * @see simplenlg.lexicon.Lexicon#getWordsFromNormalisedForm(java.lang.String, simplenlg.framework.LexicalCategory)
+	 */
+	@Override
+	protected List<WordElement> getWordsFromNormalisedForm(String form, LexicalCategory category) {
 		List<WordElement> result = new ArrayList<WordElement>();
 		for (Lexicon lex: lexiconList) {
-			List<WordElement> lexResult = lex.getWordsFromVariant(variant, category);
-			if (lexResult != null && !lexResult.isEmpty()) {
+			List<WordElement> lexResult = lex.getWordsFromNormalisedForm(form, category);
+			if (!lexResult.isEmpty()) {
 				result.addAll(lexResult);
 				if (!alwaysSearchAll)
 					return result;
@@ -201,6 +384,134 @@ public class MultipleLexicon extends Lexicon {
 		return result;
 	}
 
+	/**
+	 * search the lexicons, one after the other or at the same time
+	 * 
+	 * @param kind
+	 *            - kind of lookup
+	 * @param key
+	 *            - base form, ID or variant
+	 * @param category
+	 *            - category of word (ANY for lookups by ID)
+	 * @return the words found, in the order of the lexicons
+	 */
+	private List<WordElement> search(int kind, String key, LexicalCategory category) {
+		List<WordElement> result = new ArrayList<WordElement>();
+		int size = lexiconList.size();
+		Executor currentExecutor = executor;
+		if (currentExecutor == null || size < 2) {
+			for (int i = 0; i < size; i++) {
+				List<WordElement> lexResult = query(i, kind, key, category);
+				if (lexResult != null && !lexResult.isEmpty()) {
+					result.addAll(lexResult);
+					if (!alwaysSearchAll)
+						return result;
+				}
+			}
+			return result;
+		}
+
+		// the later lexicons are searched on the executor while the first
+		// one is searched in this thread
+		List<FutureTask<List<WordElement>>> tasks = new ArrayList<FutureTask<List<WordElement>>>(size - 1);
+		for (int i = 1; i < size; i++) {
+			FutureTask<List<WordElement>> task = new FutureTask<List<WordElement>>(
+					new Query(i, kind, key, category));
+			tasks.add(task);
+			currentExecutor.execute(task);
+		}
+		try {
+			for (int i = 0; i < size; i++) {
+				List<WordElement> lexResult = i == 0 ? query(0, kind, key, category)
+						: getResult(tasks.get(i - 1), i, kind, key, category);
+				if (lexResult != null && !lexResult.isEmpty()) {
+					result.addAll(lexResult);
+					if (!alwaysSearchAll)
+						return result;
+				}
+			}
+			return result;
+		} finally {
+			// the lexicons after the first one with words aren't needed
+			for (FutureTask<List<WordElement>> task : tasks)
+				task.cancel(false);
+		}
+	}
+
+	/**
+	 * search one lexicon, recording the time taken if needed
+	 * 
+	 * @param index
+	 *            - position of the lexicon in the list
+	 */
+	private List<WordElement> query(int index, int kind, String key, LexicalCategory category) {
+		Lexicon lex = lexiconList.get(index);
+		if (!recordStatistics)
+			return lookup(lex, kind, key, category);
+		long start = System.nanoTime();
+		List<WordElement> lexResult = lookup(lex, kind, key, category);
+		statisticsList.get(index).record(System.nanoTime() - start,
+				lexResult != null && !lexResult.isEmpty());
+		return lexResult;
+	}
+
+	private static List<WordElement> lookup(Lexicon lex, int kind, String key, LexicalCategory category) {
+		switch (kind) {
+		case BY_ID:
+			return lex.getWordsByID(key);
+		case BY_VARIANT:
+			return lex.getWordsFromVariant(key, category);
+		default:
+			return lex.getWords(key, category);
+		}
+	}
+
+	/**
+	 * wait for the result of a lexicon searched on the executor; if no
+	 * thread of the executor has started the search yet, or if the thread is
+	 * interrupted, the lexicon is searched in this thread instead
+	 */
+	private List<WordElement> getResult(FutureTask<List<WordElement>> task,
+			int index, int kind, String key, LexicalCategory category) {
+		try {
+			// does nothing if the task has already started: the threads of
+			// the executor may all be waiting for this lookup
+			task.run();
+			return task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			task.cancel(false);
+			return query(index, kind, key, category);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new RuntimeException(cause);
+		}
+	}
+
+	/**
+	 * a search of one lexicon, run on the executor
+	 */
+	private final class Query implements Callable<List<WordElement>> {
+		private final int index;
+		private final int kind;
+		private final String key;
+		private final LexicalCategory category;
+
+		Query(int index, int kind, String key, LexicalCategory category) {
+			this.index = index;
+			this.kind = kind;
+			this.key = key;
+			this.category = category;
+		}
+
+		public List<WordElement> call() {
+			return query(index, kind, key, category);
+		}
+	}
 
 	/**
 	 * Creates a default WordElement with the specified category
@@ -268,5 +579,83 @@ public class MultipleLexicon extends Lexicon {
 			lex.close();
 	}
 
+	/**
+	 * statistics of the lookups of one lexicon of the list (only recorded if
+	 * <code>setRecordStatistics(true)</code> was called)
+	 */
+	public static final class LayerStatistics {
+		private final Lexicon lexicon;
+		private final AtomicLong lookups = new AtomicLong();
+		private final AtomicLong hits = new AtomicLong();
+		private final AtomicLong totalNanos = new AtomicLong();
+		private final AtomicLong maxNanos = new AtomicLong();
+
+		LayerStatistics(Lexicon lexicon) {
+			this.lexicon = lexicon;
+		}
+
+		void record(long nanos, boolean found) {
+			lookups.incrementAndGet();
+			if (found)
+				hits.incrementAndGet();
+			totalNanos.addAndGet(nanos);
+			long max = maxNanos.get();
+			while (nanos > max && !maxNanos.compareAndSet(max, nanos))
+				max = maxNanos.get();
+		}
+
+		/**
+		 * @return the lexicon
+		 */
+		public Lexicon getLexicon() {
+			return lexicon;
+		}
+
+		/**
+		 * @return number of lookups by this lexicon (lookups which weren't
+		 *         needed any more are not run, so not counted)
+		 */
+		public long getLookups() {
+			return lookups.get();
+		}
+
+		/**
+		 * @return number of lookups which found some words
+		 */
+		public long getHits() {
+			return hits.get();
+		}
+
+		/**
+		 * @return total time taken by the lookups, in nanoseconds
+		 */
+		public long getTotalNanos() {
+			return totalNanos.get();
+		}
+
+		/**
+		 * @return time taken by the slowest lookup, in nanoseconds
+		 */
+		public long getMaxNanos() {
+			return maxNanos.get();
+		}
+
+		/**
+		 * @return average time taken by a lookup, in nanoseconds
+		 */
+		public double getMeanNanos() {
+			long count = lookups.get();
+			return count == 0 ? 0 : (double) totalNanos.get() / count;
+		}
+
+		@Override
+		public String toString() {
+			return "LayerStatistics[" + lexicon.getClass().getSimpleName()
+					+ ", lookups=" + getLookups() + ", hits=" + getHits()
+					+ ", meanNanos=" + (long) getMeanNanos() + ", maxNanos="
+					+ getMaxNanos() + "]";
+		}
+	}
+
 
 }
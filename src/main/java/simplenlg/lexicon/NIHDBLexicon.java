@@ -20,6 +20,10 @@ package simplenlg.lexicon;
 
 import gov.nih.nlm.nls.lexAccess.Api.LexAccessApi;
 import gov.nih.nlm.nls.lexAccess.Api.LexAccessApiResult;
+import gov.nih.nlm.nls.lexAccess.Db.DbInflVars;
+import gov.nih.nlm.nls.lexAccess.Db.DbLexRecord;
+import gov.nih.nlm.nls.lexCheck.Api.ToJavaObjApi;
+import gov.nih.nlm.nls.lexCheck.Gram.CheckFormatEui;
 import gov.nih.nlm.nls.lexCheck.Lib.AdjEntry;
 import gov.nih.nlm.nls.lexCheck.Lib.AdvEntry;
 import gov.nih.nlm.nls.lexCheck.Lib.InflVar;
@@ -29,10 +33,17 @@ import gov.nih.nlm.nls.lexCheck.Lib.VerbEntry;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 import simplenlg.features.LexicalFeature;
 import simplenlg.framework.LexicalCategory;
@@ -42,6 +53,10 @@ import simplenlg.framework.WordElement;
 /**
  * This class gets Words from the NIH Specialist Lexicon
  * 
+ * The lexicon can be shared by several threads if it is given a pool of DB
+ * connections (see the constructors with a <code>poolSize</code>); each
+ * lookup uses one connection of the pool, and waits if they are all in use.
+ * 
  * @author ereiter
  * 
  */
@@ -56,9 +71,24 @@ public class NIHDBLexicon extends Lexicon {
 	private static String DB_HSQL_EXTENSION = ".data"; // filename extension for
 	// HSQL DB
 
+	// number of base forms looked up with one DB query by
+	// getWordsForBaseForms, and the start of this query (same table and
+	// conditions as LexAccessApi.GetLexRecordsByBase)
+	private static final int BATCH_SIZE = 500;
+	private static final String BATCH_QUERY = "SELECT base, lexRecord FROM LEX_RECORD WHERE (lastAction <> 3 AND base IN (";
+
+	// the lexCheck parser which turns the text of lexical records into
+	// LexRecord objects keeps its state in static variables, so records are
+	// parsed by one thread at a time (DB queries aren't serialised, which is
+	// why the queries of LexAccessApi are run with its Db classes)
+	private static final Object PARSER_LOCK = new Object();
+
 	// class variables
-	private Connection conn = null; // DB connection
-	private LexAccessApi lexdb = null; // Lexicon access object
+	// Lexicon access objects, each with its own DB connection; a lookup
+	// takes one from the pool and gives it back when it is done, so that
+	// several threads can look up words at the same time
+	private BlockingQueue<LexAccessApi> pool = null;
+	private final List<LexAccessApi> lexdbs = new ArrayList<LexAccessApi>();
 
 	// if false, don't keep standard inflections in the Word object
 	private boolean keepStandardInflections = false;
@@ -75,6 +105,20 @@ public class NIHDBLexicon extends Lexicon {
 	 *            of HSQL DB
 	 */
 	public NIHDBLexicon(String filename) {
+		this(filename, 1);
+	}
+
+	/**
+	 * set up lexicon using file which contains downloaded lexAccess HSQL DB and
+	 * default passwords, with several DB connections so that several threads
+	 * can look up words at the same time
+	 * 
+	 * @param filename
+	 *            of HSQL DB
+	 * @param poolSize
+	 *            - number of DB connections
+	 */
+	public NIHDBLexicon(String filename, int poolSize) {
 		super();
 		// get rid of .data at end of filename if necessary
 		String dbfilename = filename;
@@ -82,18 +126,8 @@ public class NIHDBLexicon extends Lexicon {
 			dbfilename = dbfilename.substring(0, dbfilename.length()
 					- DB_HSQL_EXTENSION.length());
 
-		// try to open DB and set up lexicon
-		try {
-			Class.forName(DB_HSQL_DRIVER);
-			conn = DriverManager.getConnection(DB_HQSL_JDBC + dbfilename,
-					DB_DEFAULT_USERNAME, DB_DEFAULT_PASSWORD);
-			// now set up lexical access object
-			lexdb = new LexAccessApi(conn);
-
-		} catch (Exception ex) {
-			System.out.println("Cannot open lexical db: " + ex.toString());
-			// probably should thrown an exception
-		}
+		openConnections(DB_HSQL_DRIVER, DB_HQSL_JDBC + dbfilename,
+				DB_DEFAULT_USERNAME, DB_DEFAULT_PASSWORD, poolSize);
 	}
 
 	/**
@@ -107,19 +141,52 @@ public class NIHDBLexicon extends Lexicon {
 	 */
 	public NIHDBLexicon(String driver, String url, String username,
 			String password) {
+		this(driver, url, username, password, 1);
+	}
 
+	/**
+	 * set up lexicon using general DB parameters, with several DB connections
+	 * so that several threads can look up words at the same time; DB must be
+	 * NIH specialist lexicon from lexAccess
+	 * 
+	 * @param driver
+	 * @param url
+	 * @param username
+	 * @param password
+	 * @param poolSize
+	 *            - number of DB connections
+	 */
+	public NIHDBLexicon(String driver, String url, String username,
+			String password, int poolSize) {
 		super();
+		openConnections(driver, url, username, password, poolSize);
+	}
+
+	/**
+	 * open the DB connections and set up a lexical access object for each
+	 */
+	private void openConnections(String driver, String url, String username,
+			String password, int poolSize) {
+		if (poolSize < 1)
+			throw new IllegalArgumentException("pool size must be positive: "
+					+ poolSize);
 
 		// try to open DB and set up lexicon
 		try {
 			Class.forName(driver);
-			conn = DriverManager.getConnection(url, username, password);
-			// now set up lexical access object
-			lexdb = new LexAccessApi(conn);
+			for (int i = 0; i < poolSize; i++) {
+				Connection conn = DriverManager.getConnection(url, username,
+						password);
+				// now set up lexical access object
+				lexdbs.add(new LexAccessApi(conn));
+			}
 		} catch (Exception ex) {
 			System.out.println("Cannot open lexical db: " + ex.toString());
 			// probably should thrown an exception
 		}
+		if (!lexdbs.isEmpty())
+			pool = new ArrayBlockingQueue<LexAccessApi>(lexdbs.size(), false,
+					lexdbs);
 	}
 
 	// need more constructors for general case...
@@ -145,6 +212,13 @@ public class NIHDBLexicon extends Lexicon {
 		this.keepStandardInflections = keepStandardInflections;
 	}
 
+	/**
+	 * @return number of DB connections which could be opened
+	 */
+	public int getPoolSize() {
+		return lexdbs.size();
+	}
+
 	/****************************************************************************/
 	// core methods to retrieve words from DB
 	/****************************************************************************/
@@ -158,31 +232,117 @@ public class NIHDBLexicon extends Lexicon {
 	@Override
 	public List<WordElement> getWords(String baseForm, LexicalCategory category) {
 		// get words from DB
+		LexAccessApi lexdb = null;
 		try {
-			LexAccessApiResult lexResult = lexdb.GetLexRecordsByBase(baseForm,
-					LexAccessApi.B_EXACT);
+			lexdb = takeLexAccess();
+			LexAccessApiResult lexResult = getLexRecordsByBase(
+					lexdb.GetConnection(), baseForm);
 			return getWordsFromLexResult(category, lexResult);
 		} catch (SQLException ex) {
 			System.out.println("Lexical DB error: " + ex.toString());
 			// probably should thrown an exception
+		} finally {
+			releaseLexAccess(lexdb);
 		}
 		return null;
 	}
 
+	/**
+	 * returns the Words of several base forms at once, with one DB query for
+	 * every BATCH_SIZE base forms (rather than one query per base form)
+	 *
+	 * @see simplenlg.lexicon.Lexicon#getWordsForBaseForms(java.util.Collection,
+	 *      simplenlg.framework.LexicalCategory)
+	 */
+	@Override
+	public Map<String, List<WordElement>> getWordsForBaseForms(
+			Collection<String> baseForms, LexicalCategory category) {
+		Map<String, List<WordElement>> result = new LinkedHashMap<String, List<WordElement>>();
+		for (String baseForm : baseForms)
+			if (baseForm != null)
+				result.put(baseForm, new ArrayList<WordElement>());
+
+		List<String> batch = new ArrayList<String>(BATCH_SIZE);
+		for (String baseForm : result.keySet()) {
+			batch.add(baseForm);
+			if (batch.size() == BATCH_SIZE) {
+				addWordsForBaseForms(batch, category, result);
+				batch.clear();
+			}
+		}
+		if (!batch.isEmpty())
+			addWordsForBaseForms(batch, category, result);
+		return result;
+	}
+
+	/**
+	 * look up a batch of base forms with one DB query, and add their words to
+	 * the result (the result of a base form is set to null on a DB error)
+	 *
+	 * @param batch
+	 * @param category
+	 * @param result
+	 */
+	private void addWordsForBaseForms(List<String> batch,
+			LexicalCategory category, Map<String, List<WordElement>> result) {
+		StringBuilder query = new StringBuilder(BATCH_QUERY);
+		for (int i = 0; i < batch.size(); i++)
+			query.append(i == 0 ? "?" : ", ?");
+		query.append("))");
+		LexAccessApi lexdb = null;
+		try {
+			lexdb = takeLexAccess();
+			PreparedStatement statement = lexdb.GetConnection().prepareStatement(
+					query.toString());
+			try {
+				for (int i = 0; i < batch.size(); i++)
+					statement.setString(i + 1, batch.get(i));
+				ResultSet rows = statement.executeQuery();
+				while (rows.next()) {
+					List<WordElement> words = result.get(rows.getString(1));
+					if (words == null)
+						continue;
+					List<LexRecord> records;
+					synchronized (PARSER_LOCK) {
+						records = ToJavaObjApi.ToJavaObjsFromText(rows.getString(2));
+					}
+					for (LexRecord record : records)
+						if (category == LexicalCategory.ANY
+								|| category == getSimplenlgCategory(record))
+							words.add(makeWord(record));
+				}
+			} finally {
+				statement.close();
+			}
+		} catch (Exception ex) {
+			System.out.println("Lexical DB error: " + ex.toString());
+			// probably should thrown an exception
+			for (String baseForm : batch)
+				result.put(baseForm, null);
+		} finally {
+			releaseLexAccess(lexdb);
+		}
+	}
+
 	/*
 	 * (non-Javadoc)
-	 * 
+	 *
 	 * @see simplenlg.lexicon.Lexicon#getWordsByID(java.lang.String)
 	 */
 	@Override
 	public List<WordElement> getWordsByID(String id) {
 		// get words from DB
+		LexAccessApi lexdb = null;
 		try {
-			LexAccessApiResult lexResult = lexdb.GetLexRecords(id);
+			lexdb = takeLexAccess();
+			LexAccessApiResult lexResult = getLexRecords(lexdb.GetConnection(),
+					id);
 			return getWordsFromLexResult(LexicalCategory.ANY, lexResult);
 		} catch (SQLException ex) {
 			System.out.println("Lexical DB error: " + ex.toString());
 			// probably should thrown an exception
+		} finally {
+			releaseLexAccess(lexdb);
 		}
 		return null;
 	}
@@ -197,12 +357,17 @@ public class NIHDBLexicon extends Lexicon {
 	public List<WordElement> getWordsFromVariant(String variant,
 			LexicalCategory category) {
 		// get words from DB
+		LexAccessApi lexdb = null;
 		try {
-			LexAccessApiResult lexResult = lexdb.GetLexRecords(variant);
+			lexdb = takeLexAccess();
+			LexAccessApiResult lexResult = getLexRecords(lexdb.GetConnection(),
+					variant);
 			return getWordsFromLexResult(category, lexResult);
 		} catch (SQLException ex) {
 			System.out.println("Lexical DB error: " + ex.toString());
 			// probably should thrown an exception
+		} finally {
+			releaseLexAccess(lexdb);
 		}
 		return null;
 	}
@@ -218,10 +383,102 @@ public class NIHDBLexicon extends Lexicon {
 	 */
 	@Override
 	public void close() {
-		if (lexdb != null)
+		for (LexAccessApi lexdb : lexdbs)
 			lexdb.CleanUp();
 	}
 
+	/**
+	 * take a lexical access object from the pool, waiting until one is free
+	 * 
+	 * @return lexical access object
+	 * @throws SQLException
+	 *             if the DB couldn't be opened, or the thread is interrupted
+	 */
+	private LexAccessApi takeLexAccess() throws SQLException {
+		if (pool == null)
+			throw new SQLException("lexical db is not open");
+		try {
+			return pool.take();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("interrupted while waiting for lexical db");
+		}
+	}
+
+	/**
+	 * get the lexical records of a base form; same as
+	 * <code>LexAccessApi.GetLexRecordsByBase(baseForm, B_EXACT)</code>, except
+	 * that only the parsing of the records is done by one thread at a time
+	 * 
+	 * @param conn
+	 * @param baseForm
+	 * @return lexical records
+	 * @throws SQLException
+	 */
+	private static LexAccessApiResult getLexRecordsByBase(Connection conn,
+			String baseForm) throws SQLException {
+		if (baseForm == null || baseForm.length() == 0)
+			return new LexAccessApiResult();
+		StringBuilder text = new StringBuilder();
+		for (String record : DbLexRecord.GetRecordsByBase(conn, baseForm,
+				LexAccessApi.B_EXACT))
+			text.append(record);
+		return parseLexRecords(text.toString());
+	}
+
+	/**
+	 * get the lexical records of an ID or a variant; same as
+	 * <code>LexAccessApi.GetLexRecords(term)</code>, except that only the
+	 * parsing of the records is done by one thread at a time
+	 * 
+	 * @param conn
+	 * @param term
+	 * @return lexical records
+	 * @throws SQLException
+	 */
+	private static LexAccessApiResult getLexRecords(Connection conn,
+			String term) throws SQLException {
+		if (term == null || term.length() == 0)
+			return new LexAccessApiResult();
+		StringBuilder text = new StringBuilder();
+		if (CheckFormatEui.IsValidEui(term)) {
+			String record = DbLexRecord.GetRecordByEui(conn, term);
+			if (record != null)
+				text.append(record);
+		} else {
+			for (String eui : DbInflVars.GetUniqueEuisByInflVar(conn, term)) {
+				String record = DbLexRecord.GetRecordByEui(conn, eui);
+				if (record != null)
+					text.append(record);
+			}
+		}
+		return parseLexRecords(text.toString());
+	}
+
+	/**
+	 * parse the text of lexical records
+	 * 
+	 * @param text
+	 * @return lexical records
+	 */
+	private static LexAccessApiResult parseLexRecords(String text) {
+		LexAccessApiResult lexResult = new LexAccessApiResult();
+		synchronized (PARSER_LOCK) {
+			lexResult.SetText(text);
+		}
+		return lexResult;
+	}
+
+	/**
+	 * give a lexical access object back to the pool
+	 * 
+	 * @param lexdb
+	 */
+	private void releaseLexAccess(LexAccessApi lexdb) {
+		if (lexdb != null)
+			pool.add(lexdb);
+	}
+
 	/**
 	 * make a WordElement from a lexical record. Currently just specifies basic
 	 * params and inflections Should do more in the future!
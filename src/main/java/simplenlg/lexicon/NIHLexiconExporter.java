@@ -0,0 +1,563 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is "Simplenlg".
+ *
+ * The Initial Developer of the Original Code is Ehud Reiter, Albert Gatt and Dave Westwater.
+ * Portions created by Ehud Reiter, Albert Gatt and Dave Westwater are Copyright (C) 2010-11 The University of Aberdeen. All Rights Reserved.
+ *
+ * Contributor(s): Ehud Reiter, Albert Gatt, Dave Wewstwater, Roman Kutlak, Margaret Mitchell, Pierre-Luc Vaudry.
+ */
+package simplenlg.lexicon;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import simplenlg.framework.LexicalCategory;
+import simplenlg.framework.WordElement;
+
+/**
+ * This class exports words of the NIH Specialist lexicon to an XML lexicon
+ * (or to a binary snapshot, see {@link BinaryLexicon}). It reads a word list,
+ * with one "base form,category" line per word (eg, "house,noun"), looks up
+ * the words in a {@link NIHDBLexicon}, and writes them sorted by base form and
+ * category. From the command line:
+ * 
+ * <pre>
+ * java simplenlg.lexicon.NIHLexiconExporter [-threads n] [-chunk n] [-binary] &lt;NIH DB&gt; &lt;word list&gt; &lt;output file&gt;
+ * </pre>
+ * 
+ * The word list is read in chunks (10000 lines by default). The words of a
+ * chunk are looked up by several threads at the same time, each with its own
+ * DB connection, and each thread looks up its share of the chunk with one DB
+ * query per category (see <code>getWordsForBaseForms</code>). The sorted
+ * chunk is then written to a temporary file, and the temporary files are
+ * merged at the end; so only one chunk is kept in memory, whatever the size
+ * of the word list. Words with the same base form and category are written
+ * in the order of the word list, and identical entries are only written
+ * once, so the output only depends on the word list and the DB.
+ * 
+ * As in the old <code>dumpXML</code>, words which are not in the NIH lexicon
+ * are written with just their base form and category; lines whose category
+ * is unknown are reported as missing and skipped. If the DB lookup of a
+ * word fails, the export is aborted with an <code>IOException</code>, rather
+ * than writing the word as if it were not in the NIH lexicon.
+ */
+public class NIHLexiconExporter {
+
+	/** number of lines of the word list looked up and sorted together by default */
+	public static final int DEFAULT_CHUNK_SIZE = 10000;
+
+	private final NIHDBLexicon lexicon;
+	private final int threads;
+	private int chunkSize = DEFAULT_CHUNK_SIZE;
+	private boolean showProgress = true;
+
+	// statistics of the last export
+	private long wordsRead;
+	private long wordsWritten;
+	private long wordsCreated;
+	private long wordsMissing;
+
+	/**********************************************************************/
+	// constructors and parameters
+	/**********************************************************************/
+
+	/**
+	 * set up an exporter
+	 * 
+	 * @param lexicon
+	 *            - NIH lexicon, which should have a pool of (at least)
+	 *            <code>threads</code> DB connections
+	 * @param threads
+	 *            - number of threads looking up words
+	 */
+	public NIHLexiconExporter(NIHDBLexicon lexicon, int threads) {
+		if (threads < 1)
+			throw new IllegalArgumentException("threads must be positive: "
+					+ threads);
+		this.lexicon = lexicon;
+		this.threads = threads;
+	}
+
+	/**
+	 * @return number of lines of the word list looked up and sorted together
+	 */
+	public int getChunkSize() {
+		return chunkSize;
+	}
+
+	/**
+	 * @param chunkSize
+	 *            - number of lines of the word list looked up and sorted
+	 *            together (this bounds the memory used)
+	 */
+	public void setChunkSize(int chunkSize) {
+		if (chunkSize < 1)
+			throw new IllegalArgumentException("chunk size must be positive: "
+					+ chunkSize);
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * @param showProgress
+	 *            - if true (default), progress and throughput are printed
+	 *            after every chunk
+	 */
+	public void setShowProgress(boolean showProgress) {
+		this.showProgress = showProgress;
+	}
+
+	/**
+	 * @return number of lines read by the last export
+	 */
+	public long getWordsRead() {
+		return wordsRead;
+	}
+
+	/**
+	 * @return number of words written by the last export
+	 */
+	public long getWordsWritten() {
+		return wordsWritten;
+	}
+
+	/**
+	 * @return number of words written by the last export which are not in the
+	 *         NIH lexicon
+	 */
+	public long getWordsCreated() {
+		return wordsCreated;
+	}
+
+	/**
+	 * @return number of lines skipped by the last export (unknown category)
+	 */
+	public long getWordsMissing() {
+		return wordsMissing;
+	}
+
+	/**********************************************************************/
+	// export
+	/**********************************************************************/
+
+	/**
+	 * export the words of a word list to an XML lexicon
+	 * 
+	 * @param wordList
+	 *            - word list, one "base form,category" line per word
+	 * @param xml
+	 *            - where the XML lexicon is written (not closed by this
+	 *            method)
+	 * @throws IOException
+	 */
+	public void export(Reader wordList, Writer xml) throws IOException {
+		wordsRead = wordsWritten = wordsCreated = wordsMissing = 0;
+		long start = System.nanoTime();
+		List<File> runs = new ArrayList<File>();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			BufferedReader reader = new BufferedReader(wordList);
+			List<Entry> chunk = readChunk(reader);
+			while (!chunk.isEmpty()) {
+				lookUp(chunk, executor);
+				Collections.sort(chunk, ENTRY_ORDER);
+				runs.add(writeRun(chunk));
+				if (showProgress)
+					System.out.println(progress(start));
+				chunk = readChunk(reader);
+			}
+			executor.shutdown();
+			mergeRuns(runs, xml);
+		} finally {
+			executor.shutdownNow();
+			for (File run : runs)
+				run.delete();
+		}
+		if (showProgress)
+			System.out.println("Wrote " + wordsWritten + " words; "
+					+ progress(start));
+	}
+
+	/**
+	 * export the words of a word list to a binary snapshot. The words are
+	 * first exported to a temporary XML lexicon, which is then loaded to
+	 * compute the indexes of the snapshot (so, unlike the XML export, all the
+	 * words are in memory at the end).
+	 * 
+	 * @param wordList
+	 *            - word list, one "base form,category" line per word
+	 * @param snapshot
+	 *            - the snapshot file to write
+	 * @throws IOException
+	 */
+	public void exportBinary(Reader wordList, File snapshot) throws IOException {
+		File xmlFile = File.createTempFile("nihexport", ".xml");
+		try {
+			Writer xml = new BufferedWriter(new OutputStreamWriter(
+					new FileOutputStream(xmlFile), "UTF-8"));
+			try {
+				export(wordList, xml);
+			} finally {
+				xml.close();
+			}
+			BinaryLexicon.write(new simplenlg.lexicon.english.XMLLexicon(
+					xmlFile), snapshot);
+		} finally {
+			xmlFile.delete();
+		}
+	}
+
+	/**********************************************************************/
+	// steps of the export
+	/**********************************************************************/
+
+	/**
+	 * read the next lines of the word list
+	 * 
+	 * @return entries of the lines (empty at the end of the word list)
+	 */
+	private List<Entry> readChunk(BufferedReader reader) throws IOException {
+		List<Entry> chunk = new ArrayList<Entry>();
+		String line;
+		while (chunk.size() < chunkSize && (line = reader.readLine()) != null) {
+			long position = wordsRead++;
+			String[] cols = line.split(",");
+			LexicalCategory category = cols.length < 2 ? null
+					: getCategory(cols[1].trim());
+			if (category == null) {
+				System.out.println("Missing " + line);
+				wordsMissing++;
+			} else {
+				chunk.add(new Entry(position, cols[0].trim(), category));
+			}
+		}
+		return chunk;
+	}
+
+	/**
+	 * look up the words of a chunk, splitting it between the threads
+	 */
+	private void lookUp(List<Entry> chunk, ExecutorService executor)
+			throws IOException {
+		List<Future<?>> results = new ArrayList<Future<?>>();
+		int share = (chunk.size() + threads - 1) / threads;
+		for (int from = 0; from < chunk.size(); from += share) {
+			final List<Entry> entries = chunk.subList(from,
+					Math.min(from + share, chunk.size()));
+			results.add(executor.submit(new Callable<Void>() {
+				public Void call() throws IOException {
+					lookUp(entries);
+					return null;
+				}
+			}));
+		}
+		try {
+			for (Future<?> result : results)
+				result.get();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IOException("interrupted: " + ex);
+		} catch (ExecutionException ex) {
+			if (ex.getCause() instanceof IOException)
+				throw (IOException) ex.getCause();
+			throw new IOException("lookup failed: " + ex.getCause());
+		}
+		for (Entry entry : chunk)
+			if (entry.created)
+				wordsCreated++;
+	}
+
+	/**
+	 * look up some words, with one DB query per category
+	 * 
+	 * @throws IOException
+	 *             if the DB lookup of a word failed, rather than exporting it
+	 *             as a created word
+	 */
+	private void lookUp(List<Entry> entries) throws IOException {
+		for (LexicalCategory category : LexicalCategory.values()) {
+			LinkedHashSet<String> baseForms = new LinkedHashSet<String>();
+			for (Entry entry : entries)
+				if (entry.category == category)
+					baseForms.add(entry.baseForm);
+			if (baseForms.isEmpty())
+				continue;
+
+			Map<String, List<WordElement>> words = lexicon.getWordsForBaseForms(
+					baseForms, category);
+			for (Entry entry : entries) {
+				if (entry.category != category)
+					continue;
+				List<WordElement> found = words.get(entry.baseForm);
+				if (found == null)
+					throw new IOException("lookup failed: " + entry.baseForm
+							+ " (" + category + ")");
+				WordElement word;
+				if (found.isEmpty()) {
+					word = lexicon.createWord(entry.baseForm, category);
+					entry.created = true;
+				} else {
+					word = found.get(0);
+				}
+				entry.xml = word.toXML();
+			}
+		}
+	}
+
+	/**
+	 * write a sorted chunk to a temporary file
+	 */
+	private File writeRun(List<Entry> chunk) throws IOException {
+		File run = File.createTempFile("nihexport", ".run");
+		run.deleteOnExit();
+		DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(run)));
+		try {
+			for (Entry entry : chunk)
+				entry.write(output);
+		} finally {
+			output.close();
+		}
+		return run;
+	}
+
+	/**
+	 * merge the sorted temporary files into the XML lexicon
+	 */
+	private void mergeRuns(List<File> runs, Writer xml) throws IOException {
+		List<DataInputStream> inputs = new ArrayList<DataInputStream>();
+		try {
+			final Map<Entry, DataInputStream> sources = new IdentityHashMap<Entry, DataInputStream>();
+			PriorityQueue<Entry> heads = new PriorityQueue<Entry>(
+					Math.max(1, runs.size()), ENTRY_ORDER);
+			for (File run : runs) {
+				DataInputStream input = new DataInputStream(
+						new BufferedInputStream(new FileInputStream(run)));
+				inputs.add(input);
+				Entry head = Entry.read(input);
+				if (head != null) {
+					sources.put(head, input);
+					heads.add(head);
+				}
+			}
+
+			xml.write(String.format("<lexicon>%n"));
+			Entry previous = null;
+			while (!heads.isEmpty()) {
+				Entry entry = heads.poll();
+				DataInputStream input = sources.remove(entry);
+				if (previous == null || !previous.isSameWord(entry)) {
+					xml.write(entry.xml);
+					wordsWritten++;
+				}
+				previous = entry;
+				Entry next = Entry.read(input);
+				if (next != null) {
+					sources.put(next, input);
+					heads.add(next);
+				}
+			}
+			xml.write(String.format("</lexicon>%n"));
+			xml.flush();
+		} finally {
+			for (DataInputStream input : inputs)
+				input.close();
+		}
+	}
+
+	/**
+	 * @return progress and throughput so far
+	 */
+	private String progress(long start) {
+		double seconds = (System.nanoTime() - start) / 1e9;
+		return String.format("%d lines read, %d not in NIH lexicon, %d missing, %.1f s, %.0f lines/s",
+				wordsRead, wordsCreated, wordsMissing, seconds, wordsRead
+						/ Math.max(seconds, 1e-3));
+	}
+
+	/**
+	 * @return category of the word list, or null if unknown
+	 */
+	private static LexicalCategory getCategory(String cat) {
+		if (cat.equalsIgnoreCase("noun"))
+			return LexicalCategory.NOUN;
+		else if (cat.equalsIgnoreCase("verb"))
+			return LexicalCategory.VERB;
+		else if (cat.equalsIgnoreCase("adv"))
+			return LexicalCategory.ADVERB;
+		else if (cat.equalsIgnoreCase("adj"))
+			return LexicalCategory.ADJECTIVE;
+		else if (cat.equalsIgnoreCase("det"))
+			return LexicalCategory.DETERMINER;
+		else if (cat.equalsIgnoreCase("prep"))
+			return LexicalCategory.PREPOSITION;
+		else if (cat.equalsIgnoreCase("pron"))
+			return LexicalCategory.PRONOUN;
+		else if (cat.equalsIgnoreCase("conj"))
+			return LexicalCategory.CONJUNCTION;
+		else if (cat.equalsIgnoreCase("modal"))
+			return LexicalCategory.MODAL;
+		else if (cat.equalsIgnoreCase("interjection"))
+			return LexicalCategory.NOUN; // Kilgarriff;s interjections are mostly nouns in the lexicon
+		return null;
+	}
+
+	// order of the output: base form, category, then position in the word list
+	private static final Comparator<Entry> ENTRY_ORDER = new Comparator<Entry>() {
+		public int compare(Entry e1, Entry e2) {
+			int result = e1.baseForm.compareTo(e2.baseForm);
+			if (result == 0)
+				result = e1.category.compareTo(e2.category);
+			if (result == 0)
+				result = e1.position < e2.position ? -1
+						: e1.position == e2.position ? 0 : 1;
+			return result;
+		}
+	};
+
+	/**
+	 * a line of the word list, and the XML of its word once it is looked up
+	 */
+	private static class Entry {
+		final long position;
+		final String baseForm;
+		final LexicalCategory category;
+		String xml;
+		boolean created;
+
+		Entry(long position, String baseForm, LexicalCategory category) {
+			this.position = position;
+			this.baseForm = baseForm;
+			this.category = category;
+		}
+
+		boolean isSameWord(Entry other) {
+			return baseForm.equals(other.baseForm)
+					&& category == other.category && xml.equals(other.xml);
+		}
+
+		void write(DataOutputStream output) throws IOException {
+			output.writeLong(position);
+			output.writeUTF(baseForm);
+			output.writeByte(category.ordinal());
+			byte[] bytes = xml.getBytes("UTF-8");
+			output.writeInt(bytes.length);
+			output.write(bytes);
+		}
+
+		/**
+		 * @return next entry of a temporary file, or null at its end
+		 */
+		static Entry read(DataInputStream input) throws IOException {
+			long position;
+			try {
+				position = input.readLong();
+			} catch (EOFException ex) {
+				return null;
+			}
+			Entry entry = new Entry(position, input.readUTF(),
+					LexicalCategory.values()[input.readByte()]);
+			byte[] bytes = new byte[input.readInt()];
+			input.readFully(bytes);
+			entry.xml = new String(bytes, "UTF-8");
+			return entry;
+		}
+	}
+
+	/**********************************************************************/
+	// command line
+	/**********************************************************************/
+
+	/**
+	 * Export words of the NIH lexicon. Arguments are the options
+	 * <code>-threads n</code> (number of threads and DB connections, default
+	 * the number of processors), <code>-chunk n</code> (lines looked up and
+	 * sorted together, default 10000) and <code>-binary</code> (write a
+	 * binary snapshot rather than an XML lexicon), then the NIH DB file, the
+	 * word list and the output file.
+	 * 
+	 * @param args
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		int threads = Runtime.getRuntime().availableProcessors();
+		int chunkSize = DEFAULT_CHUNK_SIZE;
+		boolean binary = false;
+		int arg = 0;
+		try {
+			for (; arg < args.length && args[arg].startsWith("-"); arg++) {
+				if (args[arg].equals("-threads"))
+					threads = Integer.parseInt(args[++arg]);
+				else if (args[arg].equals("-chunk"))
+					chunkSize = Integer.parseInt(args[++arg]);
+				else if (args[arg].equals("-binary"))
+					binary = true;
+				else
+					arg = args.length; // unknown option
+			}
+		} catch (RuntimeException ex) {
+			arg = args.length;
+		}
+		if (args.length - arg != 3) {
+			System.out.println("Usage: java simplenlg.lexicon.NIHLexiconExporter [-threads n] [-chunk n] [-binary] <NIH DB> <word list> <output file>");
+			return;
+		}
+
+		NIHDBLexicon lexicon = new NIHDBLexicon(args[arg], threads);
+		NIHLexiconExporter exporter = new NIHLexiconExporter(lexicon, threads);
+		exporter.setChunkSize(chunkSize);
+		Reader wordList = new InputStreamReader(new FileInputStream(
+				args[arg + 1]), "UTF-8");
+		try {
+			if (binary) {
+				exporter.exportBinary(wordList, new File(args[arg + 2]));
+			} else {
+				Writer xml = new BufferedWriter(new OutputStreamWriter(
+						new FileOutputStream(args[arg + 2]), "UTF-8"));
+				try {
+					exporter.export(wordList, xml);
+				} finally {
+					xml.close();
+				}
+			}
+		} finally {
+			wordList.close();
+			lexicon.close();
+		}
+	}
+}
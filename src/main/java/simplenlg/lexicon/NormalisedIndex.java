@@ -0,0 +1,324 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is "Simplenlg".
+ *
+ * The Initial Developer of the Original Code is Ehud Reiter, Albert Gatt and Dave Westwater.
+ * Portions created by Ehud Reiter, Albert Gatt and Dave Westwater are Copyright (C) 2010-11 The University of Aberdeen. All Rights Reserved.
+ *
+ * Contributor(s): Ehud Reiter, Albert Gatt, Dave Wewstwater, Roman Kutlak, Margaret Mitchell, Pierre-Luc Vaudry.
+ */
+package simplenlg.lexicon;
+
+import java.text.Normalizer;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+import simplenlg.framework.LexicalCategory;
+import simplenlg.framework.WordElement;
+
+/**
+ * An index of the words of a lexicon by a normalised form of their base forms
+ * and variants, which finds words whose keys differ only by case (such as a
+ * capitalised word at the start of a sentence), by the Dutch ligature "ĳ"
+ * ("IJsland" or "Ĳsland" for "ijsland"), or optionally by accents (French
+ * words typed without accents). It is consulted by
+ * {@link Lexicon#lookupWord(String, LexicalCategory)} when a word isn't found
+ * as such, before creating a word (see
+ * {@link XMLLexicon#enableNormalisedLookup(boolean)}).
+ * 
+ * Keys are normalised to NFC and folded to lower case (and their accents
+ * removed if accents are folded). A lookup normalises the key one character
+ * at a time while searching the index, so it doesn't create any object,
+ * unless the key contains combining characters (which are then composed
+ * first).
+ * 
+ * As the indexes of the lexicon, it can be searched by several threads at the
+ * same time, but mustn't be modified meanwhile.
+ */
+public final class NormalisedIndex {
+
+	// characters whose normalised form is given by a table (the others are
+	// only folded to lower case)
+	private static final int TABLE_SIZE = 0x250;
+
+	// first and last combining diacritical marks
+	private static final char FIRST_MARK = '\u0300';
+	private static final char LAST_MARK = '\u036f';
+
+	// normalised form of each character below TABLE_SIZE, with and without
+	// the accents
+	private static final String[] FOLDED_CASE = new String[TABLE_SIZE];
+	private static final String[] FOLDED_ACCENTS = new String[TABLE_SIZE];
+
+	static {
+		for (char c = 0; c < TABLE_SIZE; c++) {
+			String lower = foldCase(String.valueOf(c));
+			FOLDED_CASE[c] = lower;
+			StringBuilder withoutAccents = new StringBuilder();
+			for (char d : Normalizer.normalize(lower, Normalizer.Form.NFD).toCharArray()) {
+				if (d < FIRST_MARK || d > LAST_MARK) withoutAccents.append(d);
+			}
+			FOLDED_ACCENTS[c] = withoutAccents.toString();
+		}
+	}
+
+	private final boolean foldAccents;
+
+	// open addressing table of the normalised keys and their words
+	private String[] keys = new String[16];
+	private IndexedWords[] values = new IndexedWords[16];
+	private int size;
+
+	// statistics
+	private final AtomicLong lookups = new AtomicLong();
+	private final AtomicLong rescues = new AtomicLong();
+
+	/**
+	 * create an empty index
+	 * 
+	 * @param foldAccents
+	 *            - <code>true</code> if keys which differ by their accents
+	 *            are the same
+	 */
+	public NormalisedIndex(boolean foldAccents) {
+		this.foldAccents = foldAccents;
+	}
+
+	/**
+	 * @return <code>true</code> if keys which differ by their accents are the
+	 *         same
+	 */
+	public boolean isFoldAccents() {
+		return foldAccents;
+	}
+
+	/**
+	 * @return number of normalised keys
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return number of lookups of words which weren't found as such
+	 */
+	public long getLookups() {
+		return lookups.get();
+	}
+
+	/**
+	 * @return number of these lookups which found words by their normalised
+	 *         form, instead of creating a word
+	 */
+	public long getRescues() {
+		return rescues.get();
+	}
+
+	/**
+	 * add a word with a key (base form or variant); a word already indexed
+	 * with the same normalised key isn't added again
+	 * 
+	 * @param key
+	 * @param word
+	 */
+	public void add(String key, WordElement word) {
+		String normalised = normalise(key);
+		int slot = find(normalised, normalised.hashCode());
+		if (keys[slot] == null) {
+			keys[slot] = normalised;
+			values[slot] = new IndexedWords();
+			if (++size * 4 > keys.length * 3) resize();
+			slot = find(normalised, normalised.hashCode());
+		}
+		IndexedWords words = values[slot];
+		for (WordElement indexed : words) {
+			if (indexed == word) return;
+		}
+		words.addWord(word);
+	}
+
+	/**
+	 * remove a word added with a key
+	 * 
+	 * @param key
+	 * @param word
+	 */
+	public void remove(String key, WordElement word) {
+		String normalised = normalise(key);
+		int slot = find(normalised, normalised.hashCode());
+		// the key is kept, with no words
+		if (keys[slot] != null) values[slot].removeWord(word);
+	}
+
+	/**
+	 * get the words whose keys have the same normalised form as a key
+	 * 
+	 * @param key
+	 * @param category
+	 *            - category of the words (ANY for all)
+	 * @return the words, as kept by the index (can't be modified)
+	 */
+	public List<WordElement> getWords(String key, LexicalCategory category) {
+		lookups.incrementAndGet();
+		if (hasMarks(key)) key = Normalizer.normalize(key, Normalizer.Form.NFC);
+		int slot = lookup(key);
+		List<WordElement> result = slot < 0 ? Collections.<WordElement> emptyList()
+				: values[slot].get(category);
+		if (!result.isEmpty()) rescues.incrementAndGet();
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return "NormalisedIndex[size=" + size() + ", foldAccents=" + foldAccents
+				+ ", lookups=" + getLookups() + ", rescues=" + getRescues() + "]";
+	}
+
+	/**********************************************************************/
+	// normalisation
+	/**********************************************************************/
+
+	/**
+	 * @param key
+	 * @return the normalised form of a key
+	 */
+	String normalise(String key) {
+		String composed = Normalizer.normalize(key, Normalizer.Form.NFC);
+		StringBuilder normalised = new StringBuilder(composed.length());
+		for (int i = 0; i < composed.length(); i++) {
+			char c = composed.charAt(i);
+			if (c < TABLE_SIZE) {
+				normalised.append(foldAccents ? FOLDED_ACCENTS[c] : FOLDED_CASE[c]);
+			} else if (!(foldAccents && isMark(c))) {
+				normalised.append(Character.toLowerCase(c));
+			}
+		}
+		return normalised.toString();
+	}
+
+	/**
+	 * fold a string to lower case, with the Dutch ligature ij as two letters
+	 */
+	private static String foldCase(String s) {
+		if (s.equals("\u0132") || s.equals("\u0133")) return "ij";
+		return s.toLowerCase(Locale.ROOT);
+	}
+
+	private static boolean isMark(char c) {
+		return c >= FIRST_MARK && c <= LAST_MARK;
+	}
+
+	private static boolean hasMarks(String key) {
+		for (int i = 0; i < key.length(); i++) {
+			if (isMark(key.charAt(i))) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return the hash code of the normalised form of a key (the hash code
+	 *         of the normalised string), computed without creating it
+	 */
+	private int normalisedHash(String key) {
+		String[] table = foldAccents ? FOLDED_ACCENTS : FOLDED_CASE;
+		int hash = 0;
+		for (int i = 0; i < key.length(); i++) {
+			char c = key.charAt(i);
+			if (c < TABLE_SIZE) {
+				String folded = table[c];
+				for (int j = 0; j < folded.length(); j++) {
+					hash = 31 * hash + folded.charAt(j);
+				}
+			} else if (!(foldAccents && isMark(c))) {
+				hash = 31 * hash + Character.toLowerCase(c);
+			}
+		}
+		return hash;
+	}
+
+	/**
+	 * @return <code>true</code> if the normalised form of a key is a
+	 *         normalised key, compared without creating it
+	 */
+	private boolean matches(String key, String normalised) {
+		String[] table = foldAccents ? FOLDED_ACCENTS : FOLDED_CASE;
+		int position = 0;
+		for (int i = 0; i < key.length(); i++) {
+			char c = key.charAt(i);
+			if (c < TABLE_SIZE) {
+				String folded = table[c];
+				for (int j = 0; j < folded.length(); j++) {
+					if (position >= normalised.length()
+							|| normalised.charAt(position++) != folded.charAt(j))
+						return false;
+				}
+			} else if (!(foldAccents && isMark(c))) {
+				if (position >= normalised.length()
+						|| normalised.charAt(position++) != Character.toLowerCase(c))
+					return false;
+			}
+		}
+		return position == normalised.length();
+	}
+
+	/**********************************************************************/
+	// table
+	/**********************************************************************/
+
+	/**
+	 * @param key
+	 *            - key which isn't normalised
+	 * @return the slot of its normalised form, or -1 if it isn't indexed
+	 */
+	private int lookup(String key) {
+		int mask = keys.length - 1;
+		for (int slot = normalisedHash(key) & mask;; slot = (slot + 1) & mask) {
+			String indexed = keys[slot];
+			if (indexed == null) return -1;
+			if (matches(key, indexed)) return slot;
+		}
+	}
+
+	/**
+	 * @param normalised
+	 *            - normalised key
+	 * @param hash
+	 *            - its hash code
+	 * @return its slot, or the empty slot where it would be added
+	 */
+	private int find(String normalised, int hash) {
+		int mask = keys.length - 1;
+		for (int slot = hash & mask;; slot = (slot + 1) & mask) {
+			String indexed = keys[slot];
+			if (indexed == null || indexed.equals(normalised)) return slot;
+		}
+	}
+
+	/**
+	 * double the size of the table
+	 */
+	private void resize() {
+		String[] oldKeys = keys;
+		IndexedWords[] oldValues = values;
+		keys = new String[oldKeys.length * 2];
+		values = new IndexedWords[oldKeys.length * 2];
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != null) {
+				int slot = find(oldKeys[i], oldKeys[i].hashCode());
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+}
@@ -0,0 +1,195 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is "Simplenlg".
+ *
+ * The Initial Developer of the Original Code is Ehud Reiter, Albert Gatt and Dave Westwater.
+ * Portions created by Ehud Reiter, Albert Gatt and Dave Westwater are Copyright (C) 2010-11 The University of Aberdeen. All Rights Reserved.
+ *
+ * Contributor(s): Ehud Reiter, Albert Gatt, Dave Wewstwater, Roman Kutlak, Margaret Mitchell, Pierre-Luc Vaudry.
+ */
+package simplenlg.lexicon;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import simplenlg.framework.LexicalCategory;
+import simplenlg.framework.WordElement;
+
+/**
+ * This class adds the words created on a miss to a lexicon shared with other
+ * threads, without modifying it. The words of the shared lexicon are found
+ * first, then the words created by this overlay.
+ * 
+ * An overlay is meant to be used by a single thread, for example with one
+ * <code>NLGFactory</code> per request, and thrown away with the request:
+ * 
+ * <pre>
+ * XMLLexicon shared = new simplenlg.lexicon.dutch.XMLLexicon();
+ * shared.freeze();
+ * ...
+ * NLGFactory factory = new NLGFactory(new OverlayLexicon(shared));
+ * </pre>
+ * 
+ * Words of the shared lexicon still look words up in the shared lexicon
+ * (see <code>WordElement.getLexicon()</code>), which creates them without
+ * keeping them when it is frozen (see {@link XMLLexicon#freeze()}).
+ */
+public class OverlayLexicon extends Lexicon {
+
+	// lexicon shared with other threads, which is never modified
+	private final Lexicon sharedLexicon;
+
+	// words created by this overlay
+	private final CreatedWordCache createdWords;
+
+	/**********************************************************************/
+	// constructors
+	/**********************************************************************/
+
+	/**
+	 * create an empty overlay of a shared lexicon, with the same language
+	 * 
+	 * @param sharedLexicon
+	 */
+	public OverlayLexicon(Lexicon sharedLexicon) {
+		this(sharedLexicon, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * create an empty overlay of a shared lexicon, with the same language,
+	 * which keeps at most the specified number of created words (see
+	 * {@link CreatedWordCache})
+	 * 
+	 * @param sharedLexicon
+	 * @param capacity
+	 */
+	public OverlayLexicon(Lexicon sharedLexicon, int capacity) {
+		super(sharedLexicon.getLanguage());
+		this.sharedLexicon = sharedLexicon;
+		this.createdWords = new CreatedWordCache(capacity);
+	}
+
+	/**
+	 * @return the shared lexicon
+	 */
+	public Lexicon getSharedLexicon() {
+		return sharedLexicon;
+	}
+
+	/**
+	 * @return the words created by this overlay
+	 */
+	public CreatedWordCache getCreatedWords() {
+		return createdWords;
+	}
+
+	/**********************************************************************/
+	// main methods
+	/**********************************************************************/
+
+	/* (non-Javadoc)
+	 * @see simplenlg.lexicon.Lexicon#getWords(java.lang.String, simplenlg.features.LexicalCategory)
+	 */
+	@Override
+	public List<WordElement> getWords(String baseForm, LexicalCategory category) {
+		return CreatedWordCache.merge(sharedLexicon.getWords(baseForm, category),
+				createdWords.getWords(baseForm, category));
+	}
+
+	/* (non-Javadoc)
+	 * @see simplenlg.lexicon.Lexicon#getWordsByID(java.lang.String)
+	 */
+	@Override
+	public List<WordElement> getWordsByID(String id) {
+		// created words have no ID
+		return sharedLexicon.getWordsByID(id);
+	}
+
+	/* (non-Javadoc)
+	 * @see simplenlg.lexicon.Lexicon#getWordsFromVariant(java.lang.String, simplenlg.features.LexicalCategory)
+	 */
+	@Override
+	public List<WordElement> getWordsFromVariant(String variant, LexicalCategory category) {
+		return CreatedWordCache.merge(sharedLexicon.getWordsFromVariant(variant, category),
+				createdWords.getWordsFromVariant(variant, category));
+	}
+
+	/* (non-Javadoc)
+	 * @see simplenlg.lexicon.Lexicon#getWordsFromNormalisedForm(java.lang.String, simplenlg.framework.LexicalCategory)
+	 */
+	@Override
+	protected List<WordElement> getWordsFromNormalisedForm(String form,
+			LexicalCategory category) {
+		return sharedLexicon.getWordsFromNormalisedForm(form, category);
+	}
+
+	/* (non-Javadoc)
+	 * @see simplenlg.lexicon.Lexicon#getWords(simplenlg.framework.LexicalCategory, java.util.Map)
+	 */
+	@Override
+	public List<WordElement> getWords(LexicalCategory category,
+			Map<String, Object> features) {
+		return CreatedWordCache.merge(sharedLexicon.getWords(category, features),
+				createdWords.getWords(category, features));
+	}
+
+	/**
+	 * creates a default WordElement and adds it to this overlay
+	 * 
+	 * @param baseForm
+	 *            - base form of word
+	 * @param category
+	 *            - category of word
+	 * @return WordElement entry for specified info
+	 */
+	@Override
+	protected WordElement createWord(String baseForm, LexicalCategory category) {
+		WordElement newWord = super.createWord(baseForm, category);
+		addWord(newWord);
+		return newWord;
+	}
+
+	/**
+	 * creates a default WordElement and adds it to this overlay
+	 * 
+	 * @param baseForm
+	 *            - base form of word
+	 * @return WordElement entry for specified info
+	 */
+	@Override
+	protected WordElement createWord(String baseForm) {
+		WordElement newWord = super.createWord(baseForm);
+		addWord(newWord);
+		return newWord;
+	}
+
+	/**********************************************************************/
+	// other methods
+	/**********************************************************************/
+
+	/**
+	 * add a created word to the indexes of this overlay, with its variants
+	 * computed by the shared lexicon if it is an XMLLexicon (as when the
+	 * word is added to an XMLLexicon which isn't frozen)
+	 * 
+	 * @param word
+	 */
+	private void addWord(WordElement word) {
+		createdWords.add(word);
+		if (sharedLexicon instanceof XMLLexicon) {
+			createdWords.addVariants(word, ((XMLLexicon) sharedLexicon).getVariants(word));
+		} else if (word.getBaseForm() != null) {
+			createdWords.addVariants(word, Collections.singleton(word.getBaseForm()));
+		}
+	}
+}
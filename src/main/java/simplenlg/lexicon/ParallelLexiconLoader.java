@@ -0,0 +1,221 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is "Simplenlg".
+ *
+ * The Initial Developer of the Original Code is Ehud Reiter, Albert Gatt and Dave Westwater.
+ * Portions created by Ehud Reiter, Albert Gatt and Dave Westwater are Copyright (C) 2010-11 The University of Aberdeen. All Rights Reserved.
+ *
+ * Contributor(s): Ehud Reiter, Albert Gatt, Dave Wewstwater, Roman Kutlak, Margaret Mitchell, Pierre-Luc Vaudry.
+ */
+package simplenlg.lexicon;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import simplenlg.framework.LexicalCategory;
+import simplenlg.framework.WordElement;
+
+/**
+ * Does in parallel, on an executor, the work of loading an
+ * {@link XMLLexicon} which is independent for each word of the lexicon file:
+ * the conversion of the feature values of the words, and the computation of
+ * their variants. The words are then indexed by the lexicon in the order of
+ * the file, as when it is loaded sequentially.
+ *
+ * Computing the variants of a word may look words up in the lexicon, and
+ * create the words it doesn't find; what it finds depends on the words
+ * indexed before. So the variants are computed on a copy of each word whose
+ * lexicon refuses any lookup, and the variants of the words whose
+ * computation looks words up are computed by the lexicon when it indexes
+ * them. The lexicon is therefore identical to the one loaded sequentially.
+ */
+final class ParallelLexiconLoader {
+
+	// words converted or with variants computed per task
+	private static final int BATCH_SIZE = 32;
+
+	private final XMLLexicon lexicon;
+	private final Executor executor;
+	// lexicon of the copies of the words whose variants are computed
+	private final Lexicon isolatedLexicon;
+
+	/**
+	 * @param lexicon
+	 *            the lexicon being loaded
+	 * @param executor
+	 *            executor running the parallel tasks
+	 */
+	ParallelLexiconLoader(XMLLexicon lexicon, Executor executor) {
+		this.lexicon = lexicon;
+		this.executor = executor;
+		this.isolatedLexicon = new IsolatedLexicon(lexicon);
+	}
+
+	/**
+	 * apply convertFeatureValues() to the words read from the lexicon file
+	 *
+	 * @param fileWords
+	 * @return converted words, in the same order
+	 */
+	List<WordElement> convertWords(final List<WordElement> fileWords) {
+		final WordElement[] converted = new WordElement[fileWords.size()];
+		runTasks(fileWords.size(), new IndexedTask() {
+			public void run(int i) {
+				converted[i] = lexicon.convertFeatureValues(fileWords.get(i));
+			}
+		});
+
+		List<WordElement> result = new ArrayList<WordElement>(converted.length);
+		for (WordElement word : converted) {
+			if (word != null) result.add(word);
+		}
+		return result;
+	}
+
+	/**
+	 * compute the variants of the words of the lexicon file which can be
+	 * computed without looking words up
+	 *
+	 * @param fileWords
+	 *            converted words of the lexicon file, in order
+	 * @return the variants of each word, or null for the words whose
+	 *         variants have to be computed when they are indexed
+	 */
+	List<Set<String>> computeVariants(final List<WordElement> fileWords) {
+		@SuppressWarnings("unchecked")
+		final Set<String>[] computed = new Set[fileWords.size()];
+		runTasks(fileWords.size(), new IndexedTask() {
+			public void run(int i) {
+				computed[i] = computeVariants(fileWords.get(i));
+			}
+		});
+		return Arrays.asList(computed);
+	}
+
+	/**
+	 * @param word
+	 * @return the variants of the word, or null if computing them looks words
+	 *         up
+	 */
+	private Set<String> computeVariants(WordElement word) {
+		if (!(word.getCategory() instanceof LexicalCategory)) return null;
+		WordElement copy = new WordElement(word.getBaseForm(),
+				(LexicalCategory) word.getCategory(), word.getId(), isolatedLexicon);
+		for (String feature : word.getAllFeatureNames()) {
+			copy.setFeature(feature, word.getFeature(feature));
+		}
+		try {
+			return lexicon.getVariants(copy);
+		} catch (RuntimeException ex) {
+			// a lookup, or rules which expect the lexicon of the word to be
+			// the lexicon itself: computed again (and failing, if the error
+			// isn't due to the copy) when the word is indexed
+			return null;
+		}
+	}
+
+	/**
+	 * run a task for each index from 0 to size - 1 in parallel on the
+	 * executor, and wait for all of them to be done
+	 *
+	 * If a task fails, its error is thrown once all the batches are done,
+	 * as it would be by the task run sequentially.
+	 *
+	 * @param size
+	 * @param task
+	 */
+	private void runTasks(final int size, final IndexedTask task) {
+		List<CompletableFuture<Void>> batches = new ArrayList<CompletableFuture<Void>>();
+		for (int start = 0; start < size; start += BATCH_SIZE) {
+			final int from = start;
+			final int to = Math.min(size, start + BATCH_SIZE);
+			batches.add(CompletableFuture.runAsync(new Runnable() {
+				public void run() {
+					for (int i = from; i < to; i++) task.run(i);
+				}
+			}, executor));
+		}
+		Throwable failure = null;
+		for (CompletableFuture<Void> batch : batches) {
+			try {
+				batch.join();
+			} catch (CompletionException ex) {
+				if (failure == null) failure = ex.getCause();
+			}
+		}
+		if (failure instanceof RuntimeException)
+			throw (RuntimeException) failure;
+		if (failure instanceof Error)
+			throw (Error) failure;
+		if (failure != null)
+			throw new RuntimeException(failure);
+	}
+
+	/**
+	 * task run for each index of a list
+	 */
+	private interface IndexedTask {
+		void run(int i);
+	}
+
+	/**
+	 * thrown by a lookup while computing variants in parallel
+	 */
+	private static class LookupRefused extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		LookupRefused() {
+			super("lookup while computing variants in parallel", null, false, false);
+		}
+	}
+
+	/**
+	 * Lexicon of the copies of the words whose variants are computed in
+	 * parallel: it has the language of the lexicon being loaded, and refuses
+	 * any lookup.
+	 */
+	private static class IsolatedLexicon extends Lexicon {
+		private static final LookupRefused REFUSED = new LookupRefused();
+
+		IsolatedLexicon(Lexicon lexicon) {
+			super(lexicon.getLanguage());
+		}
+
+		@Override
+		public List<WordElement> getWords(String baseForm, LexicalCategory category) {
+			throw REFUSED;
+		}
+
+		@Override
+		public List<WordElement> getWordsByID(String id) {
+			throw REFUSED;
+		}
+
+		@Override
+		public List<WordElement> getWordsFromVariant(String variant,
+				LexicalCategory category) {
+			throw REFUSED;
+		}
+
+		@Override
+		public List<WordElement> getWords(LexicalCategory category,
+				Map<String, Object> features) {
+			throw REFUSED;
+		}
+	}
+}
@@ -0,0 +1,253 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is "Simplenlg".
+ *
+ * The Initial Developer of the Original Code is Ehud Reiter, Albert Gatt and Dave Westwater.
+ * Portions created by Ehud Reiter, Albert Gatt and Dave Westwater are Copyright (C) 2010-11 The University of Aberdeen. All Rights Reserved.
+ *
+ * Contributor(s): Ehud Reiter, Albert Gatt, Dave Wewstwater, Roman Kutlak, Margaret Mitchell, Pierre-Luc Vaudry.
+ */
+package simplenlg.lexicon;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import simplenlg.framework.NLGFactory;
+
+/**
+ * This class is a handle on a lexicon which can be reloaded (for example
+ * after its XML file was edited) without restarting the application. A new
+ * version is loaded while the current one is still used, and then replaces
+ * it at once for the requests which start afterwards:
+ * 
+ * <pre>
+ * final File file = new File(&quot;default-dutch-lexicon.xml&quot;);
+ * ReloadableLexicon lexicons = new ReloadableLexicon(new Callable&lt;Lexicon&gt;() {
+ * 	public Lexicon call() throws IOException {
+ * 		// a file which can't be read to the end isn't swapped in
+ * 		return new simplenlg.lexicon.dutch.XMLLexicon(file).checkLoaded();
+ * 	}
+ * });
+ * ...
+ * // for each request
+ * NLGFactory factory = lexicons.createFactory();
+ * ...
+ * // when the file has changed
+ * lexicons.reloadInBackground();
+ * </pre>
+ * 
+ * A version is only swapped in if the loader returns it: an XMLLexicon
+ * reports a file which can't be read or isn't well-formed without throwing,
+ * so the loader should call <code>XMLLexicon.checkLoaded()</code> as above,
+ * otherwise a partial lexicon would be swapped in.
+ * 
+ * A request should get the lexicon once (with <code>get()</code> or
+ * <code>createFactory()</code>) and use it until it is done: words point back
+ * to the lexicon they come from, so a request which is running when a new
+ * version is swapped in finishes with the old version. Old versions aren't
+ * closed, since requests may still be using them; they are freed when these
+ * requests are done.
+ */
+public class ReloadableLexicon {
+
+	/**
+	 * a version of the lexicon, with the statistics of its loading (replaced
+	 * as a whole, so that they are always consistent)
+	 */
+	private static final class Version {
+		final Lexicon lexicon;
+		final long number;
+		final long loadMillis;
+		final long loadedAt;
+
+		Version(Lexicon lexicon, long number, long loadMillis, long loadedAt) {
+			this.lexicon = lexicon;
+			this.number = number;
+			this.loadMillis = loadMillis;
+			this.loadedAt = loadedAt;
+		}
+	}
+
+	// loads a new version of the lexicon
+	private final Callable<? extends Lexicon> loader;
+
+	// version used by new requests
+	private volatile Version current;
+
+	// only one version is loaded at a time
+	private final Object loadLock = new Object();
+
+	// statistics of the loadings which failed
+	private volatile long failedLoads;
+	private volatile Exception lastError;
+	private volatile boolean loading;
+
+	/**********************************************************************/
+	// constructor
+	/**********************************************************************/
+
+	/**
+	 * create a handle and load the first version of the lexicon
+	 * 
+	 * @param loader
+	 *            - loads a new version of the lexicon each time it is called
+	 * @throws IllegalStateException
+	 *             if the first version can't be loaded
+	 */
+	public ReloadableLexicon(Callable<? extends Lexicon> loader) {
+		this.loader = loader;
+		if (!reload())
+			throw new IllegalStateException("could not load lexicon: "
+					+ lastError, lastError);
+	}
+
+	/**********************************************************************/
+	// main methods
+	/**********************************************************************/
+
+	/**
+	 * @return the current version of the lexicon, which a request should use
+	 *         until it is done
+	 */
+	public Lexicon get() {
+		return current.lexicon;
+	}
+
+	/**
+	 * @return a phrase factory which uses the current version of the lexicon
+	 */
+	public NLGFactory createFactory() {
+		return new NLGFactory(get());
+	}
+
+	/**
+	 * load a new version of the lexicon in this thread, and swap it in if it
+	 * was loaded; if it couldn't be loaded, the current version is kept
+	 * 
+	 * @return true if a new version was swapped in
+	 */
+	public boolean reload() {
+		synchronized (loadLock) {
+			loading = true;
+			try {
+				long start = System.nanoTime();
+				Lexicon lexicon = loader.call();
+				if (lexicon == null)
+					throw new IllegalStateException("loader returned null");
+				long loadMillis = (System.nanoTime() - start) / 1000000;
+				Version previous = current;
+				current = new Version(lexicon, previous == null ? 1
+						: previous.number + 1, loadMillis,
+						System.currentTimeMillis());
+				return true;
+			} catch (Exception e) {
+				System.out.println("Error reloading lexicon: " + e);
+				failedLoads++;
+				lastError = e;
+				return false;
+			} finally {
+				loading = false;
+			}
+		}
+	}
+
+	/**
+	 * load a new version of the lexicon on an executor (see
+	 * <code>reload()</code>)
+	 * 
+	 * @param executor
+	 * @return true once a new version was swapped in
+	 */
+	public Future<Boolean> reloadInBackground(Executor executor) {
+		FutureTask<Boolean> task = new FutureTask<Boolean>(
+				new Callable<Boolean>() {
+					public Boolean call() {
+						return reload();
+					}
+				});
+		executor.execute(task);
+		return task;
+	}
+
+	/**
+	 * load a new version of the lexicon in a new daemon thread (see
+	 * <code>reload()</code>)
+	 * 
+	 * @return true once a new version was swapped in
+	 */
+	public Future<Boolean> reloadInBackground() {
+		return reloadInBackground(new Executor() {
+			public void execute(Runnable command) {
+				Thread thread = new Thread(command, "lexicon reload");
+				thread.setDaemon(true);
+				thread.start();
+			}
+		});
+	}
+
+	/**********************************************************************/
+	// statistics
+	/**********************************************************************/
+
+	/**
+	 * @return number of the current version (1 for the first version, and
+	 *         increased each time a new version is swapped in)
+	 */
+	public long getVersion() {
+		return current.number;
+	}
+
+	/**
+	 * @return time taken to load the current version, in milliseconds
+	 */
+	public long getLoadMillis() {
+		return current.loadMillis;
+	}
+
+	/**
+	 * @return time when the current version was swapped in, as given by
+	 *         <code>System.currentTimeMillis()</code>
+	 */
+	public long getLoadedAt() {
+		return current.loadedAt;
+	}
+
+	/**
+	 * @return number of versions which couldn't be loaded
+	 */
+	public long getFailedLoads() {
+		return failedLoads;
+	}
+
+	/**
+	 * @return the error of the last version which couldn't be loaded, or null
+	 */
+	public Exception getLastError() {
+		return lastError;
+	}
+
+	/**
+	 * @return true if a new version is being loaded
+	 */
+	public boolean isLoading() {
+		return loading;
+	}
+
+	@Override
+	public String toString() {
+		Version version = current;
+		return "ReloadableLexicon[version=" + version.number + ", loadMillis="
+				+ version.loadMillis + ", failedLoads=" + failedLoads + "]";
+	}
+}
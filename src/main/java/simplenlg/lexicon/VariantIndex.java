@@ -0,0 +1,485 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is "Simplenlg".
+ *
+ * The Initial Developer of the Original Code is Ehud Reiter, Albert Gatt and Dave Westwater.
+ * Portions created by Ehud Reiter, Albert Gatt and Dave Westwater are Copyright (C) 2010-11 The University of Aberdeen. All Rights Reserved.
+ *
+ * Contributor(s): Ehud Reiter, Albert Gatt, Dave Wewstwater, Roman Kutlak, Margaret Mitchell, Pierre-Luc Vaudry.
+ */
+package simplenlg.lexicon;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import simplenlg.framework.Language;
+import simplenlg.framework.LexicalCategory;
+import simplenlg.framework.WordElement;
+
+/**
+ * Precomputed variants of the words of an XML lexicon, so that languages
+ * whose variants are computed by their morphology (Dutch and French) don't
+ * have to run it for every word each time the lexicon is loaded.
+ *
+ * <P>
+ * A variant index is a sidecar file of the lexicon. {@link XMLLexicon} looks
+ * for it next to the lexicon (<code>lexicon.xml.variants</code>, which can be
+ * created at build time with the {@link #main(String[])} method of this class),
+ * then in the variant index directory, if one is given by the system
+ * property <code>simplenlg.variantIndexDir</code>. If there is no valid
+ * index, the variants are computed and the index is saved in this directory
+ * for the next run. Without this property, no index is saved or read
+ * outside the sidecar: the directory should only be writable by the
+ * application, since the indexes found there are trusted (a shared
+ * directory such as the temporary-file directory would let anyone supply
+ * the variants of a lexicon).
+ *
+ * <P>
+ * The build doesn't create the sidecars of the default lexicons. So unless
+ * a sidecar is put next to the lexicon (in the jar, for the default
+ * lexicons), or <code>simplenlg.variantIndexDir</code> is set, there is no
+ * index to read: the variants are computed each time the lexicon is loaded,
+ * including when it is loaded lazily.
+ *
+ * <P>
+ * An index is only used if it was computed from the same lexicon file (same
+ * checksum) and the same variant rules: the checksum of the bytecode of the
+ * classes returned by {@link XMLLexicon#getVariantRuleClasses()} and of their
+ * superclasses. If the morphology rules change, stored indexes are therefore
+ * stale and are computed again. The checksums only detect changes; they
+ * don't protect an index from being forged.
+ *
+ * <P>
+ * The index records every time a word was indexed while loading, including
+ * the words created by lookups done by the morphology, so that loading from
+ * the index gives exactly the same lexicon as computing the variants.
+ */
+public class VariantIndex {
+
+	// identifies variant index files, and their format version
+	private static final int MAGIC = 0x534E4C56; // "SNLV"
+	private static final int VERSION = 1;
+
+	/** system property giving the directory of saved variant indexes */
+	public static final String DIRECTORY_PROPERTY = "simplenlg.variantIndexDir";
+
+	/** file name extension of variant indexes */
+	public static final String EXTENSION = ".variants";
+
+	/**
+	 * One word indexed while loading the lexicon: either a word of the
+	 * lexicon file, or a word created by a lookup while computing the
+	 * variants of another word.
+	 */
+	static class Entry {
+		// position of the word in the lexicon file, or -1 for created words
+		final int ordinal;
+		// base form and category of created words
+		final String baseForm;
+		final LexicalCategory category;
+		// words created while computing the variants of this word
+		final List<Entry> created = new ArrayList<Entry>();
+		// variants of this word
+		List<String> variants;
+
+		Entry(int ordinal, String baseForm, LexicalCategory category) {
+			this.ordinal = ordinal;
+			this.baseForm = baseForm;
+			this.category = category;
+		}
+
+		boolean isFileWord() {
+			return ordinal >= 0;
+		}
+	}
+
+	/**
+	 * Records the variants computed while a lexicon is indexed.
+	 */
+	static class Recorder {
+		private final List<Entry> entries = new ArrayList<Entry>();
+		private final Deque<Entry> stack = new ArrayDeque<Entry>();
+
+		/**
+		 * called before computing the variants of a word
+		 *
+		 * @param word
+		 * @return entry of this word
+		 */
+		Entry start(WordElement word) {
+			Entry entry;
+			if (stack.isEmpty()) {
+				// not inside the variants of another word: word of the file
+				entry = new Entry(entries.size(), null, null);
+				entries.add(entry);
+			} else {
+				LexicalCategory category = word.getCategory() instanceof LexicalCategory ? (LexicalCategory) word
+						.getCategory()
+						: LexicalCategory.ANY;
+				entry = new Entry(-1, word.getBaseForm(), category);
+				stack.peek().created.add(entry);
+			}
+			stack.push(entry);
+			return entry;
+		}
+
+		/**
+		 * called after computing the variants of a word
+		 *
+		 * @param entry
+		 * @param variants
+		 */
+		void end(Entry entry, Collection<String> variants) {
+			stack.pop();
+			entry.variants = new ArrayList<String>(variants);
+		}
+
+		List<Entry> getEntries() {
+			return entries;
+		}
+	}
+
+	private final long lexiconChecksum;
+	private final long rulesChecksum;
+	private final List<Entry> entries;
+
+	/**
+	 * @param lexiconChecksum
+	 *            checksum of the lexicon file
+	 * @param rulesChecksum
+	 *            checksum of the variant rules
+	 * @param entries
+	 *            words of the file in order, with their variants
+	 */
+	VariantIndex(long lexiconChecksum, long rulesChecksum, List<Entry> entries) {
+		this.lexiconChecksum = lexiconChecksum;
+		this.rulesChecksum = rulesChecksum;
+		this.entries = entries;
+	}
+
+	/**
+	 * @return the words of the lexicon file in order, with their variants
+	 */
+	List<Entry> getEntries() {
+		return entries;
+	}
+
+	/**
+	 * @param lexiconChecksum
+	 * @param rulesChecksum
+	 * @return <code>true</code> if this index was computed from this lexicon
+	 *         file and these variant rules
+	 */
+	boolean matches(long lexiconChecksum, long rulesChecksum) {
+		return this.lexiconChecksum == lexiconChecksum
+				&& this.rulesChecksum == rulesChecksum;
+	}
+
+	/******************************************************************************************/
+	// finding and saving indexes
+	/******************************************************************************************/
+
+	/**
+	 * Find a valid variant index for a lexicon, next to the lexicon or in
+	 * the variant index directory.
+	 *
+	 * @param lexiconURI
+	 * @param lexiconChecksum
+	 *            checksum of the lexicon file
+	 * @param rulesChecksum
+	 *            checksum of the variant rules
+	 * @return the index, or null if there is no index which matches both
+	 *         checksums
+	 */
+	static VariantIndex find(URI lexiconURI, long lexiconChecksum,
+			long rulesChecksum) {
+		VariantIndex index = null;
+		try {
+			index = read(URI.create(lexiconURI.toString() + EXTENSION));
+		} catch (Exception ex) {
+			// no sidecar next to the lexicon
+		}
+		if (index == null || !index.matches(lexiconChecksum, rulesChecksum)) {
+			index = null;
+			File cached = getSavedFile(lexiconURI);
+			if (cached != null && cached.isFile()) {
+				try {
+					index = read(cached.toURI());
+				} catch (IOException ex) {
+					// unreadable or truncated, computed again
+				}
+			}
+		}
+		if (index != null && !index.matches(lexiconChecksum, rulesChecksum))
+			index = null;
+		return index;
+	}
+
+	/**
+	 * Save this index in the variant index directory, if there is one. The
+	 * file is written under a temporary name and renamed, so that other
+	 * processes never read a partial index.
+	 *
+	 * @param lexiconURI
+	 */
+	void save(URI lexiconURI) {
+		File file = getSavedFile(lexiconURI);
+		if (file == null)
+			return;
+		try {
+			File directory = file.getParentFile();
+			if (!directory.isDirectory() && !directory.mkdirs())
+				return;
+			File temporary = File.createTempFile(file.getName(), ".tmp",
+					directory);
+			write(temporary);
+			if (!temporary.renameTo(file)) {
+				file.delete();
+				if (!temporary.renameTo(file))
+					temporary.delete();
+			}
+		} catch (IOException ex) {
+			System.out.println("Could not save variant index: " + ex.toString());
+		}
+	}
+
+	/**
+	 * @param lexiconURI
+	 * @return the file of the index of this lexicon in the variant index
+	 *         directory, or null if indexes are not saved
+	 */
+	private static File getSavedFile(URI lexiconURI) {
+		String directory = System.getProperty(DIRECTORY_PROPERTY);
+		if (directory == null || directory.trim().isEmpty())
+			return null;
+
+		// lexicons with the same name in different places get different files
+		String path = lexiconURI.toString();
+		String name = path.substring(path.lastIndexOf('/') + 1);
+		return new File(directory, name + "-"
+				+ Integer.toHexString(path.hashCode()) + EXTENSION);
+	}
+
+	/**
+	 * Compute the checksum of the bytecode of classes and of their
+	 * superclasses (up to the classes of the JDK), which changes whenever
+	 * one of them is modified and compiled again.
+	 *
+	 * @param classes
+	 * @return the checksum, or 0 if the bytecode of a class can't be read
+	 */
+	static long checksumClasses(Class<?>[] classes) {
+		Set<Class<?>> withSuperclasses = new LinkedHashSet<Class<?>>();
+		for (Class<?> ruleClass : classes) {
+			for (Class<?> c = ruleClass; c != null && c.getClassLoader() != null; c = c
+					.getSuperclass())
+				withSuperclasses.add(c);
+		}
+
+		CRC32 crc = new CRC32();
+		byte[] buffer = new byte[8192];
+		for (Class<?> ruleClass : withSuperclasses) {
+			String name = ruleClass.getName();
+			InputStream input = ruleClass.getResourceAsStream("/"
+					+ name.replace('.', '/') + ".class");
+			if (input == null)
+				return 0;
+			try {
+				try {
+					int count;
+					while ((count = input.read(buffer)) > 0)
+						crc.update(buffer, 0, count);
+				} finally {
+					input.close();
+				}
+			} catch (IOException ex) {
+				return 0;
+			}
+		}
+		// include the format version, so that older indexes are stale
+		crc.update(VERSION);
+		return crc.getValue();
+	}
+
+	/******************************************************************************************/
+	// file format
+	/******************************************************************************************/
+
+	/**
+	 * read an index
+	 *
+	 * @param uri
+	 * @return
+	 * @throws IOException
+	 *             if the index is missing, truncated or has another format
+	 */
+	private static VariantIndex read(URI uri) throws IOException {
+		DataInputStream input = new DataInputStream(new BufferedInputStream(
+				uri.toURL().openStream()));
+		try {
+			if (input.readInt() != MAGIC || input.readInt() != VERSION)
+				return null;
+			long lexiconChecksum = input.readLong();
+			long rulesChecksum = input.readLong();
+			int size = input.readInt();
+			List<Entry> entries = new ArrayList<Entry>(size);
+			for (int i = 0; i < size; i++)
+				entries.add(readEntry(input));
+			return new VariantIndex(lexiconChecksum, rulesChecksum, entries);
+		} finally {
+			input.close();
+		}
+	}
+
+	private static Entry readEntry(DataInputStream input) throws IOException {
+		Entry entry;
+		int ordinal = input.readInt();
+		if (ordinal >= 0) {
+			entry = new Entry(ordinal, null, null);
+		} else {
+			String baseForm = input.readUTF();
+			LexicalCategory category = LexicalCategory.valueOf(input.readUTF());
+			entry = new Entry(-1, baseForm, category);
+		}
+		int created = input.readInt();
+		for (int i = 0; i < created; i++)
+			entry.created.add(readEntry(input));
+		int variants = input.readInt();
+		entry.variants = new ArrayList<String>(variants);
+		for (int i = 0; i < variants; i++)
+			entry.variants.add(input.readUTF());
+		return entry;
+	}
+
+	/**
+	 * write this index to a file
+	 *
+	 * @param file
+	 * @throws IOException
+	 */
+	void write(File file) throws IOException {
+		OutputStream output = new FileOutputStream(file);
+		try {
+			write(output);
+		} finally {
+			output.close();
+		}
+	}
+
+	/**
+	 * write this index to a stream
+	 *
+	 * @param output
+	 *            the stream to write to (not closed by this method)
+	 * @throws IOException
+	 */
+	void write(OutputStream output) throws IOException {
+		DataOutputStream data = new DataOutputStream(new BufferedOutputStream(
+				output));
+		data.writeInt(MAGIC);
+		data.writeInt(VERSION);
+		data.writeLong(lexiconChecksum);
+		data.writeLong(rulesChecksum);
+		data.writeInt(entries.size());
+		for (Entry entry : entries)
+			writeEntry(entry, data);
+		data.flush();
+	}
+
+	private static void writeEntry(Entry entry, DataOutputStream data)
+			throws IOException {
+		data.writeInt(entry.ordinal);
+		if (!entry.isFileWord()) {
+			data.writeUTF(entry.baseForm);
+			data.writeUTF(entry.category.name());
+		}
+		data.writeInt(entry.created.size());
+		for (Entry created : entry.created)
+			writeEntry(created, data);
+		data.writeInt(entry.variants.size());
+		for (String variant : entry.variants)
+			data.writeUTF(variant);
+	}
+
+	/******************************************************************************************/
+	// command line
+	/******************************************************************************************/
+
+	/**
+	 * Write the variant index of an XML lexicon, to be put next to it (for
+	 * example when building the jar). Arguments are the ISO 639-1 code of
+	 * the language of the lexicon (nl or fr), the XML lexicon file, and
+	 * optionally the index file to write (the lexicon file name followed by
+	 * <code>.variants</code> by default).
+	 *
+	 * @param args
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2 || args.length > 3) {
+			System.out.println("Usage: java simplenlg.lexicon.VariantIndex <language code> <lexicon.xml> [index file]");
+			return;
+		}
+		Language language = Language.convertCodeToLanguage(args[0]);
+		File xmlFile = new File(args[1]);
+		File indexFile = new File(args.length == 3 ? args[2] : args[1] + EXTENSION);
+
+		// the lexicon saves the index it computes in a temporary directory
+		File directory = Files.createTempDirectory("simplenlg").toFile();
+		System.setProperty(DIRECTORY_PROPERTY, directory.getPath());
+		try {
+			if (language == Language.DUTCH) {
+				new simplenlg.lexicon.dutch.XMLLexicon(xmlFile);
+			} else if (language == Language.FRENCH) {
+				new simplenlg.lexicon.french.XMLLexicon(xmlFile);
+			} else {
+				System.out.println("No variant index is needed for language " + args[0]);
+				return;
+			}
+
+			File saved = getSavedFile(xmlFile.toURI());
+			if (saved.isFile()) {
+				Files.copy(saved.toPath(), indexFile.toPath(),
+						StandardCopyOption.REPLACE_EXISTING);
+				saved.delete();
+				System.out.println("Wrote variant index " + indexFile);
+			} else {
+				// a valid index was found next to the lexicon
+				File sidecar = new File(xmlFile.getPath() + EXTENSION);
+				if (!sidecar.getCanonicalFile().equals(indexFile.getCanonicalFile()))
+					Files.copy(sidecar.toPath(), indexFile.toPath(),
+							StandardCopyOption.REPLACE_EXISTING);
+				System.out.println("Variant index " + indexFile + " is up to date");
+			}
+		} finally {
+			directory.delete();
+		}
+	}
+}
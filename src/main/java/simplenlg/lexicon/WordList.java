@@ -0,0 +1,206 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is "Simplenlg".
+ *
+ * The Initial Developer of the Original Code is Ehud Reiter, Albert Gatt and Dave Westwater.
+ * Portions created by Ehud Reiter, Albert Gatt and Dave Westwater are Copyright (C) 2010-11 The University of Aberdeen. All Rights Reserved.
+ *
+ * Contributor(s): Ehud Reiter, Albert Gatt, Dave Wewstwater, Roman Kutlak, Margaret Mitchell, Pierre-Luc Vaudry.
+ */
+package simplenlg.lexicon;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import simplenlg.framework.WordElement;
+
+/**
+ * Words of {@link XMLLexicon} in the order in which they were added (the
+ * words of a category, say), told apart by identity. A word is removed in
+ * constant time, as the list keeps the position of each word: the removed
+ * words leave a gap, and the words are only moved up over the gaps when
+ * they take more room than the words left.
+ * 
+ * The list is mostly read by iterating over it. Once there are gaps,
+ * <code>get()</code> finds a word with a Fenwick tree counting the words
+ * left at each position, created at the first <code>get()</code> with gaps
+ * and kept up to date until the words are moved up, so that it takes
+ * logarithmic time. The list can't be modified through its iterator; words
+ * are added with <code>add()</code> and removed with
+ * <code>removeWord()</code>.
+ */
+final class WordList extends AbstractList<WordElement> {
+
+	// position of each word in order
+	private final Map<WordElement, Integer> positions = new IdentityHashMap<WordElement, Integer>();
+
+	// the words in order, with null where words were removed
+	private WordElement[] order = new WordElement[16];
+	private int end;
+
+	// Fenwick tree of the number of words at each position of order (from
+	// 1), or null until get() is called with gaps
+	private int[] counts;
+
+	/**
+	 * add a word at the end of the list, unless it is already in the list
+	 * 
+	 * @param word
+	 * @return <code>true</code> if the word was added
+	 */
+	@Override
+	public boolean add(WordElement word) {
+		if (positions.containsKey(word)) return false;
+		if (end == order.length) {
+			// make room by dropping the removed words first
+			if (positions.size() < end / 2) {
+				compact();
+			} else {
+				order = Arrays.copyOf(order, end * 2);
+				counts = null;
+			}
+		}
+		if (counts != null) count(end, 1);
+		positions.put(word, end);
+		order[end++] = word;
+		modCount++;
+		return true;
+	}
+
+	/**
+	 * remove a word (the same instance, not an equal word), keeping the
+	 * others in order
+	 * 
+	 * @param word
+	 * @return <code>true</code> if the word was in the list
+	 */
+	boolean removeWord(Object word) {
+		Integer position = positions.remove(word);
+		if (position == null) return false;
+		order[position] = null;
+		if (counts != null) count(position, -1);
+		modCount++;
+		return true;
+	}
+
+	/**
+	 * @param word
+	 * @return <code>true</code> if the word (the same instance) is in the list
+	 */
+	boolean containsWord(Object word) {
+		return positions.containsKey(word);
+	}
+
+	@Override
+	public WordElement get(int index) {
+		if (index < 0 || index >= positions.size())
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: "
+					+ positions.size());
+		if (positions.size() == end) return order[index];
+		if (counts == null) countWords();
+
+		// the last position with at most index words up to it (from 1) is
+		// the position of the word (from 0)
+		int position = 0;
+		int remaining = index;
+		for (int step = Integer.highestOneBit(order.length); step > 0; step >>= 1) {
+			int next = position + step;
+			if (next <= order.length && counts[next] <= remaining) {
+				position = next;
+				remaining -= counts[next];
+			}
+		}
+		return order[position];
+	}
+
+	/**
+	 * create the Fenwick tree of the words at each position
+	 */
+	private void countWords() {
+		counts = new int[order.length + 1];
+		for (int i = 1; i <= order.length; i++) {
+			if (order[i - 1] != null) counts[i]++;
+			int parent = i + (i & -i);
+			if (parent <= order.length) counts[parent] += counts[i];
+		}
+	}
+
+	/**
+	 * update the Fenwick tree for a word added or removed
+	 * 
+	 * @param position
+	 *            position of the word in order
+	 * @param change
+	 *            1 if added, -1 if removed
+	 */
+	private void count(int position, int change) {
+		for (int i = position + 1; i <= order.length; i += i & -i) {
+			counts[i] += change;
+		}
+	}
+
+	@Override
+	public int size() {
+		return positions.size();
+	}
+
+	/**
+	 * move the words up over the removed ones
+	 */
+	private void compact() {
+		int kept = 0;
+		for (int i = 0; i < end; i++) {
+			if (order[i] != null) {
+				positions.put(order[i], kept);
+				order[kept++] = order[i];
+			}
+		}
+		Arrays.fill(order, kept, end, null);
+		end = kept;
+		counts = null;
+	}
+
+	@Override
+	public Iterator<WordElement> iterator() {
+		return new Iterator<WordElement>() {
+			private int next = skipRemoved(0);
+
+			private int skipRemoved(int position) {
+				while (position < end && order[position] == null)
+					position++;
+				return position;
+			}
+
+			@Override
+			public boolean hasNext() {
+				return next < end;
+			}
+
+			@Override
+			public WordElement next() {
+				if (next >= end) throw new NoSuchElementException();
+				WordElement word = order[next];
+				next = skipRemoved(next + 1);
+				return word;
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+}
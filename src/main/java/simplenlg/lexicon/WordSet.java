@@ -0,0 +1,64 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is "Simplenlg".
+ *
+ * The Initial Developer of the Original Code is Ehud Reiter, Albert Gatt and Dave Westwater.
+ * Portions created by Ehud Reiter, Albert Gatt and Dave Westwater are Copyright (C) 2010-11 The University of Aberdeen. All Rights Reserved.
+ *
+ * Contributor(s): Ehud Reiter, Albert Gatt, Dave Wewstwater, Roman Kutlak, Margaret Mitchell, Pierre-Luc Vaudry.
+ */
+package simplenlg.lexicon;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+
+import simplenlg.framework.WordElement;
+
+/**
+ * The words of {@link XMLLexicon}, in the order in which they were added.
+ * Words are told apart by identity rather than by <code>equals()</code>, as
+ * a lexicon may have several equal words (same base form, ID and features)
+ * which are still different entries of its indexes. They are kept in a
+ * {@link WordList}, so a word is removed in constant time.
+ * 
+ * The iterator doesn't support <code>remove()</code>; words are removed by
+ * the lexicon with <code>remove()</code>.
+ */
+final class WordSet extends AbstractSet<WordElement> {
+
+	private final WordList words = new WordList();
+
+	@Override
+	public boolean add(WordElement word) {
+		return words.add(word);
+	}
+
+	@Override
+	public boolean remove(Object word) {
+		return words.removeWord(word);
+	}
+
+	@Override
+	public boolean contains(Object word) {
+		return words.containsWord(word);
+	}
+
+	@Override
+	public int size() {
+		return words.size();
+	}
+
+	@Override
+	public Iterator<WordElement> iterator() {
+		return words.iterator();
+	}
+}
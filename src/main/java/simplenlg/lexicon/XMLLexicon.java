@@ -18,29 +18,34 @@
  */
 package simplenlg.lexicon;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import simplenlg.features.LexicalFeature;
 import simplenlg.framework.Language;
@@ -62,6 +67,11 @@ public class XMLLexicon extends Lexicon {
 	private static final String XML_ID = "id"; // base form of Word
 	private static final String XML_WORD = "word"; // node defining a word
 
+	// node names in delta files (see applyDelta())
+	private static final String XML_ADD = "add"; // words to add
+	private static final String XML_REPLACE = "replace"; // words to replace
+	private static final String XML_REMOVE = "remove"; // IDs of words to remove
+
 	// inflectional codes which need to be set as part of INFLECTION feature
 	private static final List<String> INFL_CODES = Arrays.asList(new String[] {
 			"reg", "irreg", "uncount", "inv", "metareg", "glreg", "nonCount", "sing", "groupuncount" });
@@ -80,6 +90,34 @@ public class XMLLexicon extends Lexicon {
 	// added by vaudrypl
 	protected Map<LexicalCategory, List<WordElement>> indexByCategory; // map from variants
 
+	// indexes of the features of the words of each category (and ANY),
+	// created at the first lookup by features (see getFeatureIndex())
+	private final Map<LexicalCategory, FeatureIndex> indexByFeature = new ConcurrentHashMap<LexicalCategory, FeatureIndex>();
+
+	// records the variants computed while loading, for the variant index
+	private VariantIndex.Recorder variantRecorder;
+
+	// when loaded lazily: the records of the lexicon file, and the words of
+	// the file whose features haven't been read yet, with their record (both
+	// null once all the words have been read)
+	private XMLLexiconRecords records;
+	private volatile Map<WordElement, Integer> unreadWords;
+	private XMLInputFactory recordFactory;
+
+	// once frozen, the indexes are never modified again (see freeze())
+	private volatile boolean frozen;
+
+	// if not null, words created after loading are kept there instead of
+	// being added to the lexicon (see setCreatedWordCache())
+	private CreatedWordCache createdWords;
+
+	// if not null, index of the words by the normalised form of their base
+	// forms and variants (see enableNormalisedLookup())
+	private volatile NormalisedIndex normalisedIndex;
+
+	// the error which stopped the lexicon file from being read to the end,
+	// or null (see checkLoaded())
+	private Exception loadError;
 	
 	/**********************************************************************/
 	// constructors
@@ -126,7 +164,72 @@ public class XMLLexicon extends Lexicon {
 	 * @param language
 	 */
 	public XMLLexicon(Language language) {
+		this(language, (Executor) null);
+	}
+
+	/**
+	 * Loads the default XML lexicon corresponding to a particular language,
+	 * converting words and computing their variants in parallel. The lexicon
+	 * is identical to the one loaded sequentially.
+	 * 
+	 * @param language
+	 * @param executor
+	 *            executor running the parallel tasks, for example
+	 *            <code>ForkJoinPool.commonPool()</code> (if null the lexicon
+	 *            is loaded sequentially)
+	 */
+	public XMLLexicon(Language language, Executor executor) {
+		super(language);
+		URI lexiconURI = getDefaultLexiconURI(language);
+		if (lexiconURI != null) createLexicon(lexiconURI, executor);
+	}
+
+	/**
+	 * Loads the default XML lexicon corresponding to a particular language,
+	 * lazily if requested: the lexicon file is only scanned for the base
+	 * form, category and ID of each word, and the other features of a word
+	 * are read the first time a lookup returns it. Later lookups return the
+	 * same WordElement. Apart from memory and startup time, the lexicon
+	 * behaves exactly as when it is loaded completely.
+	 * 
+	 * The variants of the words are taken from the variant index of the
+	 * lexicon file (see {@link VariantIndex}). If there is none, computing
+	 * the variants takes all the features of the words, so the lexicon is
+	 * loaded completely; the index is then saved for the next time if a
+	 * sidecar or the <code>simplenlg.variantIndexDir</code> system property
+	 * provides a place for it.
+	 * 
+	 * @param language
+	 * @param lazy
+	 *            <code>true</code> to load the lexicon lazily
+	 */
+	public XMLLexicon(Language language, boolean lazy) {
 		super(language);
+		URI lexiconURI = getDefaultLexiconURI(language);
+		if (lexiconURI != null) createLexicon(lexiconURI, null, lazy);
+	}
+
+	/**
+	 * Load an XML Lexicon from a URI with the associated language, lazily if
+	 * requested (see {@link #XMLLexicon(Language, boolean)})
+	 * 
+	 * @param language
+	 *            the associated language
+	 * @param lexiconURI
+	 * @param lazy
+	 *            <code>true</code> to load the lexicon lazily
+	 */
+	public XMLLexicon(Language language, URI lexiconURI, boolean lazy) {
+		super(language);
+		createLexicon(lexiconURI, null, lazy);
+	}
+
+	/**
+	 * @param language
+	 * @return the URI of the default XML lexicon of this language, or null if
+	 *         it can't be found
+	 */
+	private URI getDefaultLexiconURI(Language language) {
 		if (language == null) language = Language.DEFAULT_LANGUAGE;
 		
 		String xmlLexiconFilePath;
@@ -145,10 +248,11 @@ public class XMLLexicon extends Lexicon {
 			URL resource = getClass().getClassLoader().getResource(xmlLexiconFilePath);
 
 			if (resource != null)
-				createLexicon(resource.toURI());
+				return resource.toURI();
 		} catch (URISyntaxException ex) {
 			System.out.println(ex.toString());
 		}
+		return null;
 	}
 	
 	/**
@@ -237,6 +341,25 @@ public class XMLLexicon extends Lexicon {
 		createLexicon(lexiconURI);
 	}
 
+	/**
+	 * Load an XML Lexicon from a URI
+	 * with the associated language, converting words and computing their
+	 * variants in parallel. The lexicon is identical to the one loaded
+	 * sequentially.
+	 * 
+	 * @param language
+	 *            the associated language
+	 * @param lexiconURI
+	 * @param executor
+	 *            executor running the parallel tasks, for example
+	 *            <code>ForkJoinPool.commonPool()</code> (if null the lexicon
+	 *            is loaded sequentially)
+	 */
+	public XMLLexicon(Language language, URI lexiconURI, Executor executor) {
+		super(language);
+		createLexicon(lexiconURI, executor);
+	}
+
 	/**
 	 * method to actually load and index the lexicon from a URI
 	 * 
@@ -246,83 +369,905 @@ public class XMLLexicon extends Lexicon {
 	 * @param uri
 	 */
 	private void createLexicon(URI lexiconURI) {
-		// initialise objects
-		words = new HashSet<WordElement>();
+		createLexicon(lexiconURI, null);
+	}
+
+	/**
+	 * load and index the whole lexicon from a URI
+	 * 
+	 * @param uri
+	 * @param executor
+	 *            executor for parallel loading, or null
+	 */
+	private void createLexicon(URI lexiconURI, Executor executor) {
+		createLexicon(lexiconURI, executor, false);
+	}
+
+	/**
+	 * method to actually load and index the lexicon from a URI
+	 * 
+	 * @param uri
+	 * @param executor
+	 *            executor for parallel loading, or null
+	 * @param lazy
+	 *            <code>true</code> to load the lexicon lazily (if the file
+	 *            can't be scanned, it is loaded completely)
+	 */
+	private void createLexicon(URI lexiconURI, Executor executor, boolean lazy) {
+		initIndexes();
+		if (lazy && createLazyLexicon(lexiconURI)) return;
+
+		// the lexicon is read with a streaming parser, so the XML document
+		// is never held in memory as a whole
+		List<WordElement> fileWords = new ArrayList<WordElement>();
+		CRC32 checksum = new CRC32();
+		boolean complete = false;
+		try {
+			InputStream input = new CheckedInputStream(lexiconURI.toURL()
+					.openStream(), checksum);
+			try {
+				XMLInputFactory factory = XMLInputFactory.newInstance();
+				factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+				XMLStreamReader reader = factory.createXMLStreamReader(
+						lexiconURI.toString(), input);
+				try {
+					readLexicon(reader, fileWords);
+				} finally {
+					reader.close();
+				}
+				// the checksum is computed on the whole file
+				byte[] buffer = new byte[8192];
+				while (input.read(buffer) >= 0);
+				complete = true;
+			} finally {
+				input.close();
+			}
+		} catch (Exception ex) {
+			System.out.println(ex.toString());
+			loadError = ex;
+		}
+
+		ParallelLexiconLoader loader = executor == null ? null
+				: new ParallelLexiconLoader(this, executor);
+		fileWords = loader == null ? convertWords(fileWords) : loader.convertWords(fileWords);
+		indexWords(fileWords, lexiconURI, complete ? checksum.getValue() : null, loader);
+	}
+
+	/**
+	 * check that the lexicon file was read to the end. A lexicon file which
+	 * can't be read, or isn't well-formed (after an edit, for example), is
+	 * only reported on the console when the lexicon is created, and the
+	 * lexicon has the words read before the error; this method turns that
+	 * error into an exception, for applications which shouldn't go on with a
+	 * partial lexicon:
+	 * 
+	 * <pre>
+	 * Lexicon lexicon = new simplenlg.lexicon.dutch.XMLLexicon(file).checkLoaded();
+	 * </pre>
+	 * 
+	 * @return this lexicon
+	 * @throws IOException
+	 *             if the lexicon file couldn't be read to the end
+	 */
+	public XMLLexicon checkLoaded() throws IOException {
+		Exception error = loadError;
+		if (error instanceof IOException) throw (IOException) error;
+		if (error != null)
+			throw new IOException("could not load lexicon: " + error, error);
+		return this;
+	}
+
+	/**
+	 * freeze this lexicon: its indexes become immutable, so that it can be
+	 * shared by any number of threads looking up words concurrently
+	 * 
+	 * Words that aren't in a frozen lexicon are created without being added
+	 * to it, so they are not found by later lookups. To keep the words
+	 * created while realising a text, look words up through an
+	 * {@link OverlayLexicon} of this lexicon (for example one per
+	 * <code>NLGFactory</code> or per request), which is thrown away with
+	 * them.
+	 * 
+	 * As for any object, a frozen lexicon must be published safely to
+	 * other threads (for example in a final field, or by starting the
+	 * threads after it is frozen).
+	 */
+	public synchronized void freeze() {
+		if (frozen) return;
+		words = Collections.unmodifiableSet(words);
+		indexByID = Collections.unmodifiableMap(indexByID);
+		// the lists of words of these indexes are already unmodifiable
+		indexByBase = Collections.unmodifiableMap(indexByBase);
+		indexByVariant = Collections.unmodifiableMap(indexByVariant);
+		indexByCategory = freezeIndex(indexByCategory);
+		frozen = true;
+	}
+
+	/**
+	 * @return <code>true</code> if this lexicon has been frozen
+	 */
+	public boolean isFrozen() {
+		return frozen;
+	}
+
+	/**
+	 * apply a delta file to this lexicon: words are added, replaced or
+	 * removed by ID, without loading the whole lexicon again. A delta file
+	 * looks like this:
+	 * 
+	 * <pre>
+	 * &lt;delta&gt;
+	 *   &lt;add&gt;
+	 *     &lt;word&gt;&lt;base&gt;blockchain&lt;/base&gt;&lt;category&gt;noun&lt;/category&gt;&lt;id&gt;D1&lt;/id&gt;&lt;/word&gt;
+	 *   &lt;/add&gt;
+	 *   &lt;replace&gt;
+	 *     &lt;word&gt;&lt;base&gt;huis&lt;/base&gt;&lt;category&gt;noun&lt;/category&gt;&lt;id&gt;D2&lt;/id&gt;&lt;plural&gt;huizen&lt;/plural&gt;&lt;/word&gt;
+	 *   &lt;/replace&gt;
+	 *   &lt;remove&gt;&lt;id&gt;D3&lt;/id&gt;&lt;/remove&gt;
+	 * &lt;/delta&gt;
+	 * </pre>
+	 * 
+	 * The words of <code>add</code> and <code>replace</code> are read as in
+	 * the lexicon file. Only the words of the delta are indexed or removed
+	 * from the indexes, and only their variants are computed, so the time
+	 * taken depends on the size of the delta rather than of the lexicon. A
+	 * replaced word is removed, and the new word is added after the other
+	 * words with the same keys. The changes are applied in order; a change
+	 * whose ID is unknown (or already used, for an added word) is reported
+	 * and skipped. If the file can't be read, nothing is changed.
+	 * 
+	 * The lexicon mustn't be used by other threads meanwhile, and can't be
+	 * frozen.
+	 * 
+	 * @param deltaURI
+	 * @return number of changes applied
+	 */
+	public synchronized int applyDelta(URI deltaURI) {
+		if (frozen)
+			throw new IllegalStateException("a frozen lexicon can't be modified");
+
+		// the whole file is read first, so that a broken file changes nothing
+		List<DeltaChange> changes = new ArrayList<DeltaChange>();
+		try {
+			InputStream input = deltaURI.toURL().openStream();
+			try {
+				XMLInputFactory factory = XMLInputFactory.newInstance();
+				factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+				XMLStreamReader reader = factory.createXMLStreamReader(
+						deltaURI.toString(), input);
+				try {
+					readDelta(reader, changes);
+				} finally {
+					reader.close();
+				}
+			} finally {
+				input.close();
+			}
+		} catch (Exception ex) {
+			System.out.println(ex.toString());
+			return 0;
+		}
+
+		int applied = 0;
+		for (DeltaChange change : changes) {
+			if (applyChange(change)) applied++;
+		}
+		return applied;
+	}
+
+	/**
+	 * apply a delta file to this lexicon (see {@link #applyDelta(URI)})
+	 * 
+	 * @param deltaFile
+	 * @return number of changes applied
+	 */
+	public int applyDelta(File deltaFile) {
+		return applyDelta(deltaFile.toURI());
+	}
+
+	/**
+	 * a change of a delta file: a word to add or to replace the word with the
+	 * same ID, or the ID of a word to remove
+	 */
+	private static class DeltaChange {
+		final String action;
+		final WordElement word;
+		final String id;
+
+		DeltaChange(String action, WordElement word, String id) {
+			this.action = action;
+			this.word = word;
+			this.id = id;
+		}
+	}
+
+	/**
+	 * read the changes of a delta file
+	 * 
+	 * @param reader
+	 *            positioned at the start of the document
+	 * @param changes
+	 *            list to which the changes are added, in order
+	 * @throws XMLStreamException
+	 */
+	private void readDelta(XMLStreamReader reader, List<DeltaChange> changes)
+			throws XMLStreamException {
+		// go to the root element
+		while (reader.hasNext() && reader.next() != XMLStreamConstants.START_ELEMENT);
+
+		while (reader.hasNext()) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				String action = reader.getLocalName().toLowerCase();
+				if (action.equals(XML_ADD) || action.equals(XML_REPLACE)
+						|| action.equals(XML_REMOVE)) {
+					readDeltaAction(reader, action, changes);
+				} else {
+					// ignore other elements
+					skipElement(reader);
+				}
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				// end of the root element
+				break;
+			}
+		}
+	}
+
+	/**
+	 * read the words or IDs of an element add, replace or remove of a delta
+	 * file
+	 * 
+	 * @param reader
+	 *            positioned on the start of the element, and left on its end
+	 * @param action
+	 * @param changes
+	 * @throws XMLStreamException
+	 */
+	private void readDeltaAction(XMLStreamReader reader, String action,
+			List<DeltaChange> changes) throws XMLStreamException {
+		while (reader.hasNext()) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.END_ELEMENT) {
+				break;
+			} else if (event == XMLStreamConstants.START_ELEMENT) {
+				String name = reader.getLocalName();
+				if (action.equals(XML_REMOVE) && name.equalsIgnoreCase(XML_ID)) {
+					changes.add(new DeltaChange(action, null, readText(reader).trim()));
+				} else if (!action.equals(XML_REMOVE) && name.equalsIgnoreCase(XML_WORD)) {
+					WordElement word = readWord(reader);
+					changes.add(new DeltaChange(action, word, word.getId()));
+				} else {
+					skipElement(reader);
+				}
+			}
+		}
+	}
+
+	/**
+	 * apply a change of a delta file
+	 * 
+	 * @param change
+	 * @return <code>true</code> if it was applied
+	 */
+	private boolean applyChange(DeltaChange change) {
+		WordElement old = change.id == null ? null : indexByID.get(change.id);
+		if (change.action.equals(XML_ADD)) {
+			if (old != null) {
+				System.out.println("Lexicon error: ID " + change.id
+						+ " occurs more than once");
+				return false;
+			}
+		} else if (old == null) {
+			System.out.println("Lexicon error: no word with ID " + change.id
+					+ " to " + change.action);
+			return false;
+		}
+
+		WordElement word = null;
+		if (change.word != null) {
+			word = convertFeatureValues(change.word);
+			if (word == null) return false;
+		}
+		if (old != null) {
+			unindexWord(old);
+			wordRemoved(old);
+		}
+		if (word != null) {
+			words.add(word);
+			// the variants are computed once for both indexes
+			Set<String> variants = getVariants(word);
+			IndexWord(word, variants);
+			NormalisedIndex index = normalisedIndex;
+			if (index != null) {
+				index.add(word.getBaseForm(), word);
+				for (String variant : variants) index.add(variant, word);
+			}
+			updateFeatureIndexes(word, true);
+			wordAdded(word);
+		}
+		return true;
+	}
+
+	/**
+	 * called by applyDelta() after a word has been added to the indexes, so
+	 * that subclasses can update what they derive from the words of the
+	 * lexicon when it is loaded
+	 * 
+	 * @param word
+	 */
+	protected void wordAdded(WordElement word) {
+	}
+
+	/**
+	 * called by applyDelta() after a word has been removed from the indexes
+	 * (see {@link #wordAdded(WordElement)})
+	 * 
+	 * @param word
+	 */
+	protected void wordRemoved(WordElement word) {
+	}
+
+	/**
+	 * remove a word of this lexicon from the lexicon and its indexes
+	 * 
+	 * @param word
+	 */
+	private void unindexWord(WordElement word) {
+		// its variants are computed from its features, which are read first
+		// if the lexicon is loaded lazily
+		readFeatures(Collections.singletonList(word));
+		words.remove(word);
+		NormalisedIndex index = normalisedIndex;
+		if (word.getBaseForm() != null) {
+			removeFromIndex(word, word.getBaseForm(), indexByBase);
+			if (index != null) index.remove(word.getBaseForm(), word);
+		}
+		for (String variant : getVariants(word)) {
+			removeFromIndex(word, variant, indexByVariant);
+			if (index != null) index.remove(variant, word);
+		}
+		if (word.getId() != null && indexByID.get(word.getId()) == word) {
+			indexByID.remove(word.getId());
+		}
+		List<WordElement> withCategory = indexByCategory.get(word.getCategory());
+		if (withCategory != null) {
+			((WordList) withCategory).removeWord(word);
+		}
+		updateFeatureIndexes(word, false);
+	}
+
+	/**
+	 * add a word to the feature indexes created so far (see
+	 * getFeatureIndex()), or remove it from them, rather than creating them
+	 * again after a delta
+	 * 
+	 * @param word
+	 * @param added
+	 *            <code>true</code> if the word was added to the lexicon,
+	 *            <code>false</code> if it was removed
+	 */
+	private void updateFeatureIndexes(WordElement word, boolean added) {
+		synchronized (indexByFeature) {
+			for (LexicalCategory category : new LexicalCategory[] {
+					(LexicalCategory) word.getCategory(), LexicalCategory.ANY }) {
+				FeatureIndex index = category == null ? null : indexByFeature.get(category);
+				if (index == null) continue;
+				if (added) {
+					index.add(word);
+				} else {
+					index.remove(word);
+				}
+				if (category == LexicalCategory.ANY) break;
+			}
+		}
+	}
+
+	/**
+	 * remove a word from an index (the same instance, not an equal word)
+	 * 
+	 * @param word
+	 * @param key
+	 * @param index
+	 */
+	private static void removeFromIndex(WordElement word, String key,
+			Map<String, List<WordElement>> index) {
+		IndexedWords indexed = (IndexedWords) index.get(key);
+		if (indexed != null && indexed.removeWord(word) && indexed.isEmpty()) {
+			index.remove(key);
+		}
+	}
+
+	/**
+	 * find the words which aren't found as such by a normalised form of
+	 * their base form or variant (see {@link NormalisedIndex}), before
+	 * creating a new word in lookupWord(): for example "Huis" or "IJs" at
+	 * the start of a sentence, or French words typed without accents if
+	 * accents are folded
+	 * 
+	 * The index is created from the words of the lexicon when this method is
+	 * called, and follows the changes of delta files (see applyDelta()), but
+	 * not the words created afterwards.
+	 * 
+	 * @param foldAccents
+	 *            <code>true</code> if words which differ by their accents are
+	 *            the same
+	 */
+	public synchronized void enableNormalisedLookup(boolean foldAccents) {
+		NormalisedIndex index = new NormalisedIndex(foldAccents);
+		for (Map.Entry<String, List<WordElement>> entry : indexByBase.entrySet()) {
+			for (WordElement word : entry.getValue()) index.add(entry.getKey(), word);
+		}
+		for (Map.Entry<String, List<WordElement>> entry : indexByVariant.entrySet()) {
+			for (WordElement word : entry.getValue()) index.add(entry.getKey(), word);
+		}
+		normalisedIndex = index;
+	}
+
+	/**
+	 * stop looking up words by their normalised form
+	 */
+	public void disableNormalisedLookup() {
+		normalisedIndex = null;
+	}
+
+	/**
+	 * @return the index of the words by normalised form, with its statistics,
+	 *         or null if words aren't looked up by their normalised form
+	 */
+	public NormalisedIndex getNormalisedIndex() {
+		return normalisedIndex;
+	}
+
+	/**
+	 * keep the words created by this lexicon when a word isn't found in a
+	 * cache of bounded size, instead of adding them to the lexicon for good
+	 * (the words created while loading the lexicon are part of it, and a
+	 * frozen lexicon keeps no created words at all)
+	 * 
+	 * @param cache
+	 *            cache of created words, or null to add them to the lexicon
+	 */
+	public void setCreatedWordCache(CreatedWordCache cache) {
+		createdWords = cache;
+	}
+
+	/**
+	 * @return the cache of created words, or null if they are added to the
+	 *         lexicon
+	 */
+	public CreatedWordCache getCreatedWordCache() {
+		return createdWords;
+	}
+
+	/**
+	 * make an index and its lists of words unmodifiable
+	 * 
+	 * @param index
+	 * @return the unmodifiable index
+	 */
+	private static <K> Map<K, List<WordElement>> freezeIndex(
+			Map<K, List<WordElement>> index) {
+		for (Map.Entry<K, List<WordElement>> entry : index.entrySet()) {
+			entry.setValue(Collections.unmodifiableList(entry.getValue()));
+		}
+		return Collections.unmodifiableMap(index);
+	}
+
+	/**
+	 * initialise the indexes of the lexicon, empty
+	 */
+	private void initIndexes() {
+		// words are kept in load order, so that anything derived from this
+		// lexicon (such as a BinaryLexicon snapshot) is deterministic, and
+		// by identity, as equal words may be different entries
+		words = new WordSet();
 		indexByID = new HashMap<String, WordElement>();
 		indexByBase = new HashMap<String, List<WordElement>>();
 		indexByVariant = new HashMap<String, List<WordElement>>();
 		// added by vaudrypl
 		indexByCategory = new EnumMap<LexicalCategory, List<WordElement>>(LexicalCategory.class);
+	}
 
+	/**
+	 * load the lexicon lazily: the words of the file only have their base
+	 * form, category and ID until they are first used
+	 * 
+	 * @param lexiconURI
+	 * @return <code>false</code> if the file couldn't be scanned (nothing
+	 *         has been loaded then)
+	 */
+	private boolean createLazyLexicon(URI lexiconURI) {
+		byte[] bytes;
 		try {
-			DocumentBuilderFactory factory = DocumentBuilderFactory
-					.newInstance();
-			DocumentBuilder builder = factory.newDocumentBuilder();
-			Document doc = builder.parse(lexiconURI.toString());
-
-			if (doc != null) {
-				Element lexRoot = doc.getDocumentElement();
-				NodeList wordNodes = lexRoot.getChildNodes();
-				for (int i = 0; i < wordNodes.getLength(); i++) {
-					Node wordNode = wordNodes.item(i);
-					// ignore things that aren't elements
-					if (wordNode.getNodeType() == Node.ELEMENT_NODE) {
-						WordElement word = convertNodeToWord(wordNode);
-						if (word != null) {
-							words.add(word);
-							IndexWord(word);
-						}
-					}
-				}
+			InputStream input = lexiconURI.toURL().openStream();
+			try {
+				ByteArrayOutputStream content = new ByteArrayOutputStream();
+				byte[] buffer = new byte[8192];
+				int read;
+				while ((read = input.read(buffer)) >= 0) content.write(buffer, 0, read);
+				bytes = content.toByteArray();
+			} finally {
+				input.close();
+			}
+		} catch (Exception ex) {
+			System.out.println(ex.toString());
+			return false;
+		}
+
+		XMLLexiconRecords scanned = XMLLexiconRecords.scan(bytes);
+		if (scanned == null) return false;
+
+		records = scanned;
+		recordFactory = XMLInputFactory.newInstance();
+		recordFactory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+		Map<WordElement, Integer> unread = new IdentityHashMap<WordElement, Integer>();
+		List<WordElement> fileWords = new ArrayList<WordElement>(scanned.size());
+		try {
+			for (int record = 0; record < scanned.size(); record++) {
+				WordElement word = readKeys(record);
+				fileWords.add(word);
+				unread.put(word, record);
 			}
 		} catch (Exception ex) {
 			System.out.println(ex.toString());
+			records = null;
+			recordFactory = null;
+			return false;
+		}
+		unreadWords = unread;
+
+		CRC32 checksum = new CRC32();
+		checksum.update(bytes, 0, bytes.length);
+		indexLazyWords(fileWords, lexiconURI, checksum.getValue());
+		if (unread.isEmpty()) {
+			unreadWords = null;
+			records = null;
+			recordFactory = null;
+		}
+		return true;
+	}
+
+	/**
+	 * index the words of the file loaded lazily, with their variants taken
+	 * from the variant index of the file
+	 * 
+	 * If there is no variant index for the file yet, every word has to be
+	 * read completely to compute the variants: the complete words are
+	 * indexed instead, as when loading the lexicon completely (none is left
+	 * unread), and the variant index is saved for the next time. The variant
+	 * index of lexicons whose variants are not precomputed when loading
+	 * completely (see getVariantRuleClasses()) depends on the code of their
+	 * class.
+	 * 
+	 * @param fileWords
+	 *            words of the lexicon file, in order, with only their base
+	 *            form, category and ID
+	 * @param lexiconURI
+	 * @param lexiconChecksum
+	 */
+	private void indexLazyWords(List<WordElement> fileWords, URI lexiconURI,
+			long lexiconChecksum) {
+		Class<?>[] ruleClasses = getVariantRuleClasses();
+		if (ruleClasses == null) {
+			ruleClasses = new Class<?>[] { getClass(), XMLLexicon.class };
+		}
+		long rulesChecksum = VariantIndex.checksumClasses(ruleClasses);
+
+		VariantIndex variantIndex = rulesChecksum == 0 ? null : VariantIndex.find(
+				lexiconURI, lexiconChecksum, rulesChecksum);
+		if (variantIndex != null
+				&& variantIndex.getEntries().size() == fileWords.size()) {
+			for (VariantIndex.Entry entry : variantIndex.getEntries()) {
+				IndexWord(entry, fileWords);
+			}
+			return;
+		}
+
+		List<WordElement> completeWords = new ArrayList<WordElement>(fileWords.size());
+		for (int record = 0; record < fileWords.size(); record++) {
+			completeWords.add(readCompleteWord(record, fileWords.get(record)));
+		}
+		unreadWords.clear();
+		variantRecorder = new VariantIndex.Recorder();
+		try {
+			indexFileWords(completeWords, null);
+			if (rulesChecksum != 0) {
+				new VariantIndex(lexiconChecksum, rulesChecksum,
+						variantRecorder.getEntries()).save(lexiconURI);
+			}
+		} finally {
+			variantRecorder = null;
 		}
 	}
 
 	/**
-	 * create a simplenlg WordElement from a Word node in a lexicon XML file
+	 * create a word of the file loaded lazily, with only its base form,
+	 * category and ID
 	 * 
-	 * @param wordNode
+	 * @param record
 	 * @return
-	 * @throws XPathUtilException
-	 *
-	 * access level modifier changed by Pierre-Luc Vaudry from private
-	 * to protected to allow overriding in subclass
-	 */ 
-	/*private*/ protected WordElement convertNodeToWord(Node wordNode) {
-		// if this isn't a Word node, ignore it
-		if (!wordNode.getNodeName().equalsIgnoreCase(XML_WORD))
-			return null;		
-
-		// // if there is no base, flag an error and return null
-		// String base = XPathUtil.extractValue(wordNode, Constants.XML_BASE);
-		// if (base == null) {
-		// System.out.println("Error in loading XML lexicon: Word with no base");
-		// return null;
-		// }
+	 * @throws XMLStreamException
+	 */
+	private WordElement readKeys(int record) throws XMLStreamException {
+		String[] keys = records.readKeys(record);
+		if (keys == null) {
+			// the scanner can't read them: parse the word
+			WordElement word = readRecord(record);
+			return new WordElement(word.getBaseForm(),
+					(LexicalCategory) word.getCategory(), word.getId(), this);
+		}
 
-		// create word
 		WordElement word = new WordElement(this);
-		List<String> inflections = new ArrayList<String>();
-		
-		// now copy features
-		NodeList nodes = wordNode.getChildNodes();
-		for (int i = 0; i < nodes.getLength(); i++) {
-			Node featureNode = nodes.item(i);
+		if (keys[0] != null) word.setBaseForm(keys[0]);
+		if (keys[1] != null)
+			word.setCategory(LexicalCategory.valueOf(keys[1].toUpperCase()));
+		if (keys[2] != null) word.setId(keys[2]);
+		return word;
+	}
 
-			if (featureNode.getNodeType() == Node.ELEMENT_NODE) {
-				String feature = featureNode.getNodeName().trim();
-				String value = featureNode.getTextContent();
+	/**
+	 * parse a word of the file loaded lazily
+	 * 
+	 * @param record
+	 * @return the word, before {@link #convertFeatureValues(WordElement)}
+	 * @throws XMLStreamException
+	 */
+	private WordElement readRecord(int record) throws XMLStreamException {
+		XMLStreamReader reader = recordFactory.createXMLStreamReader(records.open(record));
+		try {
+			while (reader.next() != XMLStreamConstants.START_ELEMENT);
+			return readWord(reader);
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * parse the whole file loaded lazily, for a word which can't be parsed
+	 * on its own
+	 * 
+	 * @param record
+	 * @return the word, before {@link #convertFeatureValues(WordElement)}
+	 * @throws IllegalStateException
+	 *             if the file can't be parsed either
+	 */
+	private WordElement readRecordFromFile(int record) {
+		List<WordElement> fileWords = new ArrayList<WordElement>();
+		try {
+			XMLStreamReader reader = recordFactory.createXMLStreamReader(records.openFile());
+			try {
+				readLexicon(reader, fileWords);
+			} finally {
+				reader.close();
+			}
+		} catch (XMLStreamException ex) {
+			throw new IllegalStateException("could not read word " + record
+					+ " of the lexicon: " + ex, ex);
+		}
+		if (record >= fileWords.size())
+			throw new IllegalStateException("could not find word " + record
+					+ " of the lexicon");
+		return fileWords.get(record);
+	}
+
+	/**
+	 * @param record
+	 * @param keys
+	 *            the word with only its base form, category and ID
+	 * @return a new word with all the features of the word of the file loaded
+	 *         lazily, converted by convertFeatureValues() (or only the keys
+	 *         if it ignores the word)
+	 * @throws IllegalStateException
+	 *             if the word can't be read
+	 */
+	private WordElement readCompleteWord(int record, WordElement keys) {
+		WordElement word;
+		try {
+			word = readRecord(record);
+		} catch (XMLStreamException ex) {
+			// it may depend on the rest of the file (a namespace declared
+			// by the root element, say)
+			word = readRecordFromFile(record);
+		}
+		word = convertFeatureValues(word);
+		if (word == null) {
+			word = new WordElement(keys.getBaseForm(),
+					(LexicalCategory) keys.getCategory(), keys.getId(), this);
+		}
+		return word;
+	}
+
+	/**
+	 * read the features of the words of the file loaded lazily which haven't
+	 * been read yet, so that they are complete
+	 * 
+	 * @param words
+	 * @return the same words
+	 */
+	private <T extends Collection<WordElement>> T readFeatures(T words) {
+		Map<WordElement, Integer> unread = unreadWords;
+		if (unread == null) return words;
+		synchronized (unread) {
+			for (WordElement word : words) {
+				Integer record = unread.remove(word);
+				if (record != null) {
+					WordElement complete = readCompleteWord(record, word);
+					for (String feature : complete.getAllFeatureNames()) {
+						word.setFeature(feature, complete.getFeature(feature));
+					}
+				}
+			}
+			if (unread.isEmpty()) {
+				// all read: the file isn't needed anymore
+				unreadWords = null;
+				records = null;
+				recordFactory = null;
+			}
+		}
+		return words;
+	}
+
+	/**
+	 * read the features of all the words of the file loaded lazily
+	 */
+	private void readAllFeatures() {
+		Map<WordElement, Integer> unread = unreadWords;
+		if (unread == null) return;
+		synchronized (unread) {
+			readFeatures(new ArrayList<WordElement>(unread.keySet()));
+		}
+	}
 
-				if (value != null)
-					value = value.trim();
+	/**
+	 * read all the words under the root element of a lexicon XML file
+	 * 
+	 * @param reader
+	 *            positioned at the start of the document
+	 * @param fileWords
+	 *            list to which the words are added
+	 * @throws XMLStreamException
+	 */
+	private void readLexicon(XMLStreamReader reader, List<WordElement> fileWords)
+			throws XMLStreamException {
+		// go to the root element
+		while (reader.hasNext() && reader.next() != XMLStreamConstants.START_ELEMENT);
 
-				if (feature == null) {
-					System.out.println("Error in XML lexicon node for "
-							+ word.toString());
-					break;
+		while (reader.hasNext()) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				// ignore elements that aren't words
+				if (reader.getLocalName().equalsIgnoreCase(XML_WORD)) {
+					WordElement word = readWord(reader);
+					if (word != null) fileWords.add(word);
+				} else {
+					skipElement(reader);
 				}
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				// end of the root element
+				break;
+			}
+		}
+	}
+
+	/**
+	 * add the words read from the lexicon file to the lexicon and index them
+	 * 
+	 * If this lexicon has variant rules (see getVariantRuleClasses()), the
+	 * variants are taken from a variant index computed before for the same
+	 * lexicon file and rules, if there is one. Otherwise they are computed,
+	 * and the variant index is saved for the next time (if there is a
+	 * variant index directory, see {@link VariantIndex}).
+	 * 
+	 * @param fileWords
+	 *            words of the lexicon file, in order
+	 * @param lexiconURI
+	 * @param lexiconChecksum
+	 *            checksum of the lexicon file, or null if it couldn't be read
+	 *            completely
+	 * @param loader
+	 *            loader computing the variants in parallel, or null
+	 */
+	private void indexWords(List<WordElement> fileWords, URI lexiconURI,
+			Long lexiconChecksum, ParallelLexiconLoader loader) {
+		Class<?>[] ruleClasses = getVariantRuleClasses();
+		long rulesChecksum = ruleClasses == null ? 0 : VariantIndex.checksumClasses(ruleClasses);
+
+		if (ruleClasses == null || lexiconChecksum == null || rulesChecksum == 0) {
+			// variants computed each time
+			indexFileWords(fileWords, loader);
+			return;
+		}
+
+		VariantIndex variantIndex = VariantIndex.find(lexiconURI,
+				lexiconChecksum, rulesChecksum);
+		if (variantIndex != null
+				&& variantIndex.getEntries().size() == fileWords.size()) {
+			for (VariantIndex.Entry entry : variantIndex.getEntries()) {
+				IndexWord(entry, fileWords);
+			}
+		} else {
+			variantRecorder = new VariantIndex.Recorder();
+			try {
+				indexFileWords(fileWords, loader);
+				new VariantIndex(lexiconChecksum, rulesChecksum,
+						variantRecorder.getEntries()).save(lexiconURI);
+			} finally {
+				variantRecorder = null;
+			}
+		}
+	}
+
+	/**
+	 * apply convertFeatureValues() to the words read from the lexicon file
+	 * 
+	 * @param fileWords
+	 * @return converted words, in the same order
+	 */
+	private List<WordElement> convertWords(List<WordElement> fileWords) {
+		List<WordElement> result = new ArrayList<WordElement>(fileWords.size());
+		for (WordElement word : fileWords) {
+			WordElement converted = convertFeatureValues(word);
+			if (converted != null) result.add(converted);
+		}
+		return result;
+	}
+
+	/**
+	 * add the words read from the lexicon file to the lexicon and index
+	 * them, computing their variants, in the order of the file
+	 * 
+	 * @param fileWords
+	 *            words of the lexicon file, in order
+	 * @param loader
+	 *            loader computing in parallel the variants of the words
+	 *            which can be computed without looking words up, or null
+	 *            (see {@link ParallelLexiconLoader#computeVariants(List)})
+	 */
+	private void indexFileWords(List<WordElement> fileWords,
+			ParallelLexiconLoader loader) {
+		List<Set<String>> computed = loader == null ? null : loader.computeVariants(fileWords);
+		for (int i = 0; i < fileWords.size(); i++) {
+			WordElement word = fileWords.get(i);
+			words.add(word);
+			IndexWord(word, computed == null ? null : computed.get(i));
+		}
+	}
+
+	/**
+	 * Classes whose code computes the variants of words (see getVariants()),
+	 * used to detect when a saved variant index is stale (their superclasses
+	 * are taken into account as well). Subclasses for
+	 * languages whose variants are computed by their morphology override
+	 * this so that their variants are precomputed.
+	 * 
+	 * @return the classes, or null if the variants are not worth precomputing
+	 */
+	protected Class<?>[] getVariantRuleClasses() {
+		return null;
+	}
+
+	/**
+	 * create a simplenlg WordElement from a Word element in a lexicon XML file
+	 * 
+	 * @param reader
+	 *            positioned on the start of the Word element, and left on its
+	 *            end
+	 * @return the word, before {@link #convertFeatureValues(WordElement)}
+	 * @throws XMLStreamException
+	 */
+	private WordElement readWord(XMLStreamReader reader) throws XMLStreamException {
+		// create word
+		WordElement word = new WordElement(this);
+		List<String> inflections = new ArrayList<String>();
+
+		// now copy features
+		while (reader.hasNext()) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.END_ELEMENT) {
+				break;
+			} else if (event == XMLStreamConstants.START_ELEMENT) {
+				String feature = reader.getLocalName().trim();
+				String value = readText(reader).trim();
 
 				if (feature.equalsIgnoreCase(XML_BASE)) {
 					word.setBaseForm(value);
@@ -331,7 +1276,7 @@ public class XMLLexicon extends Lexicon {
 							.toUpperCase()));
 				else if (feature.equalsIgnoreCase(XML_ID))
 					word.setId(value);
-				else if (value == null || value.equals("")) {
+				else if (value.equals("")) {
 					if (INFL_CODES.contains(feature)) {
 						// if this is an infl code, add it to inflections
 						inflections.add(feature);
@@ -342,9 +1287,8 @@ public class XMLLexicon extends Lexicon {
 				} else
 					word.setFeature(feature, value);
 			}
-
 		}
-		
+
 		//if no infl specified, assume regular
 		if(inflections.isEmpty()) {
 			inflections.add("reg");
@@ -360,12 +1304,136 @@ public class XMLLexicon extends Lexicon {
 		return word;
 	}
 
+	/**
+	 * Called on each word read from the XML file, when all its feature values
+	 * are still strings. Subclasses override this to convert the values of
+	 * some features to the types expected by their language (Gender, Person,
+	 * etc.). This replaces overriding convertNodeToWord(Node), as the lexicon
+	 * is no longer loaded in a DOM.
+	 * 
+	 * @param word
+	 *            the word read from the XML file
+	 * @return the word to add to the lexicon, or null to ignore it
+	 */
+	protected WordElement convertFeatureValues(WordElement word) {
+		return word;
+	}
+
+	/**
+	 * get all the text inside the current element, including the text of
+	 * nested elements (like org.w3c.dom.Node.getTextContent())
+	 * 
+	 * @param reader
+	 *            positioned on the start of an element, and left on its end
+	 * @return
+	 * @throws XMLStreamException
+	 */
+	private static String readText(XMLStreamReader reader) throws XMLStreamException {
+		StringBuilder text = new StringBuilder();
+		int depth = 1;
+		while (depth > 0 && reader.hasNext()) {
+			switch (reader.next()) {
+			case XMLStreamConstants.START_ELEMENT:
+				depth++;
+				break;
+			case XMLStreamConstants.END_ELEMENT:
+				depth--;
+				break;
+			case XMLStreamConstants.CHARACTERS:
+			case XMLStreamConstants.CDATA:
+			case XMLStreamConstants.SPACE:
+				text.append(reader.getText());
+				break;
+			}
+		}
+		return text.toString();
+	}
+
+	/**
+	 * skip the current element and everything inside it
+	 * 
+	 * @param reader
+	 *            positioned on the start of an element, and left on its end
+	 * @throws XMLStreamException
+	 */
+	private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+		readText(reader);
+	}
+
 	/**
 	 * add word to internal indices
 	 * 
 	 * @param word
 	 */
 	private void IndexWord(WordElement word) {
+		IndexWord(word, null);
+	}
+
+	/**
+	 * add word to internal indices
+	 * 
+	 * @param word
+	 * @param computed
+	 *            variants of the word computed beforehand, or null to compute
+	 *            them now
+	 */
+	private void IndexWord(WordElement word, Set<String> computed) {
+		indexBaseAndID(word);
+
+		// now index by variant
+		Set<String> variants;
+		if (variantRecorder != null) {
+			// record the variants, and the words created while computing them
+			VariantIndex.Entry entry = variantRecorder.start(word);
+			variants = computed != null ? computed : getVariants(word);
+			variantRecorder.end(entry, variants);
+		} else {
+			variants = computed != null ? computed : getVariants(word);
+		}
+		for (String variant : variants) {
+			updateIndex(word, variant, indexByVariant);
+		}
+
+		indexCategory(word);
+	}
+
+	/**
+	 * add word to internal indices, with its variants taken from a variant
+	 * index instead of being computed
+	 * 
+	 * @param entry
+	 * @param fileWords
+	 *            words of the lexicon file, in order
+	 */
+	private void IndexWord(VariantIndex.Entry entry, List<WordElement> fileWords) {
+		WordElement word;
+		if (entry.isFileWord()) {
+			word = fileWords.get(entry.ordinal);
+		} else {
+			// word created by a lookup while computing variants
+			word = new WordElement(entry.baseForm, entry.category, this);
+		}
+		words.add(word);
+		indexBaseAndID(word);
+
+		for (VariantIndex.Entry created : entry.created) {
+			IndexWord(created, fileWords);
+		}
+		for (String variant : entry.variants) {
+			// most words have their base form as a variant: share the string
+			if (variant.equals(word.getBaseForm())) variant = word.getBaseForm();
+			updateIndex(word, variant, indexByVariant);
+		}
+
+		indexCategory(word);
+	}
+
+	/**
+	 * add word to the indices by base form and by ID
+	 * 
+	 * @param word
+	 */
+	private void indexBaseAndID(WordElement word) {
 		// first index by base form
 		String base = word.getBaseForm();
 		// shouldn't really need is, as all words have base forms
@@ -381,19 +1449,21 @@ public class XMLLexicon extends Lexicon {
 						+ " occurs more than once");
 			indexByID.put(id, word);
 		}
+	}
 
-		// now index by variant
-		for (String variant : getVariants(word)) {
-			updateIndex(word, variant, indexByVariant);
-		}
-
+	/**
+	 * add word to the index by category
+	 * 
+	 * @param word
+	 */
+	private void indexCategory(WordElement word) {
 		// added by vaudrypl
 		// now index by category
 		LexicalCategory category = (LexicalCategory) word.getCategory();
 		// shouldn't really need is, as all words have category
 		if (category != null) {
 			if (!indexByCategory.containsKey(category)) {
-				indexByCategory.put(category, new ArrayList<WordElement>());
+				indexByCategory.put(category, new WordList());
 			}
 			indexByCategory.get(category).add(word);
 		}
@@ -423,13 +1493,17 @@ public class XMLLexicon extends Lexicon {
 	 */
 	protected /*private*/ void updateIndex(WordElement word, String base,
 			Map<String, List<WordElement>> index) {
-		if (!index.containsKey(base))
-			index.put(base, new ArrayList<WordElement>());
-		index.get(base).add(word);
+		List<WordElement> words = index.get(base);
+		if (words == null) {
+			words = new IndexedWords();
+			index.put(base, words);
+		}
+		((IndexedWords) words).addWord(word);
 	}
 
 	/**
-	 * creates a default WordElement and adds it to the lexicon
+	 * creates a default WordElement and adds it to the lexicon (or to the
+	 * cache of created words, unless the lexicon is frozen)
 	 * 
 	 * @param baseForm
 	 *            - base form of word
@@ -441,6 +1515,14 @@ public class XMLLexicon extends Lexicon {
 	@Override
 	protected WordElement createWord(String baseForm, LexicalCategory category) {
 		WordElement newWord = super.createWord(baseForm, category);
+		// a frozen lexicon is never modified: the word isn't added to it
+		if (frozen) return newWord;
+		if (createdWords != null) {
+			// found by its base form while computing its variants, as below
+			createdWords.add(newWord);
+			createdWords.addVariants(newWord, getVariants(newWord));
+			return newWord;
+		}
 		words.add(newWord);
 		IndexWord(newWord);
 		return newWord; // return default
@@ -449,7 +1531,8 @@ public class XMLLexicon extends Lexicon {
 	}
 
 	/**
-	 * creates a default WordElement and adds it to the lexicon
+	 * creates a default WordElement and adds it to the lexicon (or to the
+	 * cache of created words, unless the lexicon is frozen)
 	 * 
 	 * @param baseForm
 	 *            - base form of word
@@ -459,25 +1542,101 @@ public class XMLLexicon extends Lexicon {
 	@Override
 	protected WordElement createWord(String baseForm) {
 		WordElement newWord = super.createWord(baseForm);
+		// a frozen lexicon is never modified: the word isn't added to it
+		if (frozen) return newWord;
+		if (createdWords != null) {
+			// found by its base form while computing its variants, as below
+			createdWords.add(newWord);
+			createdWords.addVariants(newWord, getVariants(newWord));
+			return newWord;
+		}
 		words.add(newWord);
 		IndexWord(newWord);
 		return newWord;  // return default WordElement of this
 		// baseForm
 	}
 
+	/**
+	 * @return all words of this lexicon, in the order in which they were
+	 *         added (used by {@link BinaryLexicon} to write snapshots)
+	 */
+	Collection<WordElement> getAllWords() {
+		readAllFeatures();
+		return words;
+	}
+
+	/**
+	 * @return the index from base forms to words
+	 */
+	Map<String, List<WordElement>> getBaseIndex() {
+		readAllFeatures();
+		return indexByBase;
+	}
+
+	/**
+	 * @return the index from variants to words
+	 */
+	Map<String, List<WordElement>> getVariantIndex() {
+		readAllFeatures();
+		return indexByVariant;
+	}
+
+	/**
+	 * @return the index from IDs to words
+	 */
+	Map<String, WordElement> getIDIndex() {
+		readAllFeatures();
+		return indexByID;
+	}
+
+	/**
+	 * @return the index from categories to words
+	 */
+	Map<LexicalCategory, List<WordElement>> getCategoryIndex() {
+		readAllFeatures();
+		return indexByCategory;
+	}
+
 	/******************************************************************************************/
 	// main methods to get data from lexicon
 	/******************************************************************************************/
 
-	/*
-	 * (non-Javadoc)
+	/**
+	 * get the words with a base form and category, in the order of the
+	 * lexicon file
 	 * 
-	 * @see simplenlg.lexicon.Lexicon#getWords(java.lang.String,
-	 * simplenlg.features.LexicalCategory)
+	 * Unless created words are found too (see setCreatedWordCache()), the
+	 * list is the one kept by the index for the base form and category: it
+	 * is unmodifiable, shared by all the lookups, and not copied, so it is a
+	 * live view which follows the changes made by applyDelta() (the lexicon
+	 * mustn't be used by other threads while they are made). Copy it to keep
+	 * the words found at the time of the lookup.
+	 * 
+	 * @param baseForm
+	 * @param category
+	 *            category of the words (ANY for all of them)
+	 * @return the words (unmodifiable, possibly empty)
 	 */
 	@Override
 	public List<WordElement> getWords(String baseForm, LexicalCategory category) {
-		return getWordsFromIndex(baseForm, category, indexByBase);
+		List<WordElement> result = readFeatures(getWordsFromIndex(baseForm, category, indexByBase));
+		CreatedWordCache cache = createdWords;
+		if (cache == null) return result;
+		return CreatedWordCache.merge(result, cache.getWords(baseForm, category));
+	}
+
+	/**
+	 * get the words of this lexicon with a base form, as getWords() but
+	 * without the created words (see setCreatedWordCache()), for subclasses
+	 * deriving data from the words of the lexicon while it is loaded
+	 * 
+	 * @param baseForm
+	 * @param category
+	 * @return the words of the lexicon (unmodifiable)
+	 */
+	protected final List<WordElement> getIndexedWords(String baseForm,
+			LexicalCategory category) {
+		return readFeatures(getWordsFromIndex(baseForm, category, indexByBase));
 	}
 
 	/**
@@ -486,27 +1645,19 @@ public class XMLLexicon extends Lexicon {
 	 * @param indexKey
 	 * @param category
 	 * @param indexMap
-	 * @return
+	 * @return the words of the index with this key and category, as kept by
+	 *         the index (unmodifiable, and shared by all lookups)
 	 */
 	private List<WordElement> getWordsFromIndex(String indexKey,
 			LexicalCategory category, Map<String, List<WordElement>> indexMap) {
-		List<WordElement> result = new ArrayList<WordElement>();
+		List<WordElement> words = indexMap.get(indexKey);
 
 		// case 1: unknown, return empty list
-		if (!indexMap.containsKey(indexKey))
-			return result;
+		if (words == null)
+			return Collections.emptyList();
 
-		// case 2: category is ANY, return everything
-		if (category == LexicalCategory.ANY)
-			return indexMap.get(indexKey);
-
-		// case 3: other category, search for match
-		else
-			for (WordElement word : indexMap.get(indexKey))
-				if (word.getCategory() == category)
-					result.add(word);
-
-		return result;
+		// case 2: words with this category (or everything if ANY)
+		return ((IndexedWords) words).get(category);
 	}
 
 	/*
@@ -516,22 +1667,71 @@ public class XMLLexicon extends Lexicon {
 	 */
 	@Override
 	public List<WordElement> getWordsByID(String id) {
-		List<WordElement> result = new ArrayList<WordElement>();
-		if (indexByID.containsKey(id))
-			result.add(indexByID.get(id));
-		return result;
+		WordElement word = indexByID.get(id);
+		if (word == null) return Collections.emptyList();
+		return readFeatures(Collections.singletonList(word));
+	}
+
+	/**
+	 * get the words with a variant and category, in the order of the lexicon
+	 * file
+	 * 
+	 * As for getWords(), the list is a live view kept by the index, unless
+	 * created words are found too: it is unmodifiable and follows the changes
+	 * made by applyDelta().
+	 * 
+	 * @param variant
+	 * @param category
+	 *            category of the words (ANY for all of them)
+	 * @return the words (unmodifiable, possibly empty)
+	 */
+	@Override
+	public List<WordElement> getWordsFromVariant(String variant,
+			LexicalCategory category) {
+		List<WordElement> result = readFeatures(getWordsFromIndex(variant, category, indexByVariant));
+		CreatedWordCache cache = createdWords;
+		if (cache == null) return result;
+		return CreatedWordCache.merge(result, cache.getWordsFromVariant(variant, category));
 	}
 
 	/*
 	 * (non-Javadoc)
 	 * 
-	 * @see simplenlg.lexicon.Lexicon#getWordsFromVariant(java.lang.String,
-	 * simplenlg.features.LexicalCategory)
+	 * @see simplenlg.lexicon.Lexicon#getWordsFromNormalisedForm(java.lang.String,
+	 * simplenlg.framework.LexicalCategory)
 	 */
 	@Override
-	public List<WordElement> getWordsFromVariant(String variant,
+	protected List<WordElement> getWordsFromNormalisedForm(String form,
 			LexicalCategory category) {
-		return getWordsFromIndex(variant, category, indexByVariant);
+		NormalisedIndex index = normalisedIndex;
+		if (index == null || form == null) return Collections.emptyList();
+		return readFeatures(index.getWords(form, category));
+	}
+
+	/**
+	 * get the index of the features of the words of a category, created at
+	 * the first lookup by features, and completed with the words added to
+	 * the category since (the changes of delta files are made to the index
+	 * as they are applied)
+	 * 
+	 * @param category
+	 * @param collection
+	 *            words of the category (all the words for ANY)
+	 * @return the feature index of the words
+	 */
+	private FeatureIndex getFeatureIndex(LexicalCategory category,
+			Collection<WordElement> collection) {
+		FeatureIndex index = indexByFeature.get(category);
+		if (index != null && index.size() == collection.size()) return index;
+		synchronized (indexByFeature) {
+			index = indexByFeature.get(category);
+			if (index == null) index = new FeatureIndex();
+			for (WordElement word : readFeatures(collection)) {
+				if (!index.contains(word)) index.add(word);
+			}
+			indexByFeature.put(category, index);
+		}
+		return index;
 	}
 
 	/**
@@ -539,6 +1739,9 @@ public class XMLLexicon extends Lexicon {
 	 * provided. If some of the features provided have a value of null or Boolean.FALSE,
 	 * This method will also include words who don't have those features at all.
 	 * This allows default values for features not determined by the word. 
+	 * The words are found with an inverted index of their features (see
+	 * {@link FeatureIndex}), so the features of the words of the lexicon
+	 * shouldn't be changed once they are looked up by features.
 	 * 
 	 * @param category	category of the returned WordElement
 	 * @param features	features and their corrsponding values that
@@ -552,8 +1755,6 @@ public class XMLLexicon extends Lexicon {
 			Map<String, Object> features) {
 		List<WordElement> result = new ArrayList<WordElement>();
 		Collection<WordElement> collection = null;
-		Iterator<WordElement> iterator = null;
-
 		if (category == LexicalCategory.ANY) {
 			// use the whole lexicon
 			collection = words;
@@ -561,40 +1762,18 @@ public class XMLLexicon extends Lexicon {
 			collection = indexByCategory.get(category);
 		}
 		
-		if (collection != null) iterator = collection.iterator();
-		
 		// if the index by category doesn't contain the category wanted,
 		// skip this part and return an empty list
-		if (iterator != null) {
+		if (collection != null) {
 			if (features == null) {
-				result.addAll(collection);
-			}else {
-				// must convert map to set to use contains()
-				Set<Map.Entry<String, Object>> featuresToCheck = features.entrySet();
-				while (iterator.hasNext()) {
-					WordElement currentWord = iterator.next();
-					Map<String, Object> currentFeaturesMap = currentWord.getAllFeatures();
-					Set<Map.Entry<String, Object>> currentFeaturesSet = currentFeaturesMap.entrySet();
-	
-	/*				Doesn't add a word to the list if the following is not true for
-					at least one feature received as argument :
-					The word has this feature and its corresponding value OR
-					The value of this feature is null or Boolean.FALSE and the word
-					doesn't have this feature at all.
-	*/				boolean addWord = true;
-					for (Map.Entry<String, Object> entry : featuresToCheck) {
-						if ( !( currentFeaturesSet.contains( entry ) || 
-							((entry.getValue() == null || entry.getValue() == Boolean.FALSE)
-									&& !currentFeaturesMap.containsKey(entry.getKey())) ) ) {
-							addWord = false;
-							break;
-						}
-					}
-					if (addWord) result.add(currentWord);
-				}
+				result.addAll(readFeatures(collection));
+			} else {
+				result.addAll(getFeatureIndex(category, collection).getWords(features));
 			}
 		}
 
+		CreatedWordCache cache = createdWords;
+		if (cache != null) result.addAll(cache.getWords(category, features));
 		return result;
 	}
 }
\ No newline at end of file
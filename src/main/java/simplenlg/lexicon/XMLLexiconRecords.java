@@ -0,0 +1,359 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is "Simplenlg".
+ *
+ * The Initial Developer of the Original Code is Ehud Reiter, Albert Gatt and Dave Westwater.
+ * Portions created by Ehud Reiter, Albert Gatt and Dave Westwater are Copyright (C) 2010-11 The University of Aberdeen. All Rights Reserved.
+ *
+ * Contributor(s): Ehud Reiter, Albert Gatt, Dave Wewstwater, Roman Kutlak, Margaret Mitchell, Pierre-Luc Vaudry.
+ */
+package simplenlg.lexicon;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * The word records of a lexicon XML file, for loading an {@link XMLLexicon}
+ * lazily. The file is kept as it is, in UTF-8, with the position of each Word
+ * element in it. Scanning the file only finds where the words are, and
+ * readKeys() only reads the base form, category and ID of a word, so that the
+ * rest of a word is parsed when it is first used.
+ *
+ * The scanner understands what the lexicon files contain (elements without
+ * attributes that matter, text, comments). It gives up on anything else, in
+ * which case the lexicon is parsed as usual.
+ */
+final class XMLLexiconRecords {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	// node names in lexicon XML files
+	private static final String XML_BASE = "base";
+	private static final String XML_CATEGORY = "category";
+	private static final String XML_ID = "id";
+	private static final String XML_WORD = "word";
+
+	// the lexicon file
+	private final byte[] bytes;
+
+	// start and end of each Word element in the file
+	private int[] positions = new int[512];
+	private int size = 0;
+
+	private XMLLexiconRecords(byte[] bytes) {
+		this.bytes = bytes;
+	}
+
+	/**
+	 * find the Word elements of a lexicon XML file (the children of the root
+	 * element named "word", whatever the case)
+	 *
+	 * @param bytes
+	 *            content of the file
+	 * @return the records, or null if the file is not in UTF-8 or contains
+	 *         markup this scanner doesn't handle
+	 */
+	static XMLLexiconRecords scan(byte[] bytes) {
+		if (!isUTF8(bytes)) return null;
+
+		XMLLexiconRecords records = new XMLLexiconRecords(bytes);
+		int depth = 0;
+		int i = indexOf(bytes, '<', 0, bytes.length);
+		while (i >= 0) {
+			int markupEnd = skipMarkup(bytes, i, bytes.length);
+			if (markupEnd == 0) return null;
+			if (markupEnd < 0) {
+				// a tag
+				int tagEnd = indexOf(bytes, '>', i, bytes.length);
+				if (tagEnd < 0) return null;
+				if (bytes[i + 1] == '/') {
+					depth--;
+					// end of the root element
+					if (depth == 0) return records;
+					markupEnd = tagEnd + 1;
+				} else {
+					boolean empty = bytes[tagEnd - 1] == '/';
+					if (depth == 1 && isTagName(bytes, i, tagEnd, XML_WORD)) {
+						int recordEnd = empty ? tagEnd + 1 : findEnd(bytes, tagEnd + 1);
+						if (recordEnd < 0) return null;
+						records.add(i, recordEnd);
+						markupEnd = recordEnd;
+					} else {
+						if (!empty) depth++;
+						markupEnd = tagEnd + 1;
+					}
+				}
+			}
+			i = indexOf(bytes, '<', markupEnd, bytes.length);
+		}
+		// the root element isn't closed
+		return depth == 0 ? records : null;
+	}
+
+	/**
+	 * @return the number of Word elements
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * @param record
+	 * @return the Word element as an XML document in UTF-8
+	 */
+	InputStream open(int record) {
+		int start = positions[2 * record];
+		return new ByteArrayInputStream(bytes, start, positions[2 * record + 1] - start);
+	}
+
+	/**
+	 * @return the whole file, in UTF-8
+	 */
+	InputStream openFile() {
+		return new ByteArrayInputStream(bytes);
+	}
+
+	/**
+	 * read the base form, category and ID of a word, as readWord() in
+	 * {@link XMLLexicon} would (the last value of each wins, trimmed)
+	 *
+	 * @param record
+	 * @return the base form, category and ID (null if absent), or null if
+	 *         the Word element has to be parsed to read them
+	 */
+	String[] readKeys(int record) {
+		String[] keys = new String[3];
+		int end = positions[2 * record + 1];
+		int tagEnd = indexOf(bytes, '>', positions[2 * record], end);
+		// <word/>
+		if (bytes[tagEnd - 1] == '/') return keys;
+
+		int i = indexOf(bytes, '<', tagEnd + 1, end);
+		while (i >= 0) {
+			int markupEnd = skipMarkup(bytes, i, end);
+			if (markupEnd >= 0) {
+				// comments are ignored, not CDATA sections
+				if (markupEnd == 0 || !startsWith(bytes, i, "<!--")) return null;
+				i = indexOf(bytes, '<', markupEnd, end);
+				continue;
+			}
+			if (bytes[i + 1] == '/') break; // </word>
+
+			tagEnd = indexOf(bytes, '>', i, end);
+			int key = isTagName(bytes, i, tagEnd, XML_BASE) ? 0
+					: isTagName(bytes, i, tagEnd, XML_CATEGORY) ? 1
+					: isTagName(bytes, i, tagEnd, XML_ID) ? 2 : -1;
+			int next;
+			if (bytes[tagEnd - 1] == '/') {
+				if (key >= 0) keys[key] = "";
+				next = tagEnd + 1;
+			} else {
+				// the text must be followed by the end of the feature
+				int textEnd = indexOf(bytes, '<', tagEnd + 1, end);
+				if (textEnd < 0 || bytes[textEnd + 1] != '/') return null;
+				if (key >= 0) {
+					String text = decode(bytes, tagEnd + 1, textEnd);
+					if (text == null) return null;
+					keys[key] = text.trim();
+				}
+				next = indexOf(bytes, '>', textEnd, end) + 1;
+			}
+			i = indexOf(bytes, '<', next, end);
+		}
+		return keys;
+	}
+
+	private void add(int start, int end) {
+		if (2 * size == positions.length) {
+			positions = Arrays.copyOf(positions, 2 * positions.length);
+		}
+		positions[2 * size] = start;
+		positions[2 * size + 1] = end;
+		size++;
+	}
+
+	/**
+	 * @param bytes
+	 * @return <code>true</code> if the file is in UTF-8 (the default if the
+	 *         XML declaration doesn't give an encoding)
+	 */
+	private static boolean isUTF8(byte[] bytes) {
+		int start = 0;
+		if (bytes.length >= 3 && (bytes[0] & 0xFF) == 0xEF
+				&& (bytes[1] & 0xFF) == 0xBB && (bytes[2] & 0xFF) == 0xBF) {
+			start = 3;
+		} else if (bytes.length >= 2 && (bytes[0] == 0 || bytes[1] == 0
+				|| (bytes[0] & 0xFF) >= 0xFE)) {
+			// UTF-16 or UTF-32
+			return false;
+		}
+		if (!startsWith(bytes, start, "<?xml")) return true;
+
+		int end = indexOf(bytes, '>', start, bytes.length);
+		if (end < 0) return false;
+		String declaration = new String(bytes, start, end - start, UTF8);
+		int encoding = declaration.indexOf("encoding");
+		if (encoding < 0) return true;
+		String value = declaration.substring(encoding + "encoding".length())
+				.replaceAll("^\\s*=\\s*[\"']([^\"']*)[\"'].*$", "$1");
+		return value.equalsIgnoreCase("UTF-8") || value.equalsIgnoreCase("UTF8");
+	}
+
+	/**
+	 * @param bytes
+	 * @param i
+	 *            position of a '<'
+	 * @param end
+	 * @return the position after the comment, processing instruction, CDATA
+	 *         section or declaration starting at i, -1 if i is the start of
+	 *         a tag, or 0 if it isn't terminated
+	 */
+	private static int skipMarkup(byte[] bytes, int i, int end) {
+		int found;
+		if (startsWith(bytes, i, "<!--")) {
+			found = indexOf(bytes, "-->", i + 4, end);
+			return found < 0 ? 0 : found + 3;
+		} else if (startsWith(bytes, i, "<![CDATA[")) {
+			found = indexOf(bytes, "]]>", i + 9, end);
+			return found < 0 ? 0 : found + 3;
+		} else if (startsWith(bytes, i, "<?")) {
+			found = indexOf(bytes, "?>", i + 2, end);
+			return found < 0 ? 0 : found + 2;
+		} else if (startsWith(bytes, i, "<!")) {
+			found = indexOf(bytes, '>', i + 2, end);
+			return found < 0 ? 0 : found + 1;
+		}
+		return -1;
+	}
+
+	/**
+	 * @param bytes
+	 * @param from
+	 *            position after the start tag of an element
+	 * @return the position after the end tag of the element, or -1
+	 */
+	private static int findEnd(byte[] bytes, int from) {
+		int depth = 1;
+		int i = indexOf(bytes, '<', from, bytes.length);
+		while (i >= 0) {
+			int markupEnd = skipMarkup(bytes, i, bytes.length);
+			if (markupEnd == 0) return -1;
+			if (markupEnd < 0) {
+				int tagEnd = indexOf(bytes, '>', i, bytes.length);
+				if (tagEnd < 0) return -1;
+				if (bytes[i + 1] == '/') {
+					depth--;
+					if (depth == 0) return tagEnd + 1;
+				} else if (bytes[tagEnd - 1] != '/') {
+					depth++;
+				}
+				markupEnd = tagEnd + 1;
+			}
+			i = indexOf(bytes, '<', markupEnd, bytes.length);
+		}
+		return -1;
+	}
+
+	/**
+	 * @param bytes
+	 * @param i
+	 *            position of the '<' of a start tag
+	 * @param tagEnd
+	 *            position of its '>'
+	 * @param name
+	 * @return <code>true</code> if the local name of the element is name,
+	 *         whatever the case
+	 */
+	private static boolean isTagName(byte[] bytes, int i, int tagEnd, String name) {
+		int start = i + 1;
+		int end = start;
+		while (end < tagEnd && bytes[end] != '/' && bytes[end] > ' ') {
+			if (bytes[end] == ':') start = end + 1;
+			end++;
+		}
+		if (end - start != name.length()) return false;
+		for (int k = 0; k < name.length(); k++) {
+			if (Character.toLowerCase((char) bytes[start + k]) != name.charAt(k)) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * decode text between tags, replacing the predefined entities and
+	 * character references
+	 *
+	 * @param bytes
+	 * @param start
+	 * @param end
+	 * @return the text, or null if it has other entities or carriage returns
+	 *         (which an XML parser would change)
+	 */
+	private static String decode(byte[] bytes, int start, int end) {
+		String text = new String(bytes, start, end - start, UTF8);
+		if (text.indexOf('\r') >= 0) return null;
+		if (text.indexOf('&') < 0) return text;
+
+		StringBuilder decoded = new StringBuilder(text.length());
+		int i = 0;
+		while (i < text.length()) {
+			char c = text.charAt(i);
+			if (c != '&') {
+				decoded.append(c);
+				i++;
+				continue;
+			}
+			int semicolon = text.indexOf(';', i);
+			if (semicolon < 0) return null;
+			String entity = text.substring(i + 1, semicolon);
+			if (entity.equals("amp")) decoded.append('&');
+			else if (entity.equals("lt")) decoded.append('<');
+			else if (entity.equals("gt")) decoded.append('>');
+			else if (entity.equals("quot")) decoded.append('"');
+			else if (entity.equals("apos")) decoded.append('\'');
+			else if (entity.startsWith("#")) {
+				try {
+					int code = entity.startsWith("#x") ? Integer.parseInt(entity.substring(2), 16)
+							: Integer.parseInt(entity.substring(1));
+					decoded.appendCodePoint(code);
+				} catch (IllegalArgumentException ex) {
+					return null;
+				}
+			} else return null;
+			i = semicolon + 1;
+		}
+		return decoded.toString();
+	}
+
+	private static boolean startsWith(byte[] bytes, int i, String prefix) {
+		if (i + prefix.length() > bytes.length) return false;
+		for (int k = 0; k < prefix.length(); k++) {
+			if (bytes[i + k] != prefix.charAt(k)) return false;
+		}
+		return true;
+	}
+
+	private static int indexOf(byte[] bytes, char c, int from, int end) {
+		for (int i = from; i < end; i++) {
+			if (bytes[i] == c) return i;
+		}
+		return -1;
+	}
+
+	private static int indexOf(byte[] bytes, String s, int from, int end) {
+		for (int i = from; i + s.length() <= end; i++) {
+			if (bytes[i] == s.charAt(0) && startsWith(bytes, i, s)) return i;
+		}
+		return -1;
+	}
+}
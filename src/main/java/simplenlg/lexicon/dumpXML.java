@@ -18,77 +18,25 @@
  */
 package simplenlg.lexicon;
 
-import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.FileWriter;
-import java.io.LineNumberReader;
-import java.io.PrintWriter;
-
-import simplenlg.framework.LexicalCategory;
-import simplenlg.framework.WordElement;
+import java.io.IOException;
 
 // this class reads in a word list, looks up the words in the NIH lexicon,
 // and writes the XML words into an output file
+/**
+ * @deprecated use {@link NIHLexiconExporter}, which this class now calls
+ */
+@Deprecated
 public class dumpXML {
-	
-	// filenames
-	static final String DB_FILENAME = "E:\\NIHDB\\lexAccess2009";  // DB location
-	static final String WORDLIST_FILENAME = "E:\\NIHDB\\wordlist.csv";  // word list
-	static final String XML_FILENAME = "E:\\NIHDB\\default-lexicon.xml";  // word list
 
 	/**
 	 * @param args
+	 *            - same arguments as <code>NIHLexiconExporter</code>: options,
+	 *            NIH DB file, word list and XML file
+	 * @throws IOException
 	 */
-	public static void main(String[] args) {
-		Lexicon lex = new NIHDBLexicon(DB_FILENAME);
-		try {
-			LineNumberReader wordListFile = new LineNumberReader(new FileReader (WORDLIST_FILENAME));
-			FileWriter xmlFile = new FileWriter(XML_FILENAME);
-			xmlFile.write(String.format("<lexicon>%n"));
-			String line = wordListFile.readLine();
-			while (line != null) {
-				String[] cols = line.split(",");
-				String base = cols[0];
-				String cat = cols[1];
-				WordElement word = null;
-				if (cat.equalsIgnoreCase("noun"))
-					word = lex.getWord(base, LexicalCategory.NOUN);
-				else if (cat.equalsIgnoreCase("verb"))
-					word = lex.getWord(base, LexicalCategory.VERB);
-				else if (cat.equalsIgnoreCase("adv"))
-					word = lex.getWord(base, LexicalCategory.ADVERB);
-				else if (cat.equalsIgnoreCase("adj"))
-					word = lex.getWord(base, LexicalCategory.ADJECTIVE);
-				else if (cat.equalsIgnoreCase("det"))
-					word = lex.getWord(base, LexicalCategory.DETERMINER);
-				else if (cat.equalsIgnoreCase("prep"))
-					word = lex.getWord(base, LexicalCategory.PREPOSITION);
-				else if (cat.equalsIgnoreCase("pron"))
-					word = lex.getWord(base, LexicalCategory.PRONOUN);
-				else if (cat.equalsIgnoreCase("conj"))
-					word = lex.getWord(base, LexicalCategory.CONJUNCTION);
-				else if (cat.equalsIgnoreCase("modal"))
-					word = lex.getWord(base, LexicalCategory.MODAL);
-				else if (cat.equalsIgnoreCase("interjection"))
-					word = lex.getWord(base, LexicalCategory.NOUN); // Kilgarriff;s interjections are mostly nouns in the lexicon
-				
-				if (word == null)
-					System.out.println("Missing " + base + ":" + cat);
-				else
-					xmlFile.write(word.toXML());
-				line = wordListFile.readLine();;
-			}
-			xmlFile.write(String.format("</lexicon>%n"));
-			wordListFile.close();
-			xmlFile.close();
-		} catch (Exception e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		}
-		
-		lex.close();
+	public static void main(String[] args) throws IOException {
+		NIHLexiconExporter.main(args);
 		System.out.println("done");
-
 	}
 
 }
@@ -0,0 +1,345 @@
+/*
+ * The contents of this file are subject to the Mozilla Public License
+ * Version 1.1 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * The Original Code is "Simplenlg".
+ *
+ * The Initial Developer of the Original Code is Ehud Reiter, Albert Gatt and Dave Westwater.
+ * Portions created by Ehud Reiter, Albert Gatt and Dave Westwater are Copyright (C) 2010-11 The University of Aberdeen. All Rights Reserved.
+ *
+ * Contributor(s): Ehud Reiter, Albert Gatt, Dave Wewstwater, Roman Kutlak, Margaret Mitchell, Pierre-Luc Vaudry.
+ */
+package simplenlg.lexicon.dutch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import simplenlg.framework.LexicalCategory;
+import simplenlg.framework.WordElement;
+import simplenlg.lexicon.Lexicon;
+
+/**
+ * The separable compound verbs of a Dutch lexicon ("opbellen", "uitvoeren",
+ * "vrij|komen"), split into their particle and main verb when the lexicon is
+ * loaded, so that realising them doesn't split their base form and look up
+ * their main verb again.
+ * 
+ * The particle of a base form is the part before the first "|" if there is
+ * one, and otherwise the last particle of <code>PARTICLES</code> which
+ * starts it (and leaves more than three letters), found with a trie of
+ * the particles. <code>VerbPhraseHelper.getSeparableCompoundVerb()</code>
+ * uses this split for verbs without a preverb feature.
+ * 
+ * @author rfdj
+ */
+public final class SeparableVerbs {
+
+	/**
+	 * particles which make a verb separable when they start its base form;
+	 * if several match, the last one is used. There is no way to get the
+	 * prepositions from the lexicon, so this is a hardcoded list. Problems:
+	 * some other prepositions can split the verb, but not always. Also, this
+	 * does not check for the ends of syllables, just beginnings of words.
+	 * Reference: https://www.taal-oefenen.nl/instruction/taal/werkwoorden/werkwoorden-algemeen/samengestelde-werkwoorden-scheidbaar-en-onscheidbaar
+	 * Added "toe" because no exceptions could be found.
+	 */
+	public static final List<String> PARTICLES = Collections.unmodifiableList(
+			Arrays.asList("bij", "in", "na", "uit", "op", "af", "mee",
+					"tegen", "tussen", "terug", "toe"));
+
+	// marks the end of the particle in base forms given by the user
+	private static final char SEPARATOR = '|';
+
+	// minimum number of letters after a particle of the list
+	private static final int MIN_MAIN_VERB_LENGTH = 4;
+
+	// trie of the particles
+	private static final Node TRIE = new Node();
+
+	static {
+		for (int particle = 0; particle < PARTICLES.size(); particle++) {
+			Node node = TRIE;
+			for (char c : PARTICLES.get(particle).toCharArray()) node = node.child(c, true);
+			node.particle = particle;
+		}
+	}
+
+	/**
+	 * a node of the trie of particles
+	 */
+	private static final class Node {
+		char[] letters = new char[0];
+		Node[] children = new Node[0];
+		// position in PARTICLES of the particle ending here, or -1
+		int particle = -1;
+
+		Node child(char letter, boolean create) {
+			for (int i = 0; i < letters.length; i++) {
+				if (letters[i] == letter) return children[i];
+			}
+			if (!create) return null;
+			letters = Arrays.copyOf(letters, letters.length + 1);
+			children = Arrays.copyOf(children, children.length + 1);
+			letters[letters.length - 1] = letter;
+			return children[children.length - 1] = new Node();
+		}
+	}
+
+	/**
+	 * A separable compound verb: its particle, its main verb and the words
+	 * of its main verb in the lexicon.
+	 */
+	public static final class SeparableVerb {
+		private final String particle;
+		private final String mainVerb;
+		private final String joinedForm;
+		private final WordElement mainWord;
+		private final WordElement mainVerbWord;
+
+		SeparableVerb(String particle, String mainVerb, String joinedForm,
+				WordElement mainWord, WordElement mainVerbWord) {
+			this.particle = particle;
+			this.mainVerb = mainVerb;
+			this.joinedForm = joinedForm;
+			this.mainWord = mainWord;
+			this.mainVerbWord = mainVerbWord;
+		}
+
+		/**
+		 * @return the particle, eg "op" for "opbellen"
+		 */
+		public String getParticle() {
+			return particle;
+		}
+
+		/**
+		 * @return the main verb, eg "bellen" for "opbellen"
+		 */
+		public String getMainVerb() {
+			return mainVerb;
+		}
+
+		/**
+		 * @return the base form without "|", eg "vrijkomen" for "vrij|komen"
+		 */
+		public String getJoinedForm() {
+			return joinedForm;
+		}
+
+		/**
+		 * @return the first word of the lexicon with the main verb as base
+		 *         form, or null if there wasn't any (or if the verb isn't
+		 *         from the lexicon)
+		 */
+		public WordElement getMainWord() {
+			return mainWord;
+		}
+
+		/**
+		 * @return the first verb of the lexicon with the main verb as base
+		 *         form, or null if there wasn't any (or if the verb isn't
+		 *         from the lexicon)
+		 */
+		public WordElement getMainVerbWord() {
+			return mainVerbWord;
+		}
+	}
+
+	// marks the verbs of the lexicon which aren't separable
+	private static final SeparableVerb NOT_SEPARABLE = new SeparableVerb(null,
+			null, null, null, null);
+
+	private final XMLLexicon lexicon;
+
+	// verbs of the lexicon by base form, and the base forms of the separable
+	// ones by main verb
+	private final Map<String, SeparableVerb> verbs = new HashMap<String, SeparableVerb>();
+	private final Map<String, List<String>> byMainVerb = new HashMap<String, List<String>>();
+
+	/**********************************************************************/
+	// constructor
+	/**********************************************************************/
+
+	/**
+	 * split the verbs of a lexicon
+	 * 
+	 * @param lexicon
+	 * @param verbs
+	 *            the verbs of the lexicon
+	 */
+	SeparableVerbs(XMLLexicon lexicon, List<WordElement> verbs) {
+		this.lexicon = lexicon;
+		if (verbs != null) {
+			for (WordElement verb : verbs) add(verb.getBaseForm());
+		}
+	}
+
+	/**********************************************************************/
+	// main methods
+	/**********************************************************************/
+
+	/**
+	 * split a base form into its particle and main verb
+	 * 
+	 * @param baseForm
+	 * @return the separable verb (without words of the lexicon), or null if
+	 *         it has no particle
+	 */
+	public static SeparableVerb split(String baseForm) {
+		String particle = findParticle(baseForm);
+		if (particle == null) return null;
+		return new SeparableVerb(particle,
+				removeSeparators(baseForm.substring(particle.length())),
+				removeSeparators(baseForm), null, null);
+	}
+
+	/**
+	 * @param baseForm
+	 * @return the particle at the start of a base form, or null if there
+	 *         isn't any
+	 */
+	public static String findParticle(String baseForm) {
+		int separator = baseForm.indexOf(SEPARATOR);
+		if (separator >= 0) return baseForm.substring(0, separator);
+
+		int found = -1;
+		Node node = TRIE;
+		for (int i = 0; i < baseForm.length() && node != null; i++) {
+			node = node.child(baseForm.charAt(i), false);
+			if (node != null && node.particle > found
+					&& baseForm.length() - (i + 1) >= MIN_MAIN_VERB_LENGTH)
+				found = node.particle;
+		}
+		return found < 0 ? null : PARTICLES.get(found);
+	}
+
+	/**
+	 * @param form
+	 * @return the form without "|"
+	 */
+	public static String removeSeparators(String form) {
+		if (form.indexOf(SEPARATOR) < 0) return form;
+		StringBuilder joined = new StringBuilder(form.length());
+		for (int i = 0; i < form.length(); i++) {
+			char c = form.charAt(i);
+			if (c != SEPARATOR) joined.append(c);
+		}
+		return joined.toString();
+	}
+
+	/**
+	 * get a verb split into its particle and main verb, as split when the
+	 * lexicon was loaded if it is a verb of the lexicon
+	 * 
+	 * @param baseForm
+	 * @return the separable verb, or null if it has no particle
+	 */
+	public SeparableVerb get(String baseForm) {
+		SeparableVerb verb = verbs.get(baseForm);
+		if (verb == null) return split(baseForm);
+		return verb == NOT_SEPARABLE ? null : verb;
+	}
+
+	/**
+	 * get a verb split into its particle and main verb, as split by the
+	 * lexicon of the verb if it is a Dutch XMLLexicon, or otherwise by
+	 * {@link #split(String)}. The main word of a verb split by its own
+	 * lexicon comes from that same lexicon; other lexicons (such as a
+	 * MultipleLexicon with a domain lexicon in front) leave it null, so that
+	 * the main verb is looked up through them.
+	 * 
+	 * @param lexicon
+	 *            the lexicon of the verb, or null
+	 * @param baseForm
+	 * @return the separable verb, or null if it has no particle
+	 */
+	public static SeparableVerb get(Lexicon lexicon, String baseForm) {
+		// null while a Dutch XMLLexicon is loading (its variants are computed
+		// by realising its words)
+		SeparableVerbs verbs = lexicon instanceof XMLLexicon
+				? ((XMLLexicon) lexicon).getSeparableVerbs() : null;
+		if (verbs != null) return verbs.get(baseForm);
+		return split(baseForm);
+	}
+
+	/**
+	 * @return the number of verbs of the lexicon which are separable
+	 */
+	public int size() {
+		int size = 0;
+		for (SeparableVerb verb : verbs.values()) {
+			if (verb != NOT_SEPARABLE) size++;
+		}
+		return size;
+	}
+
+	/**********************************************************************/
+	// changes of the lexicon
+	/**********************************************************************/
+
+	/**
+	 * split a verb of the lexicon, and keep it
+	 * 
+	 * @param baseForm
+	 */
+	void add(String baseForm) {
+		if (baseForm == null) return;
+		SeparableVerb verb = split(baseForm);
+		if (verb == null) {
+			verbs.put(baseForm, NOT_SEPARABLE);
+			return;
+		}
+		List<WordElement> words = lexicon.getLexiconWords(verb.mainVerb, LexicalCategory.ANY);
+		List<WordElement> mainVerbs = lexicon.getLexiconWords(verb.mainVerb, LexicalCategory.VERB);
+		verbs.put(baseForm, new SeparableVerb(verb.particle, verb.mainVerb,
+				verb.joinedForm, words.isEmpty() ? null : words.get(0),
+				mainVerbs.isEmpty() ? null : mainVerbs.get(0)));
+		List<String> compounds = byMainVerb.get(verb.mainVerb);
+		if (compounds == null) {
+			compounds = new ArrayList<String>(1);
+			byMainVerb.put(verb.mainVerb, compounds);
+		}
+		if (!compounds.contains(baseForm)) compounds.add(baseForm);
+	}
+
+	/**
+	 * forget a verb of the lexicon
+	 * 
+	 * @param baseForm
+	 */
+	void remove(String baseForm) {
+		SeparableVerb verb = verbs.remove(baseForm);
+		if (verb == null || verb == NOT_SEPARABLE) return;
+		List<String> compounds = byMainVerb.get(verb.mainVerb);
+		if (compounds != null) {
+			compounds.remove(baseForm);
+			if (compounds.isEmpty()) byMainVerb.remove(verb.mainVerb);
+		}
+	}
+
+	/**
+	 * look up again the main verb of the verbs split with this main verb,
+	 * after the words with this base form have changed
+	 * 
+	 * @param mainVerb
+	 */
+	void mainVerbChanged(String mainVerb) {
+		List<String> compounds = byMainVerb.get(mainVerb);
+		if (compounds == null) return;
+		for (String baseForm : new ArrayList<String>(compounds)) {
+			remove(baseForm);
+			add(baseForm);
+		}
+	}
+}
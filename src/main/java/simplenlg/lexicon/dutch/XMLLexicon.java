@@ -19,7 +19,6 @@
 
 package simplenlg.lexicon.dutch;
 
-import org.w3c.dom.Node;
 import simplenlg.features.*;
 import simplenlg.features.dutch.DutchLexicalFeature;
 import simplenlg.features.dutch.PronounType;
@@ -28,7 +27,9 @@ import simplenlg.framework.*;
 import java.io.File;
 import java.net.URI;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Executor;
 
 /**
  * Extension of simplenlg.lexicon.XMLLexicon for Dutch.
@@ -38,6 +39,11 @@ import java.util.Set;
  */
 public class XMLLexicon extends simplenlg.lexicon.XMLLexicon {
 
+	// the verbs of the lexicon split into their particle and main verb, once
+	// the words are loaded by the superclass constructor
+	private final SeparableVerbs separableVerbs = new SeparableVerbs(this,
+			indexByCategory.get(LexicalCategory.VERB));
+
 	/**********************************************************************/
 	// constructors
 	/**********************************************************************/
@@ -73,19 +79,115 @@ public class XMLLexicon extends simplenlg.lexicon.XMLLexicon {
 		super(Language.DUTCH);
 	}
 
+	/**
+	 * Load the default lexicon, converting words and computing their variants
+	 * in parallel
+	 * 
+	 * @param executor
+	 *            executor running the parallel tasks, for example
+	 *            <code>ForkJoinPool.commonPool()</code>
+	 */
+	public XMLLexicon(Executor executor) {
+		super(Language.DUTCH, executor);
+	}
 
+	/**
+	 * Load an XML Lexicon from a File, converting words and computing their
+	 * variants in parallel
+	 * 
+	 * @param file
+	 * @param executor
+	 *            executor running the parallel tasks, for example
+	 *            <code>ForkJoinPool.commonPool()</code>
+	 */
+	public XMLLexicon(File file, Executor executor) {
+		super(Language.DUTCH, file.toURI(), executor);
+	}
 
 	/**
-	 * create a simplenlg WordElement from a Word node in a lexicon XML file
+	 * Load the default lexicon, lazily if requested: the features of a word
+	 * are only read when it is first used
+	 * 
+	 * @param lazy
+	 *            <code>true</code> to load the lexicon lazily
+	 */
+	public XMLLexicon(boolean lazy) {
+		super(Language.DUTCH, lazy);
+	}
+
+	/**
+	 * Load an XML Lexicon from a File, lazily if requested: the features of a
+	 * word are only read when it is first used
+	 * 
+	 * @param file
+	 * @param lazy
+	 *            <code>true</code> to load the lexicon lazily
+	 */
+	public XMLLexicon(File file, boolean lazy) {
+		super(Language.DUTCH, file.toURI(), lazy);
+	}
+
+
+	/**
+	 * @return the verbs of this lexicon split into their particle and main
+	 *         verb, used to realise separable compound verbs (null while the
+	 *         lexicon is loading)
+	 */
+	public SeparableVerbs getSeparableVerbs() {
+		return separableVerbs;
+	}
+
+	/**
+	 * @param baseForm
+	 * @param category
+	 * @return the words of this lexicon with a base form, without the words
+	 *         created since it was loaded
+	 */
+	List<WordElement> getLexiconWords(String baseForm, LexicalCategory category) {
+		return getIndexedWords(baseForm, category);
+	}
+
+	/**
+	 * split the verb added by a delta file, and look up again the main verb
+	 * of the verbs split with its base form
+	 * 
+	 * @param word
+	 */
+	@Override
+	protected void wordAdded(WordElement word) {
+		if (word.getCategory() == LexicalCategory.VERB) {
+			separableVerbs.add(word.getBaseForm());
+		}
+		separableVerbs.mainVerbChanged(word.getBaseForm());
+	}
+
+	/**
+	 * forget the verb removed by a delta file (unless another verb has the
+	 * same base form), and look up again the main verb of the verbs split
+	 * with its base form
+	 * 
+	 * @param word
+	 */
+	@Override
+	protected void wordRemoved(WordElement word) {
+		if (word.getCategory() == LexicalCategory.VERB
+				&& getIndexedWords(word.getBaseForm(), LexicalCategory.VERB).isEmpty()) {
+			separableVerbs.remove(word.getBaseForm());
+		}
+		separableVerbs.mainVerbChanged(word.getBaseForm());
+	}
+
+	/**
+	 * convert the values of features read from a lexicon XML file to the
+	 * types used by this language
 	 * based on superclass
 	 * 
-	 * @param wordNode
+	 * @param word
 	 * @return
-	 * @throws XPathUtilException
 	 */
 	@Override
-	protected WordElement convertNodeToWord(Node wordNode) {
-		WordElement word = super.convertNodeToWord( wordNode );
+	protected WordElement convertFeatureValues(WordElement word) {
+		word = super.convertFeatureValues( word );
 		
 		// converts String to Gender value for feature LexicalFeature.GENDER
 		if (word.hasFeature(LexicalFeature.GENDER)) {
@@ -125,6 +227,23 @@ public class XMLLexicon extends simplenlg.lexicon.XMLLexicon {
 		return word;
 	}
 	
+	/**
+	 * the variants are computed by the morphology, so they are precomputed
+	 * in a variant index which is stale when one of these classes changes
+	 * 
+	 * @return classes used by getVariants()
+	 */
+	@Override
+	protected Class<?>[] getVariantRuleClasses() {
+		return new Class<?>[] {
+				XMLLexicon.class,
+				simplenlg.lexicon.XMLLexicon.class,
+				InflectedWordElement.class,
+				simplenlg.morphology.dutch.MorphologyRules.class,
+				simplenlg.syntax.dutch.VerbPhraseHelper.class,
+				SeparableVerbs.class };
+	}
+
 	/**
 	 * routine for getting morph variants
 	 * based on English for now, should be augmented
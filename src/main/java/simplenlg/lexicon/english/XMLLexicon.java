@@ -78,6 +78,18 @@ public class XMLLexicon extends simplenlg.lexicon.XMLLexicon {
 		addSpecialCases();
 	}
 
+	/**
+	 * Load the default lexicon, lazily if requested: the features of a word
+	 * are only read when it is first used
+	 * 
+	 * @param lazy
+	 *            <code>true</code> to load the lexicon lazily
+	 */
+	public XMLLexicon(boolean lazy) {
+		super(Language.ENGLISH, lazy);
+		addSpecialCases();
+	}
+
 	/**
 	 * add special cases to lexicon
 	 * moved from simplenlg.lexicon.XMLLexicon
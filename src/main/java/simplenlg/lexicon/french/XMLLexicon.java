@@ -23,8 +23,7 @@ import java.io.File;
 import java.net.URI;
 import java.util.Arrays;
 import java.util.Set;
-
-import org.w3c.dom.Node;
+import java.util.concurrent.Executor;
 
 import simplenlg.framework.ElementCategory;
 import simplenlg.framework.Language;
@@ -88,16 +87,64 @@ public class XMLLexicon extends simplenlg.lexicon.XMLLexicon {
 	}
 
 	/**
-	 * create a simplenlg WordElement from a Word node in a lexicon XML file
+	 * Load the default lexicon, converting words and computing their variants
+	 * in parallel
+	 * 
+	 * @param executor
+	 *            executor running the parallel tasks, for example
+	 *            <code>ForkJoinPool.commonPool()</code>
+	 */
+	public XMLLexicon(Executor executor) {
+		super(Language.FRENCH, executor);
+	}
+
+	/**
+	 * Load an XML Lexicon from a File, converting words and computing their
+	 * variants in parallel
+	 * 
+	 * @param file
+	 * @param executor
+	 *            executor running the parallel tasks, for example
+	 *            <code>ForkJoinPool.commonPool()</code>
+	 */
+	public XMLLexicon(File file, Executor executor) {
+		super(Language.FRENCH, file.toURI(), executor);
+	}
+
+	/**
+	 * Load the default lexicon, lazily if requested: the features of a word
+	 * are only read when it is first used
+	 * 
+	 * @param lazy
+	 *            <code>true</code> to load the lexicon lazily
+	 */
+	public XMLLexicon(boolean lazy) {
+		super(Language.FRENCH, lazy);
+	}
+
+	/**
+	 * Load an XML Lexicon from a File, lazily if requested: the features of a
+	 * word are only read when it is first used
+	 * 
+	 * @param file
+	 * @param lazy
+	 *            <code>true</code> to load the lexicon lazily
+	 */
+	public XMLLexicon(File file, boolean lazy) {
+		super(Language.FRENCH, file.toURI(), lazy);
+	}
+
+	/**
+	 * convert the values of features read from a lexicon XML file to the
+	 * types used by this language
 	 * based on superclass
 	 * 
-	 * @param wordNode
+	 * @param word
 	 * @return
-	 * @throws XPathUtilException
 	 */
 	@Override
-	protected WordElement convertNodeToWord(Node wordNode) {
-		WordElement word = super.convertNodeToWord( wordNode );
+	protected WordElement convertFeatureValues(WordElement word) {
+		word = super.convertFeatureValues( word );
 		
 		// converts String to Gender value for feature LexicalFeature.GENDER
 		if (word.hasFeature(LexicalFeature.GENDER)) {
@@ -137,6 +184,21 @@ public class XMLLexicon extends simplenlg.lexicon.XMLLexicon {
 		return word;
 	}
 	
+	/**
+	 * the variants are computed by the morphology, so they are precomputed
+	 * in a variant index which is stale when one of these classes changes
+	 * 
+	 * @return classes used by getVariants()
+	 */
+	@Override
+	protected Class<?>[] getVariantRuleClasses() {
+		return new Class<?>[] {
+				XMLLexicon.class,
+				simplenlg.lexicon.XMLLexicon.class,
+				InflectedWordElement.class,
+				simplenlg.morphology.french.MorphologyRules.class };
+	}
+
 	/**
 	 * routine for getting morph variants
 	 * based on English for now, should be augmented
@@ -735,7 +735,11 @@ public class MorphologyRules extends simplenlg.morphology.english.NonStaticMorph
             SCVMainVerb = SCV.mainVerb;
             SCVPreVerb = SCV.preVerb;
             baseForm = SCVMainVerb;
-            baseWord = element.getLexicon().getWord(baseForm);
+            // the word of the main verb was looked up when the lexicon was
+            // loaded, if that lexicon is the one of this verb
+            Lexicon lexicon = element.getLexicon();
+            baseWord = SCV.mainWord != null && SCV.mainWord.getLexicon() == lexicon
+                    ? SCV.mainWord : lexicon.getWord(baseForm);
 
             element.setFeature(DutchFeature.PREVERB, SCVPreVerb);
         }
@@ -774,10 +778,7 @@ public class MorphologyRules extends simplenlg.morphology.english.NonStaticMorph
 			realised = element
 					.getFeatureAsString(LexicalFeature.PAST_PARTICIPLE);
 
-			String SCVbaseForm = baseForm.replaceAll("[|]", "");
-			WordElement SCVbaseWord = element.getLexicon().lookupWord(SCVbaseForm, LexicalCategory.VERB);
-
-			if (realised == null && SCVbaseWord != null) {
+			if (realised == null && baseWord != null) {
 				realised = baseWord
 						.getFeatureAsString(LexicalFeature.PAST_PARTICIPLE);
 			}
@@ -19,11 +19,15 @@
 
 package simplenlg.phrasespec;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import simplenlg.features.DiscourseFunction;
 import simplenlg.features.Feature;
 import simplenlg.features.Gender;
 import simplenlg.features.InternalFeature;
 import simplenlg.features.LexicalFeature;
+import simplenlg.features.NumberAgreement;
 import simplenlg.features.Person;
 import simplenlg.framework.LexicalCategory;
 import simplenlg.framework.NLGElement;
@@ -120,55 +124,86 @@ public class NPPhraseSpec extends PhraseElement {
 		if (nounElement == null)
 			return;
 
-		setFeature(Feature.POSSESSIVE, nounElement != null ? nounElement
-				.getFeatureAsBoolean(Feature.POSSESSIVE) : Boolean.FALSE);
-		setFeature(InternalFeature.RAISED, false);
-		setFeature(InternalFeature.ACRONYM, false);
+		for (Map.Entry<String, Object> feature : getNounPhraseFeatures(nounElement).entrySet()) {
+			setFeature(feature.getKey(), feature.getValue());
+		}
+	}
 
-		if (nounElement != null && nounElement.hasFeature(Feature.NUMBER)) {
+	/**
+	 * A helper method to get the features required for noun phrases, from
+	 * the head noun, in the order in which they are set
+	 * 
+	 * @param nounElement
+	 *            the element representing the noun.
+	 * @return the features.
+	 */
+	private static Map<String, Object> getNounPhraseFeatures(NLGElement nounElement) {
+		Map<String, Object> features = new LinkedHashMap<String, Object>();
+		features.put(Feature.POSSESSIVE, nounElement
+				.getFeatureAsBoolean(Feature.POSSESSIVE));
+		features.put(InternalFeature.RAISED, false);
+		features.put(InternalFeature.ACRONYM, false);
+
+		if (nounElement.hasFeature(Feature.NUMBER)) {
 
-			setFeature(Feature.NUMBER, nounElement.getFeature(Feature.NUMBER));
+			features.put(Feature.NUMBER, nounElement.getFeature(Feature.NUMBER));
 		} else {
-			setPlural(false);
+			features.put(Feature.NUMBER, NumberAgreement.SINGULAR);
 		}
-		if (nounElement != null && nounElement.hasFeature(Feature.PERSON)) {
+		if (nounElement.hasFeature(Feature.PERSON)) {
 
-			setFeature(Feature.PERSON, nounElement.getFeature(Feature.PERSON));
+			features.put(Feature.PERSON, nounElement.getFeature(Feature.PERSON));
 		} else {
-			setFeature(Feature.PERSON, Person.THIRD);
+			features.put(Feature.PERSON, Person.THIRD);
 		}
-		if (nounElement != null
-				&& nounElement.hasFeature(LexicalFeature.GENDER)) {
+		if (nounElement.hasFeature(LexicalFeature.GENDER)) {
 
-			setFeature(LexicalFeature.GENDER, nounElement
+			features.put(LexicalFeature.GENDER, nounElement
 					.getFeature(LexicalFeature.GENDER));
 		// commented out by vaudrypl to make french new nouns work
 //		} else {
-//			setFeature(LexicalFeature.GENDER, Gender.NEUTER);
+//			features.put(LexicalFeature.GENDER, Gender.NEUTER);
 		}
 
-		if (nounElement != null
-				&& nounElement.hasFeature(LexicalFeature.EXPLETIVE_SUBJECT)) {
+		if (nounElement.hasFeature(LexicalFeature.EXPLETIVE_SUBJECT)) {
 
-			setFeature(LexicalFeature.EXPLETIVE_SUBJECT, nounElement
+			features.put(LexicalFeature.EXPLETIVE_SUBJECT, nounElement
 					.getFeature(LexicalFeature.EXPLETIVE_SUBJECT));
 		}
 
 		// added by vaudrypl
-		if (nounElement != null
-				&& nounElement.getFeatureAsBoolean(LexicalFeature.REFLEXIVE)) {
-			setFeature(LexicalFeature.REFLEXIVE, true);
-		} else {
-			setFeature(LexicalFeature.REFLEXIVE, false);
-		}
-		if (nounElement != null
-				&& nounElement.getFeatureAsBoolean(LexicalFeature.PROPER)) {
-			setFeature(LexicalFeature.PROPER, true);
-		} else {
-			setFeature(LexicalFeature.PROPER, false);
-		}
+		features.put(LexicalFeature.REFLEXIVE,
+				nounElement.getFeatureAsBoolean(LexicalFeature.REFLEXIVE));
+		features.put(LexicalFeature.PROPER,
+				nounElement.getFeatureAsBoolean(LexicalFeature.PROPER));
 
-		setFeature(Feature.ADJECTIVE_ORDERING, true);
+		features.put(Feature.ADJECTIVE_ORDERING, true);
+		return features;
+	}
+
+	/**
+	 * The head takes the features the noun phrase takes from its head noun
+	 * in <code>setHead()</code>, unless they were changed on the phrase of
+	 * the template after its head was set; the specifier gives its number.
+	 * 
+	 * @see simplenlg.framework.PhraseElement#slotBound(java.lang.String,
+	 *      simplenlg.framework.NLGElement, simplenlg.framework.NLGElement)
+	 */
+	@Override
+	protected void slotBound(String featureName, NLGElement slot, NLGElement value) {
+		if (InternalFeature.HEAD.equals(featureName)) {
+			Map<String, Object> fromSlot = getNounPhraseFeatures(slot);
+			for (Map.Entry<String, Object> feature : getNounPhraseFeatures(value).entrySet()) {
+				Object current = getFeature(feature.getKey());
+				Object set = fromSlot.get(feature.getKey());
+				if (current == null ? set == null : current.equals(set)) {
+					setFeature(feature.getKey(), feature.getValue());
+				}
+			}
+		} else if (InternalFeature.SPECIFIER.equals(featureName)
+				&& value.hasFeature(Feature.NUMBER)) {
+			setFeature(Feature.NUMBER, value.getFeature(Feature.NUMBER));
+		}
 	}
 
 	/**
@@ -28,6 +28,8 @@ import simplenlg.features.french.FrenchLexicalFeature;
 import simplenlg.features.french.PronounType;
 import simplenlg.framework.*;
 import simplenlg.lexicon.Lexicon;
+import simplenlg.lexicon.dutch.SeparableVerbs;
+import simplenlg.lexicon.dutch.SeparableVerbs.SeparableVerb;
 import simplenlg.phrasespec.NPPhraseSpec;
 import simplenlg.phrasespec.PPPhraseSpec;
 import simplenlg.phrasespec.VPPhraseSpec;
@@ -1370,6 +1372,7 @@ public class VerbPhraseHelper extends simplenlg.syntax.english.nonstatic.VerbPhr
 
 		String mainVerb = null;
 		String preVerb = null;
+		WordElement mainWord = null;
 		Boolean isSCV = false;
 
 		if (baseForm == null || "".equals(baseForm))
@@ -1411,40 +1414,27 @@ public class VerbPhraseHelper extends simplenlg.syntax.english.nonstatic.VerbPhr
 		}
 
 		// Option 4: If the baseForm contains a pipe from the user input
-		if (baseForm.contains("|") && (preVerb == null || "".equals(preVerb))) {
-			String[] splitVerb = baseForm.split("\\|", 2);
-
-			if (splitVerb.length > 1) {
-				preVerb = splitVerb[0];
-			}
-		}
-
 		// Option 5: If all else fails, try splitting off common prefixes
+		// (see SeparableVerbs.PARTICLES). The verbs of a Dutch XMLLexicon
+		// were split when it was loaded, with the words of their main verb;
+		// other lexicons look the main verb up when it is realised.
+		SeparableVerb separable = null;
 		if (preVerb == null || "".equals(preVerb)) {
-			// Detect common prefixes as preverb
-			// There is no way to getWords by category alone, so here is a hardcoded list of prepositions that make
-			// the verbs separable. Problems: some other prepositions can split the verb, but not always. Also, this
-			// method does not check for the ends of syllables, just beginnings of words.
-			// Reference: https://www.taal-oefenen.nl/instruction/taal/werkwoorden/werkwoorden-algemeen/samengestelde-werkwoorden-scheidbaar-en-onscheidbaar
-			// Added "toe" because no exceptions could be found.
-
-			String[] prefixesOfSeparableVerbs = {"bij", "in", "na", "uit",
-					"op", "af", "mee", "tegen", "tussen", "terug", "toe"};
-
-			for (String prefix : prefixesOfSeparableVerbs) {
-				if (baseForm.startsWith(prefix) && baseForm.length() - prefix.length() > 3) {
-					preVerb = prefix;
-				}
-			}
+			separable = SeparableVerbs.get(element != null ? element.getLexicon() : null, baseForm);
+			if (separable != null) preVerb = separable.getParticle();
 		}
 
 		if (preVerb != null) {
-			mainVerb = baseForm.substring(preVerb.length(), baseForm.length());
-			mainVerb = mainVerb.replaceAll("\\|", "");
+			if (separable != null) {
+				mainVerb = separable.getMainVerb();
+				mainWord = separable.getMainWord();
+			} else {
+				mainVerb = SeparableVerbs.removeSeparators(baseForm.substring(preVerb.length()));
+			}
 			if (element != null) element.setFeature(DutchFeature.PREVERB, preVerb);
 			isSCV = true;
 		}
-		return new GetSeparableCompoundVerbReturn(isSCV, mainVerb, preVerb);
+		return new GetSeparableCompoundVerbReturn(isSCV, mainVerb, preVerb, mainWord);
 	}
 
 
@@ -1456,11 +1446,20 @@ public class VerbPhraseHelper extends simplenlg.syntax.english.nonstatic.VerbPhr
 		public final Boolean isSCV;
 		public final String mainVerb;
 		public final String preVerb;
+		// the first word of the lexicon with the main verb as base form, if
+		// the verb was split when the lexicon was loaded
+		public final WordElement mainWord;
 
 		public GetSeparableCompoundVerbReturn(Boolean isSCV, String mainVerb, String preVerb) {
+			this(isSCV, mainVerb, preVerb, null);
+		}
+
+		public GetSeparableCompoundVerbReturn(Boolean isSCV, String mainVerb, String preVerb,
+				WordElement mainWord) {
 			this.isSCV = isSCV;
 			this.mainVerb = mainVerb;
 			this.preVerb = preVerb;
+			this.mainWord = mainWord;
 		}
 	}
 
@@ -0,0 +1,70 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+import simplenlg.features.Feature;
+import simplenlg.framework.LexicalCategory;
+import simplenlg.framework.NLGFactory;
+import simplenlg.framework.WordElement;
+import simplenlg.lexicon.BinaryLexicon;
+import simplenlg.lexicon.Lexicon;
+import simplenlg.lexicon.XMLLexicon;
+import simplenlg.phrasespec.SPhraseSpec;
+import simplenlg.realiser.Realiser;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
+
+public class BinaryLexiconTest {
+
+    @Rule
+    public ErrorCollector collector = new ErrorCollector();
+
+    @Test
+    public void snapshotMatchesXMLLexicon() throws IOException {
+        XMLLexicon xmlLexicon = new simplenlg.lexicon.dutch.XMLLexicon();
+        File snapshot = File.createTempFile("lexicon", ".bin");
+        snapshot.deleteOnExit();
+        BinaryLexicon.write(xmlLexicon, snapshot);
+        BinaryLexicon lexicon = new BinaryLexicon(snapshot);
+
+        collector.checkThat(lexicon.getLanguage(), equalTo(xmlLexicon.getLanguage()));
+
+        // base form, variant computed by the morphology, and ID
+        checkSameWords(xmlLexicon.getWords("lopen", LexicalCategory.VERB),
+                lexicon.getWords("lopen", LexicalCategory.VERB));
+        checkSameWords(xmlLexicon.getWordsFromVariant("liep", LexicalCategory.ANY),
+                lexicon.getWordsFromVariant("liep", LexicalCategory.ANY));
+        WordElement word = xmlLexicon.getWords("huis", LexicalCategory.NOUN).get(0);
+        checkSameWords(xmlLexicon.getWordsByID(word.getId()), lexicon.getWordsByID(word.getId()));
+        checkSameWords(xmlLexicon.getWords(LexicalCategory.PRONOUN, null),
+                lexicon.getWords(LexicalCategory.PRONOUN, null));
+
+        // words are only created once
+        collector.checkThat(lexicon.getWord("huis", LexicalCategory.NOUN),
+                sameInstance(lexicon.getWord("huis", LexicalCategory.NOUN)));
+
+        // and realise the same way, with the pronoun and the irregular
+        // participle read from the snapshot
+        collector.checkThat(realisePerfectClause(lexicon), equalTo("Zij heeft de sleutel gevonden."));
+        collector.checkThat(realisePerfectClause(lexicon), equalTo(realisePerfectClause(xmlLexicon)));
+    }
+
+    private String realisePerfectClause(Lexicon lexicon) {
+        SPhraseSpec clause = new NLGFactory(lexicon).createClause("zij", "vinden", "de sleutel");
+        clause.setFeature(Feature.PERFECT, true);
+        return new Realiser().realiseSentence(clause);
+    }
+
+    private void checkSameWords(List<WordElement> expected, List<WordElement> actual) {
+        collector.checkThat(actual.size(), equalTo(expected.size()));
+        for (int i = 0; i < Math.min(expected.size(), actual.size()); i++) {
+            collector.checkThat(actual.get(i).getBaseForm(), equalTo(expected.get(i).getBaseForm()));
+            collector.checkThat(actual.get(i).getId(), equalTo(expected.get(i).getId()));
+            collector.checkThat(actual.get(i).getAllFeatures(), equalTo(expected.get(i).getAllFeatures()));
+        }
+    }
+}
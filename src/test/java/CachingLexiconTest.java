@@ -0,0 +1,108 @@
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+import simplenlg.framework.CoordinatedPhraseElement;
+import simplenlg.framework.LexicalCategory;
+import simplenlg.framework.NLGFactory;
+import simplenlg.framework.WordElement;
+import simplenlg.lexicon.CachingLexicon;
+import simplenlg.phrasespec.SPhraseSpec;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
+
+public class CachingLexiconTest {
+
+    @Rule
+    public ErrorCollector collector = new ErrorCollector();
+
+    /** counts the lookups by base form which reach the lexicon */
+    private static class CountingLexicon extends simplenlg.lexicon.dutch.XMLLexicon {
+        int lookups;
+
+        CountingLexicon() {
+            // not the lookups of the morphology while the lexicon is loaded
+            lookups = 0;
+        }
+
+        @Override
+        public List<WordElement> getWords(String baseForm, LexicalCategory category) {
+            lookups++;
+            return super.getWords(baseForm, category);
+        }
+    }
+
+    @Test
+    public void lookupsAreCachedAndEvicted() {
+        CountingLexicon counting = new CountingLexicon();
+        CachingLexicon lexicon = new CachingLexicon(counting, 2);
+
+        WordElement huis = lexicon.getWord("huis", LexicalCategory.NOUN);
+        collector.checkThat(lexicon.getWord("huis", LexicalCategory.NOUN), sameInstance(huis));
+        collector.checkThat(counting.lookups, equalTo(1));
+
+        // lookups which found nothing are cached too
+        collector.checkThat(lexicon.getWords("xyzzy", LexicalCategory.NOUN).isEmpty(), equalTo(true));
+        collector.checkThat(lexicon.getWords("xyzzy", LexicalCategory.NOUN).isEmpty(), equalTo(true));
+        collector.checkThat(counting.lookups, equalTo(2));
+        collector.checkThat(lexicon.getNegativeHits(), equalTo(1L));
+
+        // "huis" is the least recently used lookup
+        lexicon.getWords("lopen", LexicalCategory.VERB);
+        collector.checkThat(lexicon.size(), equalTo(2));
+        collector.checkThat(lexicon.getEvictions(), equalTo(1L));
+        lexicon.getWords("huis", LexicalCategory.NOUN);
+        collector.checkThat(counting.lookups, equalTo(4));
+        collector.checkThat(lexicon.getHits(), equalTo(2L));
+        collector.checkThat(lexicon.getMisses(), equalTo(4L));
+
+        // lookups by ID and by variant are kept apart
+        String id = huis.getId();
+        collector.checkThat(lexicon.getWordsByID(id), equalTo(counting.getWordsByID(id)));
+        collector.checkThat(lexicon.getWordsFromVariant("huizen", LexicalCategory.NOUN),
+                equalTo(counting.getWordsFromVariant("huizen", LexicalCategory.NOUN)));
+        collector.checkThat(counting.lookups, equalTo(4));
+    }
+
+    @Test
+    public void unknownWordsAreCreatedOnce() {
+        CountingLexicon counting = new CountingLexicon();
+        CachingLexicon lexicon = new CachingLexicon(counting);
+
+        WordElement jansen = lexicon.lookupWord("Jansen", LexicalCategory.NOUN);
+        collector.checkThat(lexicon.lookupWord("Jansen", LexicalCategory.NOUN), sameInstance(jansen));
+        collector.checkThat(lexicon.lookupWord("Jansen", LexicalCategory.NOUN), sameInstance(jansen));
+        collector.checkThat(counting.getWords("Jansen", LexicalCategory.NOUN).size(), equalTo(1));
+
+        // the word created is found in any category too
+        collector.checkThat(lexicon.lookupWord("Jansen"), sameInstance(jansen));
+        collector.checkThat(counting.getWords("Jansen", LexicalCategory.ANY).size(), equalTo(1));
+    }
+
+    @Test
+    public void prefetchLooksUpWordsOfElements() {
+        CountingLexicon counting = new CountingLexicon();
+        CachingLexicon lexicon = new CachingLexicon(counting);
+        NLGFactory factory = new NLGFactory(new simplenlg.lexicon.dutch.XMLLexicon());
+
+        SPhraseSpec clause = factory.createClause();
+        CoordinatedPhraseElement subject = factory.createCoordinatedPhrase("Jan", "Marie");
+        clause.setSubject(subject);
+        clause.setVerb("lopen");
+        clause.addComplement(factory.createNounPhrase("de", "huis"));
+
+        lexicon.prefetch(Arrays.asList(clause));
+        int lookups = counting.lookups;
+        collector.checkThat(lexicon.getMisses(), equalTo((long) lookups));
+
+        lexicon.getWords("lopen", LexicalCategory.VERB);
+        lexicon.getWords("huis", LexicalCategory.NOUN);
+        lexicon.getWords("de", LexicalCategory.DETERMINER);
+        lexicon.getWords("en", LexicalCategory.CONJUNCTION);
+        collector.checkThat(counting.lookups, equalTo(lookups));
+        collector.checkThat(lexicon.getHits(), equalTo(4L));
+    }
+}
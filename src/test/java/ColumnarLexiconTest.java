@@ -0,0 +1,70 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+import simplenlg.features.LexicalFeature;
+import simplenlg.framework.LexicalCategory;
+import simplenlg.framework.NLGFactory;
+import simplenlg.framework.WordElement;
+import simplenlg.lexicon.ColumnarLexicon;
+import simplenlg.lexicon.Lexicon;
+import simplenlg.lexicon.XMLLexicon;
+import simplenlg.phrasespec.NPPhraseSpec;
+import simplenlg.realiser.Realiser;
+
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
+
+public class ColumnarLexiconTest {
+
+    @Rule
+    public ErrorCollector collector = new ErrorCollector();
+
+    @Test
+    public void columnarLexiconMatchesXMLLexicon() {
+        XMLLexicon xmlLexicon = new simplenlg.lexicon.dutch.XMLLexicon();
+        ColumnarLexicon lexicon = new ColumnarLexicon(xmlLexicon);
+
+        // base form, variant computed by the morphology, and ID
+        checkSameWords(xmlLexicon.getWords("lopen", LexicalCategory.VERB),
+                lexicon.getWords("lopen", LexicalCategory.VERB));
+        checkSameWords(xmlLexicon.getWordsFromVariant("liep", LexicalCategory.ANY),
+                lexicon.getWordsFromVariant("liep", LexicalCategory.ANY));
+        WordElement word = xmlLexicon.getWords("huis", LexicalCategory.NOUN).get(0);
+        checkSameWords(xmlLexicon.getWordsByID(word.getId()), lexicon.getWordsByID(word.getId()));
+        checkSameWords(xmlLexicon.getWords(LexicalCategory.PRONOUN, null),
+                lexicon.getWords(LexicalCategory.PRONOUN, null));
+
+        // words are only created once, and changing their features doesn't
+        // change the lexicon
+        WordElement huis = lexicon.getWord("huis", LexicalCategory.NOUN);
+        collector.checkThat(lexicon.lookupWord("huis"), sameInstance(huis));
+        huis.setFeature(LexicalFeature.GENDER, null);
+        collector.checkThat(huis.hasFeature(LexicalFeature.GENDER), equalTo(false));
+        collector.checkThat(new ColumnarLexicon(xmlLexicon).getWord("huis", LexicalCategory.NOUN)
+                .getAllFeatures(), equalTo(word.getAllFeatures()));
+
+        // and the features read from the columns realise nouns and
+        // adjectives the same way
+        collector.checkThat(realisePluralNoun(lexicon), equalTo("De grote huizen zijn oud."));
+        collector.checkThat(realisePluralNoun(lexicon), equalTo(realisePluralNoun(xmlLexicon)));
+    }
+
+    private String realisePluralNoun(Lexicon lexicon) {
+        NLGFactory factory = new NLGFactory(lexicon);
+        NPPhraseSpec subject = factory.createNounPhrase("de", "huis");
+        subject.setPlural(true);
+        subject.addPreModifier(factory.createAdjectivePhrase("groot"));
+        return new Realiser().realiseSentence(factory.createClause(subject, "zijn", "oud"));
+    }
+
+    private void checkSameWords(List<WordElement> expected, List<WordElement> actual) {
+        collector.checkThat(actual.size(), equalTo(expected.size()));
+        for (int i = 0; i < Math.min(expected.size(), actual.size()); i++) {
+            collector.checkThat(actual.get(i).getBaseForm(), equalTo(expected.get(i).getBaseForm()));
+            collector.checkThat(actual.get(i).getId(), equalTo(expected.get(i).getId()));
+            collector.checkThat(actual.get(i).getAllFeatures(), equalTo(expected.get(i).getAllFeatures()));
+        }
+    }
+}
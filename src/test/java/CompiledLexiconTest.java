@@ -0,0 +1,127 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+import simplenlg.framework.LexicalCategory;
+import simplenlg.framework.WordElement;
+import simplenlg.lexicon.CompiledLexicon;
+import simplenlg.lexicon.MultipleLexicon;
+import simplenlg.lexicon.XMLLexicon;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+
+public class CompiledLexiconTest {
+
+    @Rule
+    public ErrorCollector collector = new ErrorCollector();
+
+    private static final String[] KEYS = { "huis", "huizen", "lopen", "liep", "zijn", "is",
+            "blockchain", "blockchains", "de", "xyzzy" };
+
+    private static final LexicalCategory[] CATEGORIES = { LexicalCategory.ANY,
+            LexicalCategory.NOUN, LexicalCategory.VERB, LexicalCategory.DETERMINER };
+
+    @Test
+    public void compiledLexiconFindsTheSameWords() throws IOException {
+        XMLLexicon domain = new simplenlg.lexicon.dutch.XMLLexicon(writeDomainLexicon());
+        XMLLexicon dutch = new simplenlg.lexicon.dutch.XMLLexicon();
+
+        for (boolean searchAll : new boolean[] { false, true }) {
+            MultipleLexicon layers = new MultipleLexicon(dutch.getLanguage(), domain, dutch);
+            layers.setAlwaysSearchAll(searchAll);
+            CompiledLexicon compiled = layers.compile();
+
+            for (String key : KEYS) {
+                for (LexicalCategory category : CATEGORIES) {
+                    collector.checkThat(key + " " + category + " " + searchAll,
+                            compiled.getWords(key, category), equalTo(layers.getWords(key, category)));
+                    collector.checkThat(key + " " + category + " " + searchAll,
+                            compiled.getWordsFromVariant(key, category),
+                            equalTo(layers.getWordsFromVariant(key, category)));
+                }
+            }
+            for (String id : new String[] { "E0012152", "D1", "E0030898", "xyzzy" })
+                collector.checkThat(id + " " + searchAll, compiled.getWordsByID(id),
+                        equalTo(layers.getWordsByID(id)));
+        }
+
+        // the domain noun "lopen" hides the verb for ANY, but not for VERB
+        MultipleLexicon layers = new MultipleLexicon(dutch.getLanguage(), domain, dutch);
+        CompiledLexicon compiled = layers.compile();
+        WordElement noun = compiled.getWord("lopen", LexicalCategory.ANY);
+        collector.checkThat(noun.getCategory(), equalTo((Object) LexicalCategory.NOUN));
+        collector.checkThat(compiled.getWord("lopen", LexicalCategory.VERB),
+                equalTo(dutch.getWord("lopen", LexicalCategory.VERB)));
+    }
+
+    @Test
+    public void unknownWordsAreCreatedOnce() throws IOException {
+        XMLLexicon domain = new simplenlg.lexicon.dutch.XMLLexicon(writeDomainLexicon());
+        XMLLexicon dutch = new simplenlg.lexicon.dutch.XMLLexicon();
+        CompiledLexicon compiled = new MultipleLexicon(dutch.getLanguage(), domain, dutch).compile();
+
+        WordElement jansen = compiled.lookupWord("Jansen", LexicalCategory.NOUN);
+        for (int i = 0; i < 3; i++)
+            collector.checkThat(compiled.lookupWord("Jansen", LexicalCategory.NOUN) == jansen, equalTo(true));
+        collector.checkThat(compiled.lookupWord("Jansen") == jansen, equalTo(true));
+        collector.checkThat(domain.getWords("Jansen", LexicalCategory.ANY).size(), equalTo(1));
+    }
+
+    @Test
+    public void changesOfTheLexiconsDontChangeTheCompiledIndex() throws IOException {
+        XMLLexicon domain = new simplenlg.lexicon.dutch.XMLLexicon(writeDomainLexicon());
+        XMLLexicon dutch = new simplenlg.lexicon.dutch.XMLLexicon();
+        CompiledLexicon compiled = new MultipleLexicon(dutch.getLanguage(), domain, dutch).compile();
+        List<WordElement> blockchain = new ArrayList<WordElement>(
+                compiled.getWords("blockchain", LexicalCategory.ANY));
+        List<WordElement> blockchains = new ArrayList<WordElement>(
+                compiled.getWordsFromVariant("blockchains", LexicalCategory.ANY));
+
+        // a word with the same base form is added to the domain lexicon
+        File delta = File.createTempFile("delta", ".xml");
+        delta.deleteOnExit();
+        Writer writer = new FileWriter(delta);
+        try {
+            writer.write("<delta><add><word><base>blockchain</base><category>noun</category>"
+                    + "<id>D4</id></word></add></delta>");
+        } finally {
+            writer.close();
+        }
+        collector.checkThat(domain.applyDelta(delta), equalTo(1));
+        collector.checkThat(domain.getWords("blockchain", LexicalCategory.ANY).size(), equalTo(2));
+
+        collector.checkThat(compiled.getWords("blockchain", LexicalCategory.ANY), equalTo(blockchain));
+        collector.checkThat(compiled.getWordsFromVariant("blockchains", LexicalCategory.ANY),
+                equalTo(blockchains));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void onlyXMLLexiconsCanBeCompiled() {
+        new MultipleLexicon(new simplenlg.lexicon.dutch.XMLLexicon(),
+                new MultipleLexicon()).compile();
+    }
+
+    private static File writeDomainLexicon() throws IOException {
+        File file = File.createTempFile("domain", ".xml");
+        file.deleteOnExit();
+        Writer writer = new FileWriter(file);
+        try {
+            writer.write("<lexicon>\n"
+                    + "<word><base>huis</base><category>noun</category><id>D1</id>"
+                    + "<plural>huisjes</plural></word>\n"
+                    + "<word><base>lopen</base><category>noun</category><id>D2</id></word>\n"
+                    + "<word><base>zijn</base><category>verb</category><id>E0012152</id></word>\n"
+                    + "<word><base>blockchain</base><category>noun</category><id>D3</id></word>\n"
+                    + "</lexicon>\n");
+        } finally {
+            writer.close();
+        }
+        return file;
+    }
+}
@@ -0,0 +1,40 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+import simplenlg.framework.LexicalCategory;
+import simplenlg.framework.WordElement;
+import simplenlg.lexicon.CreatedWordCache;
+import simplenlg.lexicon.XMLLexicon;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+
+public class CreatedWordCacheTest {
+
+    @Rule
+    public ErrorCollector collector = new ErrorCollector();
+
+    @Test
+    public void createdWordsAreEvictedWhenCacheIsFull() {
+        XMLLexicon lexicon = new simplenlg.lexicon.dutch.XMLLexicon();
+        int size = lexicon.getWords(LexicalCategory.ANY, null).size();
+        CreatedWordCache cache = new CreatedWordCache(2);
+        lexicon.setCreatedWordCache(cache);
+
+        WordElement first = lexicon.lookupWord("Jansen", LexicalCategory.NOUN);
+        WordElement second = lexicon.lookupWord("XK-200", LexicalCategory.NOUN);
+        collector.checkThat(lexicon.lookupWord("Jansen", LexicalCategory.NOUN), sameInstance(first));
+        // "XK-200" is now the least recently used word
+        lexicon.lookupWord("4711", LexicalCategory.NOUN);
+
+        collector.checkThat(cache.size(), equalTo(2));
+        collector.checkThat(cache.getEvictions(), equalTo(1L));
+        collector.checkThat(lexicon.getWord("Jansen", LexicalCategory.NOUN), sameInstance(first));
+        collector.checkThat(lexicon.lookupWord("XK-200", LexicalCategory.NOUN), not(sameInstance(second)));
+
+        // the words of the lexicon itself are kept apart
+        lexicon.setCreatedWordCache(null);
+        collector.checkThat(lexicon.getWords(LexicalCategory.ANY, null).size(), equalTo(size));
+    }
+}
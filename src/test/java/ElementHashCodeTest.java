@@ -0,0 +1,101 @@
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+import simplenlg.aggregation.ClauseCoordinationRule;
+import simplenlg.aggregation.PhraseChecker;
+import simplenlg.features.Feature;
+import simplenlg.features.Tense;
+import simplenlg.framework.LexicalCategory;
+import simplenlg.framework.NLGElement;
+import simplenlg.framework.NLGFactory;
+import simplenlg.framework.WordElement;
+import simplenlg.phrasespec.NPPhraseSpec;
+import simplenlg.phrasespec.SPhraseSpec;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+
+public class ElementHashCodeTest {
+
+    @Rule
+    public ErrorCollector collector = new ErrorCollector();
+
+    private final NLGFactory factory = new NLGFactory(new simplenlg.lexicon.dutch.XMLLexicon());
+
+    private SPhraseSpec buildClause(String adjective) {
+        NPPhraseSpec subject = factory.createNounPhrase("de", "vrouw");
+        subject.addPreModifier(adjective);
+        return factory.createClause(subject, "kopen", factory.createNounPhrase("een", "huis"));
+    }
+
+    @Test
+    public void hashCodesFollowTheChangesOfTheTree() {
+        SPhraseSpec clause = buildClause("groot");
+        SPhraseSpec other = buildClause("groot");
+        collector.checkThat(clause.hashCode(), equalTo(other.hashCode()));
+        collector.checkThat(clause, equalTo(other));
+
+        // a change deep in the tree, after the hash codes were taken
+        NPPhraseSpec subject = (NPPhraseSpec) other.getSubject();
+        subject.setPlural(true);
+        collector.checkThat(clause.equals(other), equalTo(false));
+        collector.checkThat(clause.hashCode(), not(equalTo(other.hashCode())));
+        subject.setPlural(false);
+        collector.checkThat(clause, equalTo(other));
+        collector.checkThat(clause.hashCode(), equalTo(other.hashCode()));
+
+        // elements as keys, and words by base form and ID
+        Map<NLGElement, String> realised = new HashMap<NLGElement, String>();
+        realised.put(clause, "De grote vrouw koopt een huis.");
+        collector.checkThat(realised.get(buildClause("groot")), equalTo("De grote vrouw koopt een huis."));
+        collector.checkThat(realised.get(buildClause("klein")), nullValue());
+        WordElement word = factory.getLexicon().getWord("huis", LexicalCategory.NOUN);
+        int wordHash = word.hashCode();
+        word.setFeature(Feature.TENSE, Tense.PAST);
+        collector.checkThat(word.hashCode(), equalTo(wordHash));
+        word.removeFeature(Feature.TENSE);
+    }
+
+    @Test
+    public void changesReachEveryTreeHashedFromAnElement() {
+        NPPhraseSpec subject = factory.createNounPhrase("de", "vrouw");
+        SPhraseSpec first = factory.createClause(subject, "kopen", factory.createNounPhrase("een", "huis"));
+        SPhraseSpec second = factory.createClause(subject, "zien", factory.createNounPhrase("een", "huis"));
+        SPhraseSpec other = buildClause("groot");
+        int firstHash = first.hashCode();
+        int secondHash = second.hashCode();
+        int otherHash = other.hashCode();
+
+        subject.addPreModifier("groot");
+        collector.checkThat(first.hashCode(), not(equalTo(firstHash)));
+        collector.checkThat(second.hashCode(), not(equalTo(secondHash)));
+        collector.checkThat(first.hashCode(), equalTo(other.hashCode()));
+        collector.checkThat(first, equalTo(other));
+        collector.checkThat(other.hashCode(), equalTo(otherHash));
+
+        subject.setPlural(true);
+        collector.checkThat(first.equals(other), equalTo(false));
+        collector.checkThat(second.hashCode(), not(equalTo(buildClause("groot").hashCode())));
+    }
+
+    @Test
+    public void aggregationComparesTheTreesAsBefore() {
+        SPhraseSpec first = buildClause("groot");
+        SPhraseSpec second = buildClause("groot");
+        second.setVerb("zien");
+        collector.checkThat(PhraseChecker.sameSubjects(first, second), equalTo(true));
+        collector.checkThat(PhraseChecker.sameVP(first, second), equalTo(false));
+
+        ((NPPhraseSpec) second.getSubject()).addPreModifier("mooi");
+        collector.checkThat(PhraseChecker.sameSubjects(first, second), equalTo(false));
+
+        ClauseCoordinationRule rule = new ClauseCoordinationRule();
+        rule.setFactory(factory);
+        collector.checkThat(rule.apply(first, buildClause("groot")), equalTo((NLGElement) first));
+        collector.checkThat(rule.apply(first, second), nullValue());
+    }
+}
@@ -0,0 +1,67 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+import simplenlg.features.Feature;
+import simplenlg.features.Gender;
+import simplenlg.features.LexicalFeature;
+import simplenlg.features.NumberAgreement;
+import simplenlg.features.Person;
+import simplenlg.framework.LexicalCategory;
+import simplenlg.framework.WordElement;
+import simplenlg.lexicon.XMLLexicon;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+
+public class FeatureIndexTest {
+
+    @Rule
+    public ErrorCollector collector = new ErrorCollector();
+
+    @Test
+    public void featureLookupMatchesScan() {
+        XMLLexicon lexicon = new simplenlg.lexicon.dutch.XMLLexicon();
+
+        Map<String, Object> features = new HashMap<String, Object>();
+        features.put(Feature.PERSON, Person.THIRD);
+        features.put(Feature.NUMBER, NumberAgreement.SINGULAR);
+        features.put(LexicalFeature.GENDER, Gender.MASCULINE);
+        // words without these features match too
+        features.put(Feature.POSSESSIVE, Boolean.FALSE);
+        features.put(LexicalFeature.REFLEXIVE, null);
+        checkSameWords(lexicon, LexicalCategory.PRONOUN, features);
+
+        features.put(Feature.POSSESSIVE, Boolean.TRUE);
+        checkSameWords(lexicon, LexicalCategory.PRONOUN, features);
+
+        Map<String, Object> proper = new HashMap<String, Object>();
+        proper.put(LexicalFeature.PROPER, Boolean.FALSE);
+        checkSameWords(lexicon, LexicalCategory.ANY, proper);
+    }
+
+    private void checkSameWords(XMLLexicon lexicon, LexicalCategory category, Map<String, Object> features) {
+        List<WordElement> expected = new ArrayList<WordElement>();
+        for (WordElement word : lexicon.getWords(category, null)) {
+            if (hasFeatures(word, features)) expected.add(word);
+        }
+        List<WordElement> actual = lexicon.getWords(category, features);
+        collector.checkThat(actual.size(), equalTo(expected.size()));
+        for (int i = 0; i < Math.min(expected.size(), actual.size()); i++) {
+            collector.checkThat(actual.get(i) == expected.get(i), equalTo(true));
+        }
+    }
+
+    private boolean hasFeatures(WordElement word, Map<String, Object> features) {
+        for (Map.Entry<String, Object> feature : features.entrySet()) {
+            Object value = feature.getValue();
+            boolean matches = word.getAllFeatures().entrySet().contains(feature)
+                    || ((value == null || value == Boolean.FALSE) && !word.hasFeature(feature.getKey()));
+            if (!matches) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,77 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+import simplenlg.features.Feature;
+import simplenlg.features.LexicalFeature;
+import simplenlg.features.Tense;
+import simplenlg.features.dutch.DutchLexicalFeature;
+import simplenlg.framework.FeatureMap;
+import simplenlg.framework.LexicalCategory;
+import simplenlg.framework.WordElement;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+
+public class FeatureMapTest {
+
+    @Rule
+    public ErrorCollector collector = new ErrorCollector();
+
+    @Test
+    public void behavesAsAHashMap() {
+        FeatureMap features = new FeatureMap();
+        Map<String, Object> expected = new HashMap<String, Object>();
+        List<Map<String, Object>> maps = Arrays.<Map<String, Object>>asList(features, expected);
+        for (Map<String, Object> map : maps) {
+            map.put(Feature.TENSE, Tense.PAST);
+            map.put(DutchLexicalFeature.PREVERB, "op");
+            // not registered
+            map.put("my_feature", 3);
+            map.put(null, "null key");
+            map.put(LexicalFeature.PROPER, null);
+            map.put(Feature.NEGATED, Boolean.TRUE);
+            map.remove(Feature.NEGATED);
+        }
+        collector.checkThat(features, equalTo(expected));
+        collector.checkThat(expected, equalTo((Map<String, Object>) features));
+        collector.checkThat(features.hashCode(), equalTo(expected.hashCode()));
+        collector.checkThat(features.size(), equalTo(5));
+        collector.checkThat(features.containsKey(LexicalFeature.PROPER), equalTo(true));
+        collector.checkThat(features.get(LexicalFeature.PROPER), nullValue());
+        collector.checkThat(features.containsKey(Feature.NEGATED), equalTo(false));
+        // registered features are found by equal names, not only by the constants
+        collector.checkThat(features.get(new String(Feature.TENSE)), sameInstance((Object) Tense.PAST));
+
+        // the map can be changed through its views
+        for (Iterator<Map.Entry<String, Object>> entries = features.entrySet().iterator(); entries.hasNext(); ) {
+            Map.Entry<String, Object> entry = entries.next();
+            if ("op".equals(entry.getValue())) entry.setValue("uit");
+            else if (entry.getKey() == null) entries.remove();
+        }
+        collector.checkThat(features.get(DutchLexicalFeature.PREVERB), equalTo((Object) "uit"));
+        features.keySet().remove("my_feature");
+        collector.checkThat(features.size(), equalTo(3));
+        features.clear();
+        collector.checkThat(features.isEmpty(), equalTo(true));
+    }
+
+    @Test
+    public void elementsKeepTheirFeaturesInAFeatureMap() {
+        WordElement word = new WordElement("huis", LexicalCategory.NOUN, null);
+        word.setFeature(LexicalFeature.PROPER, true);
+        word.setFeature("my_feature", 2);
+        collector.checkThat(word.getAllFeatures() instanceof FeatureMap, equalTo(true));
+        collector.checkThat(word.getFeature(LexicalFeature.PROPER), sameInstance((Object) Boolean.TRUE));
+        collector.checkThat(word.getFeatureAsInteger("my_feature"), equalTo(2));
+        word.setFeature(LexicalFeature.PROPER, null);
+        collector.checkThat(word.hasFeature(LexicalFeature.PROPER), equalTo(false));
+        collector.checkThat(word.getAllFeatureNames().size(), equalTo(1));
+    }
+}
@@ -0,0 +1,173 @@
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import simplenlg.features.Feature;
+import simplenlg.features.InternalFeature;
+import simplenlg.features.LexicalFeature;
+import simplenlg.features.Tense;
+import simplenlg.features.dutch.DutchFeature;
+import simplenlg.framework.FeatureMap;
+import simplenlg.framework.InflectedWordElement;
+import simplenlg.framework.LexicalCategory;
+import simplenlg.framework.NLGFactory;
+import simplenlg.framework.WordElement;
+import simplenlg.lexicon.Lexicon;
+import simplenlg.phrasespec.SPhraseSpec;
+import simplenlg.realiser.Realiser;
+
+/**
+ * Measures the realisations per second and the bytes allocated per
+ * realisation of a few Dutch clauses, and compares the features stored in a
+ * FeatureMap (as elements do) with the same features stored in a HashMap,
+ * and the inflected words made from the words of the lexicon, which read
+ * their features through, with copies of their features.
+ * Not a unit test, run with
+ *
+ * <pre>
+ * java FeatureStorageBenchmark [seconds per run]
+ * </pre>
+ *
+ * (the allocation rate is read from the JVM's per-thread counters, so it is
+ * only printed on JVMs which have them, such as HotSpot).
+ */
+public class FeatureStorageBenchmark {
+
+    // the features most read and written while realising a clause
+    private static final String[] FEATURES = {Feature.TENSE, Feature.NUMBER, Feature.PERSON,
+            Feature.NEGATED, Feature.PASSIVE, Feature.PERFECT, Feature.FORM,
+            InternalFeature.DISCOURSE_FUNCTION, InternalFeature.BASE_WORD, InternalFeature.SPECIFIER,
+            LexicalFeature.GENDER, LexicalFeature.PROPER, DutchFeature.PREVERB};
+
+    // features read but mostly not set
+    private static final String[] UNSET_FEATURES = {Feature.PROGRESSIVE, Feature.MODAL,
+            Feature.INTERROGATIVE_TYPE, Feature.SUPPRESS_GENITIVE_IN_GERUND, InternalFeature.COMPLEMENTS,
+            LexicalFeature.PLURAL, LexicalFeature.PAST_PARTICIPLE};
+
+    private static long sink;
+
+    public static void main(String[] args) {
+        long millis = (args.length > 0 ? Long.parseLong(args[0]) : 3) * 1000;
+        Lexicon lexicon = new simplenlg.lexicon.dutch.XMLLexicon();
+        NLGFactory factory = new NLGFactory(lexicon);
+        Realiser realiser = new Realiser();
+
+        // warm up
+        realise(factory, realiser, millis);
+        long[] result = realise(factory, realiser, millis);
+        printRate("realisation", result, millis);
+
+        List<WordElement> words = lexicon.getWords(LexicalCategory.ANY, null);
+        inflect(words, false, millis);
+        printRate("copied word features", inflect(words, false, millis), millis);
+        inflect(words, true, millis);
+        printRate("inflected word", inflect(words, true, millis), millis);
+
+        mapOperations(new HashMap<String, Object>(), millis);
+        printRate("HashMap", mapOperations(new HashMap<String, Object>(), millis), millis);
+        mapOperations(new FeatureMap(), millis);
+        printRate("FeatureMap", mapOperations(new FeatureMap(), millis), millis);
+    }
+
+    /**
+     * @return the number of clauses realised, and the bytes allocated
+     */
+    private static long[] realise(NLGFactory factory, Realiser realiser, long millis) {
+        long bytes = allocatedBytes();
+        long count = 0;
+        long end = System.currentTimeMillis() + millis;
+        while (System.currentTimeMillis() < end) {
+            SPhraseSpec clause = factory.createClause("de vrouw", "zien", "het huis");
+            clause.setFeature(Feature.TENSE, Tense.PAST);
+            sink += realiser.realiseSentence(clause).length();
+
+            clause = factory.createClause("hij", "opbellen", "zijn moeder");
+            clause.setFeature(Feature.NEGATED, true);
+            sink += realiser.realiseSentence(clause).length();
+            count += 2;
+        }
+        return new long[]{count, allocatedBytes() - bytes};
+    }
+
+    /**
+     * make inflected words from the words of the lexicon, or copy their
+     * features into inflected words, as they did before reading them
+     * through
+     *
+     * @return the number of words, and the bytes allocated
+     */
+    private static long[] inflect(List<WordElement> words, boolean inflected, long millis) {
+        long bytes = allocatedBytes();
+        long count = 0;
+        long end = System.currentTimeMillis() + millis;
+        while (System.currentTimeMillis() < end) {
+            for (WordElement word : words) {
+                InflectedWordElement element;
+                if (inflected) {
+                    element = new InflectedWordElement(word);
+                } else {
+                    element = new InflectedWordElement(word.getBaseForm(), (LexicalCategory) word.getCategory());
+                    for (String feature : word.getAllFeatureNames()) {
+                        element.setFeature(feature, word.getFeature(feature));
+                    }
+                    element.setFeature(InternalFeature.BASE_WORD, word);
+                }
+                if (element.getFeature(LexicalFeature.PLURAL) != null) sink++;
+            }
+            count += words.size();
+        }
+        return new long[]{count, allocatedBytes() - bytes};
+    }
+
+    /**
+     * set, read and remove the features of FEATURES, and read those of
+     * UNSET_FEATURES, on new maps, as the processors do on new elements
+     *
+     * @return the number of maps used, and the bytes allocated
+     */
+    private static long[] mapOperations(Map<String, Object> first, long millis) {
+        boolean featureMap = first instanceof FeatureMap;
+        long bytes = allocatedBytes();
+        long count = 0;
+        long end = System.currentTimeMillis() + millis;
+        while (System.currentTimeMillis() < end) {
+            for (int i = 0; i < 1000; i++) {
+                Map<String, Object> features = featureMap ? new FeatureMap() : new HashMap<String, Object>();
+                for (String feature : FEATURES) features.put(feature, Boolean.TRUE);
+                for (int read = 0; read < 5; read++) {
+                    for (String feature : FEATURES) {
+                        if (features.get(feature) != null) sink++;
+                    }
+                    for (String feature : UNSET_FEATURES) {
+                        if (features.get(feature) != null) sink++;
+                    }
+                }
+                features.remove(Feature.NEGATED);
+                sink += features.size();
+            }
+            count += 1000;
+        }
+        return new long[]{count, allocatedBytes() - bytes};
+    }
+
+    private static void printRate(String name, long[] result, long millis) {
+        if (result[1] < 0) {
+            System.out.printf("%s: %.0f/s%n", name, result[0] * 1000.0 / millis);
+        } else {
+            System.out.printf("%s: %.0f/s, %d bytes allocated each%n", name,
+                    result[0] * 1000.0 / millis, result[1] / result[0]);
+        }
+    }
+
+    /**
+     * @return the bytes allocated by this thread, or -1 if unknown
+     */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+}
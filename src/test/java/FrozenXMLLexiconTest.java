@@ -0,0 +1,54 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+import simplenlg.features.Feature;
+import simplenlg.features.Tense;
+import simplenlg.framework.LexicalCategory;
+import simplenlg.framework.NLGFactory;
+import simplenlg.framework.WordElement;
+import simplenlg.lexicon.Lexicon;
+import simplenlg.lexicon.OverlayLexicon;
+import simplenlg.lexicon.XMLLexicon;
+import simplenlg.phrasespec.SPhraseSpec;
+import simplenlg.realiser.Realiser;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+
+public class FrozenXMLLexiconTest {
+
+    @Rule
+    public ErrorCollector collector = new ErrorCollector();
+
+    @Test
+    public void overlayKeepsCreatedWordsOutOfFrozenLexicon() {
+        XMLLexicon shared = new simplenlg.lexicon.dutch.XMLLexicon();
+        shared.freeze();
+
+        // unknown words are kept by the overlay only
+        OverlayLexicon overlay = new OverlayLexicon(shared);
+        WordElement created = overlay.lookupWord("blorfen", LexicalCategory.VERB);
+        collector.checkThat(overlay.lookupWord("blorfen", LexicalCategory.VERB), sameInstance(created));
+        collector.checkThat(overlay.getWordFromVariant("blorfte", LexicalCategory.VERB), sameInstance(created));
+        collector.checkThat(shared.hasWord("blorfen", LexicalCategory.VERB), equalTo(false));
+        collector.checkThat(new OverlayLexicon(shared).lookupWord("blorfen", LexicalCategory.VERB),
+                not(sameInstance(created)));
+
+        // words of the shared lexicon are found first
+        collector.checkThat(overlay.lookupWord("huis", LexicalCategory.NOUN),
+                sameInstance(shared.getWord("huis", LexicalCategory.NOUN)));
+
+        // unknown words are realised by each overlay, without the frozen
+        // lexicon
+        collector.checkThat(realiseUnknownVerb(new OverlayLexicon(shared)), equalTo("De vrouw blorfte het huis."));
+        collector.checkThat(realiseUnknownVerb(overlay), equalTo("De vrouw blorfte het huis."));
+        collector.checkThat(shared.hasWord("blorfen", LexicalCategory.VERB), equalTo(false));
+    }
+
+    private String realiseUnknownVerb(Lexicon lexicon) {
+        SPhraseSpec clause = new NLGFactory(lexicon).createClause("de vrouw", "blorfen", "het huis");
+        clause.setFeature(Feature.TENSE, Tense.PAST);
+        return new Realiser().realiseSentence(clause);
+    }
+}
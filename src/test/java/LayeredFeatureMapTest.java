@@ -0,0 +1,84 @@
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+import simplenlg.features.Feature;
+import simplenlg.features.InternalFeature;
+import simplenlg.features.LexicalFeature;
+import simplenlg.features.NumberAgreement;
+import simplenlg.framework.InflectedWordElement;
+import simplenlg.framework.LayeredFeatureMap;
+import simplenlg.framework.LexicalCategory;
+import simplenlg.framework.WordElement;
+import simplenlg.lexicon.Lexicon;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+
+public class LayeredFeatureMapTest {
+
+    @Rule
+    public ErrorCollector collector = new ErrorCollector();
+
+    @Test
+    public void inflectedWordsReadTheFeaturesOfTheirBaseWord() {
+        Lexicon lexicon = new simplenlg.lexicon.dutch.XMLLexicon();
+        WordElement huis = lexicon.getWord("huis", LexicalCategory.NOUN);
+        Map<String, Object> wordFeatures = new HashMap<String, Object>(huis.getAllFeatures());
+
+        InflectedWordElement inflected = new InflectedWordElement(huis);
+        LayeredFeatureMap features = (LayeredFeatureMap) inflected.getAllFeatures();
+        collector.checkThat(inflected.getFeatureAsString(LexicalFeature.PLURAL), equalTo("huizen"));
+        collector.checkThat(inflected.getFeature(InternalFeature.BASE_WORD), sameInstance((Object) huis));
+        // only the base word and base form are kept by the inflected word
+        collector.checkThat(features.getOverriddenCount(), equalTo(2));
+
+        inflected.setFeature(Feature.NUMBER, NumberAgreement.PLURAL);
+        inflected.setFeature(LexicalFeature.PLURAL, "huisjes");
+        inflected.removeFeature(LexicalFeature.GENDER);
+        collector.checkThat(inflected.getFeatureAsString(LexicalFeature.PLURAL), equalTo("huisjes"));
+        collector.checkThat(inflected.hasFeature(LexicalFeature.GENDER), equalTo(false));
+
+        // the base word is unchanged
+        collector.checkThat(huis.getAllFeatures(), equalTo(wordFeatures));
+        collector.checkThat(features.getOverriddenCount(), equalTo(5));
+
+        // the features are those of a copy with the same changes
+        Map<String, Object> expected = new HashMap<String, Object>(wordFeatures);
+        expected.put(InternalFeature.BASE_WORD, huis);
+        expected.put(LexicalFeature.BASE_FORM, "huis");
+        expected.put(Feature.NUMBER, NumberAgreement.PLURAL);
+        expected.put(LexicalFeature.PLURAL, "huisjes");
+        expected.remove(LexicalFeature.GENDER);
+        collector.checkThat(features, equalTo(expected));
+        collector.checkThat(features.size(), equalTo(expected.size()));
+        collector.checkThat(features.keySet(), equalTo(expected.keySet()));
+    }
+
+    @Test
+    public void featuresOfTheBaseCanBeRemovedThroughTheViews() {
+        Map<String, Object> base = new HashMap<String, Object>();
+        base.put(LexicalFeature.PLURAL, "huizen");
+        base.put("my_feature", 1);
+        LayeredFeatureMap features = new LayeredFeatureMap(base);
+        features.put(LexicalFeature.PLURAL, "huisjes");
+
+        for (Iterator<String> names = features.keySet().iterator(); names.hasNext(); ) {
+            names.next();
+            names.remove();
+        }
+        collector.checkThat(features.isEmpty(), equalTo(true));
+        collector.checkThat(features.get(LexicalFeature.PLURAL), nullValue());
+        collector.checkThat(base.size(), equalTo(2));
+
+        features.put("my_feature", 2);
+        collector.checkThat(features.get("my_feature"), equalTo((Object) 2));
+        features.clear();
+        collector.checkThat(features.containsKey("my_feature"), equalTo(false));
+        collector.checkThat(base.get("my_feature"), equalTo((Object) 1));
+    }
+}
@@ -0,0 +1,121 @@
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+import simplenlg.features.Feature;
+import simplenlg.features.Tense;
+import simplenlg.framework.LexicalCategory;
+import simplenlg.framework.NLGFactory;
+import simplenlg.framework.WordElement;
+import simplenlg.lexicon.Lexicon;
+import simplenlg.lexicon.VariantIndex;
+import simplenlg.lexicon.XMLLexicon;
+import simplenlg.phrasespec.SPhraseSpec;
+import simplenlg.realiser.Realiser;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
+
+public class LazyXMLLexiconTest {
+
+    @Rule
+    public ErrorCollector collector = new ErrorCollector();
+
+    private static String previousDirectory;
+    private static File directory;
+
+    // without a variant index, the lexicon is loaded completely: the first
+    // lazy load saves it here, so that the next ones are lazy
+    @BeforeClass
+    public static void setVariantIndexDirectory() throws IOException {
+        previousDirectory = System.getProperty(VariantIndex.DIRECTORY_PROPERTY);
+        directory = Files.createTempDirectory("variants").toFile();
+        System.setProperty(VariantIndex.DIRECTORY_PROPERTY, directory.getPath());
+    }
+
+    @AfterClass
+    public static void restoreVariantIndexDirectory() {
+        if (previousDirectory != null) {
+            System.setProperty(VariantIndex.DIRECTORY_PROPERTY, previousDirectory);
+        } else {
+            System.clearProperty(VariantIndex.DIRECTORY_PROPERTY);
+        }
+        for (File index : directory.listFiles()) index.delete();
+        directory.delete();
+    }
+
+    @Test
+    public void lazyLexiconMatchesCompleteLexicon() {
+        XMLLexicon complete = new simplenlg.lexicon.dutch.XMLLexicon();
+        new simplenlg.lexicon.dutch.XMLLexicon(true);
+        XMLLexicon lazy = new simplenlg.lexicon.dutch.XMLLexicon(true);
+
+        // base form, variant computed by the morphology, and ID
+        checkSameWords(complete.getWords("zijn", LexicalCategory.VERB),
+                lazy.getWords("zijn", LexicalCategory.VERB));
+        checkSameWords(complete.getWordsFromVariant("liep", LexicalCategory.ANY),
+                lazy.getWordsFromVariant("liep", LexicalCategory.ANY));
+        WordElement word = complete.getWords("huis", LexicalCategory.NOUN).get(0);
+        checkSameWords(complete.getWordsByID(word.getId()), lazy.getWordsByID(word.getId()));
+        checkSameWords(complete.getWords(LexicalCategory.PRONOUN, null),
+                lazy.getWords(LexicalCategory.PRONOUN, null));
+
+        // words are only read once
+        collector.checkThat(lazy.getWord("huis", LexicalCategory.NOUN),
+                sameInstance(lazy.lookupWord("huis")));
+
+        // and separable verbs are split when loaded lazily too
+        collector.checkThat(realiseSeparableVerb(lazy), equalTo("De vrouw belde de man op."));
+        collector.checkThat(realiseSeparableVerb(lazy), equalTo(realiseSeparableVerb(complete)));
+    }
+
+    @Test
+    public void wordsWhichCantBeParsedAloneAreReadFromTheFile() throws IOException {
+        File file = File.createTempFile("lazy", ".xml");
+        file.deleteOnExit();
+        Writer writer = new FileWriter(file);
+        try {
+            // the prefix of plural is only declared by the root element
+            writer.write("<lexicon xmlns:x=\"urn:x\">\n"
+                    + "<word><base>huis</base><category>noun</category><id>L1</id><x:plural>huizen</x:plural></word>\n"
+                    + "<word><base>lopen</base><category>verb</category><id>L2</id><past>liep</past></word>\n"
+                    + "</lexicon>\n");
+        } finally {
+            writer.close();
+        }
+        XMLLexicon complete = new simplenlg.lexicon.dutch.XMLLexicon(file);
+        for (int i = 0; i < 2; i++) {
+            // without, then with the variant index
+            XMLLexicon lazy = new simplenlg.lexicon.dutch.XMLLexicon(file, true);
+            checkSameWords(complete.getWords("huis", LexicalCategory.NOUN),
+                    lazy.getWords("huis", LexicalCategory.NOUN));
+            checkSameWords(complete.getWords("lopen", LexicalCategory.VERB),
+                    lazy.getWords("lopen", LexicalCategory.VERB));
+            collector.checkThat(lazy.getWord("huis", LexicalCategory.NOUN).getFeatureAsString("plural"),
+                    equalTo("huizen"));
+        }
+    }
+
+    private String realiseSeparableVerb(Lexicon lexicon) {
+        SPhraseSpec clause = new NLGFactory(lexicon).createClause("de vrouw", "opbellen", "de man");
+        clause.setFeature(Feature.TENSE, Tense.PAST);
+        return new Realiser().realiseSentence(clause);
+    }
+
+    private void checkSameWords(List<WordElement> expected, List<WordElement> actual) {
+        collector.checkThat(actual.size(), equalTo(expected.size()));
+        for (int i = 0; i < Math.min(expected.size(), actual.size()); i++) {
+            collector.checkThat(actual.get(i).getBaseForm(), equalTo(expected.get(i).getBaseForm()));
+            collector.checkThat(actual.get(i).getId(), equalTo(expected.get(i).getId()));
+            collector.checkThat(actual.get(i).getAllFeatures(), equalTo(expected.get(i).getAllFeatures()));
+        }
+    }
+}
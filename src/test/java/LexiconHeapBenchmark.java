@@ -0,0 +1,64 @@
+import simplenlg.framework.LexicalCategory;
+import simplenlg.lexicon.ColumnarLexicon;
+import simplenlg.lexicon.Lexicon;
+import simplenlg.lexicon.XMLLexicon;
+
+/**
+ * Compares the heap used per word by the XML lexicons and by columnar copies
+ * of the same lexicons. Not a unit test, run with
+ *
+ * <pre>
+ * java LexiconHeapBenchmark
+ * </pre>
+ *
+ * (the heap is measured after full garbage collections, so the figures are
+ * approximate; each lexicon is measured on its own).
+ */
+public class LexiconHeapBenchmark {
+
+    public static void main(String[] args) {
+        // load the classes used by lexicons first, so they aren't counted
+        new ColumnarLexicon(new simplenlg.lexicon.english.XMLLexicon()).lookupWord("house");
+
+        for (String code : new String[]{"en", "fr", "nl"}) {
+            long before = usedHeap();
+            XMLLexicon xmlLexicon = loadXML(code);
+            firstLookup(xmlLexicon);
+            int words = xmlLexicon.getWords(LexicalCategory.ANY, null).size();
+            long xmlHeap = usedHeap() - before;
+
+            Lexicon columnarLexicon = new ColumnarLexicon(xmlLexicon);
+            xmlLexicon = null;
+            firstLookup(columnarLexicon);
+            long columnarHeap = usedHeap() - before;
+
+            System.out.printf("%s: %d words, XML %d KB (%d bytes/word), columnar %d KB (%d bytes/word)%n",
+                    code, words, xmlHeap / 1024, xmlHeap / words,
+                    columnarHeap / 1024, columnarHeap / words);
+            columnarLexicon = null;
+        }
+    }
+
+    private static XMLLexicon loadXML(String code) {
+        if (code.equals("fr")) return new simplenlg.lexicon.french.XMLLexicon();
+        if (code.equals("nl")) return new simplenlg.lexicon.dutch.XMLLexicon();
+        return new simplenlg.lexicon.english.XMLLexicon();
+    }
+
+    private static void firstLookup(Lexicon lexicon) {
+        lexicon.lookupWord("house", LexicalCategory.NOUN);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
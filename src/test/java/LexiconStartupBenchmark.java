@@ -0,0 +1,98 @@
+import simplenlg.framework.Language;
+import simplenlg.framework.LexicalCategory;
+import simplenlg.lexicon.BinaryLexicon;
+import simplenlg.lexicon.Lexicon;
+import simplenlg.lexicon.XMLLexicon;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Compares the time needed to get a usable lexicon from the XML lexicons,
+ * loaded sequentially, in parallel and lazily, and from binary snapshots of
+ * the same lexicons. Not a unit test, run with
+ *
+ * <pre>
+ * java LexiconStartupBenchmark [runs]
+ * </pre>
+ *
+ * (without the <code>simplenlg.variantIndexDir</code> property, the variants
+ * of the words are computed on every load; lazy lexicons need a variant
+ * index, so they are timed with a directory of their own).
+ */
+public class LexiconStartupBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        File indexDirectory = Files.createTempDirectory("variants").toFile();
+
+        for (String code : new String[]{"en", "fr", "nl"}) {
+            File snapshot = File.createTempFile("lexicon-" + code, ".bin");
+            snapshot.deleteOnExit();
+            BinaryLexicon.write(loadXML(code), snapshot);
+
+            long xmlTime = Long.MAX_VALUE;
+            long parallelTime = Long.MAX_VALUE;
+            long lazyTime = Long.MAX_VALUE;
+            long binaryTime = Long.MAX_VALUE;
+            for (int run = 0; run < runs; run++) {
+                long start = System.nanoTime();
+                firstLookup(loadXML(code));
+                xmlTime = Math.min(xmlTime, System.nanoTime() - start);
+
+                start = System.nanoTime();
+                firstLookup(loadXML(code, ForkJoinPool.commonPool()));
+                parallelTime = Math.min(parallelTime, System.nanoTime() - start);
+
+                String variantIndexDir = System.setProperty("simplenlg.variantIndexDir",
+                        indexDirectory.getPath());
+                start = System.nanoTime();
+                firstLookup(loadLazyXML(code));
+                lazyTime = Math.min(lazyTime, System.nanoTime() - start);
+                if (variantIndexDir != null) {
+                    System.setProperty("simplenlg.variantIndexDir", variantIndexDir);
+                } else {
+                    System.clearProperty("simplenlg.variantIndexDir");
+                }
+
+                start = System.nanoTime();
+                firstLookup(new BinaryLexicon(snapshot));
+                binaryTime = Math.min(binaryTime, System.nanoTime() - start);
+            }
+
+            System.out.printf("%s: XML %d ms, parallel XML %d ms (%d threads), lazy XML %d ms, binary %.2f ms (%d bytes), best of %d runs%n",
+                    code, xmlTime / 1000000, parallelTime / 1000000,
+                    ForkJoinPool.commonPool().getParallelism(), lazyTime / 1000000,
+                    binaryTime / 1000000.0, snapshot.length(), runs);
+        }
+
+        for (File index : indexDirectory.listFiles()) index.delete();
+        indexDirectory.delete();
+    }
+
+    private static XMLLexicon loadXML(String code) {
+        if (code.equals("fr")) return new simplenlg.lexicon.french.XMLLexicon();
+        if (code.equals("nl")) return new simplenlg.lexicon.dutch.XMLLexicon();
+        return new simplenlg.lexicon.english.XMLLexicon();
+    }
+
+    private static XMLLexicon loadLazyXML(String code) {
+        if (code.equals("fr")) return new simplenlg.lexicon.french.XMLLexicon(true);
+        if (code.equals("nl")) return new simplenlg.lexicon.dutch.XMLLexicon(true);
+        return new simplenlg.lexicon.english.XMLLexicon(true);
+    }
+
+    private static XMLLexicon loadXML(String code, Executor executor) {
+        if (code.equals("fr")) return new simplenlg.lexicon.french.XMLLexicon(executor);
+        if (code.equals("nl")) return new simplenlg.lexicon.dutch.XMLLexicon(executor);
+        return new XMLLexicon(Language.ENGLISH, executor);
+    }
+
+    // startup includes the first lookup, so that lazy work is counted
+    private static void firstLookup(Lexicon lexicon) {
+        lexicon.lookupWord("house", LexicalCategory.NOUN);
+    }
+}
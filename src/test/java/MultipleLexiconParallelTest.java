@@ -0,0 +1,134 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+import simplenlg.framework.LexicalCategory;
+import simplenlg.framework.WordElement;
+import simplenlg.lexicon.MultipleLexicon;
+import simplenlg.lexicon.XMLLexicon;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+
+public class MultipleLexiconParallelTest {
+
+    @Rule
+    public ErrorCollector collector = new ErrorCollector();
+
+    /** a lexicon whose lookups wait at a barrier, shared with the other lexicons */
+    private static class WaitingLexicon extends simplenlg.lexicon.dutch.XMLLexicon {
+        private final CyclicBarrier barrier;
+        private final CountDownLatch latch;
+
+        WaitingLexicon(CyclicBarrier barrier, CountDownLatch latch) {
+            this.barrier = barrier;
+            this.latch = latch;
+        }
+
+        @Override
+        public List<WordElement> getWords(String baseForm, LexicalCategory category) {
+            try {
+                if (barrier != null)
+                    barrier.await(10, TimeUnit.SECONDS);
+                if (latch != null)
+                    latch.await();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+            return super.getWords(baseForm, category);
+        }
+    }
+
+    @Test
+    public void lookupsFromTasksOfTheExecutorDontDeadlock() throws Exception {
+        // the only thread of the executor looks words up, so the tasks of
+        // the lexicons can only run once that lookup is done
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final XMLLexicon plain = new simplenlg.lexicon.dutch.XMLLexicon();
+            final MultipleLexicon lexicon = new MultipleLexicon(plain.getLanguage(), plain, plain);
+            lexicon.setExecutor(executor);
+            for (final boolean searchAll : new boolean[] { false, true }) {
+                lexicon.setAlwaysSearchAll(searchAll);
+                Future<Integer> words = executor.submit(new Callable<Integer>() {
+                    public Integer call() {
+                        return lexicon.getWords("xyzzy", LexicalCategory.NOUN).size()
+                                + lexicon.getWordsForBaseForms(Arrays.asList("huis"), LexicalCategory.NOUN)
+                                .get("huis").size();
+                    }
+                });
+                collector.checkThat(words.get(10, TimeUnit.SECONDS),
+                        equalTo((searchAll ? 2 : 1) * plain.getWords("huis", LexicalCategory.NOUN).size()));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void lexiconsAreSearchedAtTheSameTime() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // each lookup waits until the other lexicons are searched too
+            CyclicBarrier barrier = new CyclicBarrier(3);
+            XMLLexicon plain = new simplenlg.lexicon.dutch.XMLLexicon();
+            MultipleLexicon lexicon = new MultipleLexicon(plain.getLanguage(),
+                    new WaitingLexicon(barrier, null), new WaitingLexicon(barrier, null),
+                    new WaitingLexicon(barrier, null));
+            lexicon.setAlwaysSearchAll(true);
+            lexicon.setExecutor(executor);
+            lexicon.setRecordStatistics(true);
+
+            List<WordElement> words = lexicon.getWords("huis", LexicalCategory.NOUN);
+            collector.checkThat(words.size(), equalTo(3 * plain.getWords("huis", LexicalCategory.NOUN).size()));
+            for (WordElement word : words)
+                collector.checkThat(word.getBaseForm(), equalTo("huis"));
+            for (MultipleLexicon.LayerStatistics statistics : lexicon.getLayerStatistics()) {
+                collector.checkThat(statistics.getLookups(), equalTo(1L));
+                collector.checkThat(statistics.getHits(), equalTo(1L));
+            }
+
+            // batch lookups too
+            List<String> baseForms = Arrays.asList("huis", "lopen");
+            collector.checkThat(lexicon.getWordsForBaseForms(baseForms, LexicalCategory.ANY),
+                    equalTo(sequentialCopy(lexicon, plain).getWordsForBaseForms(baseForms, LexicalCategory.ANY)));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void firstLexiconWithWordsDoesNotWaitForLaterOnes() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CountDownLatch slow = new CountDownLatch(1);
+        try {
+            XMLLexicon first = new simplenlg.lexicon.dutch.XMLLexicon();
+            MultipleLexicon lexicon = new MultipleLexicon(first.getLanguage(), first,
+                    new WaitingLexicon(null, slow));
+            lexicon.setExecutor(executor);
+
+            // found by the first lexicon while the second one still waits
+            collector.checkThat(lexicon.getWords("huis", LexicalCategory.NOUN),
+                    equalTo(first.getWords("huis", LexicalCategory.NOUN)));
+            collector.checkThat(lexicon.getWordsFromVariant("huizen", LexicalCategory.NOUN),
+                    equalTo(first.getWordsFromVariant("huizen", LexicalCategory.NOUN)));
+        } finally {
+            slow.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    private static MultipleLexicon sequentialCopy(MultipleLexicon lexicon, XMLLexicon plain) {
+        MultipleLexicon copy = new MultipleLexicon(plain.getLanguage(), plain, plain, plain);
+        copy.setAlwaysSearchAll(lexicon.isAlwaysSearchAll());
+        return copy;
+    }
+}
@@ -0,0 +1,71 @@
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Creates an in-memory HSQLDB database with the tables of the NIH Specialist
+ * lexicon used by NIHDBLexicon, filled with generated words, so that the NIH
+ * lexicon can be tested without the real database.
+ */
+public class NIHDBFixture {
+
+    public static final String DRIVER = "org.hsqldb.jdbcDriver";
+
+    /**
+     * Creates the database. Word <i>i</i> is the noun "word<i>i</i>" (plural
+     * "word<i>i</i>s"), or a verb too if <i>i</i> is even.
+     *
+     * @param name  name of the in-memory database
+     * @param words number of nouns
+     * @return JDBC URL of the database
+     */
+    public static String create(String name, int words) throws Exception {
+        Class.forName(DRIVER);
+        String url = "jdbc:hsqldb:mem:" + name;
+        Connection conn = DriverManager.getConnection(url, "sa", "");
+        try {
+            Statement statement = conn.createStatement();
+            statement.execute("CREATE TABLE LEX_RECORD (eui VARCHAR(10), base VARCHAR(100), category VARCHAR(20), "
+                    + "lexRecord LONGVARCHAR, lastAction INT)");
+            statement.execute("CREATE TABLE INFL_VARS (inflVar VARCHAR(100), inflVarLc VARCHAR(100), eui VARCHAR(10))");
+            statement.execute("CREATE INDEX LEX_RECORD_BASE ON LEX_RECORD (base)");
+            statement.execute("CREATE INDEX LEX_RECORD_EUI ON LEX_RECORD (eui)");
+            statement.execute("CREATE INDEX INFL_VARS_LC ON INFL_VARS (inflVarLc)");
+            statement.close();
+
+            PreparedStatement records = conn.prepareStatement("INSERT INTO LEX_RECORD VALUES (?, ?, ?, ?, 0)");
+            PreparedStatement variants = conn.prepareStatement("INSERT INTO INFL_VARS VALUES (?, ?, ?)");
+            int eui = 0;
+            for (int i = 0; i < words; i++) {
+                String base = "word" + i;
+                addRecord(records, variants, base, String.format("E%07d", ++eui), "noun",
+                        "\tvariants=reg\n", base + "s");
+                if (i % 2 == 0)
+                    addRecord(records, variants, base, String.format("E%07d", ++eui), "verb",
+                            "\tvariants=reg\n\tintran\n", base + "ed");
+            }
+            records.close();
+            variants.close();
+        } finally {
+            conn.close();
+        }
+        return url;
+    }
+
+    private static void addRecord(PreparedStatement records, PreparedStatement variants, String base,
+                                  String eui, String category, String entry, String variant) throws SQLException {
+        records.setString(1, eui);
+        records.setString(2, base);
+        records.setString(3, category);
+        records.setString(4, "{base=" + base + "\nentry=" + eui + "\n\tcat=" + category + "\n" + entry + "}\n");
+        records.executeUpdate();
+        for (String form : new String[]{base, variant}) {
+            variants.setString(1, form);
+            variants.setString(2, form.toLowerCase());
+            variants.setString(3, eui);
+            variants.executeUpdate();
+        }
+    }
+}
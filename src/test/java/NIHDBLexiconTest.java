@@ -0,0 +1,72 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+import simplenlg.framework.LexicalCategory;
+import simplenlg.framework.WordElement;
+import simplenlg.lexicon.NIHDBLexicon;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+
+public class NIHDBLexiconTest {
+
+    @Rule
+    public ErrorCollector collector = new ErrorCollector();
+
+    @Test
+    public void batchLookupMatchesSingleLookups() throws Exception {
+        String url = NIHDBFixture.create("batch", 20);
+        NIHDBLexicon lexicon = new NIHDBLexicon(NIHDBFixture.DRIVER, url, "sa", "");
+
+        List<String> baseForms = Arrays.asList("word1", "word2", "word3", "nothing", "word2");
+        for (LexicalCategory category : new LexicalCategory[]{LexicalCategory.ANY, LexicalCategory.VERB}) {
+            Map<String, List<WordElement>> words = lexicon.getWordsForBaseForms(baseForms, category);
+            collector.checkThat(words.keySet().size(), equalTo(4));
+            for (String baseForm : words.keySet())
+                collector.checkThat(words.get(baseForm).toString(),
+                        equalTo(lexicon.getWords(baseForm, category).toString()));
+        }
+        collector.checkThat(lexicon.getWords("word2", LexicalCategory.ANY).size(), equalTo(2));
+        collector.checkThat(lexicon.getWordsFromVariant("word3s", LexicalCategory.NOUN).toString(),
+                equalTo("[WordElement[word3:NOUN]]"));
+        lexicon.close();
+    }
+
+    @Test
+    public void pooledLexiconIsSharedByThreads() throws Exception {
+        String url = NIHDBFixture.create("pool", 200);
+        final NIHDBLexicon lexicon = new NIHDBLexicon(NIHDBFixture.DRIVER, url, "sa", "", 3);
+        collector.checkThat(lexicon.getPoolSize(), equalTo(3));
+
+        ExecutorService executor = Executors.newFixedThreadPool(6);
+        List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+        for (int t = 0; t < 6; t++) {
+            results.add(executor.submit(new Callable<Integer>() {
+                public Integer call() {
+                    int found = 0;
+                    for (int i = 0; i < 200; i++) {
+                        WordElement word = lexicon.getWord("word" + i, LexicalCategory.NOUN);
+                        if (("word" + i).equals(word.getBaseForm()) && word.getId() != null)
+                            found++;
+                    }
+                    return found;
+                }
+            }));
+        }
+        try {
+            for (Future<Integer> result : results)
+                collector.checkThat(result.get(), equalTo(200));
+        } finally {
+            executor.shutdown();
+            lexicon.close();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import simplenlg.framework.LexicalCategory;
+import simplenlg.lexicon.NIHDBLexicon;
+
+/**
+ * Measures the lookups per second of NIHDBLexicon against the number of
+ * threads sharing it, with a connection pool as large as the number of
+ * threads. The database is an in-memory HSQLDB fixture (see NIHDBFixture)
+ * standing in for the real NIH database. Not a unit test, run with
+ *
+ * <pre>
+ * java NIHDBLexiconThroughputBenchmark [words] [seconds per run]
+ * </pre>
+ *
+ * (an in-memory database has no I/O to overlap, so the figures mostly show
+ * how much of a lookup can run in parallel on the available CPUs).
+ */
+public class NIHDBLexiconThroughputBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        final int words = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        long seconds = args.length > 1 ? Long.parseLong(args[1]) : 3;
+        String url = NIHDBFixture.create("throughput", words);
+
+        System.out.printf("%d words, %d CPUs%n", words, Runtime.getRuntime().availableProcessors());
+        // warm up
+        NIHDBLexicon warmUp = new NIHDBLexicon(NIHDBFixture.DRIVER, url, "sa", "", 2);
+        run(warmUp, 2, words, seconds * 5000);
+        warmUp.close();
+
+        for (int threads : new int[]{1, 2, 4, 8}) {
+            NIHDBLexicon lexicon = new NIHDBLexicon(NIHDBFixture.DRIVER, url, "sa", "", threads);
+            long lookups = run(lexicon, threads, words, seconds * 1000);
+            System.out.printf("%d threads: %.0f lookups/s%n", threads, lookups / (double) seconds);
+            lexicon.close();
+        }
+    }
+
+    /**
+     * @return number of lookups made by the threads in the given time
+     */
+    private static long run(final NIHDBLexicon lexicon, int threads, final int words, long millis)
+            throws Exception {
+        final long end = System.currentTimeMillis() + millis;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Long>> results = new ArrayList<Future<Long>>();
+        for (int t = 0; t < threads; t++) {
+            final int seed = t;
+            results.add(executor.submit(new Callable<Long>() {
+                public Long call() {
+                    long lookups = 0;
+                    int i = seed * 7919;
+                    while (System.currentTimeMillis() < end) {
+                        i = (i + 7919) % words;
+                        // base form lookups, and a variant lookup now and then
+                        if (lookups % 4 == 3)
+                            lexicon.getWordsFromVariant("word" + i + "s", LexicalCategory.NOUN);
+                        else
+                            lexicon.getWords("word" + i, LexicalCategory.ANY);
+                        lookups++;
+                    }
+                    return lookups;
+                }
+            }));
+        }
+        long lookups = 0;
+        try {
+            for (Future<Long> result : results)
+                lookups += result.get();
+        } finally {
+            executor.shutdown();
+        }
+        return lookups;
+    }
+}
@@ -0,0 +1,68 @@
+import java.io.File;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+import simplenlg.framework.LexicalCategory;
+import simplenlg.lexicon.BinaryLexicon;
+import simplenlg.lexicon.NIHDBLexicon;
+import simplenlg.lexicon.NIHLexiconExporter;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+
+public class NIHLexiconExporterTest {
+
+    private static final String WORD_LIST = "word7,noun\nword4,verb\nword2,noun\nunknown,noun\n"
+            + "word4,noun\nword3,interjection\nword5,other\nword2,noun\nword10,adj\n";
+
+    @Rule
+    public ErrorCollector collector = new ErrorCollector();
+
+    @Test
+    public void exportIsSortedAndDoesNotDependOnThreads() throws Exception {
+        String url = NIHDBFixture.create("export", 20);
+        NIHDBLexicon lexicon = new NIHDBLexicon(NIHDBFixture.DRIVER, url, "sa", "", 3);
+
+        NIHLexiconExporter exporter = new NIHLexiconExporter(lexicon, 1);
+        exporter.setShowProgress(false);
+        StringWriter single = new StringWriter();
+        exporter.export(new StringReader(WORD_LIST), single);
+
+        collector.checkThat(exporter.getWordsRead(), equalTo(9L));
+        collector.checkThat(exporter.getWordsMissing(), equalTo(1L));
+        collector.checkThat(exporter.getWordsCreated(), equalTo(2L));
+        // the second "word2,noun" is the same word
+        collector.checkThat(exporter.getWordsWritten(), equalTo(7L));
+
+        String xml = single.toString();
+        String[] order = {"<base>unknown</base>", "<base>word10</base>", "<base>word2</base>",
+                "<base>word3</base>", "<base>word4</base>\n  <category>noun",
+                "<base>word4</base>\n  <category>verb", "<base>word7</base>"};
+        int previous = -1;
+        for (String base : order) {
+            int position = xml.replace("\r", "").indexOf(base);
+            collector.checkThat(base, position > previous, equalTo(true));
+            previous = position;
+        }
+
+        exporter = new NIHLexiconExporter(lexicon, 3);
+        exporter.setShowProgress(false);
+        exporter.setChunkSize(2);
+        StringWriter parallel = new StringWriter();
+        exporter.export(new StringReader(WORD_LIST), parallel);
+        collector.checkThat(parallel.toString(), equalTo(xml));
+
+        File snapshot = File.createTempFile("export", ".bin");
+        try {
+            exporter.exportBinary(new StringReader(WORD_LIST), snapshot);
+            BinaryLexicon binary = new BinaryLexicon(snapshot);
+            collector.checkThat(binary.getWords("word4", LexicalCategory.ANY).size(), equalTo(2));
+            collector.checkThat(binary.getWordsFromVariant("word7s", LexicalCategory.NOUN).size(), equalTo(1));
+        } finally {
+            snapshot.delete();
+        }
+        lexicon.close();
+    }
+}
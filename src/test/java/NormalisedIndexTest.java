@@ -0,0 +1,58 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+import simplenlg.framework.LexicalCategory;
+import simplenlg.framework.WordElement;
+import simplenlg.lexicon.XMLLexicon;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+
+public class NormalisedIndexTest {
+
+    @Rule
+    public ErrorCollector collector = new ErrorCollector();
+
+    @Test
+    public void capitalisedWordsAreFoundInsteadOfCreated() {
+        XMLLexicon lexicon = new simplenlg.lexicon.dutch.XMLLexicon();
+        collector.checkThat(lexicon.getNormalisedIndex(), nullValue());
+        lexicon.enableNormalisedLookup(false);
+
+        WordElement huis = lexicon.getWord("huis", LexicalCategory.NOUN);
+        collector.checkThat(lexicon.lookupWord("Huis", LexicalCategory.NOUN), sameInstance(huis));
+        collector.checkThat(lexicon.lookupWord("HUIZEN", LexicalCategory.NOUN), sameInstance(huis));
+
+        // the Dutch digraph, capitalised or as a ligature
+        WordElement ijs = lexicon.getWord("ijs", LexicalCategory.ANY);
+        collector.checkThat(lexicon.lookupWord("IJs"), sameInstance(ijs));
+        collector.checkThat(lexicon.lookupWord("\u0132s"), sameInstance(ijs));
+
+        // words found as such don't use the index
+        lexicon.lookupWord("huis", LexicalCategory.NOUN);
+        collector.checkThat(lexicon.getNormalisedIndex().getLookups(), equalTo(4L));
+        collector.checkThat(lexicon.getNormalisedIndex().getRescues(), equalTo(4L));
+
+        // unknown words are still created
+        collector.checkThat(lexicon.lookupWord("Xyzzy", LexicalCategory.NOUN).getBaseForm(), equalTo("Xyzzy"));
+        collector.checkThat(lexicon.getNormalisedIndex().getRescues(), equalTo(4L));
+    }
+
+    @Test
+    public void accentsAreFoldedOnlyIfAsked() {
+        XMLLexicon lexicon = new simplenlg.lexicon.french.XMLLexicon();
+        WordElement eleve = lexicon.getWord("élève", LexicalCategory.NOUN);
+
+        lexicon.enableNormalisedLookup(false);
+        collector.checkThat(lexicon.getWords("Élève", LexicalCategory.NOUN).isEmpty(), equalTo(true));
+        collector.checkThat(lexicon.lookupWord("Élève", LexicalCategory.NOUN), sameInstance(eleve));
+        // combining accents are composed
+        collector.checkThat(lexicon.lookupWord("E\u0301le\u0300ve", LexicalCategory.NOUN), sameInstance(eleve));
+        collector.checkThat(lexicon.getNormalisedIndex().getRescues(), equalTo(2L));
+
+        lexicon.enableNormalisedLookup(true);
+        collector.checkThat(lexicon.lookupWord("eleve", LexicalCategory.NOUN), sameInstance(eleve));
+        collector.checkThat(lexicon.getNormalisedIndex().getRescues(), equalTo(1L));
+    }
+}
@@ -0,0 +1,115 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+import simplenlg.framework.LexicalCategory;
+import simplenlg.framework.WordElement;
+import simplenlg.lexicon.BinaryLexicon;
+import simplenlg.lexicon.XMLLexicon;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+
+public class ParallelXMLLexiconTest {
+
+    @Rule
+    public ErrorCollector collector = new ErrorCollector();
+
+    /** fails to convert one word of the lexicon */
+    private static class FailingLexicon extends simplenlg.lexicon.dutch.XMLLexicon {
+        FailingLexicon(Executor executor) {
+            super(executor);
+        }
+
+        @Override
+        protected WordElement convertFeatureValues(WordElement word) {
+            if ("huis".equals(word.getBaseForm()))
+                throw new IllegalStateException("can't convert " + word.getBaseForm());
+            return super.convertFeatureValues(word);
+        }
+    }
+
+    @Test
+    public void parallelLoadingFailsAsSequentialLoading() {
+        for (Executor executor : new Executor[] { null, ForkJoinPool.commonPool() }) {
+            String error = null;
+            try {
+                new FailingLexicon(executor);
+            } catch (IllegalStateException e) {
+                error = e.getMessage();
+            }
+            collector.checkThat(String.valueOf(executor), error, equalTo("can't convert huis"));
+        }
+    }
+
+    @Test
+    public void parallelLoadingIndexesAsSequentialLoading() throws IOException {
+        // copies of the lexicons, so that their variants are computed
+        // rather than read from a variant index
+        File dutchFile = copyResource("default-dutch-lexicon.xml");
+        File frenchFile = copyResource("default-french-lexicon.xml");
+        checkSameIndexes(new simplenlg.lexicon.dutch.XMLLexicon(dutchFile, null),
+                new simplenlg.lexicon.dutch.XMLLexicon(dutchFile, ForkJoinPool.commonPool()));
+        checkSameIndexes(new simplenlg.lexicon.french.XMLLexicon(frenchFile, null),
+                new simplenlg.lexicon.french.XMLLexicon(frenchFile, ForkJoinPool.commonPool()));
+    }
+
+    private void checkSameIndexes(XMLLexicon sequential, XMLLexicon parallel) throws IOException {
+        // the words in order, and the indexes by base form, ID and category
+        List<WordElement> words = sequential.getWords(LexicalCategory.ANY, null);
+        checkSameWords(words, parallel.getWords(LexicalCategory.ANY, null));
+        for (WordElement word : words) {
+            checkSameWords(sequential.getWords(word.getBaseForm(), LexicalCategory.ANY),
+                    parallel.getWords(word.getBaseForm(), LexicalCategory.ANY));
+            if (word.getId() != null) {
+                checkSameWords(sequential.getWordsByID(word.getId()), parallel.getWordsByID(word.getId()));
+            }
+        }
+        for (LexicalCategory category : LexicalCategory.values()) {
+            checkSameWords(sequential.getWords(category, null), parallel.getWords(category, null));
+        }
+
+        // and all the indexes, including the index by variant, as written in
+        // a snapshot
+        collector.checkThat(Arrays.equals(snapshot(parallel), snapshot(sequential)), equalTo(true));
+    }
+
+    private void checkSameWords(List<WordElement> expected, List<WordElement> actual) {
+        collector.checkThat(actual.size(), equalTo(expected.size()));
+        for (int i = 0; i < Math.min(expected.size(), actual.size()); i++) {
+            collector.checkThat(actual.get(i).getBaseForm(), equalTo(expected.get(i).getBaseForm()));
+            collector.checkThat(actual.get(i).getId(), equalTo(expected.get(i).getId()));
+            collector.checkThat(actual.get(i).getAllFeatures(), equalTo(expected.get(i).getAllFeatures()));
+        }
+    }
+
+    private static byte[] snapshot(XMLLexicon lexicon) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        BinaryLexicon.write(lexicon, output);
+        return output.toByteArray();
+    }
+
+    private static File copyResource(String name) throws IOException {
+        File file = File.createTempFile("lexicon", ".xml");
+        file.deleteOnExit();
+        InputStream input = ParallelXMLLexiconTest.class.getClassLoader().getResourceAsStream(name);
+        OutputStream output = new FileOutputStream(file);
+        try {
+            byte[] buffer = new byte[8192];
+            for (int read; (read = input.read(buffer)) >= 0; ) output.write(buffer, 0, read);
+        } finally {
+            input.close();
+            output.close();
+        }
+        return file;
+    }
+}
@@ -0,0 +1,113 @@
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+
+import simplenlg.features.Feature;
+import simplenlg.framework.LexicalCategory;
+import simplenlg.framework.NLGElement;
+import simplenlg.framework.NLGFactory;
+import simplenlg.framework.PhraseCategory;
+import simplenlg.framework.PhraseTemplate;
+import simplenlg.phrasespec.NPPhraseSpec;
+import simplenlg.phrasespec.SPhraseSpec;
+import simplenlg.realiser.Realiser;
+
+/**
+ * Measures the clauses "subject heeft amount objects gekocht" realised per
+ * second, and the bytes allocated per clause, when the clause is built again
+ * through the factory for each realisation and when it is bound from a
+ * <code>PhraseTemplate</code>. The building and binding alone are also
+ * measured. Not a unit test, run with
+ *
+ * <pre>
+ * java PhraseTemplateBenchmark [seconds per run]
+ * </pre>
+ *
+ * (the allocation rate is read from the JVM's per-thread counters, so it is
+ * only printed on JVMs which have them, such as HotSpot).
+ */
+public class PhraseTemplateBenchmark {
+
+    private static final String[][] VALUES = {{"de vrouw", "drie", "appel"}, {"hij", "twee", "boek"},
+            {"wij", "vier", "huis"}, {"de man", "vijf", "fiets"}};
+
+    private static long sink;
+
+    public static void main(String[] args) {
+        long millis = (args.length > 0 ? Long.parseLong(args[0]) : 3) * 1000;
+        NLGFactory factory = new NLGFactory(new simplenlg.lexicon.dutch.XMLLexicon());
+        Realiser realiser = new Realiser();
+        PhraseTemplate template = new PhraseTemplate(buildClause(factory,
+                PhraseTemplate.createSlot("subject", PhraseCategory.NOUN_PHRASE),
+                PhraseTemplate.createSlot("amount", LexicalCategory.NUMERAL),
+                PhraseTemplate.createSlot("object", LexicalCategory.NOUN)));
+
+        for (boolean realise : new boolean[]{false, true}) {
+            String what = realise ? "realised" : "built";
+            run(factory, realiser, null, realise, millis);
+            printRate("rebuilt clause " + what, run(factory, realiser, null, realise, millis), millis);
+            run(factory, realiser, template, realise, millis);
+            printRate("template clause " + what, run(factory, realiser, template, realise, millis), millis);
+        }
+    }
+
+    private static SPhraseSpec buildClause(NLGFactory factory, Object subject, Object amount, Object object) {
+        NPPhraseSpec objectPhrase = factory.createNounPhrase(object);
+        objectPhrase.setSpecifier(amount);
+        objectPhrase.setPlural(true);
+        SPhraseSpec clause = factory.createClause(subject, "kopen", objectPhrase);
+        clause.setFeature(Feature.PERFECT, true);
+        return clause;
+    }
+
+    /**
+     * build the clauses, or bind them from the template if there is one, and
+     * realise them if asked
+     *
+     * @return the number of clauses, and the bytes allocated
+     */
+    private static long[] run(NLGFactory factory, Realiser realiser, PhraseTemplate template,
+            boolean realise, long millis) {
+        Map<String, Object> values = new HashMap<String, Object>();
+        long bytes = allocatedBytes();
+        long count = 0;
+        long end = System.currentTimeMillis() + millis;
+        while (System.currentTimeMillis() < end) {
+            for (String[] value : VALUES) {
+                NLGElement clause;
+                if (template == null) {
+                    clause = buildClause(factory, value[0], value[1], value[2]);
+                } else {
+                    values.put("subject", value[0]);
+                    values.put("amount", value[1]);
+                    values.put("object", value[2]);
+                    clause = template.bind(values);
+                }
+                if (realise) sink += realiser.realiseSentence(clause).length();
+                else sink += System.identityHashCode(clause);
+            }
+            count += VALUES.length;
+        }
+        return new long[]{count, allocatedBytes() - bytes};
+    }
+
+    private static void printRate(String name, long[] result, long millis) {
+        if (result[1] < 0) {
+            System.out.printf("%s: %.0f/s%n", name, result[0] * 1000.0 / millis);
+        } else {
+            System.out.printf("%s: %.0f/s, %d bytes allocated each%n", name,
+                    result[0] * 1000.0 / millis, result[1] / result[0]);
+        }
+    }
+
+    /**
+     * @return the bytes allocated by this thread, or -1 if unknown
+     */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+}
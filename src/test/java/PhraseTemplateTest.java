@@ -0,0 +1,123 @@
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+import simplenlg.features.Feature;
+import simplenlg.framework.LexicalCategory;
+import simplenlg.framework.NLGElement;
+import simplenlg.framework.NLGFactory;
+import simplenlg.framework.PhraseCategory;
+import simplenlg.framework.PhraseTemplate;
+import simplenlg.phrasespec.NPPhraseSpec;
+import simplenlg.phrasespec.SPhraseSpec;
+import simplenlg.realiser.Realiser;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+
+public class PhraseTemplateTest {
+
+    @Rule
+    public ErrorCollector collector = new ErrorCollector();
+
+    private final NLGFactory factory = new NLGFactory(new simplenlg.lexicon.dutch.XMLLexicon());
+    private final Realiser realiser = new Realiser();
+
+    private static Map<String, Object> values(Object subject, String amount, String object) {
+        Map<String, Object> values = new HashMap<String, Object>();
+        values.put("subject", subject);
+        values.put("amount", amount);
+        values.put("object", object);
+        return values;
+    }
+
+    /**
+     * @return the clause "subject heeft amount objects gekocht", with the
+     *         given subject, amount and object, or with slots
+     */
+    private SPhraseSpec buildClause(Object subject, Object amount, Object object) {
+        NPPhraseSpec objectPhrase = factory.createNounPhrase(object);
+        objectPhrase.setSpecifier(amount);
+        objectPhrase.setPlural(true);
+        SPhraseSpec clause = factory.createClause(subject, "kopen", objectPhrase);
+        clause.setFeature(Feature.PERFECT, true);
+        return clause;
+    }
+
+    @Test
+    public void templatesAreRealisedAsTheSamePhraseBuiltWithTheValues() {
+        SPhraseSpec clause = buildClause(PhraseTemplate.createSlot("subject", PhraseCategory.NOUN_PHRASE),
+                PhraseTemplate.createSlot("amount", LexicalCategory.NUMERAL),
+                PhraseTemplate.createSlot("object", LexicalCategory.NOUN));
+        PhraseTemplate template = new PhraseTemplate(clause);
+        collector.checkThat(template.getSlotNames().size(), equalTo(3));
+
+        NPPhraseSpec man = factory.createNounPhrase("de", "man");
+        Object[][] values = {{"de vrouw", "drie", "appel"}, {"wij", "twee", "boek"}, {man, "vier", "huis"},
+                {man, "drie", "appel"}};
+        for (int i = 0; i < 2; i++) {
+            for (Object[] value : values) {
+                String realised = realiser.realiseSentence(
+                        template.bind(values(value[0], (String) value[1], (String) value[2])));
+                Object subject = value[0] == man ? factory.createNounPhrase("de", "man") : value[0];
+                collector.checkThat(realised, equalTo(realiser.realiseSentence(buildClause(subject, value[1], value[2]))));
+            }
+        }
+        collector.checkThat(realiser.realiseSentence(template.bind(values("de vrouw", "drie", "appel"))),
+                equalTo("De vrouw heeft drie appels gekocht."));
+    }
+
+    /**
+     * @return the clause "hij koopt een klein object", with the given object
+     */
+    private SPhraseSpec buildSingularClause(Object object) {
+        NPPhraseSpec objectPhrase = factory.createNounPhrase("een", object);
+        objectPhrase.addPreModifier("klein");
+        return factory.createClause("hij", "kopen", objectPhrase);
+    }
+
+    @Test
+    public void boundHeadsGiveTheirFeaturesToTheirPhrase() {
+        PhraseTemplate template = new PhraseTemplate(
+                buildSingularClause(PhraseTemplate.createSlot("object", LexicalCategory.NOUN)));
+        // a common gender noun, a neuter noun, and a common gender noun again
+        for (String object : new String[] { "stad", "huis", "vrouw" }) {
+            Map<String, Object> values = new HashMap<String, Object>();
+            values.put("object", object);
+            collector.checkThat(realiser.realiseSentence(template.bind(values)),
+                    equalTo(realiser.realiseSentence(buildSingularClause(object))));
+        }
+        Map<String, Object> values = new HashMap<String, Object>();
+        values.put("object", "stad");
+        collector.checkThat(realiser.realiseSentence(template.bind(values)), equalTo("Hij koopt een kleine stad."));
+        values.put("object", "huis");
+        collector.checkThat(realiser.realiseSentence(template.bind(values)), equalTo("Hij koopt een klein huis."));
+    }
+
+    @Test
+    public void thePhraseOfATemplateIsFrozen() {
+        SPhraseSpec clause = buildClause(PhraseTemplate.createSlot("subject", PhraseCategory.NOUN_PHRASE),
+                "drie", "appel");
+        PhraseTemplate template = new PhraseTemplate(clause);
+        String tree = clause.printTree("");
+
+        NLGElement bound = template.bind(values("hij", null, null));
+        bound.setFeature(Feature.NEGATED, true);
+        collector.checkThat(realiser.realiseSentence(bound), equalTo("Hij heeft niet drie appels gekocht."));
+        collector.checkThat(clause.printTree(""), equalTo(tree));
+
+        try {
+            clause.setFeature(Feature.NEGATED, true);
+            collector.addError(new AssertionError("the phrase of a template was changed"));
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            template.bind(new HashMap<String, Object>());
+            collector.addError(new AssertionError("a slot without value was bound"));
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
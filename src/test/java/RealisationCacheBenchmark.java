@@ -0,0 +1,104 @@
+import java.lang.management.ManagementFactory;
+
+import simplenlg.features.Feature;
+import simplenlg.framework.NLGFactory;
+import simplenlg.framework.RealisationCache;
+import simplenlg.phrasespec.NPPhraseSpec;
+import simplenlg.phrasespec.PPPhraseSpec;
+import simplenlg.phrasespec.SPhraseSpec;
+import simplenlg.realiser.Realiser;
+
+/**
+ * Measures the clauses realised per second, and the bytes allocated per
+ * clause, with and without a <code>RealisationCache</code>, for clauses such
+ * as "de totale omzet is in het afgelopen kwartaal gestegen" whose noun and
+ * preposition phrases come back from clause to clause, as in generated
+ * reports. The clauses are built again for each realisation in both cases.
+ * Not a unit test, run with
+ *
+ * <pre>
+ * java RealisationCacheBenchmark [seconds per run]
+ * </pre>
+ *
+ * (the allocation rate is read from the JVM's per-thread counters, so it is
+ * only printed on JVMs which have them, such as HotSpot).
+ */
+public class RealisationCacheBenchmark {
+
+    private static final String[][] SUBJECTS = {{"totaal", "omzet"}, {"gemiddeld", "prijs"},
+            {"nieuw", "klant"}, {"groot", "order"}};
+
+    private static final String[] VERBS = {"stijgen", "dalen", "groeien"};
+
+    private static final String[][] PERIODS = {{"in", "afgelopen"}, {"na", "vorig"}};
+
+    private static long sink;
+
+    public static void main(String[] args) {
+        long millis = (args.length > 0 ? Long.parseLong(args[0]) : 3) * 1000;
+        NLGFactory factory = new NLGFactory(new simplenlg.lexicon.dutch.XMLLexicon());
+        Realiser realiser = new Realiser();
+        RealisationCache cache = new RealisationCache();
+
+        for (boolean cached : new boolean[]{false, true}) {
+            factory.setRealisationCache(cached ? cache : null);
+            run(factory, realiser, millis);
+            printRate(cached ? "cached clause" : "uncached clause", run(factory, realiser, millis), millis);
+        }
+        System.out.printf("hit rate %.3f, %s%n", cache.getHitRate(), cache);
+    }
+
+    private static SPhraseSpec buildClause(NLGFactory factory, String[] subject, String verb, String[] period) {
+        NPPhraseSpec subjectPhrase = factory.createNounPhrase("de", subject[1]);
+        subjectPhrase.addPreModifier(subject[0]);
+        NPPhraseSpec periodPhrase = factory.createNounPhrase("het", "kwartaal");
+        periodPhrase.addPreModifier(period[1]);
+        PPPhraseSpec when = factory.createPrepositionPhrase(period[0], periodPhrase);
+        SPhraseSpec clause = factory.createClause(subjectPhrase, verb);
+        clause.addComplement(when);
+        clause.setFeature(Feature.PERFECT, true);
+        return clause;
+    }
+
+    /**
+     * build and realise the clauses
+     *
+     * @return the number of clauses, and the bytes allocated
+     */
+    private static long[] run(NLGFactory factory, Realiser realiser, long millis) {
+        long bytes = allocatedBytes();
+        long count = 0;
+        long end = System.currentTimeMillis() + millis;
+        while (System.currentTimeMillis() < end) {
+            for (String[] subject : SUBJECTS) {
+                for (String verb : VERBS) {
+                    for (String[] period : PERIODS) {
+                        sink += realiser.realiseSentence(buildClause(factory, subject, verb, period)).length();
+                        count++;
+                    }
+                }
+            }
+        }
+        return new long[]{count, allocatedBytes() - bytes};
+    }
+
+    private static void printRate(String name, long[] result, long millis) {
+        if (result[1] < 0) {
+            System.out.printf("%s: %.0f/s%n", name, result[0] * 1000.0 / millis);
+        } else {
+            System.out.printf("%s: %.0f/s, %d bytes allocated each%n", name,
+                    result[0] * 1000.0 / millis, result[1] / result[0]);
+        }
+    }
+
+    /**
+     * @return the bytes allocated by this thread, or -1 if unknown
+     */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,82 @@
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+import simplenlg.features.Feature;
+import simplenlg.framework.NLGFactory;
+import simplenlg.framework.RealisationCache;
+import simplenlg.phrasespec.NPPhraseSpec;
+import simplenlg.phrasespec.SPhraseSpec;
+import simplenlg.realiser.Realiser;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+
+public class RealisationCacheTest {
+
+    @Rule
+    public ErrorCollector collector = new ErrorCollector();
+
+    private final NLGFactory factory = new NLGFactory(new simplenlg.lexicon.dutch.XMLLexicon());
+    private final Realiser realiser = new Realiser();
+
+    /**
+     * @return clauses whose noun and preposition phrases come back, in
+     *         other places and with other agreements
+     */
+    private List<SPhraseSpec> buildClauses() {
+        List<SPhraseSpec> clauses = new ArrayList<SPhraseSpec>();
+        String[] specifiers = {"het", "een", "de"};
+        for (int i = 0; i < 12; i++) {
+            NPPhraseSpec subject = factory.createNounPhrase("de", "vrouw");
+            subject.addPreModifier("groot");
+            subject.setPlural(i % 4 == 0);
+            NPPhraseSpec object = factory.createNounPhrase(specifiers[i % 3], "huis");
+            object.addPreModifier("klein");
+            object.setPlural(i % 5 == 0);
+            SPhraseSpec clause = factory.createClause(subject, "kopen", object);
+            clause.addComplement(factory.createPrepositionPhrase("in", factory.createNounPhrase("de", "stad")));
+            clause.setFeature(Feature.NEGATED, i % 2 == 1);
+            clause.setFeature(Feature.PERFECT, i % 3 == 2);
+            clauses.add(clause);
+        }
+        return clauses;
+    }
+
+    private List<String> realise(List<SPhraseSpec> clauses) {
+        List<String> realised = new ArrayList<String>();
+        for (SPhraseSpec clause : clauses) {
+            realised.add(realiser.realiseSentence(clause));
+        }
+        return realised;
+    }
+
+    @Test
+    public void cachedRealisationsAreThoseOfThePhrases() {
+        List<String> expected = realise(buildClauses());
+        collector.checkThat(expected.get(1), equalTo("De grote vrouw koopt niet een klein huis in de stad."));
+
+        RealisationCache cache = new RealisationCache();
+        factory.setRealisationCache(cache);
+        collector.checkThat(realise(buildClauses()), equalTo(expected));
+        collector.checkThat(realise(buildClauses()), equalTo(expected));
+        collector.checkThat(cache.getHits() > 0, equalTo(true));
+        collector.checkThat(cache.getHitRate() > 0.5, equalTo(true));
+    }
+
+    @Test
+    public void theCacheIsBoundedAndCanBeSwitchedOff() {
+        List<String> expected = realise(buildClauses());
+        RealisationCache cache = new RealisationCache(2);
+        factory.setRealisationCache(cache);
+        collector.checkThat(realise(buildClauses()), equalTo(expected));
+        collector.checkThat(cache.size() <= 2, equalTo(true));
+        collector.checkThat(cache.getEvictions() > 0, equalTo(true));
+
+        cache.setEnabled(false);
+        long lookups = cache.getHits() + cache.getMisses();
+        collector.checkThat(realise(buildClauses()), equalTo(expected));
+        collector.checkThat(cache.getHits() + cache.getMisses(), equalTo(lookups));
+    }
+}
@@ -0,0 +1,80 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+import simplenlg.framework.LexicalCategory;
+import simplenlg.framework.NLGFactory;
+import simplenlg.lexicon.Lexicon;
+import simplenlg.lexicon.ReloadableLexicon;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+
+public class ReloadableLexiconTest {
+
+    @Rule
+    public ErrorCollector collector = new ErrorCollector();
+
+    @Test
+    public void newVersionIsSwappedInForNewRequests() throws Exception {
+        final File file = File.createTempFile("lexicon", ".xml");
+        file.deleteOnExit();
+        writeLexicon(file, "huis");
+        ReloadableLexicon lexicons = new ReloadableLexicon(new Callable<Lexicon>() {
+            public Lexicon call() throws IOException {
+                return new simplenlg.lexicon.dutch.XMLLexicon(file).checkLoaded();
+            }
+        });
+        collector.checkThat(lexicons.getVersion(), equalTo(1L));
+
+        // a request which started before the reload keeps its version
+        NLGFactory running = lexicons.createFactory();
+        writeLexicon(file, "boom");
+        collector.checkThat(lexicons.reloadInBackground().get(10, TimeUnit.SECONDS), equalTo(true));
+        collector.checkThat(lexicons.getVersion(), equalTo(2L));
+        collector.checkThat(running.getLexicon(), not(sameInstance(lexicons.get())));
+        collector.checkThat(running.getLexicon().hasWord("boom", LexicalCategory.NOUN), equalTo(false));
+        collector.checkThat(lexicons.get().hasWord("boom", LexicalCategory.NOUN), equalTo(true));
+        collector.checkThat(lexicons.get().hasWord("huis", LexicalCategory.NOUN), equalTo(false));
+
+        // a version which can't be loaded is not swapped in
+        Lexicon loaded = lexicons.get();
+        file.delete();
+        collector.checkThat(lexicons.reload(), equalTo(false));
+        collector.checkThat(lexicons.get(), sameInstance(loaded));
+        collector.checkThat(lexicons.getVersion(), equalTo(2L));
+        collector.checkThat(lexicons.getFailedLoads(), equalTo(1L));
+        collector.checkThat(lexicons.getLastError(), not(nullValue()));
+
+        // nor a version whose file was broken by an edit
+        Writer writer = new FileWriter(file);
+        try {
+            writer.write("<lexicon>\n<word><base>boom</base><category>noun</category><id>R1</id></word>\n"
+                    + "<word><base>huis</base><category>noun</category>\n</lexicon>\n");
+        } finally {
+            writer.close();
+        }
+        collector.checkThat(lexicons.reload(), equalTo(false));
+        collector.checkThat(lexicons.get(), sameInstance(loaded));
+        collector.checkThat(lexicons.getVersion(), equalTo(2L));
+        collector.checkThat(lexicons.getFailedLoads(), equalTo(2L));
+    }
+
+    private static void writeLexicon(File file, String noun) throws IOException {
+        Writer writer = new FileWriter(file);
+        try {
+            writer.write("<lexicon>\n<word><base>" + noun + "</base><category>noun</category>"
+                    + "<id>R1</id></word>\n</lexicon>\n");
+        } finally {
+            writer.close();
+        }
+    }
+}
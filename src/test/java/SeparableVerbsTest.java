@@ -0,0 +1,115 @@
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+import simplenlg.features.Feature;
+import simplenlg.features.Tense;
+import simplenlg.framework.Language;
+import simplenlg.framework.LexicalCategory;
+import simplenlg.framework.NLGFactory;
+import simplenlg.framework.WordElement;
+import simplenlg.lexicon.CachingLexicon;
+import simplenlg.lexicon.Lexicon;
+import simplenlg.lexicon.MultipleLexicon;
+import simplenlg.lexicon.OverlayLexicon;
+import simplenlg.lexicon.dutch.SeparableVerbs;
+import simplenlg.lexicon.dutch.SeparableVerbs.SeparableVerb;
+import simplenlg.lexicon.dutch.XMLLexicon;
+import simplenlg.phrasespec.SPhraseSpec;
+import simplenlg.realiser.Realiser;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+
+public class SeparableVerbsTest {
+
+    @Rule
+    public ErrorCollector collector = new ErrorCollector();
+
+    @Test
+    public void baseFormsAreSplitOnParticles() {
+        SeparableVerb opbellen = SeparableVerbs.split("opbellen");
+        collector.checkThat(opbellen.getParticle(), equalTo("op"));
+        collector.checkThat(opbellen.getMainVerb(), equalTo("bellen"));
+        collector.checkThat(opbellen.getJoinedForm(), equalTo("opbellen"));
+
+        // the last particle of the list which starts the base form
+        collector.checkThat(SeparableVerbs.findParticle("terugkomen"), equalTo("terug"));
+        collector.checkThat(SeparableVerbs.findParticle("tegenkomen"), equalTo("tegen"));
+
+        // a pipe from the user input marks any particle
+        SeparableVerb vrijkomen = SeparableVerbs.split("vrij|komen");
+        collector.checkThat(vrijkomen.getParticle(), equalTo("vrij"));
+        collector.checkThat(vrijkomen.getMainVerb(), equalTo("komen"));
+        collector.checkThat(vrijkomen.getJoinedForm(), equalTo("vrijkomen"));
+
+        // too short, or no particle
+        collector.checkThat(SeparableVerbs.split("open"), nullValue());
+        collector.checkThat(SeparableVerbs.split("lopen"), nullValue());
+    }
+
+    @Test
+    public void verbsOfTheLexiconAreSplitWhenLoaded() {
+        XMLLexicon lexicon = new XMLLexicon();
+        SeparableVerbs verbs = lexicon.getSeparableVerbs();
+        collector.checkThat(verbs.size() > 0, equalTo(true));
+
+        SeparableVerb tegenkomen = verbs.get("tegenkomen");
+        WordElement komen = lexicon.getWords("komen", LexicalCategory.VERB).get(0);
+        collector.checkThat(tegenkomen.getMainVerbWord(), sameInstance(komen));
+        collector.checkThat(verbs.get("tegenkomen"), sameInstance(tegenkomen));
+
+        // other lexicons split the verb, and leave its main verb to be looked
+        // up through them
+        Lexicon[] wrappers = {new OverlayLexicon(lexicon), new CachingLexicon(new OverlayLexicon(lexicon)),
+                new MultipleLexicon(new OverlayLexicon(lexicon))};
+        for (Lexicon wrapper : wrappers) {
+            SeparableVerb verb = SeparableVerbs.get(wrapper, "tegenkomen");
+            collector.checkThat(verb.getParticle(), equalTo("tegen"));
+            collector.checkThat(verb.getMainVerb(), equalTo("komen"));
+            collector.checkThat(verb.getMainWord(), nullValue());
+        }
+
+        // verbs which aren't in the lexicon are split when asked
+        SeparableVerb opxyzzen = verbs.get("opxyzzen");
+        collector.checkThat(opxyzzen, notNullValue());
+        collector.checkThat(opxyzzen.getMainWord(), nullValue());
+    }
+
+    @Test
+    public void mainVerbsAreLookedUpThroughTheLexiconOfTheVerb() throws IOException {
+        File file = File.createTempFile("domain-lexicon", ".xml");
+        file.deleteOnExit();
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            writer.write("<lexicon><word><base>komen</base><category>verb</category>"
+                    + "<present3s>komt</present3s><past>kwom</past></word></lexicon>");
+        } finally {
+            writer.close();
+        }
+        XMLLexicon dutch = new XMLLexicon();
+        MultipleLexicon lexicon = new MultipleLexicon(Language.DUTCH,
+                new simplenlg.lexicon.XMLLexicon(Language.DUTCH, file), dutch);
+        NLGFactory factory = new NLGFactory(lexicon);
+        Realiser realiser = new Realiser();
+
+        // a verb of the lexicons uses the main verb of the domain lexicon in
+        // front, whichever lexicon split the verb
+        SPhraseSpec clause = factory.createClause("hij",
+                new WordElement("tegenkomen", LexicalCategory.VERB, lexicon), "haar");
+        clause.setFeature(Feature.TENSE, Tense.PAST);
+        collector.checkThat(realiser.realiseSentence(clause), equalTo("Hij kwom haar tegen."));
+
+        // a verb of the Dutch lexicon, the main verb of that lexicon
+        clause = factory.createClause("hij", dutch.getWord("tegenkomen", LexicalCategory.VERB), "haar");
+        clause.setFeature(Feature.TENSE, Tense.PAST);
+        collector.checkThat(realiser.realiseSentence(clause), equalTo("Hij kwam haar tegen."));
+    }
+}
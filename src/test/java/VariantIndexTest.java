@@ -0,0 +1,80 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+import simplenlg.framework.LexicalCategory;
+import simplenlg.lexicon.VariantIndex;
+import simplenlg.lexicon.XMLLexicon;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+
+public class VariantIndexTest {
+
+    @Rule
+    public ErrorCollector collector = new ErrorCollector();
+
+    @Test
+    public void indexesAreOnlySavedInAConfiguredDirectory() throws IOException {
+        File file = writeLexicon();
+        String previous = System.clearProperty(VariantIndex.DIRECTORY_PROPERTY);
+        File directory = Files.createTempDirectory("variants").toFile();
+        try {
+            // no directory: nothing is written, not even in the temporary directory
+            XMLLexicon computed = new simplenlg.lexicon.dutch.XMLLexicon(file);
+            File shared = new File(System.getProperty("java.io.tmpdir"), "simplenlg");
+            collector.checkThat(countIndexes(shared, file.getName()), equalTo(0));
+
+            // a configured directory is used, and the index gives the same variants
+            System.setProperty(VariantIndex.DIRECTORY_PROPERTY, directory.getPath());
+            new simplenlg.lexicon.dutch.XMLLexicon(file);
+            collector.checkThat(countIndexes(directory, file.getName()), equalTo(1));
+            XMLLexicon indexed = new simplenlg.lexicon.dutch.XMLLexicon(file, true);
+            collector.checkThat(computed.getWordsFromVariant("liep", LexicalCategory.VERB).size(), equalTo(1));
+            for (String variant : new String[] { "huizen", "liep", "gelopen" }) {
+                collector.checkThat(variant, indexed.getWordsFromVariant(variant, LexicalCategory.ANY),
+                        equalTo(computed.getWordsFromVariant(variant, LexicalCategory.ANY)));
+            }
+        } finally {
+            if (previous != null) {
+                System.setProperty(VariantIndex.DIRECTORY_PROPERTY, previous);
+            } else {
+                System.clearProperty(VariantIndex.DIRECTORY_PROPERTY);
+            }
+            for (File index : directory.listFiles()) index.delete();
+            directory.delete();
+        }
+    }
+
+    private static int countIndexes(File directory, String lexiconName) {
+        File[] files = directory.listFiles();
+        int count = 0;
+        if (files != null) {
+            for (File index : files) {
+                if (index.getName().startsWith(lexiconName) && index.getName().endsWith(VariantIndex.EXTENSION))
+                    count++;
+            }
+        }
+        return count;
+    }
+
+    private static File writeLexicon() throws IOException {
+        File file = File.createTempFile("variants", ".xml");
+        file.deleteOnExit();
+        Writer writer = new FileWriter(file);
+        try {
+            writer.write("<lexicon>\n"
+                    + "<word><base>huis</base><category>noun</category><id>V1</id><plural>huizen</plural></word>\n"
+                    + "<word><base>lopen</base><category>verb</category><id>V2</id>"
+                    + "<past>liep</past><pastParticiple>gelopen</pastParticiple></word>\n"
+                    + "</lexicon>\n");
+        } finally {
+            writer.close();
+        }
+        return file;
+    }
+}
@@ -0,0 +1,102 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+import simplenlg.features.LexicalFeature;
+import simplenlg.framework.LexicalCategory;
+import simplenlg.framework.WordElement;
+import simplenlg.lexicon.XMLLexicon;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+
+public class XMLLexiconDeltaTest {
+
+    @Rule
+    public ErrorCollector collector = new ErrorCollector();
+
+    @Test
+    public void deltaAddsReplacesAndRemovesWords() throws IOException {
+        XMLLexicon lexicon = new simplenlg.lexicon.dutch.XMLLexicon();
+        int nouns = lexicon.getWords(LexicalCategory.NOUN, null).size();
+        collector.checkThat(lexicon.getWords("hebben", LexicalCategory.VERB).size(), equalTo(1));
+
+        collector.checkThat(lexicon.applyDelta(writeDelta("<add>" + word("blockchains") + "</add>"
+                + "<remove><id>E0030898</id></remove>")), equalTo(2));
+        WordElement added = lexicon.getWord("blockchain", LexicalCategory.NOUN);
+        collector.checkThat(lexicon.getWordsByID("D1").get(0) == added, equalTo(true));
+        collector.checkThat(lexicon.getWordsFromVariant("blockchains", LexicalCategory.NOUN).size(), equalTo(1));
+        collector.checkThat(lexicon.getWords("hebben", LexicalCategory.VERB).isEmpty(), equalTo(true));
+        collector.checkThat(lexicon.getWordsByID("E0030898").isEmpty(), equalTo(true));
+
+        // the variants of the replaced word are computed again
+        collector.checkThat(lexicon.applyDelta(writeDelta("<replace>" + word("blockchainen") + "</replace>")),
+                equalTo(1));
+        List<WordElement> replaced = lexicon.getWords("blockchain", LexicalCategory.NOUN);
+        collector.checkThat(replaced.size(), equalTo(1));
+        collector.checkThat(replaced.get(0) == added, equalTo(false));
+        collector.checkThat(lexicon.getWordsFromVariant("blockchains", LexicalCategory.NOUN).isEmpty(),
+                equalTo(true));
+        collector.checkThat(lexicon.getWordsFromVariant("blockchainen", LexicalCategory.NOUN), equalTo(replaced));
+        collector.checkThat(lexicon.getWords(LexicalCategory.NOUN, null).size(), equalTo(nouns + 1));
+
+        // unknown IDs are skipped
+        collector.checkThat(lexicon.applyDelta(writeDelta("<remove><id>xyzzy</id></remove>"
+                + "<add>" + word("blockchains") + "</add>")), equalTo(0));
+    }
+
+    @Test
+    public void lookupsByFeaturesFollowTheDeltas() throws IOException {
+        XMLLexicon lexicon = new simplenlg.lexicon.dutch.XMLLexicon();
+        // the feature indexes are created before the deltas
+        collector.checkThat(withPlural(lexicon, LexicalCategory.NOUN, "blockchains").isEmpty(), equalTo(true));
+        collector.checkThat(withPlural(lexicon, LexicalCategory.ANY, "blockchains").isEmpty(), equalTo(true));
+        int nouns = lexicon.getWords(LexicalCategory.NOUN, new HashMap<String, Object>()).size();
+
+        lexicon.applyDelta(writeDelta("<add>" + word("blockchains") + "</add>"));
+        WordElement added = lexicon.getWord("blockchain", LexicalCategory.NOUN);
+        collector.checkThat(withPlural(lexicon, LexicalCategory.NOUN, "blockchains").get(0) == added, equalTo(true));
+        collector.checkThat(withPlural(lexicon, LexicalCategory.ANY, "blockchains").get(0) == added, equalTo(true));
+
+        lexicon.applyDelta(writeDelta("<replace>" + word("blockchainen") + "</replace>"));
+        collector.checkThat(withPlural(lexicon, LexicalCategory.NOUN, "blockchains").isEmpty(), equalTo(true));
+        collector.checkThat(withPlural(lexicon, LexicalCategory.NOUN, "blockchainen").size(), equalTo(1));
+        collector.checkThat(lexicon.getWords(LexicalCategory.NOUN, new HashMap<String, Object>()).size(),
+                equalTo(nouns + 1));
+
+        lexicon.applyDelta(writeDelta("<remove><id>D1</id></remove>"));
+        collector.checkThat(withPlural(lexicon, LexicalCategory.NOUN, "blockchainen").isEmpty(), equalTo(true));
+        collector.checkThat(withPlural(lexicon, LexicalCategory.ANY, "blockchainen").isEmpty(), equalTo(true));
+        collector.checkThat(lexicon.getWords(LexicalCategory.NOUN, new HashMap<String, Object>()).size(),
+                equalTo(nouns));
+    }
+
+    private static List<WordElement> withPlural(XMLLexicon lexicon, LexicalCategory category, String plural) {
+        Map<String, Object> features = new HashMap<String, Object>();
+        features.put(LexicalFeature.PLURAL, plural);
+        return lexicon.getWords(category, features);
+    }
+
+    private static String word(String plural) {
+        return "<word><base>blockchain</base><category>noun</category><id>D1</id>"
+                + "<plural>" + plural + "</plural><gender>common</gender></word>";
+    }
+
+    private static File writeDelta(String changes) throws IOException {
+        File file = File.createTempFile("delta", ".xml");
+        file.deleteOnExit();
+        Writer writer = new FileWriter(file);
+        try {
+            writer.write("<delta>\n" + changes + "\n</delta>\n");
+        } finally {
+            writer.close();
+        }
+        return file;
+    }
+}
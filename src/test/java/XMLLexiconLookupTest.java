@@ -0,0 +1,97 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+import simplenlg.framework.LexicalCategory;
+import simplenlg.framework.WordElement;
+import simplenlg.lexicon.XMLLexicon;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+
+public class XMLLexiconLookupTest {
+
+    @Rule
+    public ErrorCollector collector = new ErrorCollector();
+
+    @Test
+    public void wordsAreFoundPerCategoryInOrder() throws IOException {
+        XMLLexicon lexicon = new simplenlg.lexicon.dutch.XMLLexicon(writeFile("lexicon",
+                "<word><base>rood</base><category>adjective</category><id>L1</id></word>\n"
+                + "<word><base>rood</base><category>noun</category><id>L2</id></word>\n"
+                + "<word><base>rood</base><category>adjective</category><id>L3</id></word>\n"
+                + "<word><base>loop</base><category>noun</category><id>L4</id><plural>lopen</plural></word>\n"
+                + "<word><base>lopen</base><category>verb</category><id>L5</id></word>\n"));
+
+        checkIDs(lexicon.getWords("rood", LexicalCategory.ANY), "L1", "L2", "L3");
+        checkIDs(lexicon.getWords("rood", LexicalCategory.ADJECTIVE), "L1", "L3");
+        checkIDs(lexicon.getWords("rood", LexicalCategory.NOUN), "L2");
+        checkIDs(lexicon.getWords("rood", LexicalCategory.VERB));
+        checkIDs(lexicon.getWordsFromVariant("lopen", LexicalCategory.ANY), "L4", "L5");
+        checkIDs(lexicon.getWordsFromVariant("lopen", LexicalCategory.NOUN), "L4");
+        checkIDs(lexicon.getWordsFromVariant("lopen", LexicalCategory.VERB), "L5");
+
+        // the lists are live views of the index
+        List<WordElement> adjectives = lexicon.getWords("rood", LexicalCategory.ADJECTIVE);
+        List<WordElement> all = lexicon.getWords("rood", LexicalCategory.ANY);
+        lexicon.applyDelta(writeFile("delta", "<remove><id>L1</id></remove>"
+                + "<add><word><base>rood</base><category>adjective</category><id>L6</id></word></add>"));
+        checkIDs(adjectives, "L3", "L6");
+        checkIDs(all, "L2", "L3", "L6");
+        checkIDs(lexicon.getWords("rood", LexicalCategory.NOUN), "L2");
+
+        // the words of a single category are found again once the others are removed
+        lexicon.applyDelta(writeFile("delta", "<remove><id>L2</id></remove>"));
+        checkIDs(lexicon.getWords("rood", LexicalCategory.ADJECTIVE), "L3", "L6");
+        checkIDs(lexicon.getWords("rood", LexicalCategory.NOUN));
+        try {
+            all.clear();
+            collector.addError(new AssertionError("the words found can be changed"));
+        } catch (UnsupportedOperationException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void lookupWordTriesBaseFormThenVariantThenID() throws IOException {
+        // the ID of huis is a variant of lopen
+        XMLLexicon lexicon = new simplenlg.lexicon.dutch.XMLLexicon(writeFile("lexicon",
+                "<word><base>loop</base><category>noun</category><id>L1</id><plural>lopen</plural></word>\n"
+                + "<word><base>lopen</base><category>verb</category><id>L2</id><past>liep</past></word>\n"
+                + "<word><base>huis</base><category>noun</category><id>liep</id></word>\n"));
+
+        collector.checkThat(lexicon.lookupWord("lopen").getId(), equalTo("L2"));
+        collector.checkThat(lexicon.lookupWord("lopen", LexicalCategory.NOUN).getId(), equalTo("L1"));
+        collector.checkThat(lexicon.lookupWord("liep").getId(), equalTo("L2"));
+        collector.checkThat(lexicon.lookupWord("liep", LexicalCategory.NOUN).getId(), equalTo("liep"));
+        collector.checkThat(lexicon.lookupWord("L1").getBaseForm(), equalTo("loop"));
+
+        // and unknown words are created
+        WordElement created = lexicon.lookupWord("fiets", LexicalCategory.NOUN);
+        collector.checkThat(created.getBaseForm(), equalTo("fiets"));
+        collector.checkThat(created.getCategory() == LexicalCategory.NOUN, equalTo(true));
+    }
+
+    private void checkIDs(List<WordElement> words, String... ids) {
+        collector.checkThat(words.size(), equalTo(ids.length));
+        for (int i = 0; i < Math.min(words.size(), ids.length); i++) {
+            collector.checkThat(words.get(i).getId(), equalTo(ids[i]));
+        }
+    }
+
+    private static File writeFile(String root, String content) throws IOException {
+        File file = File.createTempFile(root, ".xml");
+        file.deleteOnExit();
+        Writer writer = new FileWriter(file);
+        try {
+            writer.write("<" + root + ">\n" + content + "</" + root + ">\n");
+        } finally {
+            writer.close();
+        }
+        return file;
+    }
+}
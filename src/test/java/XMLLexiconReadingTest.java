@@ -0,0 +1,82 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+import simplenlg.features.Gender;
+import simplenlg.features.LexicalFeature;
+import simplenlg.framework.LexicalCategory;
+import simplenlg.framework.WordElement;
+import simplenlg.lexicon.XMLLexicon;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+
+public class XMLLexiconReadingTest {
+
+    @Rule
+    public ErrorCollector collector = new ErrorCollector();
+
+    @Test
+    public void wordsAreReadWithTheirFeatures() throws IOException {
+        XMLLexicon lexicon = new simplenlg.lexicon.dutch.XMLLexicon(writeLexicon(
+                "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<lexicon>\n"
+                + "  <!-- the text of nested elements is part of the value -->\n"
+                + "  <word>\n"
+                + "    <base> huis </base>\n"
+                + "    <category>noun</category>\n"
+                + "    <id>R1</id>\n"
+                + "    <plural>hui<em>zen</em></plural>\n"
+                + "    <gender>neuter</gender>\n"
+                + "  </word>\n"
+                + "  <word><base>zijn</base><category>verb</category><id>R2</id>"
+                + "<irreg/><transitive/><past><![CDATA[was]]></past></word>\n"
+                + "  <word><base>snel</base><category>adjective</category><id>R3</id>"
+                + "<irreg/><reg/></word>\n"
+                + "  <notes><word><base>verborgen</base><category>noun</category></word></notes>\n"
+                + "</lexicon>\n"));
+
+        WordElement huis = lexicon.getWordsByID("R1").get(0);
+        collector.checkThat(huis.getBaseForm(), equalTo("huis"));
+        collector.checkThat(huis.getCategory() == LexicalCategory.NOUN, equalTo(true));
+        collector.checkThat(huis.getFeatureAsString(LexicalFeature.PLURAL), equalTo("huizen"));
+        // converted by the Dutch lexicon
+        collector.checkThat(huis.getFeature(LexicalFeature.GENDER) == Gender.NEUTER, equalTo(true));
+        // words without inflection elements are regular
+        collector.checkThat(huis.getFeature(LexicalFeature.INFLECTIONS), equalTo((Object) Arrays.asList("reg")));
+        collector.checkThat(huis.getFeatureAsString(LexicalFeature.DEFAULT_INFL), equalTo("reg"));
+
+        // empty elements are inflections or boolean features
+        WordElement zijn = lexicon.getWordsByID("R2").get(0);
+        collector.checkThat(zijn.getFeature(LexicalFeature.INFLECTIONS), equalTo((Object) Arrays.asList("irreg")));
+        collector.checkThat(zijn.getFeatureAsString(LexicalFeature.DEFAULT_INFL), equalTo("irreg"));
+        collector.checkThat(zijn.getFeatureAsBoolean("transitive"), equalTo(true));
+        collector.checkThat(zijn.getFeatureAsString(LexicalFeature.PAST), equalTo("was"));
+
+        // reg is the default inflection when there are several
+        WordElement snel = lexicon.getWordsByID("R3").get(0);
+        collector.checkThat(snel.getFeature(LexicalFeature.INFLECTIONS),
+                equalTo((Object) Arrays.asList("irreg", "reg")));
+        collector.checkThat(snel.getFeatureAsString(LexicalFeature.DEFAULT_INFL), equalTo("reg"));
+
+        // words nested in other elements are skipped
+        collector.checkThat(lexicon.hasWord("verborgen"), equalTo(false));
+        collector.checkThat(lexicon.getWords(LexicalCategory.ANY, null).size(), equalTo(3));
+    }
+
+    private static File writeLexicon(String content) throws IOException {
+        File file = File.createTempFile("reading", ".xml");
+        file.deleteOnExit();
+        Writer writer = new FileWriter(file);
+        try {
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+        return file;
+    }
+}